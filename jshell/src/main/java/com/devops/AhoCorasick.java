@@ -0,0 +1,251 @@
+package com.devops;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton over bytes, for searching many fixed strings in
+ * one pass (grep -F -f).
+ *
+ * The trie is built with first-child / next-sibling lists, failure and
+ * dictionary links are filled in breadth first, and the result is frozen
+ * into flat arrays: the root keeps a dense 256-entry row, every other state
+ * stores its edges as a sorted run in edgeLabel / edgeTarget (CSR layout,
+ * binary-searched when a state has many children). That costs about twenty
+ * bytes per trie node — 100k request IDs fit in a few tens of MB — where a
+ * full 256-way table would need a kilobyte per node.
+ *
+ * next() follows failure links on a miss, so a line of n bytes is matched
+ * in O(n) amortised steps however many patterns there are. Case folding is
+ * ASCII-only: patterns are folded at build time, input bytes as they are fed.
+ *
+ * Immutable once built; share one instance between threads.
+ */
+public final class AhoCorasick {
+
+    public static final int ROOT = 0;
+    private static final int LINEAR_SCAN = 8;
+
+    private final boolean ignoreCase;
+    private final String[] patterns;
+    private final int[] patternLength;
+
+    private final int[] rootNext = new int[256];
+    private final int[] edgeStart;      // state -> first edge, edgeStart[state + 1] = end
+    private final byte[] edgeLabel;
+    private final int[] edgeTarget;
+    private final int[] fail;
+    private final int[] output;         // pattern ending exactly at this state, or -1
+    private final int[] outputLink;     // nearest proper suffix state with an output, or -1
+
+    private AhoCorasick(boolean ignoreCase, String[] patterns, int[] patternLength, int states) {
+        this.ignoreCase = ignoreCase;
+        this.patterns = patterns;
+        this.patternLength = patternLength;
+        this.edgeStart = new int[states + 1];
+        this.edgeLabel = new byte[Math.max(states - 1, 0)];
+        this.edgeTarget = new int[Math.max(states - 1, 0)];
+        this.fail = new int[states];
+        this.output = new int[states];
+        this.outputLink = new int[states];
+    }
+
+    public static AhoCorasick build(List<String> patterns, boolean ignoreCase) {
+        var trie = new Trie();
+        int[] lengths = new int[patterns.size()];
+        for (int id = 0; id < patterns.size(); id++) {
+            byte[] bytes = patterns.get(id).getBytes(StandardCharsets.UTF_8);
+            lengths[id] = bytes.length;
+            int state = ROOT;
+            for (byte b : bytes) state = trie.childOrAdd(state, ignoreCase ? lower(b) : b);
+            if (trie.output[state] < 0) trie.output[state] = id;   // duplicates report the first
+        }
+
+        var ac = new AhoCorasick(ignoreCase, patterns.toArray(new String[0]), lengths, trie.size);
+        ac.freeze(trie);
+        return ac;
+    }
+
+    private void freeze(Trie trie) {
+        int states = trie.size;
+        System.arraycopy(trie.output, 0, output, 0, states);
+
+        // CSR edges, sorted by label within each state
+        int e = 0;
+        byte[] labels = new byte[256];
+        int[] targets = new int[256];
+        for (int s = 0; s < states; s++) {
+            edgeStart[s] = e;
+            int n = 0;
+            for (int c = trie.firstChild[s]; c >= 0; c = trie.nextSibling[c]) {
+                labels[n] = trie.label[c];
+                targets[n] = c;
+                n++;
+            }
+            sortEdges(labels, targets, n);
+            for (int k = 0; k < n; k++) {
+                edgeLabel[e] = labels[k];
+                edgeTarget[e] = targets[k];
+                e++;
+                if (s == ROOT) rootNext[labels[k] & 0xFF] = targets[k];
+            }
+        }
+        edgeStart[states] = e;
+
+        // failure and dictionary links, breadth first so a state's fail target is always done
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        fail[ROOT] = ROOT;
+        outputLink[ROOT] = -1;
+        for (int k = edgeStart[ROOT]; k < edgeStart[ROOT + 1]; k++) {
+            int child = edgeTarget[k];
+            fail[child] = ROOT;
+            outputLink[child] = output[ROOT] >= 0 ? ROOT : -1;   // an empty pattern matches everywhere
+            queue[tail++] = child;
+        }
+        while (head < tail) {
+            int s = queue[head++];
+            for (int k = edgeStart[s]; k < edgeStart[s + 1]; k++) {
+                int child = edgeTarget[k];
+                int f = step(fail[s], edgeLabel[k]);
+                fail[child] = f;
+                outputLink[child] = output[f] >= 0 ? f : outputLink[f];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    /** State reached from state on byte b. */
+    public int next(int state, byte b) {
+        return step(state, ignoreCase ? lower(b) : b);
+    }
+
+    /** Transition on an already folded byte. */
+    private int step(int state, byte b) {
+        while (state != ROOT) {
+            int target = child(state, b);
+            if (target >= 0) return target;
+            state = fail[state];
+        }
+        return rootNext[b & 0xFF];
+    }
+
+    private int child(int state, byte b) {
+        int lo = edgeStart[state];
+        int hi = edgeStart[state + 1];
+        if (hi - lo <= LINEAR_SCAN) {
+            for (int k = lo; k < hi; k++) if (edgeLabel[k] == b) return edgeTarget[k];
+            return -1;
+        }
+        hi--;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = Byte.compare(edgeLabel[mid], b);
+            if (cmp == 0) return edgeTarget[mid];
+            if (cmp < 0) lo = mid + 1; else hi = mid - 1;
+        }
+        return -1;
+    }
+
+    /** True when some pattern ends at this state. */
+    public boolean matches(int state) {
+        return output[state] >= 0 || outputLink[state] >= 0;
+    }
+
+    /**
+     * First state in the chain of states whose pattern ends here — the state
+     * itself or its nearest dictionary suffix — or -1. Longest pattern first.
+     */
+    public int firstOutput(int state) {
+        return output[state] >= 0 ? state : outputLink[state];
+    }
+
+    public int nextOutput(int outputState) {
+        return outputLink[outputState];
+    }
+
+    /** Pattern id reported by a state from firstOutput / nextOutput. */
+    public int patternAt(int outputState) {
+        return output[outputState];
+    }
+
+    public int patternLength(int id) {
+        return patternLength[id];
+    }
+
+    public String pattern(int id) {
+        return patterns[id];
+    }
+
+    public int patternCount() {
+        return patterns.length;
+    }
+
+    public int stateCount() {
+        return fail.length;
+    }
+
+    private static void sortEdges(byte[] labels, int[] targets, int n) {
+        for (int i = 1; i < n; i++) {
+            byte l = labels[i];
+            int t = targets[i];
+            int j = i - 1;
+            while (j >= 0 && labels[j] > l) {
+                labels[j + 1] = labels[j];
+                targets[j + 1] = targets[j];
+                j--;
+            }
+            labels[j + 1] = l;
+            targets[j + 1] = t;
+        }
+    }
+
+    static byte lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    /** Growable build-time trie; the root's children are indexed densely to keep inserts fast. */
+    private static final class Trie {
+        int size = 1;
+        int[] firstChild = {-1};
+        int[] nextSibling = {-1};
+        byte[] label = {0};
+        int[] output = {-1};
+        final int[] rootChild = new int[256];
+
+        Trie() {
+            Arrays.fill(rootChild, -1);
+        }
+
+        int childOrAdd(int state, byte b) {
+            if (state == ROOT) {
+                int c = rootChild[b & 0xFF];
+                if (c < 0) rootChild[b & 0xFF] = c = add(state, b);
+                return c;
+            }
+            for (int c = firstChild[state]; c >= 0; c = nextSibling[c]) {
+                if (label[c] == b) return c;
+            }
+            return add(state, b);
+        }
+
+        private int add(int parent, byte b) {
+            if (size == label.length) {
+                int grown = size * 2;
+                firstChild = Arrays.copyOf(firstChild, grown);
+                nextSibling = Arrays.copyOf(nextSibling, grown);
+                label = Arrays.copyOf(label, grown);
+                output = Arrays.copyOf(output, grown);
+            }
+            int s = size++;
+            firstChild[s] = -1;
+            output[s] = -1;
+            label[s] = b;
+            nextSibling[s] = firstChild[parent];
+            firstChild[parent] = s;
+            return s;
+        }
+    }
+}
@@ -131,11 +131,19 @@ public final class App {
         registry.register("find",     new SearchCommands.FindCommand());
         registry.register("wc",       new SearchCommands.WcCommand());
         registry.register("diff",     new SearchCommands.DiffCommand());
+        registry.register("cmp",      new SearchCommands.CmpCommand());
+        registry.register("index",    new SearchCommands.IndexCommand());
+        registry.register("search",   new SearchCommands.SearchCommand());
 
         registry.register("zip",      new CompressionCommands.ZipCommand());
         registry.register("unzip",    new CompressionCommands.UnzipCommand());
         registry.register("gzip",     new CompressionCommands.GzipCommand());
         registry.register("gunzip",   new CompressionCommands.GunzipCommand());
+        registry.register("zcat",     new CompressionCommands.ZcatCommand());
+        registry.register("zgrep",    new CompressionCommands.ZgrepCommand());
+        registry.register("tar",      new CompressionCommands.TarCommand());
+        registry.register("lz4",      new CompressionCommands.Lz4Command());
+        registry.register("unlz4",    new CompressionCommands.Unlz4Command());
 
         registry.register("ping",     new NetworkCommands.PingCommand());
         registry.register("wget",     new NetworkCommands.WgetCommand());
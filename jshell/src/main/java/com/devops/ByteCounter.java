@@ -0,0 +1,188 @@
+package com.devops;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Line, word, character and byte counts for wc, eight bytes at a time.
+ *
+ * Each 64-bit word is classified with SWAR arithmetic: newlines and blanks
+ * are found with the exact zero-byte test, the control-character range
+ * \t..\r with two saturating adds, and UTF-8 continuation bytes (10xxxxxx)
+ * with one shift. A word starts at every non-blank byte whose predecessor
+ * is blank, so a popcount per mask gives all four counts without branches.
+ *
+ * Regular files are mapped in chunks; large ones are counted on several
+ * cores. A chunk maps one byte before its start to learn whether it begins
+ * mid-word, so the per-chunk counts simply add up.
+ */
+public final class ByteCounter {
+
+    /** Files at least this large are counted on all cores by default. */
+    public static final long PARALLEL_THRESHOLD = ChunkedGrep.PARALLEL_THRESHOLD;
+
+    private static final long MIN_CHUNK = 1024 * 1024;
+    private static final long MAX_CHUNK = 256L * 1024 * 1024;
+    private static final int  STREAM_BUFFER = 1024 * 1024;
+
+    private static final long ONES  = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long LOWS  = ~HIGHS;
+
+    private ByteCounter() {}
+
+    public record Counts(long lines, long words, long chars, long bytes) {
+
+        public static final Counts ZERO = new Counts(0, 0, 0, 0);
+
+        public Counts plus(Counts other) {
+            return new Counts(lines + other.lines, words + other.words,
+                              chars + other.chars, bytes + other.bytes);
+        }
+    }
+
+    public static Counts count(Path file, int threads) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                return count(in);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<long[]> chunks = split(channel.size(), threads);
+            if (threads <= 1 || chunks.size() == 1) {
+                Counts total = Counts.ZERO;
+                for (long[] c : chunks) total = total.plus(scan(channel, c));
+                return total;
+            }
+
+            ExecutorService pool = Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().daemon().name("wc-", 0).factory());
+            try {
+                Deque<Future<Counts>> inFlight = new ArrayDeque<>();
+                int next = 0;
+                Counts total = Counts.ZERO;
+                while (next < chunks.size() || !inFlight.isEmpty()) {
+                    while (next < chunks.size() && inFlight.size() < threads * 2) {
+                        long[] c = chunks.get(next++);
+                        inFlight.add(pool.submit((Callable<Counts>) () -> scan(channel, c)));
+                    }
+                    total = total.plus(await(inFlight.poll()));
+                }
+                return total;
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /** Counts a stream (a device or pipe) through one reused buffer. */
+    static Counts count(InputStream in) throws IOException {
+        byte[] buffer = new byte[STREAM_BUFFER];
+        ByteBuffer view = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+        Counts total = Counts.ZERO;
+        boolean blank = true;
+        int read;
+        while ((read = in.readNBytes(buffer, 0, buffer.length)) > 0) {
+            total = total.plus(count(view, 0, read, blank));
+            blank = isBlank(buffer[read - 1]);
+        }
+        return total;
+    }
+
+    /** Chunk boundaries as [start, end) pairs; unlike grep they need not fall on newlines. */
+    private static List<long[]> split(long size, int threads) {
+        long chunk = size < PARALLEL_THRESHOLD
+            ? MAX_CHUNK
+            : Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, size / (Math.max(threads, 1) * 4L)));
+        List<long[]> chunks = new ArrayList<>();
+        for (long start = 0; start < size; start += chunk) {
+            chunks.add(new long[]{start, Math.min(size, start + chunk)});
+        }
+        if (chunks.isEmpty()) chunks.add(new long[]{0, 0});
+        return chunks;
+    }
+
+    private static Counts scan(FileChannel channel, long[] bounds) throws IOException {
+        if (bounds[1] == bounds[0]) return Counts.ZERO;
+        long mapFrom = Math.max(0, bounds[0] - 1);
+        ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, mapFrom, bounds[1] - mapFrom)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        int from = (int) (bounds[0] - mapFrom);
+        boolean blank = from == 0 || isBlank(region.get(0));
+        return count(region, from, region.limit(), blank);
+    }
+
+    /**
+     * Counts bytes [from, to) of a little-endian buffer. previousBlank says
+     * whether the byte before from was whitespace (true at start of input).
+     */
+    static Counts count(ByteBuffer b, int from, int to, boolean previousBlank) {
+        long lines = 0, words = 0, continuation = 0;
+        long carry = previousBlank ? 1 : 0;   // bit 0: the byte before this word was blank
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long x = b.getLong(i);
+            lines += Long.bitCount(zeros(x ^ (ONES * '\n')));
+            long blank = blanks(x);
+            words += Long.bitCount(~blank & HIGHS & ((blank << 8) | (carry << 7)));
+            carry = blank >>> 63;
+            continuation += Long.bitCount(x & ~(x << 1) & HIGHS);
+        }
+        boolean previous = carry != 0;
+        for (; i < to; i++) {
+            byte c = b.get(i);
+            if (c == '\n') lines++;
+            boolean blank = isBlank(c);
+            if (!blank && previous) words++;
+            previous = blank;
+            if ((c & 0xC0) == 0x80) continuation++;
+        }
+        long bytes = to - from;
+        return new Counts(lines, words, bytes - continuation, bytes);
+    }
+
+    /** 0x80 in every byte of x that is zero. Exact — no false positives from borrows. */
+    private static long zeros(long x) {
+        return ~(((x & LOWS) + LOWS) | x) & HIGHS;
+    }
+
+    /** 0x80 in every byte of x that is ' ' or in '\t'..'\r'. */
+    private static long blanks(long x) {
+        long low = x & LOWS;
+        long atLeastTab = low + ONES * (0x80 - '\t');
+        long pastReturn = low + ONES * (0x80 - '\r' - 1);
+        long control = atLeastTab & ~pastReturn & ~x & HIGHS;
+        return control | zeros(x ^ (ONES * ' '));
+    }
+
+    private static boolean isBlank(byte c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    private static Counts await(Future<Counts> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.devops;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Memory-mapped grep over one regular file, optionally across several cores.
+ *
+ * The file is cut into chunks whose boundaries are moved forward to the next
+ * newline, so no line straddles two chunks. Each chunk is mapped and searched
+ * independently; workers record only the offsets of matching lines. The
+ * calling thread consumes results strictly in chunk order and writes the
+ * matched bytes straight from the mapping, so output order equals file order.
+ *
+ * At most threads * 2 chunks are in flight, which bounds both the address
+ * space held by live mappings and the size of pending match lists.
+ *
+ * A Literal matcher searches the whole chunk for the needle and only then
+ * looks for the surrounding line; lines without a hit are never visited.
+ */
+public final class ChunkedGrep {
+
+    /** Files at least this large are searched on all cores by default. */
+    public static final long PARALLEL_THRESHOLD = 64L * 1024 * 1024;
+
+    private static final long MIN_CHUNK = 1024 * 1024;
+    private static final long MAX_CHUNK = 256L * 1024 * 1024;
+    private static final int  PROBE     = 64 * 1024;
+
+    private ChunkedGrep() {}
+
+    /** Counts matching lines without writing any (grep -c). */
+    public static long count(Path file, LineMatcher matcher, int threads) throws IOException {
+        return search(file, matcher, threads, null);
+    }
+
+    /** Writes every matching line to out (unless null); returns the number of matching lines. */
+    public static long search(Path file, LineMatcher matcher, int threads, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<long[]> chunks = split(channel, threads);
+            if (threads <= 1) {
+                long total = 0;
+                for (long[] c : chunks) total += write(scan(channel, c, matcher), out);
+                return total;
+            }
+
+            ExecutorService pool = Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().daemon().name("grep-", 0).factory());
+            try {
+                Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+                int next = 0;
+                long total = 0;
+                while (next < chunks.size() || !inFlight.isEmpty()) {
+                    while (next < chunks.size() && inFlight.size() < threads * 2) {
+                        long[] c = chunks.get(next++);
+                        LineMatcher own = matcher.copy();
+                        inFlight.add(pool.submit((Callable<Chunk>) () -> scan(channel, c, own)));
+                    }
+                    total += write(await(inFlight.poll()), out);
+                }
+                return total;
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /** Chunk boundaries as [start, end) pairs, each end just past a newline (or EOF). */
+    private static List<long[]> split(FileChannel channel, int threads) throws IOException {
+        long size = channel.size();
+        long target = size / (Math.max(threads, 1) * 4L);
+        long chunk = Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, target));
+
+        List<long[]> chunks = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunk);
+            if (end < size) end = afterNextNewline(channel, end, size);
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long afterNextNewline(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(PROBE);
+        long pos = from;
+        while (pos < size) {
+            probe.clear();
+            int read = channel.read(probe, pos);
+            if (read <= 0) break;
+            int nl = LineScanner.indexOf(probe, (byte) '\n', 0, read);
+            if (nl >= 0) return pos + nl + 1;
+            pos += read;
+        }
+        return size;
+    }
+
+    private static Chunk scan(FileChannel channel, long[] bounds, LineMatcher matcher) throws IOException {
+        long length = bounds[1] - bounds[0];
+        if (length > Integer.MAX_VALUE) throw new IOException("line longer than 2 GB");
+        ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, bounds[0], length)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        var chunk = new Chunk(region);
+
+        if (matcher instanceof LineMatcher.Literal literal) {
+            int limit = region.limit();
+            int i = 0;
+            while (i < limit) {
+                int hit = literal.indexIn(region, i, limit);
+                if (hit < 0) break;
+                int lineStart = hit;
+                while (lineStart > i && region.get(lineStart - 1) != '\n') lineStart--;
+                int nl = LineScanner.indexOf(region, (byte) '\n', hit + literal.length(), limit);
+                int lineEnd = nl < 0 ? limit : nl;
+                if (lineEnd > lineStart && region.get(lineEnd - 1) == '\r') lineEnd--;
+                chunk.add(lineStart, lineEnd);
+                i = nl < 0 ? limit : nl + 1;
+            }
+        } else {
+            LineScanner scanner = LineScanner.of(region, 0);
+            LineScanner.Line line;
+            while ((line = scanner.next()) != null) {
+                if (matcher.matches(line)) {
+                    int s = (int) line.offset();
+                    chunk.add(s, s + line.length());
+                }
+            }
+        }
+        return chunk;
+    }
+
+    private static long write(Chunk chunk, OutputStream out) throws IOException {
+        if (out == null) return chunk.count;
+        byte[] scratch = new byte[8192];
+        for (int m = 0; m < chunk.count; m++) {
+            int from = chunk.bounds[2 * m];
+            int len = chunk.bounds[2 * m + 1] - from;
+            if (scratch.length < len) scratch = new byte[len];
+            chunk.region.get(from, scratch, 0, len);
+            out.write(scratch, 0, len);
+            out.write('\n');
+        }
+        return chunk.count;
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /** Matches found in one chunk — [start, end) offsets into its mapping. */
+    private static final class Chunk {
+        final ByteBuffer region;
+        int[] bounds = new int[64];
+        int count;
+
+        Chunk(ByteBuffer region) {
+            this.region = region;
+        }
+
+        void add(int start, int end) {
+            if (2 * count + 2 > bounds.length) bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            bounds[2 * count] = start;
+            bounds[2 * count + 1] = end;
+            count++;
+        }
+    }
+}
@@ -31,10 +31,18 @@ public sealed interface Command
             SearchCommands.FindCommand,
             SearchCommands.WcCommand,
             SearchCommands.DiffCommand,
+            SearchCommands.CmpCommand,
+            SearchCommands.IndexCommand,
+            SearchCommands.SearchCommand,
             CompressionCommands.ZipCommand,
             CompressionCommands.UnzipCommand,
             CompressionCommands.GzipCommand,
             CompressionCommands.GunzipCommand,
+            CompressionCommands.ZcatCommand,
+            CompressionCommands.ZgrepCommand,
+            CompressionCommands.TarCommand,
+            CompressionCommands.Lz4Command,
+            CompressionCommands.Unlz4Command,
             NetworkCommands.PingCommand,
             NetworkCommands.WgetCommand,
             NetworkCommands.CurlCommand,
@@ -1,216 +1,726 @@
 package com.devops;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
+import java.util.zip.ZipFile;
 
 public final class CompressionCommands {
 
-    private static final int BUFFER_SIZE = 8192;
-
     private CompressionCommands() {}
 
+    /**
+     * zip builds the archive with ParallelZip: entries are compressed on all
+     * cores (or -j threads) and written in operand order, directories first
+     * and then their contents in name order. -0 stores every entry, -1 to -9
+     * set the deflate level (default 6). A directory operand without -r
+     * gets its own entry only.
+     *
+     * -u adds files that are new or changed to an existing archive and -d
+     * removes the entries matching its glob patterns, both through ZipUpdate:
+     * entries that stay are not moved or recompressed, and only the central
+     * directory is rewritten.
+     */
     public static final class ZipCommand implements Command {
 
         @Override
-        public int execute(ShellContext context, String[] args) {
-            boolean recursive = args.length > 1 && args[1].equals("-r");
-            int zipNameIdx  = recursive ? 2 : 1;
-            int firstFileIdx = recursive ? 3 : 2;
-
-            if (args.length < firstFileIdx + 1) {
+        public ExecutionResult execute(ShellContext context, String[] args) {
+            boolean recursive = false, update = false, delete = false;
+            var tuning = CompressionTuning.compressor(ParallelZip.DEFAULT_LEVEL, 0);
+            List<String> operands = new ArrayList<>();
+            try {
+                for (int i = 1; i < args.length; i++) {
+                    String arg = args[i];
+                    int used;
+                    if (operands.isEmpty() && arg.matches("-[rud0-9]+")) {
+                        for (char c : arg.substring(1).toCharArray()) {
+                            switch (c) {
+                                case 'r' -> recursive = true;
+                                case 'u' -> update = true;
+                                case 'd' -> delete = true;
+                                default -> tuning.level = c - '0';
+                            }
+                        }
+                    } else if (operands.isEmpty() && (used = tuning.accept(args, i)) >= 0) {
+                        i = used;
+                    } else {
+                        operands.add(arg);
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println("zip: " + e.getMessage());
+                return ExecutionResult.misuse(context);
+            }
+            if (operands.size() < 2 || (update && delete)) {
                 System.err.println("usage: " + usage());
-                return 1;
+                return ExecutionResult.misuse(context);
             }
 
-            String zipName = args[zipNameIdx].endsWith(".zip")
-                ? args[zipNameIdx] : args[zipNameIdx] + ".zip";
+            String zipName = operands.get(0).endsWith(".zip") ? operands.get(0) : operands.get(0) + ".zip";
             File zipFile = new File(context.currentDirectory(), zipName);
+            Path tmpDir = Path.of(System.getProperty("java.io.tmpdir"));
+            if (delete) {
+                return delete(context, zipFile, zipName, operands.subList(1, operands.size()), tuning.buffer, tmpDir);
+            }
 
-            try (var zos = new ZipOutputStream(new FileOutputStream(zipFile))) {
-                for (int i = firstFileIdx; i < args.length; i++) {
-                    File file = new File(context.currentDirectory(), args[i]);
+            List<ParallelZip.Source> sources = new ArrayList<>();
+            try {
+                Path archive = zipFile.toPath().toAbsolutePath().normalize();
+                for (String operand : operands.subList(1, operands.size())) {
+                    File file = new File(context.currentDirectory(), operand);
                     if (!file.exists()) {
-                        System.err.println("zip: warning: '" + args[i] + "' not found");
-                        continue;
-                    }
-                    if (file.isDirectory() && recursive) {
-                        addDirectory(file, file.getName(), zos);
-                    } else if (file.isFile()) {
-                        addFile(file, file.getName(), zos);
+                        System.err.println("zip: warning: '" + operand + "' not found");
+                    } else if (file.isDirectory()) {
+                        sources.add(new ParallelZip.Source(file.toPath(), file.getName() + "/", true));
+                        if (recursive) addDirectory(file.toPath(), file.getName() + "/", archive, sources);
+                    } else if (!file.toPath().toAbsolutePath().normalize().equals(archive)) {
+                        sources.add(new ParallelZip.Source(file.toPath(), file.getName(), false));
                     }
                 }
-                System.out.println("Created: " + zipName);
             } catch (IOException e) {
                 System.err.println("zip: " + e.getMessage());
-                return 1;
+                return ExecutionResult.fail(context);
+            }
+
+            if (update && zipFile.exists()) {
+                try {
+                    report(zipName, ZipUpdate.update(zipFile.toPath(), sources, tuning.level, tuning.threads,
+                        tuning.buffer, tmpDir));
+                    return ExecutionResult.ok(context);
+                } catch (IOException e) {
+                    System.err.println("zip: " + zipName + ": " + e.getMessage());
+                    return ExecutionResult.fail(context);
+                }
             }
-            return 0;
+
+            try (var out = new BufferedOutputStream(new FileOutputStream(zipFile), tuning.buffer)) {
+                ParallelZip.write(sources, out, tuning.level, tuning.threads, tuning.buffer, tmpDir);
+            } catch (IOException e) {
+                System.err.println("zip: " + e.getMessage());
+                zipFile.delete();
+                return ExecutionResult.fail(context);
+            }
+            System.out.println("Created: " + zipName);
+            return ExecutionResult.ok(context);
         }
 
-        private void addFile(File file, String entryName, ZipOutputStream zos) throws IOException {
-            zos.putNextEntry(new ZipEntry(entryName));
-            Files.copy(file.toPath(), zos);
-            zos.closeEntry();
+        private ExecutionResult delete(ShellContext context, File zipFile, String zipName, List<String> patterns,
+                                       int buffer, Path tmpDir) {
+            if (!zipFile.exists()) {
+                System.err.println("zip: '" + zipName + "': No such file");
+                return ExecutionResult.fail(context);
+            }
+            try {
+                List<PathMatcher> matchers = new ArrayList<>();
+                for (String pattern : patterns) matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+                ZipUpdate.Outcome outcome = ZipUpdate.delete(zipFile.toPath(), matchers, buffer, tmpDir);
+                if (!outcome.changed()) {
+                    System.err.println("zip: nothing matched in " + zipName);
+                    return ExecutionResult.fail(context);
+                }
+                report(zipName, outcome);
+                return ExecutionResult.ok(context);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("zip: " + zipName + ": " + e.getMessage());
+                return ExecutionResult.fail(context);
+            }
         }
 
-        private void addDirectory(File dir, String base, ZipOutputStream zos) throws IOException {
-            File[] files = dir.listFiles();
-            if (files == null) return;
-            for (File file : files) {
-                String entryName = base + "/" + file.getName();
-                if (file.isDirectory()) {
-                    addDirectory(file, entryName, zos);
-                } else {
-                    addFile(file, entryName, zos);
+        private static void report(String zipName, ZipUpdate.Outcome o) {
+            if (!o.changed()) {
+                System.out.println("Up to date: " + zipName);
+                return;
+            }
+            List<String> parts = new ArrayList<>();
+            if (o.added() > 0) parts.add(o.added() + " added");
+            if (o.replaced() > 0) parts.add(o.replaced() + " replaced");
+            if (o.deleted() > 0) parts.add(o.deleted() + " deleted");
+            if (o.compacted()) parts.add("compacted");
+            System.out.println("Updated: " + zipName + " (" + String.join(", ", parts) + ")");
+        }
+
+        /** Sorted depth-first: each directory's entry, then its contents. The archive itself is skipped. */
+        private void addDirectory(Path dir, String base, Path archive, List<ParallelZip.Source> sources)
+                throws IOException {
+            List<Path> children;
+            try (Stream<Path> listing = Files.list(dir)) {
+                children = listing.sorted().toList();
+            }
+            for (Path child : children) {
+                String entryName = base + child.getFileName();
+                if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                    sources.add(new ParallelZip.Source(child, entryName + "/", true));
+                    addDirectory(child, entryName + "/", archive, sources);
+                } else if (Files.isRegularFile(child) && !child.toAbsolutePath().normalize().equals(archive)) {
+                    sources.add(new ParallelZip.Source(child, entryName, false));
                 }
             }
         }
 
         @Override public String name()  { return "zip"; }
-        @Override public String usage() { return "zip [-r] <output.zip> <file...>"; }
+        @Override public String usage() {
+            return "zip [-r] [-u | -d] [-0..-9 | --level n] [-j | --threads n] [--buffer size]"
+                + " <output.zip> <file...|pattern...>";
+        }
     }
 
+    /**
+     * unzip works from the archive's central directory (ParallelUnzip): -l
+     * lists entries without inflating them, patterns select entries by glob
+     * (as in grep --include; ** crosses directories), and the selected
+     * entries are extracted on all cores (or -j threads) into -d dest.
+     */
     public static final class UnzipCommand implements Command {
 
         @Override
-        public int execute(ShellContext context, String[] args) {
-            if (args.length < 2) {
+        public ExecutionResult execute(ShellContext context, String[] args) {
+            boolean list = false;
+            var tuning = CompressionTuning.decompressor(true);
+            String dest = null;
+            List<String> operands = new ArrayList<>();
+            try {
+                for (int i = 1; i < args.length; i++) {
+                    String arg = args[i];
+                    int used;
+                    if (arg.equals("-l")) {
+                        list = true;
+                    } else if (arg.equals("-d") && i + 1 < args.length) {
+                        dest = args[++i];
+                    } else if ((used = tuning.accept(args, i)) >= 0) {
+                        i = used;
+                    } else if (arg.startsWith("-") && arg.length() > 1) {
+                        operands.clear();
+                        break;
+                    } else {
+                        operands.add(arg);
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println("unzip: " + e.getMessage());
+                return ExecutionResult.misuse(context);
+            }
+            if (operands.isEmpty()) {
                 System.err.println("usage: " + usage());
-                return 1;
+                return ExecutionResult.misuse(context);
             }
 
-            File zipFile = new File(context.currentDirectory(), args[1]);
-            File destDir = args.length > 2
-                ? new File(context.currentDirectory(), args[2])
-                : context.currentDirectory();
-
+            File zipFile = new File(context.currentDirectory(), operands.get(0));
             if (!zipFile.exists()) {
-                System.err.println("unzip: '" + args[1] + "': No such file");
-                return 1;
-            }
-
-            String destCanonical;
-            try {
-                destCanonical = destDir.getCanonicalPath();
-            } catch (IOException e) {
-                System.err.println("unzip: " + e.getMessage());
-                return 1;
+                System.err.println("unzip: '" + operands.get(0) + "': No such file");
+                return ExecutionResult.fail(context);
             }
 
-            try (var zis = new ZipInputStream(new FileInputStream(zipFile))) {
-                ZipEntry entry;
-                byte[] buffer = new byte[BUFFER_SIZE];
-
-                while ((entry = zis.getNextEntry()) != null) {
-                    File target = new File(destDir, entry.getName());
+            try (var zip = new ZipFile(zipFile)) {
+                List<? extends ZipEntry> all = zip.stream().toList();
+                List<String> patterns = operands.subList(1, operands.size());
+                // earlier releases took "unzip <file.zip> <destination>": a lone operand that
+                // is not a glob and names no entry is still read as the destination
+                if (dest == null && !list && patterns.size() == 1 && !patterns.get(0).matches(".*[*?\\[{].*")
+                        && zip.getEntry(patterns.get(0)) == null) {
+                    dest = patterns.get(0);
+                    patterns = List.of();
+                }
 
-                    // Zip slip protection
-                    if (!target.getCanonicalPath().startsWith(destCanonical + File.separator)
-                            && !target.getCanonicalPath().equals(destCanonical)) {
-                        System.err.println("unzip: blocked unsafe entry: " + entry.getName());
-                        zis.closeEntry();
-                        continue;
+                List<ZipEntry> selected = new ArrayList<>();
+                boolean unmatched = false;
+                if (patterns.isEmpty()) {
+                    selected.addAll(all);
+                } else {
+                    List<PathMatcher> matchers = new ArrayList<>();
+                    for (String pattern : patterns) matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+                    boolean[] hit = new boolean[matchers.size()];
+                    for (ZipEntry e : all) {
+                        Path name = Path.of(e.getName());
+                        boolean any = false;
+                        for (int m = 0; m < matchers.size(); m++) {
+                            if (matchers.get(m).matches(name)) any = hit[m] = true;
+                        }
+                        if (any) selected.add(e);
                     }
-
-                    if (entry.isDirectory()) {
-                        target.mkdirs();
-                    } else {
-                        target.getParentFile().mkdirs();
-                        try (var fos = new FileOutputStream(target)) {
-                            int len;
-                            while ((len = zis.read(buffer)) > 0) {
-                                fos.write(buffer, 0, len);
-                            }
+                    for (int m = 0; m < hit.length; m++) {
+                        if (!hit[m]) {
+                            System.err.println("unzip: caution: filename not matched: " + patterns.get(m));
+                            unmatched = true;
                         }
-                        System.out.println("Extracted: " + entry.getName());
                     }
-                    zis.closeEntry();
                 }
+
+                if (list) {
+                    ParallelUnzip.list(selected, System.out);
+                    return unmatched ? ExecutionResult.fail(context) : ExecutionResult.ok(context);
+                }
+
+                File destDir = dest != null ? new File(context.currentDirectory(), dest) : context.currentDirectory();
+                var out = new BufferedOutputStream(System.out, LineScanner.OUTPUT_BUFFER);
+                boolean ok = ParallelUnzip.extract(zip, selected, destDir, tuning.threads, tuning.buffer, out);
+                out.flush();
                 System.out.println("Done.");
-            } catch (IOException e) {
+                return ok && !unmatched ? ExecutionResult.ok(context) : ExecutionResult.fail(context);
+            } catch (IOException | InvalidPathException e) {
                 System.err.println("unzip: " + e.getMessage());
-                return 1;
+                return ExecutionResult.fail(context);
             }
-            return 0;
         }
 
         @Override public String name()  { return "unzip"; }
-        @Override public String usage() { return "unzip <file.zip> [destination]"; }
+        @Override public String usage() {
+            return "unzip [-l] [-j | --threads n] [--buffer size] <file.zip> [pattern...] [-d destination]";
+        }
     }
 
+    /**
+     * gzip compresses each file to file.gz with ParallelGzip, deflating
+     * blocks on all cores unless -j says otherwise. Levels -1 (fastest) to
+     * -9 (smallest) as in GNU gzip, default 6. The input is removed after a
+     * successful compression unless -k is given.
+     */
     public static final class GzipCommand implements Command {
 
         @Override
-        public int execute(ShellContext context, String[] args) {
-            if (args.length < 2) {
-                System.err.println("usage: " + usage());
-                return 1;
-            }
-            File input = new File(context.currentDirectory(), args[1]);
-            if (!input.exists()) {
-                System.err.println("gzip: '" + args[1] + "': No such file");
-                return 1;
-            }
-            File output = new File(context.currentDirectory(), args[1] + ".gz");
-            try (var fis = new FileInputStream(input);
-                 var gzos = new GZIPOutputStream(new FileOutputStream(output))) {
-                byte[] buffer = new byte[BUFFER_SIZE];
-                int len;
-                while ((len = fis.read(buffer)) > 0) gzos.write(buffer, 0, len);
-                System.out.println(args[1] + " -> " + output.getName());
-            } catch (IOException e) {
+        public ExecutionResult execute(ShellContext context, String[] args) {
+            var tuning = CompressionTuning.compressor(ParallelGzip.DEFAULT_LEVEL, 1);
+            boolean keep = false;
+            List<String> files = new ArrayList<>();
+            try {
+                for (int i = 1; i < args.length; i++) {
+                    String arg = args[i];
+                    int used;
+                    if (arg.matches("-[1-9k]+")) {
+                        for (char c : arg.substring(1).toCharArray()) {
+                            if (c == 'k') keep = true; else tuning.level = c - '0';
+                        }
+                    } else if ((used = tuning.accept(args, i)) >= 0) {
+                        i = used;
+                    } else if (arg.startsWith("-") && arg.length() > 1) {
+                        files.clear();
+                        break;
+                    } else {
+                        files.add(arg);
+                    }
+                }
+            } catch (IllegalArgumentException e) {
                 System.err.println("gzip: " + e.getMessage());
-                return 1;
+                return ExecutionResult.misuse(context);
             }
-            return 0;
+            if (files.isEmpty()) {
+                System.err.println("usage: " + usage());
+                return ExecutionResult.misuse(context);
+            }
+
+            boolean failed = false;
+            for (String name : files) {
+                File input = new File(context.currentDirectory(), name);
+                if (!input.isFile()) {
+                    System.err.println("gzip: '" + name + "': " + (input.exists() ? "Is a directory" : "No such file"));
+                    failed = true;
+                    continue;
+                }
+                File output = new File(context.currentDirectory(), name + ".gz");
+                try {
+                    try (var out = new BufferedOutputStream(new FileOutputStream(output), tuning.buffer)) {
+                        ParallelGzip.compress(input.toPath(), out, tuning.level, tuning.threads, tuning.buffer);
+                    }
+                    if (!keep) Files.delete(input.toPath());
+                    System.out.println(name + " -> " + output.getName());
+                } catch (IOException e) {
+                    System.err.println("gzip: " + name + ": " + e.getMessage());
+                    output.delete();
+                    failed = true;
+                }
+            }
+            return failed ? ExecutionResult.fail(context) : ExecutionResult.ok(context);
         }
 
         @Override public String name()  { return "gzip"; }
-        @Override public String usage() { return "gzip <file>"; }
+        @Override public String usage() {
+            return "gzip [-1..-9 | --level n] [-k] [-j | --threads n] [--buffer size] <file...>";
+        }
     }
 
+    /**
+     * gunzip restores file from each file.gz through GzipStream, so every
+     * member of a concatenated file is inflated and checked. The input is
+     * kept. --buffer sets the size of the read and write buffers.
+     */
     public static final class GunzipCommand implements Command {
 
         @Override
-        public int execute(ShellContext context, String[] args) {
+        public ExecutionResult execute(ShellContext context, String[] args) {
+            var tuning = CompressionTuning.decompressor(false);
+            List<String> files = new ArrayList<>();
+            try {
+                for (int i = 1; i < args.length; i++) {
+                    int used;
+                    if ((used = tuning.accept(args, i)) >= 0) {
+                        i = used;
+                    } else if (args[i].startsWith("-") && args[i].length() > 1) {
+                        files.clear();
+                        break;
+                    } else {
+                        files.add(args[i]);
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println("gunzip: " + e.getMessage());
+                return ExecutionResult.misuse(context);
+            }
+            if (files.isEmpty()) {
+                System.err.println("usage: " + usage());
+                return ExecutionResult.misuse(context);
+            }
+
+            boolean failed = false;
+            for (String fileName : files) {
+                if (!fileName.endsWith(".gz")) {
+                    System.err.println("gunzip: '" + fileName + "': unknown suffix");
+                    failed = true;
+                    continue;
+                }
+                File input = new File(context.currentDirectory(), fileName);
+                if (!input.isFile()) {
+                    System.err.println("gunzip: '" + fileName + "': No such file");
+                    failed = true;
+                    continue;
+                }
+                if (!GzipStream.isGzip(input.toPath())) {
+                    System.err.println("gunzip: '" + fileName + "': not in gzip format");
+                    failed = true;
+                    continue;
+                }
+                String outputName = fileName.substring(0, fileName.length() - 3);
+                File output = new File(context.currentDirectory(), outputName);
+                try (var in = GzipStream.open(input.toPath(), tuning.buffer);
+                     var out = new FileOutputStream(output)) {
+                    byte[] buffer = new byte[tuning.buffer];
+                    for (int n; (n = in.read(buffer)) > 0; ) out.write(buffer, 0, n);
+                    System.out.println(fileName + " -> " + outputName);
+                } catch (IOException e) {
+                    System.err.println("gunzip: " + fileName + ": " + e.getMessage());
+                    output.delete();
+                    failed = true;
+                }
+            }
+            return failed ? ExecutionResult.fail(context) : ExecutionResult.ok(context);
+        }
+
+        @Override public String name()  { return "gunzip"; }
+        @Override public String usage() { return "gunzip [--buffer size] <file.gz...>"; }
+    }
+
+    /**
+     * zcat writes the decompressed contents of each file to standard output
+     * through GzipStream: concatenated members are all read, plain files
+     * pass through, and nothing is written to disk.
+     */
+    public static final class ZcatCommand implements Command {
+
+        @Override
+        public ExecutionResult execute(ShellContext context, String[] args) {
             if (args.length < 2) {
                 System.err.println("usage: " + usage());
-                return 1;
-            }
-            String fileName = args[1];
-            if (!fileName.endsWith(".gz")) {
-                System.err.println("gunzip: '" + fileName + "': unknown suffix");
-                return 1;
-            }
-            File input = new File(context.currentDirectory(), fileName);
-            if (!input.exists()) {
-                System.err.println("gunzip: '" + fileName + "': No such file");
-                return 1;
-            }
-            String outputName = fileName.substring(0, fileName.length() - 3);
-            File output = new File(context.currentDirectory(), outputName);
-            try (var gzis = new GZIPInputStream(new FileInputStream(input));
-                 var fos = new FileOutputStream(output)) {
-                byte[] buffer = new byte[BUFFER_SIZE];
-                int len;
-                while ((len = gzis.read(buffer)) > 0) fos.write(buffer, 0, len);
-                System.out.println(fileName + " -> " + outputName);
+                return ExecutionResult.misuse(context);
+            }
+            boolean failed = false;
+            var out = new BufferedOutputStream(System.out, LineScanner.OUTPUT_BUFFER);
+            for (int i = 1; i < args.length; i++) {
+                File file = new File(context.currentDirectory(), args[i]);
+                if (!file.isFile()) {
+                    System.err.println("zcat: " + args[i] + ": No such file");
+                    failed = true;
+                    continue;
+                }
+                try (var in = GzipStream.open(file.toPath())) {
+                    in.transferTo(out);
+                } catch (IOException e) {
+                    System.err.println("zcat: " + args[i] + ": " + e.getMessage());
+                    failed = true;
+                }
+            }
+            try {
+                out.flush();
             } catch (IOException e) {
-                System.err.println("gunzip: " + e.getMessage());
-                return 1;
+                System.err.println("zcat: " + e.getMessage());
+                return ExecutionResult.fail(context);
             }
-            return 0;
+            return failed ? ExecutionResult.fail(context) : ExecutionResult.ok(context);
         }
 
-        @Override public String name()  { return "gunzip"; }
-        @Override public String usage() { return "gunzip <file.gz>"; }
+        @Override public String name()  { return "zcat"; }
+        @Override public String usage() { return "zcat <file.gz...>"; }
+    }
+
+    /** zgrep is grep -Z: gzip files are searched as they are inflated. */
+    public static final class ZgrepCommand implements Command {
+
+        private final TextCommands.GrepCommand grep = new TextCommands.GrepCommand();
+
+        @Override
+        public ExecutionResult execute(ShellContext context, String[] args) {
+            String[] withFlag = new String[args.length + 1];
+            withFlag[0] = args[0];
+            withFlag[1] = "-Z";
+            System.arraycopy(args, 1, withFlag, 2, args.length - 1);
+            return grep.execute(context, withFlag);
+        }
+
+        @Override public String name()  { return "zgrep"; }
+        @Override public String usage() { return "zgrep [grep options] <pattern> <file.gz...>"; }
+    }
+
+    /**
+     * tar streams archives through TarWriter and TarReader (TarArchive). -c
+     * writes one, piped through ParallelGzip.Output on all cores (or -j
+     * threads) with -z or a .gz / .tgz name, so no .tar is staged. -t lists
+     * and -x extracts in one forward pass, reading gzip transparently
+     * through GzipStream; glob patterns select entries and everything under
+     * them. -C names the directory operands are read from (-c) or entries
+     * are extracted into (-x).
+     */
+    public static final class TarCommand implements Command {
+
+        @Override
+        public ExecutionResult execute(ShellContext context, String[] args) {
+            char mode = 0;
+            boolean gzip = false, verbose = false, usageError = false;
+            String archive = null, dir = null;
+            int threads = Runtime.getRuntime().availableProcessors();
+            List<String> operands = new ArrayList<>();
+            for (int i = 1; i < args.length; i++) {
+                String arg = args[i];
+                // bundled letters, with or without the dash for the first word ("tar czf out.tgz dir")
+                if (operands.isEmpty() && (arg.matches("-[ctxzvf]+") || (i == 1 && arg.matches("[ctxzvf]+")))) {
+                    boolean wantsArchive = false;
+                    for (char c : arg.replace("-", "").toCharArray()) {
+                        switch (c) {
+                            case 'c', 't', 'x' -> {
+                                usageError |= mode != 0 && mode != c;
+                                mode = c;
+                            }
+                            case 'z' -> gzip = true;
+                            case 'v' -> verbose = true;
+                            default -> wantsArchive = true;
+                        }
+                    }
+                    if (wantsArchive) {
+                        if (i + 1 < args.length) archive = args[++i]; else usageError = true;
+                    }
+                } else if (arg.equals("-C") && i + 1 < args.length) {
+                    dir = args[++i];
+                } else if (arg.equals("-j") && i + 1 < args.length && args[i + 1].matches("[1-9]\\d*")) {
+                    threads = Integer.parseInt(args[++i]);
+                } else {
+                    operands.add(arg);
+                }
+            }
+            if (usageError || mode == 0 || archive == null || (mode == 'c' && operands.isEmpty())) {
+                System.err.println("usage: " + usage());
+                return ExecutionResult.misuse(context);
+            }
+
+            File archiveFile = new File(context.currentDirectory(), archive);
+            File base = dir != null ? new File(context.currentDirectory(), dir) : context.currentDirectory();
+            if (!base.isDirectory()) {
+                System.err.println("tar: " + dir + ": No such directory");
+                return ExecutionResult.fail(context);
+            }
+            return mode == 'c'
+                ? create(context, archiveFile, base, operands, gzip || archive.endsWith(".gz") || archive.endsWith(".tgz"),
+                         threads, verbose)
+                : read(context, archiveFile, base, operands, mode == 'x', verbose);
+        }
+
+        private ExecutionResult create(ShellContext context, File archiveFile, File base, List<String> operands,
+                                       boolean gzip, int threads, boolean verbose) {
+            boolean missing = false;
+            try (var file = new BufferedOutputStream(new FileOutputStream(archiveFile), LineScanner.OUTPUT_BUFFER);
+                 var gz = gzip ? new ParallelGzip.Output(file, ParallelGzip.DEFAULT_LEVEL, threads,
+                                                         System.currentTimeMillis() / 1000) : null) {
+                var tar = new TarWriter(gz != null ? gz : file);
+                Path skip = archiveFile.toPath().toAbsolutePath().normalize();
+                for (String operand : operands) {
+                    if (!TarArchive.add(tar, base.toPath(), operand, skip, verbose ? System.out : null)) {
+                        System.err.println("tar: " + operand + ": No such file or directory");
+                        missing = true;
+                    }
+                }
+                tar.finish();
+            } catch (IOException | InvalidPathException e) {
+                System.err.println("tar: " + e.getMessage());
+                archiveFile.delete();
+                return ExecutionResult.fail(context);
+            }
+            return missing ? ExecutionResult.fail(context) : ExecutionResult.ok(context);
+        }
+
+        private ExecutionResult read(ShellContext context, File archiveFile, File dest, List<String> patterns,
+                                     boolean extract, boolean verbose) {
+            if (!archiveFile.isFile()) {
+                System.err.println("tar: " + archiveFile.getName() + ": No such file");
+                return ExecutionResult.fail(context);
+            }
+            try (InputStream in = GzipStream.open(archiveFile.toPath())) {
+                List<PathMatcher> matchers = new ArrayList<>();
+                for (String pattern : patterns) matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+                boolean[] hit = new boolean[matchers.size()];
+                var tar = new TarReader(in);
+                boolean ok = true;
+                if (extract) {
+                    ok = TarArchive.extract(tar, matchers, hit, dest, verbose ? System.out : null);
+                } else {
+                    var out = new PrintStream(new BufferedOutputStream(System.out, LineScanner.OUTPUT_BUFFER), false);
+                    TarArchive.list(tar, matchers, hit, verbose, out);
+                    out.flush();
+                }
+                for (int m = 0; m < hit.length; m++) {
+                    if (!hit[m]) {
+                        System.err.println("tar: " + patterns.get(m) + ": Not found in archive");
+                        ok = false;
+                    }
+                }
+                return ok ? ExecutionResult.ok(context) : ExecutionResult.fail(context);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("tar: " + archiveFile.getName() + ": " + e.getMessage());
+                return ExecutionResult.fail(context);
+            }
+        }
+
+        @Override public String name()  { return "tar"; }
+        @Override public String usage() {
+            return "tar -c|-t|-x [-zv] -f <archive> [-C dir] [-j threads] [file|pattern...]";
+        }
+    }
+
+    /**
+     * lz4 compresses each file to file.lz4 in the LZ4 frame format (Lz4),
+     * blocks compressed on all cores unless -j says otherwise. Far faster
+     * than gzip for a lower ratio — meant for scratch data that only has to
+     * cross the network smaller. As with the lz4 tool the input is kept;
+     * --rm removes it after a successful compression.
+     */
+    public static final class Lz4Command implements Command {
+
+        @Override
+        public ExecutionResult execute(ShellContext context, String[] args) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            boolean remove = false;
+            List<String> files = new ArrayList<>();
+            for (int i = 1; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("--rm")) {
+                    remove = true;
+                } else if (arg.equals("-j") && i + 1 < args.length && args[i + 1].matches("[1-9]\\d*")) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (arg.startsWith("-") && arg.length() > 1) {
+                    files.clear();
+                    break;
+                } else {
+                    files.add(arg);
+                }
+            }
+            if (files.isEmpty()) {
+                System.err.println("usage: " + usage());
+                return ExecutionResult.misuse(context);
+            }
+
+            boolean failed = false;
+            for (String name : files) {
+                File input = new File(context.currentDirectory(), name);
+                if (!input.isFile()) {
+                    System.err.println("lz4: '" + name + "': " + (input.exists() ? "Is a directory" : "No such file"));
+                    failed = true;
+                    continue;
+                }
+                File output = new File(context.currentDirectory(), name + ".lz4");
+                try {
+                    try (var out = new BufferedOutputStream(new FileOutputStream(output), LineScanner.OUTPUT_BUFFER)) {
+                        Lz4.compress(input.toPath(), out, threads);
+                    }
+                    if (remove) Files.delete(input.toPath());
+                    System.out.println(name + " -> " + output.getName());
+                } catch (IOException e) {
+                    System.err.println("lz4: " + name + ": " + e.getMessage());
+                    output.delete();
+                    failed = true;
+                }
+            }
+            return failed ? ExecutionResult.fail(context) : ExecutionResult.ok(context);
+        }
+
+        @Override public String name()  { return "lz4"; }
+        @Override public String usage() { return "lz4 [--rm] [-j threads] <file...>"; }
+    }
+
+    /**
+     * unlz4 restores file from each file.lz4 — frames from Lz4Command or the
+     * lz4 tool alike, every content checksum verified. The input is kept
+     * unless --rm is given.
+     */
+    public static final class Unlz4Command implements Command {
+
+        @Override
+        public ExecutionResult execute(ShellContext context, String[] args) {
+            boolean remove = false;
+            List<String> files = new ArrayList<>();
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("--rm")) {
+                    remove = true;
+                } else if (args[i].startsWith("-") && args[i].length() > 1) {
+                    files.clear();
+                    break;
+                } else {
+                    files.add(args[i]);
+                }
+            }
+            if (files.isEmpty()) {
+                System.err.println("usage: " + usage());
+                return ExecutionResult.misuse(context);
+            }
+
+            boolean failed = false;
+            for (String name : files) {
+                if (!name.endsWith(".lz4")) {
+                    System.err.println("unlz4: '" + name + "': unknown suffix");
+                    failed = true;
+                    continue;
+                }
+                File input = new File(context.currentDirectory(), name);
+                if (!input.isFile()) {
+                    System.err.println("unlz4: '" + name + "': No such file");
+                    failed = true;
+                    continue;
+                }
+                String outputName = name.substring(0, name.length() - 4);
+                File output = new File(context.currentDirectory(), outputName);
+                try {
+                    try (var in = Lz4.open(input.toPath())) {
+                        Files.copy(in, output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    if (remove) Files.delete(input.toPath());
+                    System.out.println(name + " -> " + outputName);
+                } catch (IOException e) {
+                    System.err.println("unlz4: " + name + ": " + e.getMessage());
+                    output.delete();
+                    failed = true;
+                }
+            }
+            return failed ? ExecutionResult.fail(context) : ExecutionResult.ok(context);
+        }
+
+        @Override public String name()  { return "unlz4"; }
+        @Override public String usage() { return "unlz4 [--rm] <file.lz4...>"; }
     }
 }
@@ -0,0 +1,268 @@
+package com.devops;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sorts the lines of any number of files within a fixed memory budget.
+ *
+ * Lines are collected into a run until it holds half the budget. Each
+ * line's key is computed once (SortKey), the rows are ordered by IndexSort
+ * — across cores for large runs — and the run is handed to a background
+ * writer that spills it to a temporary file while the next run fills, so
+ * at most two runs are in memory. The last run is never spilled. Runs are
+ * then merged through a heap, at most MERGE_WIDTH at a time; wider inputs
+ * get intermediate passes. Output streams out of the final merge, so it can
+ * be far larger than the heap.
+ *
+ * The sort is stable: runs hold consecutive input, IndexSort is stable,
+ * and the merge breaks ties by run order. Run files hold lines only; keys
+ * are recomputed once per line as the merge reads them back.
+ *
+ * Run files store each line as a 4-byte length and its bytes, so a line
+ * holding a stray '\r', a NUL or invalid UTF-8 comes back exactly as read.
+ * The '\r' of a CRLF line end is dropped by LineScanner, as for every
+ * command reading lines, so output lines end in '\n' alone.
+ */
+public final class ExternalSort {
+
+    static final int MERGE_WIDTH = 64;
+
+    /** Heap cost of one retained line beyond its bytes: array header, reference, list slot. */
+    private static final int LINE_OVERHEAD = 32;
+    private static final int IO_BUFFER     = 64 * 1024;
+
+    private ExternalSort() {}
+
+    /**
+     * Writes the lines of inputs to out in key order. With unique, only the
+     * first line of each group with equal keys is written.
+     */
+    public static void sort(List<Path> inputs, SortKey key, boolean unique, long memory, Path tmpDir,
+                            OutputStream out) throws IOException {
+        long runBudget = Math.max(1, memory / 2);
+        List<Run> runs = new ArrayList<>();
+        ExecutorService writer = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().daemon().name("sort-spill-", 0).factory());
+        Future<Run> spilling = null;
+        try {
+            List<byte[]> lines = new ArrayList<>();
+            long used = 0;
+            for (Path input : inputs) {
+                try (var scanner = LineScanner.open(input)) {
+                    LineScanner.Line line;
+                    while ((line = scanner.next()) != null) {
+                        lines.add(line.toBytes());
+                        used += line.length() + LINE_OVERHEAD + key.bytesPerLine();
+                        if (used < runBudget) continue;
+
+                        Sorted run = sorted(lines, key);
+                        if (spilling != null) runs.add(await(spilling));
+                        spilling = writer.submit(() -> spill(run, tmpDir));
+                        lines = new ArrayList<>();
+                        used = 0;
+                    }
+                }
+            }
+            Sorted last = sorted(lines, key);
+            lines = null;
+            if (spilling != null) runs.add(await(spilling));
+            spilling = null;
+
+            while (runs.size() + 1 > MERGE_WIDTH) runs = mergePass(runs, key, tmpDir);
+            Sink sink = line -> writeLine(out, line);
+            merge(runs, last, key, unique ? distinct(key, sink) : sink);
+        } finally {
+            writer.shutdown();
+            if (spilling != null) {
+                // failed while a run was being written: wait for it so its file can go too
+                try {
+                    runs.add(await(spilling));
+                } catch (IOException ignored) {
+                    // spill() already removed its file
+                }
+            }
+            for (Run run : runs) Files.deleteIfExists(run.file());
+        }
+    }
+
+    /** A run in memory: its lines with their keys, and the order to visit the rows in. */
+    private record Sorted(SortKey.Keys keys, int[] order) {}
+
+    /** Computes every line's key once, then sorts row indices by the key columns. */
+    private static Sorted sorted(List<byte[]> lines, SortKey key) {
+        SortKey.Keys keys = key.keys(lines.toArray(new byte[0][]));
+        int[] order = IndexSort.sort(keys.lines.length, (a, b) -> key.compare(keys, a, keys, b));
+        return new Sorted(keys, order);
+    }
+
+    /** Passes on only the first line of each run of lines with equal keys. */
+    private static Sink distinct(SortKey key, Sink sink) {
+        SortKey.Keys previous = key.row();
+        SortKey.Keys current = key.row();
+        boolean[] first = {true};
+        return line -> {
+            current.set(0, line);
+            if (first[0] || key.compareFields(previous, 0, current, 0) != 0) {
+                sink.accept(line);
+                previous.set(0, line);
+                first[0] = false;
+            }
+        };
+    }
+
+    /** A sorted run on disk. */
+    private record Run(Path file, long lines) {}
+
+    private static Run spill(Sorted run, Path tmpDir) throws IOException {
+        Path file = Files.createTempFile(tmpDir, "jshell-sort-", ".run");
+        try (var data = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER))) {
+            for (int row : run.order()) {
+                byte[] line = run.keys().lines[row];
+                data.writeInt(line.length);
+                data.write(line);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return new Run(file, run.order().length);
+    }
+
+    /** Merges consecutive groups of MERGE_WIDTH runs into one run each, keeping their order. */
+    private static List<Run> mergePass(List<Run> runs, SortKey key, Path tmpDir) throws IOException {
+        List<Run> merged = new ArrayList<>();
+        try {
+            for (int from = 0; from < runs.size(); from += MERGE_WIDTH) {
+                List<Run> group = runs.subList(from, Math.min(runs.size(), from + MERGE_WIDTH));
+                Path file = Files.createTempFile(tmpDir, "jshell-sort-", ".run");
+                merged.add(new Run(file, group.stream().mapToLong(Run::lines).sum()));
+                try (var data = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER))) {
+                    merge(group, null, key, line -> {
+                        data.writeInt(line.length);
+                        data.write(line);
+                    });
+                }
+                for (Run run : group) Files.deleteIfExists(run.file());
+            }
+        } catch (IOException e) {
+            for (Run run : merged) Files.deleteIfExists(run.file());
+            throw e;
+        }
+        return merged;
+    }
+
+    private interface Sink { void accept(byte[] line) throws IOException; }
+
+    /** K-way merge of the runs, then the in-memory run (if any); ties go to the earlier run. */
+    private static void merge(List<Run> runs, Sorted last, SortKey key, Sink sink) throws IOException {
+        List<Cursor> cursors = new ArrayList<>();
+        Comparator<Cursor> byLine = (a, b) -> {
+            int c = key.compare(a.keys, a.row, b.keys, b.row);
+            return c != 0 ? c : Integer.compare(a.rank, b.rank);
+        };
+        var heap = new PriorityQueue<>(runs.size() + 1, byLine);
+        try {
+            for (Run run : runs) cursors.add(new FileCursor(run, key.row(), cursors.size()));
+            if (last != null) cursors.add(new ArrayCursor(last, cursors.size()));
+            for (Cursor c : cursors) if (c.advance()) heap.add(c);
+
+            while (!heap.isEmpty()) {
+                Cursor c = heap.poll();
+                sink.accept(c.keys.lines[c.row]);
+                if (c.advance()) heap.add(c);
+            }
+        } finally {
+            for (Cursor c : cursors) c.close();
+        }
+    }
+
+    /** The current line of one run, as a row of that run's key columns. */
+    private abstract static class Cursor implements Closeable {
+        final SortKey.Keys keys;
+        final int rank;
+        int row;
+
+        Cursor(SortKey.Keys keys, int rank) {
+            this.keys = keys;
+            this.rank = rank;
+        }
+
+        /** Moves to the next line; false when the run is exhausted. */
+        abstract boolean advance() throws IOException;
+
+        @Override public void close() throws IOException {}
+    }
+
+    private static final class FileCursor extends Cursor {
+        private final DataInputStream in;
+        private long remaining;
+
+        FileCursor(Run run, SortKey.Keys row, int rank) throws IOException {
+            super(row, rank);
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.file()), IO_BUFFER));
+            this.remaining = run.lines();
+        }
+
+        @Override boolean advance() throws IOException {
+            if (remaining == 0) return false;
+            remaining--;
+            byte[] line = new byte[in.readInt()];
+            in.readFully(line);
+            keys.set(0, line);
+            return true;
+        }
+
+        @Override public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static final class ArrayCursor extends Cursor {
+        private final int[] order;
+        private int next;
+
+        ArrayCursor(Sorted run, int rank) {
+            super(run.keys(), rank);
+            this.order = run.order();
+        }
+
+        @Override boolean advance() {
+            if (next == order.length) return false;
+            row = order[next++];
+            return true;
+        }
+    }
+
+    private static void writeLine(OutputStream out, byte[] line) throws IOException {
+        out.write(line);
+        out.write('\n');
+    }
+
+    private static Run await(Future<Run> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.devops;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Follow mode for tail: streams bytes appended to one or more files.
+ *
+ * All files are multiplexed on the calling thread. The thread blocks on a
+ * WatchService registered on each parent directory and, when a file is
+ * reported modified, copies only the byte range [offset, size) to the output.
+ * Nothing is decoded — appended bytes are written exactly as they arrive.
+ *
+ * retry = false (tail -f): the open channel is followed even if the file is
+ * renamed or deleted, like following a file descriptor.
+ * retry = true  (tail -F): the name is followed — a replaced (rotated) file is
+ * reopened from offset 0, a truncated file is re-read from 0, and a missing
+ * file is picked up when it appears.
+ *
+ * follow() returns when the thread is interrupted or the cancel signal fires.
+ * The watch poll is bounded so a cancel is noticed without any file activity.
+ */
+public final class FileFollower {
+
+    private static final long CANCEL_CHECK_MS = 200;
+    private static final int  READ_CHUNK      = 64 * 1024;
+
+    private final boolean retry;
+    private final boolean headers;
+    private final PrintStream out;
+    private final byte[] chunk = new byte[READ_CHUNK];
+
+    private final List<Followed> files = new ArrayList<>();
+    private Followed lastPrinted;
+
+    public FileFollower(boolean retry, boolean headers, PrintStream out) {
+        this.retry = retry;
+        this.headers = headers;
+        this.out = out;
+    }
+
+    /**
+     * Adds a file to follow, starting at the given byte offset.
+     * The label is what the user typed — used for headers and messages.
+     */
+    public void add(Path path, String label, long offset) {
+        files.add(new Followed(path.toAbsolutePath().normalize(), label, offset));
+    }
+
+    /** Records which file's bytes were printed last, so headers are not repeated. */
+    public void printedLast(String label) {
+        lastPrinted = files.stream().filter(f -> f.label.equals(label)).findFirst().orElse(null);
+    }
+
+    public void follow(BooleanSupplier cancelled) throws IOException {
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            Map<WatchKey, Path> dirs = new HashMap<>();
+            for (Followed f : files) {
+                Path dir = f.path.getParent();
+                if (!dirs.containsValue(dir)) {
+                    dirs.put(dir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+                }
+                open(f, false);
+            }
+
+            // Catch anything appended between the initial read and registration
+            for (Followed f : files) drain(f);
+
+            while (!cancelled.getAsBoolean()) {
+                WatchKey key = watcher.poll(CANCEL_CHECK_MS, TimeUnit.MILLISECONDS);
+                if (key == null) continue;
+
+                Path dir = dirs.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        for (Followed f : files) f.dirty = true;
+                        continue;
+                    }
+                    Path changed = dir.resolve((Path) event.context());
+                    for (Followed f : files) {
+                        if (!f.path.equals(changed)) continue;
+                        f.dirty = true;
+                        if (event.kind() == ENTRY_DELETE) f.deleted = true;
+                    }
+                }
+                key.reset();
+
+                for (Followed f : files) {
+                    if (f.dirty) {
+                        f.dirty = false;
+                        drain(f);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Followed f : files) close(f);
+        }
+    }
+
+    private void drain(Followed f) throws IOException {
+        if (f.channel == null) {
+            if (retry && Files.exists(f.path)) open(f, true);
+            if (f.channel == null) return;
+        }
+
+        if (retry && f.deleted) {
+            f.deleted = false;
+            if (!Files.exists(f.path)) {
+                copyAppended(f);
+                System.err.println("tail: '" + f.label + "' has become inaccessible");
+                close(f);
+                return;
+            }
+        }
+
+        if (retry && !Objects.equals(f.fileKey, fileKey(f.path))) {
+            // Rotated: finish the old file, then start the new one from the top
+            copyAppended(f);
+            close(f);
+            System.err.println("tail: '" + f.label + "' has been replaced; following new file");
+            open(f, true);
+            if (f.channel == null) return;
+        }
+
+        if (f.channel.size() < f.offset) {
+            System.err.println("tail: " + f.label + ": file truncated");
+            f.offset = 0;
+        }
+        copyAppended(f);
+    }
+
+    /** Copies [offset, size) with positional reads — the channel position is never used. */
+    private void copyAppended(Followed f) throws IOException {
+        long size = f.channel.size();
+        if (size <= f.offset) return;
+
+        if (headers && lastPrinted != f) {
+            out.printf("%n==> %s <==%n", f.label);
+            lastPrinted = f;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        while (f.offset < size) {
+            buffer.clear().limit((int) Math.min(chunk.length, size - f.offset));
+            int read = f.channel.read(buffer, f.offset);
+            if (read <= 0) break;
+            out.write(chunk, 0, read);
+            f.offset += read;
+        }
+        out.flush();
+    }
+
+    private void open(Followed f, boolean fromStart) {
+        try {
+            f.channel = FileChannel.open(f.path, StandardOpenOption.READ);
+            f.fileKey = fileKey(f.path);
+            if (fromStart) f.offset = 0;
+        } catch (NoSuchFileException e) {
+            f.channel = null;
+        } catch (IOException e) {
+            System.err.println("tail: " + f.label + ": " + e.getMessage());
+            f.channel = null;
+        }
+    }
+
+    private void close(Followed f) {
+        if (f.channel == null) return;
+        try {
+            f.channel.close();
+        } catch (IOException ignored) {
+            // Nothing useful to do — the channel is being abandoned
+        }
+        f.channel = null;
+    }
+
+    private static Object fileKey(Path path) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            // fileKey() is null on platforms without inode identity; fall back to creation time
+            return attrs.fileKey() != null ? attrs.fileKey() : attrs.creationTime();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static final class Followed {
+        final Path path;
+        final String label;
+        long offset;
+        FileChannel channel;
+        Object fileKey;
+        boolean dirty;
+        boolean deleted;
+
+        Followed(Path path, String label, long offset) {
+            this.path = path;
+            this.label = label;
+            this.offset = offset;
+        }
+    }
+}
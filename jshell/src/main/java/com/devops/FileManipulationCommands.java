@@ -1,9 +1,8 @@
 package com.devops;
 
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 
 public final class FileManipulationCommands {
 
@@ -83,25 +82,45 @@ public final class FileManipulationCommands {
         @Override public String usage() { return "rm [-r] <file|directory>"; }
     }
 
+    /**
+     * cat streams the file line by line; -Z copies the bytes GzipStream
+     * decompresses instead, so a .gz is printed without extracting it (a
+     * plain file passes through unchanged).
+     */
     public static final class CatCommand implements Command {
 
         @Override
         public ExecutionResult execute(ShellContext context, String[] args) {
-            if (args.length < 2) {
+            boolean decompress = args.length > 2 && args[1].equals("-Z");
+            if (args.length < 2 || (args[1].equals("-Z") && !decompress)) {
                 System.err.println("usage: " + usage());
                 return ExecutionResult.misuse(context);
             }
-            File file = new File(context.currentDirectory(), args[1]);
+            String fileName = args[decompress ? 2 : 1];
+            File file = new File(context.currentDirectory(), fileName);
             if (!file.exists()) {
-                System.err.println("cat: " + args[1] + ": No such file");
+                System.err.println("cat: " + fileName + ": No such file");
                 return ExecutionResult.fail(context);
             }
-            // Stream line by line — avoids loading large files into memory
-            try (BufferedReader reader = Files.newBufferedReader(file.toPath())) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    System.out.println(line);
+            if (decompress) {
+                try (var in = GzipStream.open(file.toPath())) {
+                    var out = new BufferedOutputStream(System.out, LineScanner.OUTPUT_BUFFER);
+                    in.transferTo(out);
+                    out.flush();
+                } catch (IOException e) {
+                    System.err.println("cat: " + fileName + ": " + e.getMessage());
+                    return ExecutionResult.fail(context);
+                }
+                return ExecutionResult.ok(context);
+            }
+            // Stream line by line as raw bytes — no decoding, never loads the whole file
+            try (var scanner = LineScanner.open(file.toPath())) {
+                var out = new BufferedOutputStream(System.out, LineScanner.OUTPUT_BUFFER);
+                LineScanner.Line line;
+                while ((line = scanner.next()) != null) {
+                    line.writeTo(out);
                 }
+                out.flush();
             } catch (IOException e) {
                 System.err.println("cat: " + e.getMessage());
                 return ExecutionResult.fail(context);
@@ -110,6 +129,6 @@ public final class FileManipulationCommands {
         }
 
         @Override public String name()  { return "cat"; }
-        @Override public String usage() { return "cat <file>"; }
+        @Override public String usage() { return "cat [-Z] <file>"; }
     }
 }
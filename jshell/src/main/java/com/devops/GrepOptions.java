@@ -0,0 +1,197 @@
+package com.devops;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parsed grep command line. Options come before the pattern; "--" ends them
+ * so a pattern may start with '-'. Single-letter flags may be bundled
+ * ("-inv"), and an option's number may be attached ("-m5", "-C2"). parse() throws IllegalArgumentException
+ * with a user-facing message (or none, meaning "print usage") on bad input —
+ * GrepCommand maps it to exit 2.
+ */
+public final class GrepOptions {
+
+    boolean ignoreCase;
+    boolean fixed;              // -F
+    LineMatcher.Engine engine = LineMatcher.Engine.AUTO;   // --engine=
+    final List<String> patternFiles = new ArrayList<>();   // -f, read by the command
+    int threads;                // 0 = decide from input size
+    boolean recursive;
+    boolean dereference;        // -R follows symbolic links
+    boolean listMatching;       // -l
+    boolean listNonMatching;    // -L
+    boolean invert;             // -v
+    boolean count;              // -c
+    boolean lineNumbers;        // -n
+    boolean onlyMatching;       // -o
+    boolean quiet;              // -q
+    boolean word;               // -w
+    boolean wholeLine;          // -x
+    boolean decompress;         // -Z reads gzip files through GzipStream
+    long maxCount = -1;         // -m, -1 = unlimited
+    int before;                 // -B / -C
+    int after;                  // -A / -C
+    final List<PathMatcher> includes    = new ArrayList<>();
+    final List<PathMatcher> excludes    = new ArrayList<>();
+    final List<PathMatcher> excludeDirs = new ArrayList<>();
+
+    String pattern;
+    final List<String> operands = new ArrayList<>();
+
+    private GrepOptions() {}
+
+    public static GrepOptions parse(String[] args) {
+        var o = new GrepOptions();
+        int i = 1;
+        for (; i < args.length && args[i].startsWith("-") && args[i].length() > 1; i++) {
+            String opt = args[i];
+            if (opt.equals("--")) { i++; break; }
+
+            if (opt.startsWith("--include="))          { o.includes.add(glob(opt, "--include=")); continue; }
+            if (opt.startsWith("--exclude="))          { o.excludes.add(glob(opt, "--exclude=")); continue; }
+            if (opt.startsWith("--exclude-dir="))      { o.excludeDirs.add(glob(opt, "--exclude-dir=")); continue; }
+
+            if (opt.startsWith("--engine="))           { o.engine = engine(opt.substring("--engine=".length())); continue; }
+
+            if (opt.startsWith("--")) throw new IllegalArgumentException("unknown option '" + opt + "'");
+
+            for (int k = 1; k < opt.length(); k++) {
+                char flag = opt.charAt(k);
+                if ("jmABCf".indexOf(flag) >= 0) {
+                    // the value is the rest of this word, or the next argument
+                    String value;
+                    if (k + 1 < opt.length())      value = opt.substring(k + 1);
+                    else if (i + 1 < args.length)  value = args[++i];
+                    else throw new IllegalArgumentException("-" + flag + (flag == 'f' ? " needs a file" : " needs a number"));
+                    o.set(flag, value);
+                    break;
+                }
+                o.set(flag);
+            }
+        }
+
+        // with -f the patterns come from files and every argument is an operand
+        if (o.patternFiles.isEmpty()) {
+            if (i >= args.length) throw usageError();
+            o.pattern = args[i++];
+        }
+        while (i < args.length) o.operands.add(args[i++]);
+
+        if (o.operands.isEmpty()) {
+            if (!o.recursive) throw usageError();
+            o.operands.add(".");
+        }
+        if (o.listMatching && o.listNonMatching) {
+            throw new IllegalArgumentException("-l and -L are mutually exclusive");
+        }
+        return o;
+    }
+
+    private void set(char flag) {
+        switch (flag) {
+            case 'i' -> ignoreCase = true;
+            case 'F' -> fixed = true;
+            case 'r' -> recursive = true;
+            case 'R' -> { recursive = true; dereference = true; }
+            case 'l' -> listMatching = true;
+            case 'L' -> listNonMatching = true;
+            case 'v' -> invert = true;
+            case 'c' -> count = true;
+            case 'n' -> lineNumbers = true;
+            case 'o' -> onlyMatching = true;
+            case 'q' -> quiet = true;
+            case 'w' -> word = true;
+            case 'x' -> wholeLine = true;
+            case 'Z' -> decompress = true;
+            default  -> throw new IllegalArgumentException("unknown option '-" + flag + "'");
+        }
+    }
+
+    private void set(char flag, String value) {
+        String opt = "-" + flag;
+        switch (flag) {
+            case 'f' -> patternFiles.add(value);
+            case 'j' -> threads = positive(value, opt);
+            case 'm' -> maxCount = nonNegative(value, opt);
+            case 'A' -> after = nonNegative(value, opt);
+            case 'B' -> before = nonNegative(value, opt);
+            case 'C' -> before = after = nonNegative(value, opt);
+            default  -> throw new IllegalStateException("no value for " + opt);
+        }
+    }
+
+    /**
+     * True when matches can be found chunk by chunk, out of line order: no
+     * option needs line numbers, neighbouring lines, a running limit or a
+     * per-file verdict. -c qualifies — chunk counts simply add up.
+     */
+    boolean chunkable() {
+        return !invert && !lineNumbers && !onlyMatching && !quiet
+            && !listMatching && !listNonMatching && maxCount < 0 && before == 0 && after == 0;
+    }
+
+    /** -A / -B / -C apply — ignored under -o, -c and the listing modes, as in GNU grep. */
+    boolean hasContext() {
+        return (before > 0 || after > 0) && !onlyMatching && !count && !quiet
+            && !listMatching && !listNonMatching;
+    }
+
+    /** Prefix output lines with the file name — more than one file may be searched. */
+    boolean withFilename() {
+        return recursive || operands.size() > 1;
+    }
+
+    /** True when a file name passes --include / --exclude. */
+    boolean selects(Path fileName) {
+        if (!includes.isEmpty() && includes.stream().noneMatch(m -> m.matches(fileName))) return false;
+        return excludes.stream().noneMatch(m -> m.matches(fileName));
+    }
+
+    boolean skipsDirectory(Path dirName) {
+        return excludeDirs.stream().anyMatch(m -> m.matches(dirName));
+    }
+
+    /** No message — the caller prints the usage line instead. */
+    private static IllegalArgumentException usageError() {
+        return new IllegalArgumentException((String) null);
+    }
+
+    private static LineMatcher.Engine engine(String name) {
+        return switch (name) {
+            case "auto" -> LineMatcher.Engine.AUTO;
+            case "dfa"  -> LineMatcher.Engine.DFA;
+            case "java" -> LineMatcher.Engine.JAVA;
+            default -> throw new IllegalArgumentException("--engine must be auto, dfa or java, got '" + name + "'");
+        };
+    }
+
+    private static PathMatcher glob(String opt, String prefix) {
+        String glob = opt.substring(prefix.length());
+        if (glob.isEmpty()) throw new IllegalArgumentException(prefix + " needs a glob");
+        return FileSystems.getDefault().getPathMatcher("glob:" + glob);
+    }
+
+    private static int nonNegative(String value, String opt) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n >= 0) return n;
+        } catch (NumberFormatException ignored) {
+            // fall through to the shared message
+        }
+        throw new IllegalArgumentException(opt + " needs a number, got '" + value + "'");
+    }
+
+    private static int positive(String value, String opt) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n > 0) return n;
+        } catch (NumberFormatException ignored) {
+            // fall through to the shared message
+        }
+        throw new IllegalArgumentException(opt + " needs a positive number, got '" + value + "'");
+    }
+}
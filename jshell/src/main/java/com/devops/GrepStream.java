@@ -0,0 +1,176 @@
+package com.devops;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One sequential pass of grep over a single input, implementing the
+ * per-line options: -v -c -n -o -m -q and context lines -A / -B / -C.
+ *
+ * Lines are never kept beyond the scanner's window except for before-context,
+ * which lives in a fixed ring of B reusable byte arrays — memory stays
+ * bounded by B times the longest line no matter how large the input is.
+ * -c, -q, -l and -L only ask the matcher for a verdict, so no line is
+ * decoded or copied; -q, -l and -L stop at the first selected line and -m
+ * stops once its trailing context has been printed.
+ *
+ * Output follows GNU grep: "name:" and "number:" prefix selected lines,
+ * "name-" and "number-" prefix context lines, and "--" separates context
+ * groups that are not adjacent.
+ *
+ * An instance keeps its ring between calls and is not thread-safe; give
+ * each worker its own.
+ */
+public final class GrepStream {
+
+    private static final byte[] GROUP_SEPARATOR = "--\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final GrepOptions o;
+    private final LineMatcher matcher;
+    private final boolean prefix;
+    private final boolean context;
+
+    // before-context ring: the last B unprinted lines, oldest at ringHead
+    private final byte[][] ring;
+    private final int[] ringLength;
+    private final long[] ringNumber;
+    private int ringHead;
+    private int ringSize;
+
+    private byte[] label;
+    private long lastPrinted;
+
+    public GrepStream(GrepOptions o, LineMatcher matcher, boolean prefix) {
+        this.o = o;
+        this.matcher = matcher;
+        this.prefix = prefix;
+        this.context = o.hasContext();
+        int slots = context ? o.before : 0;
+        this.ring = new byte[slots][];
+        this.ringLength = new int[slots];
+        this.ringNumber = new long[slots];
+    }
+
+    /**
+     * Searches one input and writes whatever the options ask for. Returns
+     * the number of selected lines seen — capped by -m, and at most 1 when
+     * -q, -l or -L stop early.
+     */
+    public long search(LineScanner scanner, String name, OutputStream out) throws IOException {
+        label = name.getBytes(StandardCharsets.UTF_8);
+        lastPrinted = 0;
+        ringSize = 0;
+
+        boolean verdictOnly = o.quiet || o.listMatching || o.listNonMatching;
+        boolean printLines = !verdictOnly && !o.count;
+        long selected = 0;
+        long number = 0;
+        int afterLeft = 0;
+        boolean limitReached = o.maxCount == 0;
+
+        LineScanner.Line line;
+        while (!(limitReached && afterLeft == 0) && (line = scanner.next()) != null) {
+            number++;
+            if (limitReached) {
+                // -m: the limit is spent, only trailing context remains
+                printLine(line, number, '-', out);
+                afterLeft--;
+                continue;
+            }
+
+            if (matcher.matches(line) == o.invert) {
+                if (!printLines) continue;
+                if (afterLeft > 0) {
+                    printLine(line, number, '-', out);
+                    afterLeft--;
+                } else if (ring.length > 0) {
+                    remember(line, number);
+                }
+                continue;
+            }
+
+            selected++;
+            if (verdictOnly) break;
+            if (o.maxCount > 0 && selected == o.maxCount) limitReached = true;
+            if (!printLines) continue;
+
+            if (context) {
+                flushRing(number, out);
+                afterLeft = o.after;
+            }
+            if (o.onlyMatching) {
+                if (!o.invert) {
+                    for (String part : matcher.findAll(line)) printText(part, number, out);
+                }
+            } else {
+                printLine(line, number, ':', out);
+            }
+        }
+
+        if (o.count && !verdictOnly) {
+            writePrefix(':', 0, out);
+            out.write(Long.toString(selected).getBytes(StandardCharsets.US_ASCII));
+            out.write('\n');
+        }
+        if ((o.listMatching && selected > 0) || (o.listNonMatching && selected == 0)) {
+            out.write(label);
+            out.write('\n');
+        }
+        return selected;
+    }
+
+    private void remember(LineScanner.Line line, long number) {
+        int slot = (ringHead + ringSize) % ring.length;
+        if (ringSize == ring.length) {
+            slot = ringHead;
+            ringHead = (ringHead + 1) % ring.length;
+        } else {
+            ringSize++;
+        }
+        int len = line.length();
+        if (ring[slot] == null || ring[slot].length < len) ring[slot] = new byte[Math.max(len, 128)];
+        line.copyTo(ring[slot]);
+        ringLength[slot] = len;
+        ringNumber[slot] = number;
+    }
+
+    /** Prints the held before-context and, if there is a gap, the group separator first. */
+    private void flushRing(long selectedNumber, OutputStream out) throws IOException {
+        long first = ringSize > 0 ? ringNumber[ringHead] : selectedNumber;
+        if (lastPrinted > 0 && first > lastPrinted + 1) out.write(GROUP_SEPARATOR);
+        for (int k = 0; k < ringSize; k++) {
+            int slot = (ringHead + k) % ring.length;
+            writePrefix('-', ringNumber[slot], out);
+            out.write(ring[slot], 0, ringLength[slot]);
+            out.write('\n');
+        }
+        ringHead = 0;
+        ringSize = 0;
+    }
+
+    private void printLine(LineScanner.Line line, long number, char separator, OutputStream out) throws IOException {
+        writePrefix(separator, number, out);
+        line.writeTo(out);
+        lastPrinted = number;
+    }
+
+    private void printText(String text, long number, OutputStream out) throws IOException {
+        writePrefix(':', number, out);
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+        lastPrinted = number;
+    }
+
+    /** "name:" / "number:" as the options ask; number 0 means no line number (-c). */
+    private void writePrefix(char separator, long number, OutputStream out) throws IOException {
+        if (prefix) {
+            out.write(label);
+            out.write(separator);
+        }
+        if (o.lineNumbers && number > 0) {
+            out.write(Long.toString(number).getBytes(StandardCharsets.US_ASCII));
+            out.write(separator);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.devops;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Streams the decompressed bytes of a gzip file, for zcat, zgrep and the
+ * -Z flag of cat, grep and wc — nothing is written to disk — and for HTTP
+ * bodies sent with Content-Encoding: gzip.
+ *
+ * Every member of a concatenated file (cat a.gz b.gz, or the output of a
+ * parallel compressor) is inflated in turn, each checked against its own
+ * CRC32 and length trailer. Bytes after the last member that do not start
+ * another one are ignored, as gzip does with trailing zeros.
+ *
+ * A file that does not start with the gzip magic is passed through as is,
+ * like zcat -f, so zgrep can search a mix of plain and compressed logs.
+ * Raw Inflaters are pooled across streams rather than allocated per file,
+ * which keeps zgrep -r over many small files from churning native memory.
+ */
+final class GzipStream extends InputStream {
+
+    private static final int INPUT_BUFFER = 256 * 1024;
+    private static final int STREAM_BUFFER = 64 * 1024;
+    private static final int MAX_IDLE = 64;
+    private static final int FHCRC = 2, FEXTRA = 4, FNAME = 8, FCOMMENT = 16;
+
+    private static final BlockingQueue<Inflater> IDLE = new ArrayBlockingQueue<>(MAX_IDLE);
+
+    private final InputStream in;
+    private final byte[] buf;
+    private int pos, limit;             // unread input is buf[pos, limit)
+    private final boolean raw;
+    private Inflater inflater;
+    private final CRC32 crc = new CRC32();
+    private long memberSize;
+    private boolean eof;
+
+    private GzipStream(InputStream in, int buffer) throws IOException {
+        this.in = in;
+        this.buf = new byte[buffer];
+        fill();
+        if (limit - pos == 1) fillMore();   // a socket may hand over a single byte
+        raw = limit - pos < 2 || (buf[pos] & 0xFF) != 0x1f || (buf[pos + 1] & 0xFF) != 0x8b;
+        if (!raw) {
+            inflater = IDLE.poll();
+            if (inflater == null) inflater = new Inflater(true);
+            readHeader();
+            inflater.setInput(buf, pos, limit - pos);
+        }
+    }
+
+    /** Opens file for reading, decompressed if it is gzip. */
+    static InputStream open(Path file) throws IOException {
+        return open(file, INPUT_BUFFER);
+    }
+
+    /** Opens file for reading through an input buffer of the given size. */
+    static InputStream open(Path file, int buffer) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        try {
+            return new GzipStream(in, buffer);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /** Decompresses a stream that is already open, such as an HTTP body. */
+    static InputStream of(InputStream in) throws IOException {
+        return new GzipStream(in, STREAM_BUFFER);
+    }
+
+    /** True if file starts with the gzip magic. */
+    static boolean isGzip(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] magic = in.readNBytes(2);
+            return magic.length == 2 && (magic[0] & 0xFF) == 0x1f && (magic[1] & 0xFF) == 0x8b;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (raw) {
+            if (pos == limit) {
+                if (len >= buf.length) return in.read(b, off, len);
+                if (!fill()) return -1;
+            }
+            int n = Math.min(len, limit - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+        while (!eof) {
+            int n;
+            try {
+                n = inflater.inflate(b, off, len);
+            } catch (DataFormatException e) {
+                throw new ZipException("invalid compressed data: " + e.getMessage());
+            }
+            if (n > 0) {
+                crc.update(b, off, n);
+                memberSize += n;
+                return n;
+            }
+            if (inflater.finished()) {
+                pos = limit - inflater.getRemaining();
+                nextMember();
+            } else if (inflater.needsInput()) {
+                pos = limit;
+                if (!fill()) throw new EOFException("unexpected end of file");
+                inflater.setInput(buf, pos, limit - pos);
+            } else if (inflater.needsDictionary()) {
+                throw new ZipException("invalid compressed data: preset dictionary");
+            }
+        }
+        return -1;
+    }
+
+    /** Plain input is skipped by the underlying stream (a seek for files); compressed input is inflated and dropped. */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) return 0;
+        if (raw) {
+            int buffered = (int) Math.min(n, limit - pos);
+            pos += buffered;
+            return buffered > 0 ? buffered : in.skip(n);
+        }
+        byte[] scratch = new byte[(int) Math.min(n, INPUT_BUFFER)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(scratch, 0, (int) Math.min(scratch.length, n - skipped));
+            if (read < 0) break;
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    /** Checks the trailer of the member just inflated and starts the next one, if any. */
+    private void nextMember() throws IOException {
+        long expectedCrc = int4();
+        long expectedSize = int4();
+        if (expectedCrc != crc.getValue()) throw new ZipException("crc error");
+        if (expectedSize != (memberSize & 0xFFFFFFFFL)) throw new ZipException("length error");
+
+        inflater.reset();
+        crc.reset();
+        memberSize = 0;
+        if (pos == limit && !fill()) {
+            eof = true;
+            return;
+        }
+        if (limit - pos < 2 && !fillMore()) {
+            eof = true;
+            return;
+        }
+        if ((buf[pos] & 0xFF) != 0x1f || (buf[pos + 1] & 0xFF) != 0x8b) {
+            eof = true;                                     // trailing garbage
+            return;
+        }
+        readHeader();
+        inflater.setInput(buf, pos, limit - pos);
+    }
+
+    private void readHeader() throws IOException {
+        byte1();
+        byte1();                                            // magic, already checked
+        if (byte1() != 8) throw new ZipException("unknown compression method");
+        int flags = byte1();
+        discard(6);                                         // mtime, extra flags, OS
+        if ((flags & FEXTRA) != 0) discard(byte1() | byte1() << 8);
+        if ((flags & FNAME) != 0) discardString();
+        if ((flags & FCOMMENT) != 0) discardString();
+        if ((flags & FHCRC) != 0) discard(2);
+    }
+
+    private int byte1() throws IOException {
+        if (pos == limit && !fill()) throw new EOFException("unexpected end of file");
+        return buf[pos++] & 0xFF;
+    }
+
+    private long int4() throws IOException {
+        return byte1() | byte1() << 8 | byte1() << 16 | (long) byte1() << 24;
+    }
+
+    private void discard(int n) throws IOException {
+        for (int i = 0; i < n; i++) byte1();
+    }
+
+    /** Skips a zero-terminated header field (file name, comment). */
+    private void discardString() throws IOException {
+        int c;
+        do {
+            c = byte1();
+        } while (c != 0);
+    }
+
+    /** Refills an exhausted buffer. Returns false at end of input. */
+    private boolean fill() throws IOException {
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) return false;
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    /** Moves the unread bytes to the front and reads after them. Returns false if nothing more came. */
+    private boolean fillMore() throws IOException {
+        int left = limit - pos;
+        System.arraycopy(buf, pos, buf, 0, left);
+        pos = 0;
+        int n = in.read(buf, left, buf.length - left);
+        limit = left + Math.max(n, 0);
+        return n > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (inflater != null) {
+            inflater.reset();
+            if (!IDLE.offer(inflater)) inflater.end();
+            inflater = null;
+        }
+        in.close();
+    }
+}
@@ -0,0 +1,446 @@
+package com.devops;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * wget's transfer: a GET streamed into a file, resumable with -c and
+ * optionally split into byte ranges fetched in parallel with -n.
+ *
+ * Resuming asks for "Range: bytes=<size of the partial file>-". A 206
+ * appends, a 200 means the server ignored the range and the file starts
+ * over, and a 416 means there was nothing left to fetch.
+ *
+ * A segmented download first asks for a single byte to learn the length
+ * and the validator (ETag or Last-Modified) of the file. It preallocates
+ * <file>.part to that length and fetches the segments on a fixed pool,
+ * each writing at its own offsets with positional FileChannel writes. The
+ * ranged requests carry If-Range, so a file that changes on the server
+ * fails the download instead of mixing two versions. A segment that breaks
+ * off asks again from where it stopped, up to RETRIES times. If one still
+ * fails, or the download is interrupted, the others are stopped and the
+ * .part file is cut back to its contiguous prefix, which -c then resumes
+ * from. The .part file is renamed once every byte is in.
+ *
+ * A preallocated .part has holes until it is done, so its length proves
+ * nothing. Before preallocating, the segments are written to
+ * <file>.part.ranges, and how far each got is saved there with every
+ * progress update. -c resumes each segment from its saved offset while that
+ * file exists; it goes once the download is renamed or cut back. A .part
+ * without one is always a contiguous prefix.
+ *
+ * Workers only add to a shared counter as they go. The calling thread
+ * prints progress every PROGRESS_MS while it waits for them, so nothing
+ * looks at the clock per read. A single stream goes through the same path
+ * as a one-segment download.
+ */
+final class HttpDownload {
+
+    static final int MAX_SEGMENTS = 16;
+    static final long MIN_SEGMENT = 256 * 1024;     // smaller ranges are not worth a request
+    static final int RETRIES = 3;
+    static final long PROGRESS_MS = 500;
+
+    private static final int BUFFER = 64 * 1024;
+    private static final long BACKOFF_MS = 200;
+    private static final long STOP_MS = 5000;       // for workers to notice a cancel before the file is cut back
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-\\d+/(\\d+|\\*)");
+    private static final Pattern UNSATISFIED = Pattern.compile("bytes \\*/(\\d+)");
+
+    /**
+     * What a download did. size is the length of the finished file and
+     * resumedFrom the length it already had; segments is 0 when the file
+     * was already complete.
+     */
+    record Result(long size, long resumedFrom, int segments) {
+        boolean alreadyComplete() { return segments == 0; }
+    }
+
+    /** Bytes [start, end] of the file, end being -1 while the length is unknown. */
+    private static final class Segment {
+        final long start, end;
+        volatile long done;
+
+        Segment(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        long remaining() {
+            return end - start + 1 - done;
+        }
+    }
+
+    private final HttpSession http;
+    private final URI uri;
+    private final HttpSession.Options options;
+    private final LongAdder received = new LongAdder();
+    private String validator;                       // for If-Range; null if the server gave none
+    private boolean resumable;
+    private volatile boolean cancelled;
+
+    private HttpDownload(HttpSession http, URI uri, HttpSession.Options options) {
+        this.http = http;
+        this.uri = uri;
+        this.options = options;
+    }
+
+    /**
+     * Downloads uri into file using up to segments ranged requests at once;
+     * with resume, keeps what an earlier attempt left in file or file.part.
+     * Progress goes to progress.
+     */
+    static Result fetch(HttpSession http, URI uri, HttpSession.Options options, Path file,
+                        int segments, boolean resume, PrintStream progress) throws IOException {
+        return new HttpDownload(http, uri, options).fetch(file, segments, resume, progress);
+    }
+
+    private Result fetch(Path file, int segments, boolean resume, PrintStream progress) throws IOException {
+        Path part = file.resolveSibling(file.getFileName() + ".part");
+        Path ranges = file.resolveSibling(file.getFileName() + ".part.ranges");
+        if (resume) {
+            List<Segment> saved = load(ranges, part);
+            if (saved != null) {
+                resumable = true;
+                long have = saved.stream().mapToLong(s -> s.done).sum();
+                return segmented(saved, part, ranges, file, have, progress);
+            }
+        }
+        if (Files.exists(ranges)) {
+            // its .part is gone or was cut back to a prefix; without -c a .part with holes must not outlive it
+            if (!resume) Files.deleteIfExists(part);
+            Files.delete(ranges);
+        }
+        Path partial = resume && Files.exists(part) ? part : file;
+        long have = resume && Files.isRegularFile(partial) ? Files.size(partial) : 0;
+
+        HttpSession.Response first = segments > 1 || have > 0
+            ? http.get(uri, options, "Range", "bytes=" + have + "-" + (segments > 1 ? Long.toString(have) : ""))
+            : http.get(uri, options);
+        String etag = first.headers().firstValue("ETag").filter(t -> !t.startsWith("W/")).orElse(null);
+        validator = etag != null ? etag : first.headers().firstValue("Last-Modified").orElse(null);
+
+        long start, total;
+        switch (first.status()) {
+            case 416 -> {
+                first.body().close();
+                long remote = first.headers().firstValue("Content-Range")
+                    .map(UNSATISFIED::matcher).filter(Matcher::matches)
+                    .map(m -> Long.parseLong(m.group(1))).orElse(have);
+                if (remote != have) throw new IOException(partial.getFileName() + " is larger than the remote file");
+                if (!Files.exists(partial)) Files.createFile(partial);
+                if (!partial.equals(file)) Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+                return new Result(have, have, 0);
+            }
+            case 206 -> {
+                Matcher m = first.headers().firstValue("Content-Range")
+                    .map(CONTENT_RANGE::matcher).filter(Matcher::matches).orElse(null);
+                if (m == null || Long.parseLong(m.group(1)) != have) {
+                    first.body().close();
+                    throw new IOException("server sent the wrong range");
+                }
+                start = have;
+                total = m.group(2).equals("*") ? -1 : Long.parseLong(m.group(2));
+                resumable = true;
+            }
+            case 200 -> {
+                start = 0;
+                total = first.length();
+                resumable = first.headers().firstValue("Accept-Ranges").orElse("").equals("bytes");
+            }
+            default -> {
+                first.body().close();
+                throw new IOException("server returned HTTP " + first.status());
+            }
+        }
+
+        if (first.status() == 206 && segments > 1) {
+            first.body().readAllBytes();                    // the one probe byte; frees the connection
+            first.body().close();
+            first = null;
+        }
+        if (first == null && total > 0) {
+            if (partial.equals(file) && have > 0) Files.move(file, part, StandardCopyOption.REPLACE_EXISTING);
+            return segmented(split(have, total, segments), part, ranges, file, have, progress);
+        }
+
+        // One stream: write on from start, whether the first response came ranged or whole,
+        // or was the probe of a server that did not say how long the file is
+        try (var channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(start);
+            var segment = new Segment(start, total < 0 ? -1 : total - 1);
+            run(List.of(segment), first, channel, start, total, null, progress);
+        }
+        if (!partial.equals(file)) Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+        return new Result(Files.size(file), start, 1);
+    }
+
+    /**
+     * Fetches what is left of segments, which cover the file from their
+     * first start to its end, into part and renames it to file. ranges
+     * records them before part is preallocated and is removed once it is.
+     */
+    private Result segmented(List<Segment> segments, Path part, Path ranges, Path file, long have,
+                             PrintStream progress) throws IOException {
+        long total = segments.getLast().end + 1;
+        save(ranges, segments);
+        try (var raf = new RandomAccessFile(part.toFile(), "rw")) {
+            raf.setLength(total);
+            run(segments, null, raf.getChannel(), have, total, ranges, progress);
+        }
+        Files.move(part, file, StandardCopyOption.REPLACE_EXISTING);
+        Files.delete(ranges);
+        return new Result(total, have, segments.size());
+    }
+
+    /** Records the validator and how far each segment got, one "start end done" line per segment. */
+    private void save(Path ranges, List<Segment> segments) throws IOException {
+        var text = new StringBuilder(validator == null ? "" : validator).append('\n');
+        for (Segment s : segments) text.append(s.start).append(' ').append(s.end).append(' ').append(s.done).append('\n');
+        Files.writeString(ranges, text);
+    }
+
+    /**
+     * The segments ranges records for part, with the validator they were
+     * fetched under, or null if there is no such file or it does not fit
+     * part — which was then cut back to a prefix, or never preallocated.
+     */
+    private List<Segment> load(Path ranges, Path part) {
+        try {
+            List<String> lines = Files.readAllLines(ranges);
+            var segments = new ArrayList<Segment>();
+            for (String line : lines.subList(1, lines.size())) {
+                String[] fields = line.split(" ");
+                var s = new Segment(Long.parseLong(fields[0]), Long.parseLong(fields[1]));
+                s.done = Long.parseLong(fields[2]);
+                boolean adjacent = segments.isEmpty() || s.start == segments.getLast().end + 1;
+                if (fields.length != 3 || !adjacent || s.done < 0 || s.remaining() < 0) return null;
+                segments.add(s);
+            }
+            if (segments.isEmpty() || Files.size(part) != segments.getLast().end + 1) return null;
+            validator = lines.get(0).isEmpty() ? null : lines.get(0);
+            return segments;
+        } catch (IOException | RuntimeException e) {
+            return null;                            // missing, or written only in part when the process died
+        }
+    }
+
+    /** Splits [from, total) into at most segments ranges of at least MIN_SEGMENT bytes. */
+    private static List<Segment> split(long from, long total, int segments) {
+        long remaining = total - from;
+        int n = (int) Math.max(1, Math.min(segments, (remaining + MIN_SEGMENT - 1) / MIN_SEGMENT));
+        long size = (remaining + n - 1) / n;
+        var split = new ArrayList<Segment>(n);
+        for (long s = from; s < total; s += size) split.add(new Segment(s, Math.min(s + size, total) - 1));
+        return split;
+    }
+
+    /**
+     * Runs one worker per segment and prints progress until they finish,
+     * saving it to ranges unless that is null. first, if not null, is the
+     * already open response for the first segment. On failure or interrupt,
+     * cuts the file back to the bytes that arrived contiguously.
+     */
+    private void run(List<Segment> segments, HttpSession.Response first, FileChannel channel,
+                     long base, long total, Path ranges, PrintStream progress) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(segments.size(),
+            Thread.ofPlatform().daemon().name("wget-", 0).factory());
+        var futures = new ArrayList<Future<Void>>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            HttpSession.Response response = i == 0 ? first : null;
+            futures.add(pool.submit(() -> download(segment, response, channel)));
+        }
+        pool.shutdown();
+        boolean complete = false;
+        try {
+            while (!pool.awaitTermination(PROGRESS_MS, TimeUnit.MILLISECONDS)) {
+                long downloaded = base + received.sum();
+                progress.print("\r" + (total > 0 ? downloaded * 100 / total + "%" : ByteFormatter.format(downloaded)));
+                if (ranges != null) save(ranges, segments);
+                if (futures.stream().anyMatch(f -> f.state() == Future.State.FAILED)) cancelled = true;
+            }
+            IOException failure = null;
+            for (Future<Void> f : futures) {
+                try {
+                    await(f);
+                } catch (IOException e) {
+                    if (failure == null) failure = e;
+                }
+            }
+            if (failure != null) throw failure;
+            complete = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } finally {
+            if (!complete) cutBack(pool, segments, channel, ranges);
+        }
+    }
+
+    /** Stops the workers, then cuts the file back to its contiguous prefix and drops ranges, which no longer fits it. */
+    private void cutBack(ExecutorService pool, List<Segment> segments, FileChannel channel, Path ranges)
+            throws IOException {
+        cancelled = true;
+        // an interrupted thread closes a FileChannel it touches, so the flag is held back until the cut is made
+        boolean interrupted = Thread.interrupted();
+        try {
+            try {
+                // workers check cancelled before each write, so one still blocked in a read after this writes nothing
+                pool.awaitTermination(STOP_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            long prefix = segments.get(0).start;
+            for (Segment s : segments) {
+                prefix = s.start + s.done;
+                if (s.end < 0 || s.remaining() > 0) break;
+            }
+            channel.truncate(prefix);
+            if (ranges != null) Files.deleteIfExists(ranges);
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Fetches what is left of segment into its place in the file, asking again if the stream breaks off. */
+    private Void download(Segment segment, HttpSession.Response first, FileChannel channel) throws IOException {
+        if (segment.end >= 0 && segment.remaining() == 0) return null;   // done before a resume
+        var response = first;
+        byte[] buffer = new byte[BUFFER];
+        for (int attempt = 0; ; attempt++) {
+            try {
+                if (response == null) response = request(segment);
+                try (InputStream in = response.body()) {
+                    for (int n; (n = in.read(buffer)) > 0; ) {
+                        if (cancelled) throw new IOException("cancelled");
+                        if (segment.end >= 0) n = (int) Math.min(n, segment.remaining());
+                        var bytes = ByteBuffer.wrap(buffer, 0, n);
+                        long position = segment.start + segment.done;
+                        while (bytes.hasRemaining()) position += channel.write(bytes, position);
+                        segment.done += n;
+                        received.add(n);
+                        if (segment.end >= 0 && segment.remaining() == 0) break;
+                    }
+                }
+                if (segment.end >= 0 && segment.remaining() > 0) {
+                    throw new EOFException("connection closed " + segment.remaining() + " bytes early");
+                }
+                return null;
+            } catch (IOException e) {
+                response = null;
+                if (!resumable || cancelled || attempt == RETRIES) throw e;
+                try {
+                    Thread.sleep(BACKOFF_MS << attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /** Asks for the rest of segment, checking that the server answered with exactly that range. */
+    private HttpSession.Response request(Segment segment) throws IOException {
+        long from = segment.start + segment.done;
+        String range = "bytes=" + from + "-" + (segment.end >= 0 ? Long.toString(segment.end) : "");
+        var response = validator != null
+            ? http.get(uri, options, "Range", range, "If-Range", validator)
+            : http.get(uri, options, "Range", range);
+        Matcher m = response.headers().firstValue("Content-Range")
+            .map(CONTENT_RANGE::matcher).filter(Matcher::matches).orElse(null);
+        if (response.status() != 206 || m == null || Long.parseLong(m.group(1)) != from) {
+            response.body().close();
+            if (response.status() == 200) cancelled = true; // the other segments would fail the same way
+            throw new IOException(response.status() == 200
+                ? "the file changed on the server during the download"
+                : "server returned HTTP " + response.status() + " for " + range);
+        }
+        return response;
+    }
+
+    /**
+     * Checks file against "algorithm:hex", where algorithm is md5, sha1 or
+     * sha256. Throws IOException with both digests if they differ.
+     */
+    static void verify(Path file, String checksum) throws IOException {
+        int colon = checksum.indexOf(':');
+        String expected = checksum.substring(colon + 1).toLowerCase();
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(algorithm(checksum.substring(0, colon)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e.getMessage());
+        }
+        byte[] buffer = new byte[CompressionTuning.DEFAULT_BUFFER];
+        try (InputStream in = Files.newInputStream(file)) {
+            for (int n; (n = in.read(buffer)) > 0; ) digest.update(buffer, 0, n);
+        }
+        String actual = HexFormat.of().formatHex(digest.digest());
+        if (!actual.equals(expected)) {
+            throw new IOException("checksum mismatch: expected " + expected + ", got " + actual);
+        }
+    }
+
+    /**
+     * Validates a --checksum value, returning it unchanged. Throws
+     * IllegalArgumentException with a user-facing message otherwise.
+     */
+    static String checksum(String value) {
+        int colon = value.indexOf(':');
+        String algorithm = colon > 0 ? algorithm(value.substring(0, colon)) : null;
+        int hexLength = algorithm == null ? -1 : switch (algorithm) {
+            case "MD5" -> 32;
+            case "SHA-1" -> 40;
+            default -> 64;
+        };
+        if (algorithm == null || !value.substring(colon + 1).matches("[0-9a-fA-F]{" + hexLength + "}")) {
+            throw new IllegalArgumentException("invalid --checksum '" + value + "', expected md5:, sha1: or sha256:<hex>");
+        }
+        return value;
+    }
+
+    private static String algorithm(String name) {
+        return switch (name.toLowerCase()) {
+            case "md5" -> "MD5";
+            case "sha1" -> "SHA-1";
+            case "sha256" -> "SHA-256";
+            default -> null;
+        };
+    }
+
+    private static Void await(Future<Void> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
+        }
+    }
+}
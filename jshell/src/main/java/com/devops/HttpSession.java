@@ -0,0 +1,104 @@
+package com.devops;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The HTTP client wget and curl share for the whole session, carried by
+ * ShellContext like the matcher cache. A java.net.http.HttpClient keeps
+ * its connections open between requests, so a script running curl against
+ * the same endpoint a thousand times makes one TCP connection (or one
+ * HTTP/2 connection over TLS, negotiated by ALPN) instead of a thousand.
+ *
+ * The connect timeout is fixed when a client is built, so there is one
+ * client per connect timeout in use — in practice just the default one.
+ * Clients start their selector thread on first use and run on daemon
+ * threads, so an idle session costs nothing and exit needs no cleanup.
+ *
+ * With compressed, the request carries Accept-Encoding: gzip and a gzip
+ * body is inflated as it streams in, never buffered whole. The response
+ * timeout bounds the wait for the status line and headers; the body is
+ * then read for as long as the server keeps sending it.
+ */
+public final class HttpSession {
+
+    static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(30);
+    static final String USER_AGENT = "J-Shell";
+
+    /** A response whose body is still to be read; length is -1 when unknown or encoded. */
+    record Response(int status, long length, HttpHeaders headers, InputStream body) {}
+
+    /** Per-request settings, with the defaults above. */
+    record Options(Duration connectTimeout, Duration timeout, boolean compressed) {
+        static final Options DEFAULT = new Options(CONNECT_TIMEOUT, RESPONSE_TIMEOUT, false);
+    }
+
+    private final Map<Duration, HttpClient> clients = new ConcurrentHashMap<>();
+
+    /** Sends a GET for uri. The caller closes the body, which returns the connection to the pool. */
+    Response get(URI uri, Options options, String... headers) throws IOException {
+        var request = HttpRequest.newBuilder(uri)
+            .timeout(options.timeout())
+            .header("User-Agent", USER_AGENT);
+        if (options.compressed()) request.header("Accept-Encoding", "gzip");
+        if (headers.length > 0) request.headers(headers);
+
+        HttpResponse<InputStream> response;
+        try {
+            response = client(options.connectTimeout())
+                .send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (HttpTimeoutException e) {
+            throw new IOException("timed out after " + seconds(options.timeout()) + " s");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        }
+
+        InputStream body = response.body();
+        long length = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("identity");
+        if (encoding.equalsIgnoreCase("gzip") || encoding.equalsIgnoreCase("x-gzip")) {
+            try {
+                body = GzipStream.of(body);
+            } catch (IOException | RuntimeException e) {
+                body.close();
+                throw e;
+            }
+            length = -1;
+        }
+        return new Response(response.statusCode(), length, response.headers(), body);
+    }
+
+    private HttpClient client(Duration connectTimeout) {
+        return clients.computeIfAbsent(connectTimeout, t -> HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(t)
+            .build());
+    }
+
+    /**
+     * Parses a timeout given in seconds, whole or decimal ("10", "2.5").
+     * Throws IllegalArgumentException with a user-facing message otherwise.
+     */
+    static Duration timeout(String option, String value) {
+        if (!value.matches("\\d{1,6}(\\.\\d{1,3})?") || Double.parseDouble(value) == 0) {
+            throw new IllegalArgumentException("invalid " + option + " '" + value + "'");
+        }
+        return Duration.ofMillis(Math.round(Double.parseDouble(value) * 1000));
+    }
+
+    private static String seconds(Duration d) {
+        return d.toMillis() % 1000 == 0 ? Long.toString(d.toSeconds()) : Double.toString(d.toMillis() / 1000.0);
+    }
+}
@@ -0,0 +1,94 @@
+package com.devops;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Stable merge sort of the indices 0..n-1 under a primitive comparator, so
+ * sort can order rows of precomputed key columns without boxing a single
+ * element. Inputs of PARALLEL_MIN rows or more are split across the common
+ * ForkJoin pool, the way Arrays.parallelSort splits object arrays.
+ */
+final class IndexSort {
+
+    interface RowComparator { int compare(int a, int b); }
+
+    static final int PARALLEL_MIN = 1 << 16;
+
+    private static final int INSERTION = 32;
+    private static final int GRANULE   = 1 << 13;
+
+    private IndexSort() {}
+
+    static int[] sort(int n, RowComparator order) {
+        int[] rows = new int[n];
+        for (int i = 0; i < n; i++) rows[i] = i;
+        int[] scratch = new int[n];
+        if (n >= PARALLEL_MIN && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            ForkJoinPool.commonPool().invoke(new Sorter(rows, scratch, 0, n, order));
+        } else {
+            sort(rows, scratch, 0, n, order);
+        }
+        return rows;
+    }
+
+    private static void sort(int[] a, int[] tmp, int lo, int hi, RowComparator order) {
+        if (hi - lo <= INSERTION) {
+            insertion(a, lo, hi, order);
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        sort(a, tmp, lo, mid, order);
+        sort(a, tmp, mid, hi, order);
+        merge(a, tmp, lo, mid, hi, order);
+    }
+
+    private static void insertion(int[] a, int lo, int hi, RowComparator order) {
+        for (int i = lo + 1; i < hi; i++) {
+            int row = a[i];
+            int j = i - 1;
+            while (j >= lo && order.compare(a[j], row) > 0) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = row;
+        }
+    }
+
+    /** Merges sorted [lo, mid) and [mid, hi); ties take the left side, which keeps the sort stable. */
+    private static void merge(int[] a, int[] tmp, int lo, int mid, int hi, RowComparator order) {
+        if (order.compare(a[mid - 1], a[mid]) <= 0) return;   // already in order
+        System.arraycopy(a, lo, tmp, lo, hi - lo);
+        int i = lo, j = mid, k = lo;
+        while (i < mid && j < hi) a[k++] = order.compare(tmp[j], tmp[i]) < 0 ? tmp[j++] : tmp[i++];
+        while (i < mid) a[k++] = tmp[i++];
+        while (j < hi) a[k++] = tmp[j++];
+    }
+
+    private static final class Sorter extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] a, tmp;
+        private final int lo, hi;
+        private final transient RowComparator order;
+
+        Sorter(int[] a, int[] tmp, int lo, int hi, RowComparator order) {
+            this.a = a;
+            this.tmp = tmp;
+            this.lo = lo;
+            this.hi = hi;
+            this.order = order;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= GRANULE) {
+                sort(a, tmp, lo, hi, order);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new Sorter(a, tmp, lo, mid, order), new Sorter(a, tmp, mid, hi, order));
+            merge(a, tmp, lo, mid, hi, order);
+        }
+    }
+}
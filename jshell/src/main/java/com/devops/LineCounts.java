@@ -0,0 +1,134 @@
+package com.devops;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Exact occurrence counts of distinct lines, in first-seen order (uniq -a).
+ * Each distinct line also gets a dense id, so callers such as diff can
+ * reduce lines to ints.
+ *
+ * An open-addressing table with linear probing maps each line's 64-bit
+ * hash to an entry; a probe only compares bytes when the full hashes
+ * agree, so collisions are verified, never assumed away. Entry metadata
+ * (hash, count, location, length) lives in parallel primitive arrays.
+ *
+ * Line bytes are appended to an arena of segments: heap buffers at first,
+ * direct (off-heap) buffers once the arena passes OFF_HEAP_AFTER, so a
+ * table of many millions of distinct lines does not weigh on the GC.
+ */
+final class LineCounts {
+
+    static final long OFF_HEAP_AFTER = 64L * 1024 * 1024;
+
+    private static final int SEGMENT = 8 * 1024 * 1024;
+    private static final int MAX_ENTRIES = 1 << 30;
+
+    private int[] slots = new int[1024];        // entry + 1, 0 = empty
+    private long[] hashes = new long[512];
+    private long[] counts = new long[512];
+    private long[] locations = new long[512];   // segment << 32 | offset
+    private int[] lengths = new int[512];
+    private int size;
+
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private ByteBuffer current;
+    private long arenaBytes;
+    private byte[] scratch = new byte[8192];
+
+    /** Counts one occurrence of line and returns its id: 0, 1, 2... in first-seen order. */
+    int add(LineScanner.Line line) {
+        long hash = line.hash();
+        int mask = slots.length - 1;
+        int slot = (int) hash & mask;
+        for (int e; (e = slots[slot]) != 0; slot = (slot + 1) & mask) {
+            int id = e - 1;
+            if (hashes[id] == hash && line.contentEquals(segment(id), offset(id), lengths[id])) {
+                counts[id]++;
+                return id;
+            }
+        }
+        if (size == MAX_ENTRIES) throw new IllegalStateException("more than " + MAX_ENTRIES + " distinct lines");
+
+        int id = size++;
+        if (id == hashes.length) grow();
+        hashes[id] = hash;
+        counts[id] = 1;
+        lengths[id] = line.length();
+        locations[id] = store(line);
+        slots[slot] = id + 1;
+        if (2 * size > slots.length) rehash();
+        return id;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Heap and off-heap bytes held by the arena. */
+    long arenaBytes() {
+        return arenaBytes;
+    }
+
+    /** Writes each distinct line once, in first-seen order, optionally prefixed by its count. */
+    void writeTo(OutputStream out, boolean withCounts) throws IOException {
+        for (int id = 0; id < size; id++) {
+            if (withCounts) out.write(String.format("%4d ", counts[id]).getBytes(StandardCharsets.US_ASCII));
+            write(out, id);
+            out.write('\n');
+        }
+    }
+
+    /** Writes the bytes of line id, without a terminator. */
+    void write(OutputStream out, int id) throws IOException {
+        int len = lengths[id];
+        if (scratch.length < len) scratch = new byte[Math.max(len, 2 * scratch.length)];
+        segment(id).get(offset(id), scratch, 0, len);
+        out.write(scratch, 0, len);
+    }
+
+    private long store(LineScanner.Line line) {
+        int len = line.length();
+        if (current == null || current.remaining() < len) {
+            int capacity = Math.max(SEGMENT, len);
+            current = arenaBytes >= OFF_HEAP_AFTER ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+            segments.add(current);
+            arenaBytes += capacity;
+        }
+        int at = current.position();
+        current.put(line.toBytes());
+        return ((long) (segments.size() - 1) << 32) | at;
+    }
+
+    private ByteBuffer segment(int id) {
+        return segments.get((int) (locations[id] >>> 32));
+    }
+
+    private int offset(int id) {
+        return (int) locations[id];
+    }
+
+    private void grow() {
+        int n = hashes.length * 2;
+        hashes = Arrays.copyOf(hashes, n);
+        counts = Arrays.copyOf(counts, n);
+        locations = Arrays.copyOf(locations, n);
+        lengths = Arrays.copyOf(lengths, n);
+    }
+
+    private void rehash() {
+        int[] bigger = new int[slots.length * 2];
+        int mask = bigger.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = (int) hashes[id] & mask;
+            while (bigger[slot] != 0) slot = (slot + 1) & mask;
+            bigger[slot] = id + 1;
+        }
+        slots = bigger;
+    }
+}
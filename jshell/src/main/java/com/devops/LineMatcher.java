@@ -0,0 +1,364 @@
+package com.devops;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Decides whether a line matches a grep pattern.
+ *
+ * compile() picks the cheapest implementation for the pattern:
+ *   Literal — one pattern without regex metacharacters; bytes are compared
+ *             directly and the line is never decoded.
+ *   Strings — several fixed strings (-F, or -f with no metacharacters),
+ *             matched together in one pass by an AhoCorasick automaton.
+ *   Dfa     — a regex RegexDfa can handle, run as a lazily built DFA in
+ *             linear time.
+ *   Regex   — java.util.regex over the line's CharSequence view, for what
+ *             the DFA cannot do (backreferences, lookaround, \b ...).
+ * Several regex patterns become one alternation. Engine.JAVA forces the
+ * Regex path; Engine.DFA is the same as AUTO but lets the caller warn when
+ * the pattern had to fall back.
+ *
+ * -w and -x are compiled into the regex (lookarounds for word boundaries,
+ * anchors for whole lines). Strings checks them per candidate match.
+ *
+ * Instances hold per-search state (a reusable Matcher, DFA caches), so they
+ * are not thread-safe. Parallel searches give each worker its own copy().
+ */
+public sealed interface LineMatcher
+        permits LineMatcher.Literal, LineMatcher.Strings, LineMatcher.Dfa, LineMatcher.Regex {
+
+    boolean matches(LineScanner.Line line);
+
+    /** The text of every non-empty, non-overlapping match in the line (grep -o). */
+    List<String> findAll(LineScanner.Line line);
+
+    /** A fresh instance with the same pattern, for use on another thread. */
+    LineMatcher copy();
+
+    enum Engine { AUTO, DFA, JAVA }
+
+    static LineMatcher compile(String pattern, boolean ignoreCase) throws PatternSyntaxException {
+        return compile(List.of(pattern), false, ignoreCase, false, false, Engine.AUTO);
+    }
+
+    /** The matcher for grep's patterns and options. */
+    static LineMatcher compile(List<String> patterns, GrepOptions o) throws PatternSyntaxException {
+        return compile(patterns, o.fixed, o.ignoreCase, o.word, o.wholeLine, o.engine);
+    }
+
+    /**
+     * Any number of patterns (grep -f); a line matches if any one does.
+     * fixed treats every pattern as a plain string (grep -F).
+     */
+    private static LineMatcher compile(List<String> patterns, boolean fixed, boolean ignoreCase,
+                                       boolean word, boolean wholeLine, Engine engine)
+            throws PatternSyntaxException {
+        if (patterns.size() == 1 && !word && !wholeLine) {
+            String only = patterns.get(0);
+            if (fixed ? !only.isEmpty() : Literal.supports(only)) return new Literal(only, ignoreCase);
+        }
+        if (fixed || (patterns.size() > 1 && patterns.stream().allMatch(Literal::supports))) {
+            return new Strings(AhoCorasick.build(patterns, ignoreCase), word, wholeLine);
+        }
+
+        String regex = patterns.size() == 1 ? patterns.get(0)
+            : patterns.stream().map(p -> "(?:" + p + ")").collect(Collectors.joining("|"));
+        // GNU -w: the match must not touch a word character (letter, digit, '_') on either side
+        if (word)      regex = "(?<!\\w)(?:" + regex + ")(?!\\w)";
+        if (wholeLine) regex = "^(?:" + regex + ")$";
+        // always compiled, so syntax errors read the same whichever engine runs
+        Pattern compiled = ignoreCase
+            ? Pattern.compile(regex, Pattern.CASE_INSENSITIVE)
+            : Pattern.compile(regex);
+        if (engine != Engine.JAVA) {
+            RegexDfa dfa = RegexDfa.compile(regex, ignoreCase);
+            if (dfa != null) return new Dfa(dfa);
+        }
+        return new Regex(compiled);
+    }
+
+    /**
+     * Fixed-string search over bytes. Candidate positions are found with the
+     * SWAR byte scan from LineScanner, then confirmed byte by byte.
+     * Case folding is ASCII-only, the same as Pattern.CASE_INSENSITIVE.
+     */
+    final class Literal implements LineMatcher {
+
+        private static final String META = "\\^$.|?*+()[]{}";
+
+        private final byte[] needle;
+        private final boolean ignoreCase;
+
+        Literal(String pattern, boolean ignoreCase) {
+            this.needle = pattern.getBytes(StandardCharsets.UTF_8);
+            this.ignoreCase = ignoreCase;
+            if (ignoreCase) {
+                for (int i = 0; i < needle.length; i++) needle[i] = lower(needle[i]);
+            }
+        }
+
+        static boolean supports(String pattern) {
+            if (pattern.isEmpty()) return false;
+            for (int i = 0; i < pattern.length(); i++) {
+                if (META.indexOf(pattern.charAt(i)) >= 0) return false;
+            }
+            return true;
+        }
+
+        public int length() {
+            return needle.length;
+        }
+
+        @Override
+        public boolean matches(LineScanner.Line line) {
+            return indexIn(line, 0) >= 0;
+        }
+
+        @Override
+        public List<String> findAll(LineScanner.Line line) {
+            List<String> found = new ArrayList<>();
+            int i = 0;
+            int hit;
+            while ((hit = indexIn(line, i)) >= 0) {
+                found.add(line.substring(hit, hit + needle.length));
+                i = hit + needle.length;
+            }
+            return found;
+        }
+
+        private int indexIn(LineScanner.Line line, int from) {
+            int n = line.length() - needle.length;
+            outer:
+            for (int i = from; i <= n; i++) {
+                for (int j = 0; j < needle.length; j++) {
+                    byte b = line.byteAt(i + j);
+                    if ((ignoreCase ? lower(b) : b) != needle[j]) continue outer;
+                }
+                return i;
+            }
+            return -1;
+        }
+
+        /**
+         * Index of the first occurrence in buf[from, to), or -1. Used to scan
+         * whole chunks at once rather than line by line.
+         */
+        public int indexIn(ByteBuffer buf, int from, int to) {
+            int last = to - needle.length;
+            byte first = needle[0];
+            int i = from;
+            while (i <= last) {
+                int candidate;
+                if (ignoreCase && first >= 'a' && first <= 'z') {
+                    candidate = -1;
+                    for (int k = i; k <= last; k++) {
+                        if (lower(buf.get(k)) == first) { candidate = k; break; }
+                    }
+                } else {
+                    candidate = LineScanner.indexOf(buf, first, i, last + 1);
+                }
+                if (candidate < 0) return -1;
+                if (regionMatches(buf, candidate)) return candidate;
+                i = candidate + 1;
+            }
+            return -1;
+        }
+
+        private boolean regionMatches(ByteBuffer buf, int at) {
+            for (int j = 1; j < needle.length; j++) {
+                byte b = buf.get(at + j);
+                if ((ignoreCase ? lower(b) : b) != needle[j]) return false;
+            }
+            return true;
+        }
+
+        private static byte lower(byte b) {
+            return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+        }
+
+        @Override
+        public LineMatcher copy() {
+            return this;  // stateless
+        }
+    }
+
+    /**
+     * Many fixed strings in one pass over the line's bytes. The automaton
+     * reports every pattern ending at each byte, so -w and -x are checked on
+     * each candidate rather than compiled in. Stateless — copies share the
+     * automaton.
+     */
+    final class Strings implements LineMatcher {
+
+        private final AhoCorasick automaton;
+        private final boolean word;
+        private final boolean wholeLine;
+
+        Strings(AhoCorasick automaton, boolean word, boolean wholeLine) {
+            this.automaton = automaton;
+            this.word = word;
+            this.wholeLine = wholeLine;
+        }
+
+        public AhoCorasick automaton() {
+            return automaton;
+        }
+
+        @Override
+        public boolean matches(LineScanner.Line line) {
+            if (word || wholeLine) return scan(line, null);
+            int state = AhoCorasick.ROOT;
+            if (automaton.matches(state)) return true;
+            for (int i = 0, n = line.length(); i < n; i++) {
+                state = automaton.next(state, line.byteAt(i));
+                if (automaton.matches(state)) return true;
+            }
+            return false;
+        }
+
+        /** Leftmost-longest, non-overlapping — the same choice GNU grep -o makes. */
+        @Override
+        public List<String> findAll(LineScanner.Line line) {
+            List<int[]> hits = new ArrayList<>();
+            scan(line, hits);
+            hits.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(b[1], a[1]));
+
+            List<String> found = new ArrayList<>();
+            int covered = 0;
+            for (int[] hit : hits) {
+                if (hit[0] < covered || hit[1] == hit[0]) continue;
+                found.add(line.substring(hit[0], hit[1]));
+                covered = hit[1];
+            }
+            return found;
+        }
+
+        /** Collects accepted [start, end) hits into found, or stops at the first when found is null. */
+        private boolean scan(LineScanner.Line line, List<int[]> found) {
+            int n = line.length();
+            int state = AhoCorasick.ROOT;
+            for (int end = 0; end <= n; end++) {
+                if (end > 0) state = automaton.next(state, line.byteAt(end - 1));
+                for (int o = automaton.firstOutput(state); o >= 0; o = automaton.nextOutput(o)) {
+                    int start = end - automaton.patternLength(automaton.patternAt(o));
+                    if (!accepts(line, start, end)) continue;
+                    if (found == null) return true;
+                    found.add(new int[]{start, end});
+                }
+            }
+            return found != null && !found.isEmpty();
+        }
+
+        private boolean accepts(LineScanner.Line line, int start, int end) {
+            if (wholeLine && (start != 0 || end != line.length())) return false;
+            if (word) {
+                if (start > 0 && isWordByte(line.byteAt(start - 1))) return false;
+                if (end < line.length() && isWordByte(line.byteAt(end))) return false;
+            }
+            return true;
+        }
+
+        /** Same set as the regex \w used for -w: ASCII letters, digits and '_'. */
+        private static boolean isWordByte(byte b) {
+            return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_';
+        }
+
+        @Override
+        public LineMatcher copy() {
+            return this;  // stateless
+        }
+    }
+
+    /**
+     * Linear-time regex over the line's bytes. -o uses the anchored DFA to
+     * find the longest match at each offset — leftmost-longest, as GNU grep
+     * reports, rather than java.util.regex's leftmost-first.
+     */
+    final class Dfa implements LineMatcher {
+
+        private final RegexDfa automaton;
+        private final RegexDfa.Searcher searcher;
+
+        Dfa(RegexDfa automaton) {
+            this.automaton = automaton;
+            this.searcher = automaton.searcher();
+        }
+
+        public RegexDfa automaton() {
+            return automaton;
+        }
+
+        @Override
+        public boolean matches(LineScanner.Line line) {
+            return searcher.find(line);
+        }
+
+        @Override
+        public List<String> findAll(LineScanner.Line line) {
+            List<String> found = new ArrayList<>();
+            int n = line.length();
+            int from = 0;
+            while (from < n) {
+                int end = searcher.longestAt(line, from);
+                if (end > from) {
+                    found.add(line.substring(from, end));
+                    from = end;
+                } else {
+                    from++;
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public LineMatcher copy() {
+            return new Dfa(automaton);   // shares the NFA, builds its own DFA states
+        }
+    }
+
+    /** java.util.regex with one reusable Matcher — reset() per line, no allocation. */
+    final class Regex implements LineMatcher {
+
+        private final Pattern pattern;
+        private final Matcher matcher;
+
+        Regex(Pattern pattern) {
+            this.pattern = pattern;
+            this.matcher = pattern.matcher("");
+        }
+
+        public Pattern pattern() {
+            return pattern;
+        }
+
+        @Override
+        public boolean matches(LineScanner.Line line) {
+            return matcher.reset(line.chars()).find();
+        }
+
+        @Override
+        public List<String> findAll(LineScanner.Line line) {
+            List<String> found = new ArrayList<>();
+            CharSequence chars = line.chars();
+            matcher.reset(chars);
+            while (matcher.find()) {
+                if (matcher.end() > matcher.start()) {
+                    found.add(chars.subSequence(matcher.start(), matcher.end()).toString());
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public LineMatcher copy() {
+            return new Regex(pattern);
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.devops;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Byte-level line scanner shared by the text commands.
+ *
+ * Regular files are memory-mapped in large windows; other inputs are read
+ * into a direct buffer. Newlines are located eight bytes at a time (SWAR),
+ * and each line is exposed as a zero-copy {@link Line} view over the buffer.
+ * Nothing is decoded unless a command asks for a String or CharSequence,
+ * and pure-ASCII lines skip the UTF-8 decoder entirely.
+ *
+ * Line semantics match BufferedReader.readLine() for '\n' and "\r\n"
+ * terminators: the terminator is not part of the line, and a final line
+ * without a terminator is still returned.
+ *
+ * The Line returned by next() is reused — it is only valid until the next
+ * call. Use toBytes() or toString() to keep it.
+ */
+public final class LineScanner implements Closeable {
+
+    /** Suggested size for the BufferedOutputStream commands write lines through. */
+    public static final int OUTPUT_BUFFER = 64 * 1024;
+
+    private static final int  MAP_WINDOW    = 64 * 1024 * 1024;
+    private static final int  STREAM_BUFFER = 1024 * 1024;
+    private static final int  MAX_WINDOW    = Integer.MAX_VALUE - 8;
+
+    private static final long ONES     = 0x0101010101010101L;
+    private static final long HIGHS    = 0x8080808080808080L;
+
+    private final FileChannel file;            // mapped mode
+    private final ReadableByteChannel stream;  // streaming mode
+    private final long fileSize;
+
+    private ByteBuffer buf;
+    private long windowStart;   // absolute offset of buf index 0
+    private int pos;            // start of the next line
+    private int scanFrom;       // bytes before this index are known newline-free
+    private boolean streamEof;
+    private byte[] scratch = new byte[0];
+
+    private final Line line = new Line();
+
+    private LineScanner(FileChannel file, ReadableByteChannel stream, ByteBuffer initial, long base) {
+        this.file = file;
+        this.stream = stream;
+        this.fileSize = file != null ? sizeOf(file) : -1;
+        this.buf = initial.order(ByteOrder.LITTLE_ENDIAN);
+        this.windowStart = base;
+    }
+
+    /** Opens a file — mapped if it is a regular file, streamed otherwise. */
+    public static LineScanner open(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return of(Files.newInputStream(path));
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            int window = (int) Math.min(size, MAP_WINDOW);
+            ByteBuffer first = window == 0
+                ? ByteBuffer.allocate(0)
+                : channel.map(FileChannel.MapMode.READ_ONLY, 0, window);
+            return new LineScanner(channel, null, first, 0);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Scans an arbitrary stream (e.g. decompressed data) through a direct buffer. */
+    public static LineScanner of(InputStream in) {
+        ByteBuffer initial = ByteBuffer.allocateDirect(STREAM_BUFFER).limit(0);
+        return new LineScanner(null, Channels.newChannel(in), initial, 0);
+    }
+
+    /**
+     * Scans a fixed region (e.g. one chunk of a mapped file). baseOffset is the
+     * absolute offset of region index 0, reported through Line.offset().
+     */
+    public static LineScanner of(ByteBuffer region, long baseOffset) {
+        return new LineScanner(null, null, region.slice(), baseOffset);
+    }
+
+    /** Advances to the next line, or returns null at end of input. */
+    public Line next() throws IOException {
+        while (true) {
+            int limit = buf.limit();
+            int nl = indexOf(buf, (byte) '\n', Math.max(pos, scanFrom), limit);
+            if (nl >= 0) {
+                line.set(pos, nl);
+                pos = nl + 1;
+                scanFrom = pos;
+                return line;
+            }
+            scanFrom = limit;
+            if (!refill()) {
+                if (pos >= limit) return null;
+                line.set(pos, limit);
+                pos = limit;
+                return line;
+            }
+        }
+    }
+
+    /** Keeps [pos, limit) and makes more input available after it. */
+    private boolean refill() throws IOException {
+        int carried = buf.limit() - pos;
+        if (file != null) {
+            long newStart = windowStart + pos;
+            if (windowStart + buf.limit() >= fileSize) return false;
+            long want = carried < MAP_WINDOW / 2 ? MAP_WINDOW : Math.min(MAX_WINDOW, 2L * carried);
+            int size = (int) Math.min(want, fileSize - newStart);
+            if (size <= carried) throw new IOException("line longer than " + MAX_WINDOW + " bytes");
+            buf = file.map(FileChannel.MapMode.READ_ONLY, newStart, size).order(ByteOrder.LITTLE_ENDIAN);
+            windowStart = newStart;
+        } else if (stream != null) {
+            if (streamEof) return false;
+            if (carried == buf.capacity()) {
+                // One line fills the whole buffer — grow instead of compacting
+                ByteBuffer bigger = ByteBuffer.allocateDirect(buf.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+                bigger.put(buf.position(pos)).flip();
+                buf = bigger;
+            } else {
+                buf.position(pos).compact().flip();
+            }
+            windowStart += pos;
+            int before = buf.limit();
+            buf.position(before).limit(buf.capacity());
+            while (buf.position() == before) {
+                if (stream.read(buf) < 0) {
+                    streamEof = true;
+                    break;
+                }
+            }
+            buf.flip().position(0);
+            if (buf.limit() == before) return false;
+        } else {
+            return false;
+        }
+        scanFrom = carried;
+        pos = 0;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (file != null) file.close();
+        if (stream != null) stream.close();
+    }
+
+    // SWAR helpers — shared by commands that scan raw buffers themselves
+
+    /** Index of the first occurrence of b in [from, to), or -1. */
+    public static int indexOf(ByteBuffer buf, byte b, int from, int to) {
+        long pattern = (b & 0xFFL) * ONES;
+        ByteBuffer le = buf.order() == ByteOrder.LITTLE_ENDIAN ? buf : buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long w = le.getLong(i) ^ pattern;
+            long found = (w - ONES) & ~w & HIGHS;
+            if (found != 0) return i + (Long.numberOfTrailingZeros(found) >>> 3);
+        }
+        for (; i < to; i++) {
+            if (buf.get(i) == b) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 64-bit hash of [from, to), eight bytes per step with a final avalanche
+     * (MurmurHash3's fmix64). Equal bytes hash equally whatever the buffer.
+     */
+    public static long hash(ByteBuffer buf, int from, int to) {
+        ByteBuffer le = buf.order() == ByteOrder.LITTLE_ENDIAN ? buf : buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        long h = 0x9E3779B97F4A7C15L ^ (to - from);
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            h = Long.rotateLeft((h ^ le.getLong(i)) * 0xC2B2AE3D27D4EB4FL, 31) * 0x9E3779B97F4A7C15L;
+        }
+        long tail = 0;
+        for (int shift = 0; i < to; i++, shift += 8) tail |= (buf.get(i) & 0xFFL) << shift;
+        h ^= tail * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /** True when every byte in [from, to) is below 0x80. */
+    public static boolean isAscii(ByteBuffer buf, int from, int to) {
+        long acc = 0;
+        int i = from;
+        for (; i + 8 <= to; i += 8) acc |= buf.getLong(i);
+        for (; i < to; i++) acc |= buf.get(i);
+        return (acc & HIGHS) == 0;
+    }
+
+    private static long sizeOf(FileChannel channel) {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Zero-copy view of the current line. Valid until the scanner advances.
+     */
+    public final class Line {
+
+        private int start;
+        private int end;
+        private int ascii;          // 0 unknown, 1 yes, -1 no
+        private String decoded;
+        private final AsciiChars chars = new AsciiChars();
+
+        private void set(int from, int to) {
+            if (to > from && buf.get(to - 1) == '\r') to--;
+            start = from;
+            end = to;
+            ascii = 0;
+            decoded = null;
+        }
+
+        public int length() {
+            return end - start;
+        }
+
+        public byte byteAt(int index) {
+            return buf.get(start + index);
+        }
+
+        /** Absolute byte offset of the start of this line in the input. */
+        public long offset() {
+            return windowStart + start;
+        }
+
+        public boolean isAscii() {
+            if (ascii == 0) ascii = LineScanner.isAscii(buf, start, end) ? 1 : -1;
+            return ascii == 1;
+        }
+
+        /**
+         * Line content for regex matching: the buffer itself for ASCII lines,
+         * a decoded String otherwise.
+         */
+        public CharSequence chars() {
+            return isAscii() ? chars : toString();
+        }
+
+        /** Number of UTF-16 chars the decoded line has, computed from the bytes. */
+        public int charLength() {
+            if (isAscii()) return length();
+            int n = 0;
+            for (int i = start; i < end; i++) {
+                int b = buf.get(i) & 0xFF;
+                if ((b & 0xC0) != 0x80) n++;   // not a continuation byte
+                if (b >= 0xF0) n++;            // 4-byte sequence -> surrogate pair
+            }
+            return n;
+        }
+
+        public boolean contentEquals(byte[] other) {
+            return other.length == length()
+                && buf.slice(start, length()).mismatch(ByteBuffer.wrap(other)) == -1;
+        }
+
+        /** True when the line equals bytes [from, from + length) of other. */
+        public boolean contentEquals(ByteBuffer other, int from, int length) {
+            return length == length()
+                && buf.slice(start, length).mismatch(other.slice(from, length)) == -1;
+        }
+
+        /** LineScanner.hash() of the line's bytes. */
+        public long hash() {
+            return LineScanner.hash(buf, start, end);
+        }
+
+        /** Bytes [from, to) of the line decoded as UTF-8 — for printing matched parts. */
+        public String substring(int from, int to) {
+            byte[] part = new byte[to - from];
+            buf.get(start + from, part);
+            return new String(part, StandardCharsets.UTF_8);
+        }
+
+        /** Copies the line's bytes into dst[0, length()). */
+        public void copyTo(byte[] dst) {
+            buf.get(start, dst, 0, length());
+        }
+
+        public byte[] toBytes() {
+            byte[] copy = new byte[length()];
+            buf.get(start, copy);
+            return copy;
+        }
+
+        /** Writes the line followed by '\n'. */
+        public void writeTo(OutputStream out) throws IOException {
+            int len = length();
+            if (buf.hasArray()) {
+                out.write(buf.array(), buf.arrayOffset() + start, len);
+            } else {
+                if (scratch.length < len) scratch = new byte[Math.max(len, 8192)];
+                buf.get(start, scratch, 0, len);
+                out.write(scratch, 0, len);
+            }
+            out.write('\n');
+        }
+
+        @Override
+        public String toString() {
+            if (decoded == null) {
+                int len = length();
+                if (scratch.length < len) scratch = new byte[Math.max(len, 8192)];
+                buf.get(start, scratch, 0, len);
+                decoded = new String(scratch, 0, len, isAscii() ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+            }
+            return decoded;
+        }
+
+        /** CharSequence over an ASCII line — lets regexes run without a String copy. */
+        private final class AsciiChars implements CharSequence {
+
+            @Override public int length() { return end - start; }
+
+            @Override public char charAt(int index) {
+                return (char) (buf.get(start + index) & 0xFF);
+            }
+
+            @Override public CharSequence subSequence(int from, int to) {
+                return Line.this.toString().substring(from, to);
+            }
+
+            @Override public String toString() { return Line.this.toString(); }
+        }
+    }
+}
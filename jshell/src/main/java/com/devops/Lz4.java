@@ -0,0 +1,575 @@
+package com.devops;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * LZ4 in pure Java: the block format, and the frame format around it that
+ * the lz4 command line tool reads and writes (magic 0x184D2204).
+ *
+ * Compression is LZ4's fast greedy parse: a hash of the next five bytes
+ * looks up the last position that had the same hash, and a candidate is
+ * taken if its first four bytes really match and it is within 64 KB. When nothing
+ * matches for a while the search strides ahead faster, so incompressible
+ * input goes through at close to copy speed. Four- and eight-byte reads go
+ * through byte-array VarHandles — plain bounds-checked loads, no Unsafe.
+ *
+ * Frames are written with independent blocks of BLOCK bytes, which is what
+ * lets Output compress them on a pool the way ParallelGzip does, plus an
+ * xxHash32 of the content. A block that does not shrink is stored. Input
+ * reads any frame the reference tool writes: linked or independent blocks,
+ * any block size, block and content checksums, content size, skippable
+ * frames, and several frames one after another.
+ */
+final class Lz4 {
+
+    static final int MAGIC = 0x184D2204;
+    static final int BLOCK = 1024 * 1024;
+
+    private static final int BLOCK_SIZE_CODE = 6;           // BD: 4 = 64 KB ... 7 = 4 MB
+    private static final int HISTORY = 64 * 1024;
+    private static final int MAX_OFFSET = 65535;
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;             // a block ends with at least 5 literals
+    private static final int MATCH_FINISH = 12;             // and its last match starts 12 or more from the end
+    private static final int HASH_LOG = 14;
+    private static final int SKIP_TRIGGER = 6;
+
+    private static final int FLG_VERSION = 0x40, FLG_INDEPENDENT = 0x20, FLG_BLOCK_CHECKSUM = 0x10,
+        FLG_CONTENT_SIZE = 0x08, FLG_CONTENT_CHECKSUM = 0x04, FLG_DICTIONARY = 0x01;
+    private static final int STORED = 0x80000000;
+
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private Lz4() {}
+
+    private record Compressed(byte[] input, int inputLength, byte[] bytes, int length) {}
+
+    /** Writes file as one LZ4 frame to out. */
+    static void compress(Path file, OutputStream out, int threads) throws IOException {
+        try (var lz4 = new Output(out, threads)) {
+            Files.copy(file, lz4);
+        }
+    }
+
+    /** Opens file for reading, decompressed. */
+    static InputStream open(Path file) throws IOException {
+        return new Input(new BufferedInputStream(Files.newInputStream(file), HISTORY));
+    }
+
+    /** The most compressBlock can write for length input bytes. */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses src[off, off + length) into dst at dstOff, which must have
+     * maxCompressedLength(length) bytes of room. table is scratch space of
+     * 1 << HASH_LOG entries, reused across calls. Returns the compressed length.
+     */
+    static int compressBlock(byte[] src, int off, int length, byte[] dst, int dstOff, int[] table) {
+        int end = off + length;
+        int anchor = off, ip = off, out = dstOff;
+        if (length >= MATCH_FINISH + 1) {
+            int matchFinish = end - MATCH_FINISH;
+            int matchLimit = end - LAST_LITERALS;
+            Arrays.fill(table, off);
+            table[hash(src, ip)] = ip;
+            int forwardHash = hash(src, ++ip);
+
+            search:
+            while (true) {
+                int match;
+                int forward = ip, step = 1, attempts = 1 << SKIP_TRIGGER;
+                do {
+                    int h = forwardHash;
+                    ip = forward;
+                    forward += step;
+                    step = attempts++ >>> SKIP_TRIGGER;
+                    if (forward > matchFinish) break search;
+                    match = table[h];
+                    forwardHash = hash(src, forward);
+                    table[h] = ip;
+                } while (match + MAX_OFFSET < ip || (int) INT.get(src, match) != (int) INT.get(src, ip));
+
+                while (ip > anchor && match > off && src[ip - 1] == src[match - 1]) {
+                    ip--;
+                    match--;
+                }
+                int token = out++;
+                out = literals(src, anchor, ip - anchor, dst, token, out);
+
+                while (true) {
+                    dst[out++] = (byte) (ip - match);
+                    dst[out++] = (byte) ((ip - match) >>> 8);
+                    int matchLength = count(src, ip + MIN_MATCH, match + MIN_MATCH, matchLimit);
+                    ip += MIN_MATCH + matchLength;
+                    out = length(dst, token, matchLength, out, false);
+                    anchor = ip;
+                    if (ip > matchFinish) break search;
+
+                    table[hash(src, ip - 2)] = ip - 2;
+                    int h = hash(src, ip);
+                    match = table[h];
+                    table[h] = ip;
+                    if (match + MAX_OFFSET < ip || (int) INT.get(src, match) != (int) INT.get(src, ip)) break;
+                    token = out++;                      // another match right away: no literals
+                    dst[token] = 0;
+                }
+                forwardHash = hash(src, ++ip);
+            }
+        }
+        int token = out++;
+        out = literals(src, anchor, end - anchor, dst, token, out);
+        return out - dstOff;
+    }
+
+    /** Writes the literal length into token's high nibble (and after it), then the literals. */
+    private static int literals(byte[] src, int from, int count, byte[] dst, int token, int out) {
+        out = length(dst, token, count, out, true);
+        System.arraycopy(src, from, dst, out, count);
+        return out + count;
+    }
+
+    /** A length nibble, with 15 meaning more follows in bytes of up to 255. */
+    private static int length(byte[] dst, int token, int value, int out, boolean high) {
+        int nibble = Math.min(value, 15);
+        dst[token] = (byte) (high ? nibble << 4 : (dst[token] | nibble));
+        if (value >= 15) {
+            int rest = value - 15;
+            for (; rest >= 255; rest -= 255) dst[out++] = (byte) 255;
+            dst[out++] = (byte) rest;
+        }
+        return out;
+    }
+
+    /** How many bytes at a and b agree, up to limit (for a); eight at a time. */
+    private static int count(byte[] s, int a, int b, int limit) {
+        int start = a;
+        while (a <= limit - 8) {
+            long diff = (long) LONG.get(s, a) ^ (long) LONG.get(s, b);
+            if (diff != 0) return a - start + (Long.numberOfTrailingZeros(diff) >>> 3);
+            a += 8;
+            b += 8;
+        }
+        while (a < limit && s[a] == s[b]) {
+            a++;
+            b++;
+        }
+        return a - start;
+    }
+
+    /** Five bytes hash to fewer false candidates than four on text; callers leave eight readable. */
+    private static int hash(byte[] src, int i) {
+        return (int) (((long) LONG.get(src, i) << 24) * 889523592379L >>> (64 - HASH_LOG));
+    }
+
+    /**
+     * Decompresses src[off, end) into dst from dstOff, writing no further
+     * than dstEnd. Matches may reach back to floor, which is below dstOff
+     * when earlier output is the dictionary (linked blocks). Returns the end
+     * of the output; malformed input is an IOException, never an overrun.
+     */
+    static int decompressBlock(byte[] src, int off, int end, byte[] dst, int dstOff, int dstEnd, int floor)
+            throws IOException {
+        int sp = off, dp = dstOff;
+        while (true) {
+            if (sp >= end) throw corrupt();
+            int token = src[sp++] & 0xFF;
+
+            int literals = token >>> 4;
+            if (literals == 15) {
+                int b;
+                do {
+                    if (sp >= end) throw corrupt();
+                    b = src[sp++] & 0xFF;
+                    literals += b;
+                } while (b == 255);
+            }
+            if (literals > end - sp || literals > dstEnd - dp) throw corrupt();
+            System.arraycopy(src, sp, dst, dp, literals);
+            sp += literals;
+            dp += literals;
+            if (sp == end) return dp;                   // the last sequence has no match
+
+            if (end - sp < 2) throw corrupt();
+            int offset = (src[sp] & 0xFF) | (src[sp + 1] & 0xFF) << 8;
+            sp += 2;
+            int match = dp - offset;
+            if (offset == 0 || match < floor) throw corrupt();
+
+            int matchLength = token & 15;
+            if (matchLength == 15) {
+                int b;
+                do {
+                    if (sp >= end) throw corrupt();
+                    b = src[sp++] & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > dstEnd - dp) throw corrupt();
+            if (offset >= matchLength) {
+                System.arraycopy(dst, match, dst, dp, matchLength);
+            } else {
+                // overlapping: the match repeats with period offset, so copy it in growing non-overlapping runs
+                for (int copied = 0; copied < matchLength; ) {
+                    int n = Math.min(dp + copied - match, matchLength - copied);
+                    System.arraycopy(dst, match, dst, dp + copied, n);
+                    copied += n;
+                }
+            }
+            dp += matchLength;
+        }
+    }
+
+    private static IOException corrupt() {
+        return new IOException("corrupt lz4 block");
+    }
+
+    /**
+     * An LZ4 frame written as a stream: bytes are cut into BLOCK-sized
+     * blocks that are compressed on the pool as soon as they fill and written
+     * in order, at most threads * 2 in flight. The content checksum is
+     * computed here, on the calling thread, since xxHash32 cannot be
+     * combined from parts. close() ends the frame but leaves out open.
+     */
+    static final class Output extends OutputStream {
+
+        private final OutputStream out;
+        private final int threads;
+        private final ExecutorService pool;
+        private final ThreadLocal<int[]> tables = ThreadLocal.withInitial(() -> new int[1 << HASH_LOG]);
+        private final Deque<Future<Compressed>> inFlight = new ArrayDeque<>();
+        private final XxHash32 checksum = new XxHash32(0);
+        private final byte[] header = new byte[4];
+        private byte[] block = new byte[BLOCK];
+        private int filled;
+        private boolean closed;
+
+        Output(OutputStream out, int threads) throws IOException {
+            this.out = out;
+            this.threads = threads;
+            byte[] descriptor = {(byte) (FLG_VERSION | FLG_INDEPENDENT | FLG_CONTENT_CHECKSUM),
+                (byte) (BLOCK_SIZE_CODE << 4)};
+            writeInt(MAGIC);
+            out.write(descriptor);
+            out.write(XxHash32.of(descriptor, 0, descriptor.length) >>> 8);
+            this.pool = Executors.newFixedThreadPool(threads, Thread.ofPlatform().daemon().name("lz4-", 0).factory());
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            block[filled++] = (byte) b;
+            if (filled == BLOCK) submit();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, BLOCK - filled);
+                System.arraycopy(b, off, block, filled, n);
+                filled += n;
+                off += n;
+                len -= n;
+                if (filled == BLOCK) submit();
+            }
+        }
+
+        private void submit() throws IOException {
+            byte[] data = block;
+            int length = filled;
+            inFlight.add(pool.submit(() -> {
+                byte[] compressed = new byte[maxCompressedLength(length)];
+                int n = compressBlock(data, 0, length, compressed, 0, tables.get());
+                return new Compressed(data, length, compressed, n);
+            }));
+            block = new byte[BLOCK];
+            filled = 0;
+            while (inFlight.size() >= threads * 2) writeBlock(await(inFlight.poll()));
+        }
+
+        private void writeBlock(Compressed c) throws IOException {
+            checksum.update(c.input(), 0, c.inputLength());
+            if (c.length() < c.inputLength()) {
+                writeInt(c.length());
+                out.write(c.bytes(), 0, c.length());
+            } else {
+                writeInt(c.inputLength() | STORED);
+                out.write(c.input(), 0, c.inputLength());
+            }
+        }
+
+        /** Compresses what is left, then writes the end mark and the content checksum. */
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                if (filled > 0) submit();
+                while (!inFlight.isEmpty()) writeBlock(await(inFlight.poll()));
+                writeInt(0);
+                writeInt(checksum.digest());
+                out.flush();
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        private void writeInt(int v) throws IOException {
+            header[0] = (byte) v;
+            header[1] = (byte) (v >>> 8);
+            header[2] = (byte) (v >>> 16);
+            header[3] = (byte) (v >>> 24);
+            out.write(header);
+        }
+    }
+
+    /** Reads LZ4 frames one after another until the input ends. */
+    static final class Input extends InputStream {
+
+        private final InputStream in;
+        private byte[] compressed = new byte[0];
+        private byte[] window = new byte[0];
+        private int pos, limit;             // unread output is window[pos, limit)
+        private int floor;                  // linked blocks: where the history in window starts
+        private boolean inFrame, sawFrame;
+        private int blockMax;
+        private boolean linked, blockChecksum;
+        private XxHash32 contentChecksum;
+        private long contentSize, produced;
+
+        Input(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            while (pos == limit) {
+                if (!nextBlock()) return -1;
+            }
+            int n = Math.min(len, limit - pos);
+            System.arraycopy(window, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        /** Decodes the next block into window. Returns false at the end of the input. */
+        private boolean nextBlock() throws IOException {
+            while (!inFrame) {
+                if (!readFrameHeader()) return false;
+            }
+            int size = readInt();
+            if (size == 0) {
+                endFrame();
+                return true;
+            }
+            boolean stored = (size & STORED) != 0;
+            size &= ~STORED;
+            if (size > blockMax) throw new IOException("corrupt lz4 frame: block larger than its maximum");
+            readFully(compressed, size);
+            if (blockChecksum && readInt() != XxHash32.of(compressed, 0, size)) {
+                throw new IOException("lz4 block checksum error");
+            }
+
+            int start = 0;
+            if (linked) {
+                // keep the last HISTORY bytes of output in front of the next block as its dictionary
+                int shift = limit - HISTORY;
+                System.arraycopy(window, shift, window, 0, HISTORY);
+                floor = Math.max(0, floor - shift);
+                start = HISTORY;
+            }
+            if (stored) {
+                System.arraycopy(compressed, 0, window, start, size);
+                limit = start + size;
+            } else {
+                limit = decompressBlock(compressed, 0, size, window, start, start + blockMax, linked ? floor : start);
+            }
+            pos = start;
+            produced += limit - start;
+            if (contentChecksum != null) contentChecksum.update(window, start, limit - start);
+            return true;
+        }
+
+        /** Reads a frame header; skippable frames are passed over. Returns false at the end of the input. */
+        private boolean readFrameHeader() throws IOException {
+            byte[] word = in.readNBytes(4);
+            if (word.length == 0 && sawFrame) return false;
+            if (word.length < 4) throw new IOException("not in lz4 format");
+            int magic = (int) INT.get(word, 0);
+            if ((magic & 0xFFFFFFF0) == 0x184D2A50) {
+                in.skipNBytes(readInt() & 0xFFFFFFFFL);
+                return true;
+            }
+            if (magic == 0x184C2102) throw new IOException("legacy lz4 format not supported");
+            if (magic != MAGIC) throw new IOException(sawFrame ? "trailing garbage after lz4 frame" : "not in lz4 format");
+
+            byte[] descriptor = new byte[2 + 8];
+            readFully(descriptor, 2);
+            int flg = descriptor[0] & 0xFF, bd = descriptor[1] & 0xFF;
+            if ((flg & 0xC0) != FLG_VERSION) throw new IOException("unsupported lz4 frame version");
+            if ((flg & FLG_DICTIONARY) != 0) throw new IOException("lz4 frames with a dictionary are not supported");
+            int code = bd >>> 4 & 7;
+            if (code < 4 || (flg & 0x02) != 0 || (bd & 0x8F) != 0) throw new IOException("corrupt lz4 frame header");
+            int length = 2;
+            if ((flg & FLG_CONTENT_SIZE) != 0) {
+                readFully(descriptor, 2, 8);
+                contentSize = (long) LONG.get(descriptor, 2);
+                length += 8;
+            } else {
+                contentSize = -1;
+            }
+            int hc = in.read();
+            if (hc != (XxHash32.of(descriptor, 0, length) >>> 8 & 0xFF)) throw new IOException("lz4 header checksum error");
+
+            blockMax = 1 << (2 * code + 8);
+            linked = (flg & FLG_INDEPENDENT) == 0;
+            blockChecksum = (flg & FLG_BLOCK_CHECKSUM) != 0;
+            contentChecksum = (flg & FLG_CONTENT_CHECKSUM) != 0 ? new XxHash32(0) : null;
+            if (compressed.length < blockMax) compressed = new byte[blockMax];
+            int windowSize = (linked ? HISTORY : 0) + blockMax;
+            if (window.length < windowSize) window = new byte[windowSize];
+            pos = limit = linked ? HISTORY : 0;
+            floor = HISTORY;
+            produced = 0;
+            inFrame = sawFrame = true;
+            return true;
+        }
+
+        private void endFrame() throws IOException {
+            if (contentChecksum != null && readInt() != contentChecksum.digest()) {
+                throw new IOException("lz4 content checksum error");
+            }
+            if (contentSize >= 0 && contentSize != produced) throw new IOException("lz4 content size error");
+            inFrame = false;
+        }
+
+        private int readInt() throws IOException {
+            byte[] word = in.readNBytes(4);
+            if (word.length < 4) throw new EOFException("unexpected end of file");
+            return (int) INT.get(word, 0);
+        }
+
+        private void readFully(byte[] b, int length) throws IOException {
+            readFully(b, 0, length);
+        }
+
+        private void readFully(byte[] b, int off, int length) throws IOException {
+            if (in.readNBytes(b, off, length) < length) throw new EOFException("unexpected end of file");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /** xxHash32, the checksum of the LZ4 frame format, fed incrementally. */
+    static final class XxHash32 {
+
+        private static final int P1 = 0x9E3779B1, P2 = 0x85EBCA77, P3 = 0xC2B2AE3D, P4 = 0x27D4EB2F, P5 = 0x165667B1;
+
+        private final int seed;
+        private int v1, v2, v3, v4;
+        private final byte[] pending = new byte[16];
+        private int pendingLength;
+        private long total;
+
+        XxHash32(int seed) {
+            this.seed = seed;
+            v1 = seed + P1 + P2;
+            v2 = seed + P2;
+            v3 = seed;
+            v4 = seed - P1;
+        }
+
+        static int of(byte[] b, int off, int len) {
+            var h = new XxHash32(0);
+            h.update(b, off, len);
+            return h.digest();
+        }
+
+        void update(byte[] b, int off, int len) {
+            total += len;
+            if (pendingLength + len < 16) {
+                System.arraycopy(b, off, pending, pendingLength, len);
+                pendingLength += len;
+                return;
+            }
+            if (pendingLength > 0) {
+                int n = 16 - pendingLength;
+                System.arraycopy(b, off, pending, pendingLength, n);
+                stripe(pending, 0);
+                off += n;
+                len -= n;
+                pendingLength = 0;
+            }
+            for (; len >= 16; off += 16, len -= 16) stripe(b, off);
+            System.arraycopy(b, off, pending, 0, len);
+            pendingLength = len;
+        }
+
+        private void stripe(byte[] b, int i) {
+            v1 = round(v1, (int) INT.get(b, i));
+            v2 = round(v2, (int) INT.get(b, i + 4));
+            v3 = round(v3, (int) INT.get(b, i + 8));
+            v4 = round(v4, (int) INT.get(b, i + 12));
+        }
+
+        private static int round(int acc, int input) {
+            return Integer.rotateLeft(acc + input * P2, 13) * P1;
+        }
+
+        int digest() {
+            int h = total >= 16
+                ? Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7) + Integer.rotateLeft(v3, 12) + Integer.rotateLeft(v4, 18)
+                : seed + P5;
+            h += (int) total;
+            int i = 0;
+            for (; i + 4 <= pendingLength; i += 4) h = Integer.rotateLeft(h + (int) INT.get(pending, i) * P3, 17) * P4;
+            for (; i < pendingLength; i++) h = Integer.rotateLeft(h + (pending[i] & 0xFF) * P5, 11) * P1;
+            h ^= h >>> 15;
+            h *= P2;
+            h ^= h >>> 13;
+            h *= P3;
+            h ^= h >>> 16;
+            return h;
+        }
+    }
+
+    private static Compressed await(Future<Compressed> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.devops;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compiled grep matchers kept for the whole session, least recently used
+ * first out. Running the same search again skips parsing, automaton
+ * construction and — for the DFA engine — the DFA states already built,
+ * which are kept inside the cached matcher.
+ *
+ * The key is everything compile() looks at, so a hit always returns an
+ * equivalent matcher. Cached instances carry per-search state and are
+ * handed out as-is: the shell runs one command at a time, and parallel
+ * searches copy() them per worker as usual. The exception is Regex, whose
+ * Matcher keeps the last line it saw — a view over the scanner's buffer,
+ * possibly a large mapped region. Each command gets a copy() of it, so
+ * only the compiled Pattern outlives the command.
+ */
+public final class MatcherCache {
+
+    static final int CAPACITY = 32;
+
+    private record Key(List<String> patterns, boolean fixed, boolean ignoreCase,
+                       boolean word, boolean wholeLine, LineMatcher.Engine engine) {}
+
+    private final Map<Key, LineMatcher> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, LineMatcher> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    public synchronized LineMatcher get(List<String> patterns, GrepOptions o) throws PatternSyntaxException {
+        var key = new Key(List.copyOf(patterns), o.fixed, o.ignoreCase, o.word, o.wholeLine, o.engine);
+        LineMatcher cached = entries.get(key);
+        if (cached == null) {
+            cached = LineMatcher.compile(patterns, o);
+            entries.put(key, cached);
+        }
+        return cached instanceof LineMatcher.Regex ? cached.copy() : cached;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
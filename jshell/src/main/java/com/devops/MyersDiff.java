@@ -0,0 +1,115 @@
+package com.devops;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Minimal line diff in linear space — Myers' divide-and-conquer variant
+ * ("An O(ND) Difference Algorithm and Its Variations", section 4b).
+ *
+ * Lines arrive as interned ints, so every comparison is an int compare.
+ * Each subproblem first strips its common prefix and suffix, then runs the
+ * forward and reverse searches together until they overlap in a middle
+ * snake, and splits there. Only two diagonal vectors of N + M + 3 ints are
+ * kept, instead of one vector per edit step, and subproblems sit on an
+ * explicit stack, so neither the heap nor the call stack grows with D.
+ *
+ * The result marks which lines of a were deleted and which lines of b were
+ * inserted; every unmarked line is common, in order.
+ */
+final class MyersDiff {
+
+    /** deleted[i]: line i of a is not in b. inserted[j]: line j of b is not in a. */
+    record Result(boolean[] deleted, boolean[] inserted) {
+
+        boolean identical() {
+            for (boolean d : deleted) if (d) return false;
+            for (boolean i : inserted) if (i) return false;
+            return true;
+        }
+    }
+
+    private final int[] a, b;
+    private final int[] forward, backward;   // furthest x per diagonal, indexed by k + offset
+    private final int offset;
+    private final boolean[] deleted, inserted;
+
+    private MyersDiff(int[] a, int[] b) {
+        this.a = a;
+        this.b = b;
+        this.offset = b.length + 1;
+        this.forward = new int[a.length + b.length + 3];
+        this.backward = new int[a.length + b.length + 3];
+        this.deleted = new boolean[a.length];
+        this.inserted = new boolean[b.length];
+    }
+
+    static Result diff(int[] a, int[] b) {
+        var diff = new MyersDiff(a, b);
+        diff.run();
+        return new Result(diff.deleted, diff.inserted);
+    }
+
+    private void run() {
+        Deque<int[]> pending = new ArrayDeque<>();
+        pending.push(new int[]{0, a.length, 0, b.length});
+        while (!pending.isEmpty()) {
+            int[] box = pending.pop();
+            int xoff = box[0], xlim = box[1], yoff = box[2], ylim = box[3];
+
+            while (xoff < xlim && yoff < ylim && a[xoff] == b[yoff]) { xoff++; yoff++; }
+            while (xoff < xlim && yoff < ylim && a[xlim - 1] == b[ylim - 1]) { xlim--; ylim--; }
+
+            if (xoff == xlim) {
+                for (int y = yoff; y < ylim; y++) inserted[y] = true;
+            } else if (yoff == ylim) {
+                for (int x = xoff; x < xlim; x++) deleted[x] = true;
+            } else {
+                long mid = middleSnake(xoff, xlim, yoff, ylim);
+                int xmid = (int) (mid >>> 32), ymid = (int) mid;
+                pending.push(new int[]{xmid, xlim, ymid, ylim});
+                pending.push(new int[]{xoff, xmid, yoff, ymid});
+            }
+        }
+    }
+
+    /**
+     * A point (x, y) on an optimal path through the box, packed as x << 32 | y.
+     * Diagonal k holds the points with x - y = k; forward[k] is the furthest
+     * x the forward search reached on k, backward[k] the smallest x the
+     * reverse search reached. They are advanced one edit at a time until a
+     * diagonal is covered by both.
+     */
+    private long middleSnake(int xoff, int xlim, int yoff, int ylim) {
+        int dmin = xoff - ylim, dmax = xlim - yoff;
+        int fmid = xoff - yoff, bmid = xlim - ylim;
+        int fmin = fmid, fmax = fmid, bmin = bmid, bmax = bmid;
+        boolean odd = ((fmid - bmid) & 1) != 0;
+        forward[fmid + offset] = xoff;
+        backward[bmid + offset] = xlim;
+
+        while (true) {
+            if (fmin > dmin) forward[--fmin - 1 + offset] = -1; else fmin++;
+            if (fmax < dmax) forward[++fmax + 1 + offset] = -1; else fmax--;
+            for (int k = fmax; k >= fmin; k -= 2) {
+                int lo = forward[k - 1 + offset], hi = forward[k + 1 + offset];
+                int x = lo >= hi ? lo + 1 : hi;
+                int y = x - k;
+                while (x < xlim && y < ylim && a[x] == b[y]) { x++; y++; }
+                forward[k + offset] = x;
+                if (odd && bmin <= k && k <= bmax && backward[k + offset] <= x) return ((long) x << 32) | y;
+            }
+
+            if (bmin > dmin) backward[--bmin - 1 + offset] = Integer.MAX_VALUE; else bmin++;
+            if (bmax < dmax) backward[++bmax + 1 + offset] = Integer.MAX_VALUE; else bmax--;
+            for (int k = bmax; k >= bmin; k -= 2) {
+                int lo = backward[k - 1 + offset], hi = backward[k + 1 + offset];
+                int x = lo < hi ? lo : hi - 1;
+                int y = x - k;
+                while (x > xoff && y > yoff && a[x - 1] == b[y - 1]) { x--; y--; }
+                backward[k + offset] = x;
+                if (!odd && fmin <= k && k <= fmax && x <= forward[k + offset]) return ((long) x << 32) | y;
+            }
+        }
+    }
+}
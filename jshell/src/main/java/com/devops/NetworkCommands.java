@@ -1,34 +1,31 @@
 package com.devops;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.FileWriter;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
+import java.io.OutputStream;
+import java.net.ConnectException;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Enumeration;
 
 public final class NetworkCommands {
 
-    private static final int CONNECT_TIMEOUT_MS = 10_000;
-    private static final int READ_TIMEOUT_MS    = 10_000;
-    private static final int BUFFER_SIZE        = 8192;
+    private static final int BUFFER_SIZE = 64 * 1024;
 
     private NetworkCommands() {}
 
     public static final class PingCommand implements Command {
 
         @Override
-        public int execute(ShellContext context, String[] args) {
+        public ExecutionResult execute(ShellContext context, String[] args) {
             if (args.length < 2) {
                 System.err.println("usage: " + usage());
-                return 1;
+                return ExecutionResult.misuse(context);
             }
 
             String host = args[1];
@@ -38,7 +35,7 @@ public final class NetworkCommands {
                 if (count <= 0) throw new NumberFormatException();
             } catch (NumberFormatException e) {
                 System.err.println("ping: invalid count '" + args[2] + "'");
-                return 1;
+                return ExecutionResult.misuse(context);
             }
 
             System.out.println("PING " + host + " (" + count + " packets)");
@@ -49,7 +46,7 @@ public final class NetworkCommands {
                 address = InetAddress.getByName(host);
             } catch (UnknownHostException e) {
                 System.err.println("ping: cannot resolve '" + host + "'");
-                return 1;
+                return ExecutionResult.fail(context);
             }
 
             int successful = 0;
@@ -87,140 +84,192 @@ public final class NetworkCommands {
             if (successful > 0) {
                 System.out.printf("avg %.0fms%n", totalMs / (double) successful);
             }
-            return successful > 0 ? 0 : 1;
+            return successful > 0 ? ExecutionResult.ok(context) : ExecutionResult.fail(context);
         }
 
         @Override public String name()  { return "ping"; }
         @Override public String usage() { return "ping <host> [count]"; }
     }
 
+    /**
+     * Downloads a file through HttpDownload: -c resumes a partial file,
+     * -n fetches up to that many byte ranges at once, and --checksum
+     * verifies the finished file.
+     */
     public static final class WgetCommand implements Command {
 
         @Override
-        public int execute(ShellContext context, String[] args) {
-            if (args.length < 2) {
+        public ExecutionResult execute(ShellContext context, String[] args) {
+            var options = HttpSession.Options.DEFAULT;
+            boolean resume = false;
+            int segments = 1;
+            String urlString = null, fileName = null, checksum = null;
+            try {
+                for (int i = 1; i < args.length; i++) {
+                    switch (args[i]) {
+                        case "-c", "--continue" -> resume = true;
+                        case "-n", "--segments" -> {
+                            String n = value(args, i++);
+                            if (!n.matches("\\d{1,2}") || Integer.parseInt(n) < 1 || Integer.parseInt(n) > HttpDownload.MAX_SEGMENTS) {
+                                throw new IllegalArgumentException("invalid " + args[i - 1] + " '" + n
+                                    + "', expected 1 to " + HttpDownload.MAX_SEGMENTS);
+                            }
+                            segments = Integer.parseInt(n);
+                        }
+                        case "--checksum" -> checksum = HttpDownload.checksum(value(args, i++));
+                        case "-T", "--timeout" -> {
+                            var t = HttpSession.timeout(args[i], value(args, i++));
+                            options = new HttpSession.Options(options.connectTimeout(), t, options.compressed());
+                        }
+                        case "--connect-timeout" -> {
+                            var t = HttpSession.timeout(args[i], value(args, i++));
+                            options = new HttpSession.Options(t, options.timeout(), options.compressed());
+                        }
+                        default -> {
+                            if (urlString == null) urlString = args[i];
+                            else if (fileName == null) fileName = args[i];
+                            else throw new IllegalArgumentException("unexpected argument '" + args[i] + "'");
+                        }
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println("wget: " + e.getMessage());
+                return ExecutionResult.misuse(context);
+            }
+            if (urlString == null) {
                 System.err.println("usage: " + usage());
-                return 1;
+                return ExecutionResult.misuse(context);
             }
-
-            String urlString = args[1];
-            String fileName  = args.length > 2 ? args[2]
-                : urlString.substring(urlString.lastIndexOf('/') + 1);
+            if (fileName == null) fileName = urlString.substring(urlString.lastIndexOf('/') + 1);
             if (fileName.isBlank()) fileName = "index.html";
 
+            Path output = context.currentDirectory().toPath().resolve(fileName);
             try {
-                var connection = (HttpURLConnection) URI.create(urlString).toURL().openConnection();
-                connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
-                connection.setReadTimeout(READ_TIMEOUT_MS);
-                connection.setRequestMethod("GET");
-
-                int code = connection.getResponseCode();
-                if (code != HttpURLConnection.HTTP_OK) {
-                    System.err.println("wget: server returned HTTP " + code);
-                    return 1;
+                var result = HttpDownload.fetch(context.http(), URI.create(urlString), options,
+                    output, segments, resume, System.out);
+                if (result.alreadyComplete()) {
+                    System.out.printf("Already complete: %s (%s)%n", fileName, ByteFormatter.format(result.size()));
+                } else {
+                    System.out.printf("%nSaved: %s (%s)%s%n", fileName, ByteFormatter.format(result.size()),
+                        result.resumedFrom() > 0 ? ", resumed at " + ByteFormatter.format(result.resumedFrom()) : "");
                 }
-
-                long total = connection.getContentLengthLong();
-                File output = new File(context.currentDirectory(), fileName);
-
-                try (InputStream in  = connection.getInputStream();
-                     var out = new FileOutputStream(output)) {
-                    byte[] buffer = new byte[BUFFER_SIZE];
-                    int read;
-                    long downloaded = 0;
-                    long lastPrint = System.currentTimeMillis();
-
-                    while ((read = in.read(buffer)) != -1) {
-                        out.write(buffer, 0, read);
-                        downloaded += read;
-
-                        long now = System.currentTimeMillis();
-                        if (now - lastPrint > 500) {
-                            String progress = total > 0
-                                ? String.format("%d%%", downloaded * 100 / total)
-                                : ByteFormatter.format(downloaded);
-                            System.out.print("\r" + progress);
-                            lastPrint = now;
-                        }
-                    }
+                if (checksum != null) {
+                    HttpDownload.verify(output, checksum);
+                    System.out.println("Checksum OK");
                 }
-
-                System.out.printf("%nSaved: %s (%s)%n", fileName, ByteFormatter.format(output.length()));
             } catch (IllegalArgumentException e) {
                 System.err.println("wget: invalid URL '" + urlString + "'");
-                return 1;
+                return ExecutionResult.fail(context);
             } catch (IOException e) {
-                System.err.println("wget: " + e.getMessage());
-                return 1;
+                System.err.println("wget: " + reason(e));
+                return ExecutionResult.fail(context);
             }
-            return 0;
+            return ExecutionResult.ok(context);
         }
 
         @Override public String name()  { return "wget"; }
-        @Override public String usage() { return "wget <url> [filename]"; }
+        @Override public String usage() {
+            return "wget [-c] [-n segments] [--checksum algo:hex] [-T seconds] [--connect-timeout seconds] <url> [filename]";
+        }
     }
 
+    /**
+     * Prints the response body as it arrives, or saves it with -o. Bodies
+     * are copied as bytes, not decoded and re-encoded line by line.
+     * An HTTP error status still shows the body but exits 1.
+     */
     public static final class CurlCommand implements Command {
 
         @Override
-        public int execute(ShellContext context, String[] args) {
-            if (args.length < 2) {
-                System.err.println("usage: " + usage());
-                return 1;
+        public ExecutionResult execute(ShellContext context, String[] args) {
+            var options = HttpSession.Options.DEFAULT;
+            String urlString = null, fileName = null;
+            try {
+                for (int i = 1; i < args.length; i++) {
+                    switch (args[i]) {
+                        case "-o" -> fileName = value(args, i++);
+                        case "--compressed" ->
+                            options = new HttpSession.Options(options.connectTimeout(), options.timeout(), true);
+                        case "-m", "--max-time" -> {
+                            var t = HttpSession.timeout(args[i], value(args, i++));
+                            options = new HttpSession.Options(options.connectTimeout(), t, options.compressed());
+                        }
+                        case "--connect-timeout" -> {
+                            var t = HttpSession.timeout(args[i], value(args, i++));
+                            options = new HttpSession.Options(t, options.timeout(), options.compressed());
+                        }
+                        default -> {
+                            if (urlString != null) throw new IllegalArgumentException("unexpected argument '" + args[i] + "'");
+                            urlString = args[i];
+                        }
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println("curl: " + e.getMessage());
+                return ExecutionResult.misuse(context);
             }
-
-            boolean saveToFile = args[1].equals("-o");
-            if (saveToFile && args.length < 4) {
+            if (urlString == null) {
                 System.err.println("usage: " + usage());
-                return 1;
+                return ExecutionResult.misuse(context);
             }
 
-            String fileName  = saveToFile ? args[2] : null;
-            String urlString = saveToFile ? args[3] : args[1];
-
+            int status;
             try {
-                var connection = (HttpURLConnection) URI.create(urlString).toURL().openConnection();
-                connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
-                connection.setReadTimeout(READ_TIMEOUT_MS);
-                connection.setRequestMethod("GET");
-
-                int code = connection.getResponseCode();
-                System.out.println("HTTP " + code);
-
-                try (var in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                    if (saveToFile) {
-                        File out = new File(context.currentDirectory(), fileName);
-                        try (var writer = new FileWriter(out)) {
-                            in.transferTo(writer);
+                var response = context.http().get(URI.create(urlString), options);
+                status = response.status();
+                System.out.println("HTTP " + status);
+
+                try (InputStream in = response.body()) {
+                    if (fileName != null) {
+                        Path out = context.currentDirectory().toPath().resolve(fileName);
+                        try (var file = Files.newOutputStream(out)) {
+                            in.transferTo(file);
                         }
                         System.out.println("Saved: " + fileName);
                     } else {
-                        in.lines().forEach(System.out::println);
+                        var out = new BufferedOutputStream(System.out, LineScanner.OUTPUT_BUFFER);
+                        int last = copy(in, out);
+                        if (last >= 0 && last != '\n') out.write('\n');
+                        out.flush();
                     }
                 }
             } catch (IllegalArgumentException e) {
                 System.err.println("curl: invalid URL '" + urlString + "'");
-                return 1;
+                return ExecutionResult.fail(context);
             } catch (IOException e) {
-                System.err.println("curl: " + e.getMessage());
-                return 1;
+                System.err.println("curl: " + reason(e));
+                return ExecutionResult.fail(context);
             }
-            return 0;
+            return status < 400 ? ExecutionResult.ok(context) : ExecutionResult.fail(context);
+        }
+
+        /** Copies in to out and returns the last byte copied, or -1 if there was none. */
+        private static int copy(InputStream in, OutputStream out) throws IOException {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int last = -1, read;
+            while ((read = in.read(buffer)) != -1) {
+                if (read == 0) continue;
+                out.write(buffer, 0, read);
+                last = buffer[read - 1];
+            }
+            return last;
         }
 
         @Override public String name()  { return "curl"; }
-        @Override public String usage() { return "curl [-o <file>] <url>"; }
+        @Override public String usage() {
+            return "curl [-o <file>] [--compressed] [-m seconds] [--connect-timeout seconds] <url>";
+        }
     }
 
     public static final class IfconfigCommand implements Command {
 
         @Override
-        public int execute(ShellContext context, String[] args) {
+        public ExecutionResult execute(ShellContext context, String[] args) {
             try {
                 Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
                 if (interfaces == null) {
                     System.out.println("No network interfaces found.");
-                    return 0;
+                    return ExecutionResult.ok(context);
                 }
                 while (interfaces.hasMoreElements()) {
                     NetworkInterface ni = interfaces.nextElement();
@@ -235,12 +284,24 @@ public final class NetworkCommands {
                 }
             } catch (IOException e) {
                 System.err.println("ifconfig: " + e.getMessage());
-                return 1;
+                return ExecutionResult.fail(context);
             }
-            return 0;
+            return ExecutionResult.ok(context);
         }
 
         @Override public String name()  { return "ifconfig"; }
         @Override public String usage() { return "ifconfig"; }
     }
+
+    private static String value(String[] args, int i) {
+        if (i + 1 >= args.length) throw new IllegalArgumentException(args[i] + " needs a value");
+        return args[i + 1];
+    }
+
+    /** HttpClient leaves the message of some failures empty, a refused connection among them. */
+    private static String reason(IOException e) {
+        if (e.getMessage() != null && !e.getMessage().isBlank()) return e.getMessage();
+        if (e instanceof ConnectException) return "connection refused";
+        return e.getClass().getSimpleName();
+    }
 }
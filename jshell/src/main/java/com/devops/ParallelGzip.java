@@ -0,0 +1,235 @@
+package com.devops;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Multi-block gzip in the manner of pigz: one gzip member whose deflate
+ * stream is produced BLOCK bytes at a time on a fixed pool.
+ *
+ * Each block is deflated raw by its thread's own Deflater, primed with the
+ * last 32 KB of the previous block as a dictionary so that matches may
+ * reach back across the block boundary exactly as in a serial stream. Every
+ * block but the last ends with a sync flush, which pads the output to a
+ * byte boundary, so the compressed blocks can simply be concatenated; the
+ * last one is finished and carries the final-block bit.
+ *
+ * Blocks also compute their own CRC32; the calling thread folds them into
+ * the member's CRC with crc32Combine while writing the output in order. At
+ * most threads * 2 blocks are in flight. Output takes its input as a
+ * stream, so the member can be produced on the fly (tar -z) as well as from
+ * a file.
+ */
+final class ParallelGzip {
+
+    static final int BLOCK = 128 * 1024;
+    static final int DEFAULT_LEVEL = 6;
+
+    private static final int DICTIONARY = 32 * 1024;
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int OS_UNIX = 3;
+
+    private ParallelGzip() {}
+
+    private record Compressed(byte[] bytes, int length, long crc, int inputLength) {}
+
+    /** Writes the gzip of file to out at the given level (1-9), reading it buffer bytes at a time. */
+    static void compress(Path file, OutputStream out, int level, int threads, int buffer) throws IOException {
+        long mtime = Files.getLastModifiedTime(file).toMillis() / 1000;
+        try (var gz = new Output(out, level, threads, mtime);
+             InputStream in = Files.newInputStream(file)) {
+            byte[] chunk = new byte[buffer];
+            for (int n; (n = in.read(chunk)) > 0; ) gz.write(chunk, 0, n);
+        }
+    }
+
+    /**
+     * A gzip member written as a stream: bytes are cut into BLOCK-sized
+     * blocks that are deflated on the pool as soon as they fill, so a
+     * producer such as tar can pipe straight into it. close() finishes the
+     * member but leaves out open.
+     */
+    static final class Output extends OutputStream {
+
+        private final OutputStream out;
+        private final int threads;
+        private final ExecutorService pool;
+        private final ThreadLocal<Deflater> deflaters;
+        private final Deque<Future<Compressed>> inFlight = new ArrayDeque<>();
+        private byte[] block = new byte[BLOCK];
+        private int filled;
+        private byte[] previous;
+        private long crc, total;
+        private boolean closed;
+
+        /** mtime is in seconds, as the header stores it; 0 means none. */
+        Output(OutputStream out, int level, int threads, long mtime) throws IOException {
+            this.out = out;
+            this.threads = threads;
+            writeHeader(out, mtime, level);
+            this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level, true));
+            this.pool = Executors.newFixedThreadPool(threads, Thread.ofPlatform().daemon().name("gzip-", 0).factory());
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            block[filled++] = (byte) b;
+            if (filled == BLOCK) submit(false);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, BLOCK - filled);
+                System.arraycopy(b, off, block, filled, n);
+                filled += n;
+                off += n;
+                len -= n;
+                if (filled == BLOCK) submit(false);
+            }
+        }
+
+        private void submit(boolean last) throws IOException {
+            byte[] data = filled == BLOCK ? block : Arrays.copyOf(block, filled);
+            byte[] dictionary = previous;
+            inFlight.add(pool.submit(() -> deflate(deflaters.get(), data, dictionary, last)));
+            previous = data;
+            block = new byte[BLOCK];
+            filled = 0;
+            while (inFlight.size() >= threads * 2 || (last && !inFlight.isEmpty())) {
+                Compressed c = await(inFlight.poll());
+                out.write(c.bytes(), 0, c.length());
+                crc = crc32Combine(crc, c.crc(), c.inputLength());
+                total += c.inputLength();
+            }
+        }
+
+        /** Deflates what is left as the final block and writes the trailer. */
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                submit(true);
+                writeTrailer(out, crc, total);
+                out.flush();
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private static Compressed deflate(Deflater deflater, byte[] block, byte[] dictionary, boolean last) {
+        deflater.reset();
+        if (dictionary != null) {
+            int n = Math.min(DICTIONARY, dictionary.length);
+            deflater.setDictionary(dictionary, dictionary.length - n, n);
+        }
+        deflater.setInput(block);
+
+        var crc = new CRC32();
+        crc.update(block);
+
+        // deflate rarely expands by more than a few bytes per 16 KB; grow if it does
+        byte[] out = new byte[block.length + block.length / 16 + 64];
+        int length = 0;
+        if (last) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (length == out.length) out = Arrays.copyOf(out, out.length * 2);
+                length += deflater.deflate(out, length, out.length - length);
+            }
+        } else {
+            // a flush that fills the buffer may not be complete: call again with more room
+            do {
+                if (length == out.length) out = Arrays.copyOf(out, out.length * 2);
+                length += deflater.deflate(out, length, out.length - length, Deflater.SYNC_FLUSH);
+            } while (length == out.length);
+        }
+        return new Compressed(out, length, crc.getValue(), block.length);
+    }
+
+    private static void writeHeader(OutputStream out, long mtime, int level) throws IOException {
+        // XFL: 2 = maximum compression, 4 = fastest
+        int xfl = level == 9 ? 2 : level == 1 ? 4 : 0;
+        out.write(new byte[]{
+            (byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0,
+            (byte) mtime, (byte) (mtime >> 8), (byte) (mtime >> 16), (byte) (mtime >> 24),
+            (byte) xfl, OS_UNIX});
+    }
+
+    private static void writeTrailer(OutputStream out, long crc, long total) throws IOException {
+        // ISIZE is the input length modulo 2^32
+        out.write(new byte[]{
+            (byte) crc, (byte) (crc >> 8), (byte) (crc >> 16), (byte) (crc >> 24),
+            (byte) total, (byte) (total >> 8), (byte) (total >> 16), (byte) (total >> 24)});
+    }
+
+    /**
+     * CRC32 of the concatenation A + B from crc(A), crc(B) and |B| (zlib's
+     * crc32_combine): crc1 is advanced over len2 zero bytes by repeatedly
+     * squaring the one-zero-bit operator over GF(2), then xored with crc2.
+     */
+    static long crc32Combine(long crc1, long crc2, long len2) {
+        if (len2 <= 0) return crc1;
+        long[] even = new long[32];
+        long[] odd = new long[32];
+
+        odd[0] = 0xedb88320L;          // the CRC-32 polynomial, reflected
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        square(even, odd);             // two zero bits
+        square(odd, even);             // four zero bits
+
+        // each step doubles the operator's length, starting at one byte
+        do {
+            square(even, odd);
+            if ((len2 & 1) != 0) crc1 = times(even, crc1);
+            len2 >>= 1;
+            if (len2 == 0) break;
+            square(odd, even);
+            if ((len2 & 1) != 0) crc1 = times(odd, crc1);
+            len2 >>= 1;
+        } while (len2 != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static long times(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) sum ^= matrix[i];
+        }
+        return sum;
+    }
+
+    private static void square(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) square[n] = times(matrix, matrix[n]);
+    }
+
+    private static Compressed await(Future<Compressed> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.devops;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Listing and extraction through a zip's central directory.
+ *
+ * ZipFile reads the central directory at the end of the archive, so a
+ * listing never inflates anything and extracting a few entries from a
+ * large archive reads only those entries. Extraction runs on a fixed pool
+ * in batches of BATCH entries, with at most threads * 2 batches in flight;
+ * ZipFile serves concurrent entry streams, and each thread inflates its
+ * own. Progress lines are buffered per batch and printed in archive order.
+ *
+ * Every entry's target is checked against the destination's canonical path
+ * before anything is written (zip slip protection): an entry that would
+ * land outside it is skipped with a message.
+ */
+final class ParallelUnzip {
+
+    private static final int BATCH = 32;
+    private static final DateTimeFormatter MODIFIED = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private ParallelUnzip() {}
+
+    /** Prints names, sizes and compression ratios from the central directory. */
+    static void list(List<? extends ZipEntry> entries, PrintStream out) {
+        out.println("    Length       Size  Ratio  Modified          Name");
+        out.println("---------  ---------  -----  ----------------  ----");
+        long length = 0, size = 0;
+        for (ZipEntry e : entries) {
+            long compressed = Math.max(0, e.getCompressedSize());
+            LocalDateTime modified = e.getTimeLocal();
+            out.printf("%9d  %9d  %4d%%  %s  %s%n", e.getSize(), compressed, ratio(e.getSize(), compressed),
+                modified == null ? "                " : MODIFIED.format(modified), e.getName());
+            length += e.getSize();
+            size += compressed;
+        }
+        out.println("---------  ---------  -----                    ----");
+        out.printf("%9d  %9d  %4d%%                    %d %s%n", length, size, ratio(length, size),
+            entries.size(), entries.size() == 1 ? "file" : "files");
+    }
+
+    /**
+     * Extracts entries of zip under dest, writing each through a buffer of
+     * the given size (one per batch). Returns false if any entry was blocked
+     * or failed; the others are still extracted.
+     */
+    static boolean extract(ZipFile zip, List<? extends ZipEntry> entries, File dest, int threads, int buffer,
+                           OutputStream out) throws IOException {
+        String destCanonical = dest.getCanonicalPath();
+        var ok = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(threads,
+            Thread.ofPlatform().daemon().name("unzip-", 0).factory());
+        try {
+            Deque<Future<ByteArrayOutputStream>> inFlight = new ArrayDeque<>();
+            int next = 0;
+            while (next < entries.size() || !inFlight.isEmpty()) {
+                while (next < entries.size() && inFlight.size() < threads * 2) {
+                    List<? extends ZipEntry> batch = entries.subList(next, Math.min(entries.size(), next + BATCH));
+                    next += batch.size();
+                    inFlight.add(pool.submit(() -> {
+                        var report = new ByteArrayOutputStream();
+                        byte[] chunk = new byte[buffer];
+                        for (ZipEntry entry : batch) {
+                            if (!extractEntry(zip, entry, dest, destCanonical, chunk, report)) ok.set(false);
+                        }
+                        return report;
+                    }));
+                }
+                await(inFlight.poll()).writeTo(out);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return ok.get();
+    }
+
+    private static boolean extractEntry(ZipFile zip, ZipEntry entry, File dest, String destCanonical, byte[] chunk,
+                                        ByteArrayOutputStream report) {
+        try {
+            File target = new File(dest, entry.getName());
+            String targetCanonical = target.getCanonicalPath();
+            // Zip slip protection
+            if (!targetCanonical.startsWith(destCanonical + File.separator) && !targetCanonical.equals(destCanonical)) {
+                System.err.println("unzip: blocked unsafe entry: " + entry.getName());
+                return false;
+            }
+            if (entry.isDirectory()) {
+                Files.createDirectories(target.toPath());
+                return true;
+            }
+            Files.createDirectories(target.getParentFile().toPath());
+            try (var in = zip.getInputStream(entry);
+                 var file = new FileOutputStream(target)) {
+                for (int n; (n = in.read(chunk)) > 0; ) file.write(chunk, 0, n);
+            }
+            if (entry.getTime() >= 0) target.setLastModified(entry.getTime());
+            report.writeBytes(("Extracted: " + entry.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+            return true;
+        } catch (IOException e) {
+            System.err.println("unzip: " + entry.getName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Percentage saved by compression, as unzip -v reports it. */
+    private static long ratio(long length, long compressed) {
+        return length <= 0 ? 0 : Math.round(100.0 * (length - compressed) / length);
+    }
+
+    private static ByteArrayOutputStream await(Future<ByteArrayOutputStream> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
+        }
+    }
+}
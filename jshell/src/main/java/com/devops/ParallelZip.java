@@ -0,0 +1,229 @@
+package com.devops;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Builds zip archives with entries compressed concurrently.
+ *
+ * Each file is read and deflated on a fixed pool, into a heap buffer, or
+ * into a temp spill once it is larger than SPILL. The calling thread appends
+ * the finished entries to a ZipWriter in list order, with at most
+ * threads * 2 entries in flight, so the archive layout does not depend on
+ * scheduling.
+ *
+ * Deflate is skipped (the entry is STORED) when it cannot help: for
+ * extensions of formats that are already compressed, when a deflate of the
+ * file's first SAMPLE bytes at level 1 saves less than 10%, or when the
+ * deflated entry turns out no smaller than the file. Level 0 stores
+ * everything.
+ */
+final class ParallelZip {
+
+    static final int DEFAULT_LEVEL = 6;
+    static final int SAMPLE = 64 * 1024;
+    static final long SPILL = 16L * 1024 * 1024;
+
+    /** Already-compressed formats: deflating them again only costs time. */
+    static final Set<String> COMPRESSED = Set.of(
+        "gz", "tgz", "bz2", "xz", "zst", "lz4", "zip", "jar", "war", "ear", "apk", "7z", "rar",
+        "png", "jpg", "jpeg", "gif", "webp", "heic", "mp3", "mp4", "m4a", "mkv", "mov", "avi",
+        "webm", "ogg", "flac", "woff", "woff2", "docx", "xlsx", "pptx", "odt");
+
+    private ParallelZip() {}
+
+    /** A file or directory to archive, under the entry name it gets. */
+    record Source(Path path, String name, boolean directory) {}
+
+    /**
+     * A finished entry: data is the stored or deflated bytes in memory, or
+     * null when they are in spill (deflated) or still in the source (stored).
+     */
+    private record Prepared(ZipWriter.Header header, byte[] data, Path spill, Path source) {}
+
+    /**
+     * Writes sources, in order, as one archive to out. Large entries are
+     * streamed through buffer-sized reads. Returns the number of entries written.
+     */
+    static int write(List<Source> sources, OutputStream out, int level, int threads, int buffer, Path tmpDir)
+            throws IOException {
+        var zip = new ZipWriter(out);
+        append(sources, zip, level, threads, buffer, tmpDir);
+        zip.finish();
+        return sources.size();
+    }
+
+    /** Adds sources, in order, to zip without finishing it. */
+    static void append(List<Source> sources, ZipWriter zip, int level, int threads, int buffer, Path tmpDir)
+            throws IOException {
+        if (sources.isEmpty()) return;
+        ExecutorService pool = Executors.newFixedThreadPool(threads,
+            Thread.ofPlatform().daemon().name("zip-", 0).factory());
+        ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(() -> new Deflater(level, true));
+        ThreadLocal<Deflater> samplers = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+        Deque<Future<Prepared>> inFlight = new ArrayDeque<>();
+        try {
+            int next = 0;
+            while (next < sources.size() || !inFlight.isEmpty()) {
+                while (next < sources.size() && inFlight.size() < threads * 2) {
+                    Source s = sources.get(next++);
+                    inFlight.add(pool.submit(() ->
+                        prepare(s, level, deflaters.get(), samplers.get(), buffer, tmpDir)));
+                }
+                Prepared p = await(inFlight.poll());
+                try {
+                    zip.add(p.header(), o -> {
+                        if (p.data() != null) o.write(p.data(), 0, (int) p.header().compressedSize());
+                        else Files.copy(p.spill() != null ? p.spill() : p.source(), o);
+                    });
+                } finally {
+                    if (p.spill() != null) Files.deleteIfExists(p.spill());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            // after a failure: delete the spills of entries that were prepared but never written
+            for (Future<Prepared> f : inFlight) {
+                if (f.cancel(true)) continue;
+                try {
+                    Prepared p = f.get();
+                    if (p.spill() != null) Files.deleteIfExists(p.spill());
+                } catch (InterruptedException | ExecutionException | IOException ignored) {
+                    // nothing to clean up for a failed entry
+                }
+            }
+        }
+    }
+
+    private static Prepared prepare(Source s, int level, Deflater deflater, Deflater sampler, int buffer,
+                                    Path tmpDir) throws IOException {
+        long mtime = Files.getLastModifiedTime(s.path()).toMillis();
+        if (s.directory()) {
+            return new Prepared(new ZipWriter.Header(s.name(), ZipWriter.STORED, 0, 0, 0, mtime, true),
+                new byte[0], null, null);
+        }
+        long size = Files.size(s.path());
+        boolean store = level == 0 || COMPRESSED.contains(extension(s.name()))
+            || (size > SAMPLE && !worthDeflating(s.path(), sampler));
+
+        if (size > SPILL) {
+            return store ? storeLarge(s, mtime, buffer) : deflateLarge(s, mtime, deflater, buffer, tmpDir);
+        }
+
+        byte[] bytes = Files.readAllBytes(s.path());
+        var crc = new CRC32();
+        crc.update(bytes);
+        if (!store) {
+            byte[] deflated = deflate(deflater, bytes);
+            if (deflated.length < bytes.length) {
+                return new Prepared(new ZipWriter.Header(s.name(), ZipWriter.DEFLATED, crc.getValue(),
+                    bytes.length, deflated.length, mtime, false), deflated, null, null);
+            }
+        }
+        return new Prepared(new ZipWriter.Header(s.name(), ZipWriter.STORED, crc.getValue(),
+            bytes.length, bytes.length, mtime, false), bytes, null, null);
+    }
+
+    /** A large entry to store is copied from its source at write time; only its CRC is computed here. */
+    private static Prepared storeLarge(Source s, long mtime, int bufferSize) throws IOException {
+        var crc = new CRC32();
+        long size = 0;
+        try (InputStream in = Files.newInputStream(s.path())) {
+            byte[] buffer = new byte[bufferSize];
+            for (int n; (n = in.read(buffer)) > 0; size += n) crc.update(buffer, 0, n);
+        }
+        return new Prepared(new ZipWriter.Header(s.name(), ZipWriter.STORED, crc.getValue(), size, size, mtime, false),
+            null, null, s.path());
+    }
+
+    private static Prepared deflateLarge(Source s, long mtime, Deflater deflater, int bufferSize, Path tmpDir)
+            throws IOException {
+        Path spill = Files.createTempFile(tmpDir, "jshell-zip-", ".tmp");
+        try {
+            deflater.reset();
+            var crc = new CRC32();
+            long size = 0;
+            try (InputStream in = Files.newInputStream(s.path());
+                 var out = new DeflaterOutputStream(Files.newOutputStream(spill), deflater, bufferSize)) {
+                byte[] buffer = new byte[bufferSize];
+                for (int n; (n = in.read(buffer)) > 0; size += n) {
+                    crc.update(buffer, 0, n);
+                    out.write(buffer, 0, n);
+                }
+            }
+            return new Prepared(new ZipWriter.Header(s.name(), ZipWriter.DEFLATED, crc.getValue(), size,
+                Files.size(spill), mtime, false), null, spill, null);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spill);
+            throw e;
+        }
+    }
+
+    /** Deflates the first SAMPLE bytes at level 1 and wants at least 10% saved. */
+    private static boolean worthDeflating(Path file, Deflater sampler) throws IOException {
+        byte[] sample = new byte[SAMPLE];
+        int n;
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            n = channel.read(ByteBuffer.wrap(sample));
+        }
+        if (n <= 0) return false;
+        sampler.reset();
+        sampler.setInput(sample, 0, n);
+        sampler.finish();
+        byte[] out = new byte[n];
+        int deflated = 0;
+        while (!sampler.finished() && deflated < out.length) {
+            deflated += sampler.deflate(out, deflated, out.length - deflated);
+        }
+        return sampler.finished() && deflated < n * 0.9;
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] bytes) {
+        deflater.reset();
+        deflater.setInput(bytes);
+        deflater.finish();
+        byte[] out = new byte[bytes.length + bytes.length / 16 + 64];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == out.length) out = Arrays.copyOf(out, out.length * 2);
+            length += deflater.deflate(out, length, out.length - length);
+        }
+        return Arrays.copyOf(out, length);
+    }
+
+    static String extension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot < 0 || dot < name.lastIndexOf('/') ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static Prepared await(Future<Prepared> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
+        }
+    }
+}
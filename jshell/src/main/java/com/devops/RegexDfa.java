@@ -0,0 +1,743 @@
+package com.devops;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Regex engine with guaranteed linear-time matching, for the patterns grep
+ * sees most: literals, '.', classes, \d \w \s, anchors, groups, alternation
+ * and the usual quantifiers.
+ *
+ * compile() parses java.util.regex syntax into a byte-level Thompson NFA
+ * (non-ASCII literals become their UTF-8 byte sequences, '.' matches one
+ * whole UTF-8 character other than a line terminator, and '$' also matches
+ * before a terminator that ends the line, both as in Pattern), then
+ * compresses the 256 byte values into the classes the NFA can tell apart.
+ * Matching runs a DFA built lazily from the NFA one state at a time, on
+ * demand, so only the states an input actually reaches are ever
+ * constructed. Each new DFA state costs O(NFA size) once; after that every
+ * input byte is one table lookup — no backtracking, so no pattern can take
+ * more than linear time per line.
+ *
+ * The state cache is bounded: when it holds MAX_STATES states it is flushed
+ * and rebuilt from the current position, which keeps memory fixed while
+ * still guaranteeing progress on every byte.
+ *
+ * Patterns outside the subset — backreferences, lookaround, \b, possessive
+ * quantifiers, inline flags, Unicode classes — make compile() return null
+ * and the caller uses java.util.regex instead. Case-insensitive matching
+ * folds ASCII only, exactly like Pattern.CASE_INSENSITIVE.
+ *
+ * A compiled RegexDfa is immutable and shared; the mutable state caches live
+ * in Searcher, one per thread.
+ */
+public final class RegexDfa {
+
+    static final int MAX_STATES = 4096;
+    private static final int MAX_NFA = 20_000;
+
+    // NFA node kinds
+    private static final int SET   = 0;   // consume one byte in set[node], go to out1
+    private static final int SPLIT = 1;   // epsilon to out1 and out2
+    private static final int BOL   = 2;   // epsilon at the start of the line
+    private static final int EOL   = 3;   // epsilon at the end of the line
+    private static final int MATCH = 4;
+
+    private final int[] kind;
+    private final int[] out1;
+    private final int[] out2;
+    private final long[][] set;
+    private final int start;
+
+    private final int[] byteClass = new int[256];
+    private final int[] classRep;       // one byte value per class, for set lookups
+
+    private RegexDfa(Nfa nfa, int start) {
+        int n = nfa.size;
+        this.kind = Arrays.copyOf(nfa.kind, n);
+        this.out1 = Arrays.copyOf(nfa.out1, n);
+        this.out2 = Arrays.copyOf(nfa.out2, n);
+        this.set = Arrays.copyOf(nfa.set, n);
+        this.start = start;
+        this.classRep = computeClasses();
+    }
+
+    /** Compiles the pattern, or returns null if it needs java.util.regex. */
+    public static RegexDfa compile(String regex, boolean ignoreCase) {
+        try {
+            Node ast = new Parser(regex, ignoreCase).parse();
+            var nfa = new Nfa();
+            int match = nfa.add(MATCH, -1, -1, null);
+            int start = ast.compile(nfa, match);
+            return new RegexDfa(nfa, start);
+        } catch (Unsupported e) {
+            return null;
+        }
+    }
+
+    public int classCount() {
+        return classRep.length;
+    }
+
+    /** Fresh mutable matching state over this automaton. */
+    public Searcher searcher() {
+        return new Searcher();
+    }
+
+    /** Bytes that every NFA set treats alike share a class — transition tables are that narrow. */
+    private int[] computeClasses() {
+        Arrays.fill(byteClass, 0);
+        int classes = 1;
+        Map<Long, Integer> split = new HashMap<>();
+        for (long[] s : set) {
+            if (s == null) continue;
+            split.clear();
+            int next = 0;
+            for (int b = 0; b < 256; b++) {
+                long key = ((long) byteClass[b] << 1) | (contains(s, b) ? 1 : 0);
+                Integer c = split.get(key);
+                if (c == null) split.put(key, c = next++);
+                byteClass[b] = c;
+            }
+            classes = next;
+        }
+        int[] rep = new int[classes];
+        Arrays.fill(rep, -1);
+        for (int b = 255; b >= 0; b--) rep[byteClass[b]] = b;
+        return rep;
+    }
+
+    private static boolean contains(long[] s, int b) {
+        return (s[b >>> 6] & (1L << b)) != 0;
+    }
+
+    /**
+     * The lazily built DFA plus scratch space for closures. Two caches are
+     * kept: an unanchored one for "does the line match" and an anchored one
+     * that finds where a match starting at a given offset ends (grep -o).
+     */
+    public final class Searcher {
+
+        private final Cache search = new Cache(true);
+        private final Cache anchored = new Cache(false);
+
+        // sparse set for closure computation
+        private final int[] dense = new int[kind.length];
+        private final int[] sparse = new int[kind.length];
+        private int members;
+        private final int[] stack = new int[2 * kind.length + 1];
+
+        /** True if the pattern matches somewhere in the line. */
+        public boolean find(LineScanner.Line line) {
+            Cache c = search;
+            int s = c.start(true);
+            if (c.match[s]) return true;
+            int n = line.length(), last = n - terminatorAtEnd(line);
+            for (int i = 0; i < n; i++) {
+                if (i == last) {
+                    s = c.pastEnd(s, i == 0);
+                    if (c.match[s]) return true;
+                }
+                s = c.next(s, byteClass[line.byteAt(i) & 0xFF]);
+                if (c.match[s]) return true;
+            }
+            return c.matchAtEnd(s, n == 0);
+        }
+
+        /**
+         * End offset of the longest match starting at from, or -1. Stops as
+         * soon as no NFA thread is left alive.
+         */
+        public int longestAt(LineScanner.Line line, int from) {
+            Cache c = anchored;
+            int s = c.start(from == 0);
+            int end = c.match[s] ? from : -1;
+            int n = line.length(), last = n - terminatorAtEnd(line);
+            int i = from;
+            while (i < n && !c.dead(s)) {
+                if (i == last) {
+                    s = c.pastEnd(s, i == 0);
+                    if (c.match[s]) end = i;
+                }
+                s = c.next(s, byteClass[line.byteAt(i) & 0xFF]);
+                i++;
+                if (c.match[s]) end = i;
+            }
+            if (i == n && c.matchAtEnd(s, n == 0)) end = n;
+            return end;
+        }
+
+        /**
+         * Length of the line terminator the line ends with — CR, NEL, LS or
+         * PS, in UTF-8 — or 0. Like Pattern's, '$' also holds just before it,
+         * and the match may go on to consume it.
+         */
+        private static int terminatorAtEnd(LineScanner.Line line) {
+            int n = line.length();
+            if (n >= 1 && line.byteAt(n - 1) == '\r') return 1;
+            if (n >= 2 && (line.byteAt(n - 2) & 0xFF) == 0xC2 && (line.byteAt(n - 1) & 0xFF) == 0x85) return 2;
+            if (n >= 3 && (line.byteAt(n - 3) & 0xFF) == 0xE2 && (line.byteAt(n - 2) & 0xFF) == 0x80
+                    && ((line.byteAt(n - 1) & 0xFF) == 0xA8 || (line.byteAt(n - 1) & 0xFF) == 0xA9)) return 3;
+            return 0;
+        }
+
+        /** States built so far in the unanchored cache — for tests and tuning. */
+        public int cachedStates() {
+            return search.count;
+        }
+
+        /** Epsilon closure of the seeds into the sparse set. */
+        private void close(int[] seeds, int seedCount, boolean atStart, boolean atEnd) {
+            for (int k = 0; k < seedCount; k++) push(seeds[k], atStart, atEnd);
+        }
+
+        private void push(int node, boolean atStart, boolean atEnd) {
+            int top = 0;
+            stack[top++] = node;
+            while (top > 0) {
+                int v = stack[--top];
+                if (has(v)) continue;
+                add(v);
+                switch (kind[v]) {
+                    case SPLIT -> { stack[top++] = out2[v]; stack[top++] = out1[v]; }
+                    case BOL   -> { if (atStart) stack[top++] = out1[v]; }
+                    case EOL   -> { if (atEnd) stack[top++] = out1[v]; }
+                    default    -> { }
+                }
+            }
+        }
+
+        private boolean has(int v) {
+            int i = sparse[v];
+            return i < members && dense[i] == v;
+        }
+
+        private void add(int v) {
+            sparse[v] = members;
+            dense[members++] = v;
+        }
+
+        /** The members a DFA state needs to remember: byte consumers, EOL and MATCH. */
+        private int[] snapshot() {
+            int n = 0;
+            int[] ids = new int[members];
+            for (int k = 0; k < members; k++) {
+                int v = dense[k];
+                if (kind[v] == SET || kind[v] == EOL || kind[v] == MATCH) ids[n++] = v;
+            }
+            ids = Arrays.copyOf(ids, n);
+            Arrays.sort(ids);
+            return ids;
+        }
+
+        private final class Cache {
+
+            private final boolean unanchored;
+            private final Map<Key, Integer> index = new HashMap<>();
+            private int[][] states = new int[64][];
+            private int[][] table = new int[64][];
+            private boolean[] match = new boolean[64];
+            private int count;
+            private int startAtBol = -1;
+            private int startMid = -1;
+
+            Cache(boolean unanchored) {
+                this.unanchored = unanchored;
+            }
+
+            int start(boolean atLineStart) {
+                if (atLineStart) {
+                    if (startAtBol < 0) startAtBol = closureOf(new int[]{RegexDfa.this.start}, true);
+                    return startAtBol;
+                }
+                if (startMid < 0) startMid = closureOf(new int[]{RegexDfa.this.start}, false);
+                return startMid;
+            }
+
+            private int closureOf(int[] seeds, boolean atStart) {
+                members = 0;
+                close(seeds, seeds.length, atStart, false);
+                int[] ids = snapshot();
+                if (count == MAX_STATES && !index.containsKey(new Key(ids))) flush();
+                return intern(ids);
+            }
+
+            int next(int s, int cls) {
+                int t = table[s][cls];
+                if (t != 0) return t - 1;
+
+                int[] from = states[s];
+                int b = classRep[cls];
+                members = 0;
+                for (int v : from) {
+                    if (kind[v] == SET && contains(set[v], b)) push(out1[v], false, false);
+                }
+                // unanchored search: a new match may begin at every offset
+                if (unanchored) push(RegexDfa.this.start, false, false);
+                int[] ids = snapshot();
+
+                if (count == MAX_STATES) {
+                    flush();
+                    return intern(ids);   // the old state is gone, so its edge is not recorded
+                }
+                int target = intern(ids);
+                table[s][cls] = target + 1;
+                return target;
+            }
+
+            boolean dead(int s) {
+                return states[s].length == 0;
+            }
+
+            /**
+             * Match if the line ended here — follows pending '$' assertions,
+             * and the '^' after them when the line is empty ("$^").
+             */
+            boolean matchAtEnd(int s, boolean atStart) {
+                if (match[s]) return true;
+                members = 0;
+                for (int v : states[s]) if (kind[v] == EOL) push(v, atStart, true);
+                for (int k = 0; k < members; k++) if (kind[dense[k]] == MATCH) return true;
+                return false;
+            }
+
+            /**
+             * The state s with its pending '$' assertions passed, for the
+             * position before a final line terminator. Not recorded in the
+             * table: it is needed at most once per line.
+             */
+            int pastEnd(int s, boolean atStart) {
+                members = 0;
+                for (int v : states[s]) push(v, atStart, true);
+                int[] ids = snapshot();
+                if (count == MAX_STATES && !index.containsKey(new Key(ids))) flush();
+                return intern(ids);
+            }
+
+            private int intern(int[] ids) {
+                Key key = new Key(ids);
+                Integer known = index.get(key);
+                if (known != null) return known;
+
+                if (count == states.length) {
+                    int grown = Math.min(count * 2, MAX_STATES);
+                    states = Arrays.copyOf(states, grown);
+                    table = Arrays.copyOf(table, grown);
+                    match = Arrays.copyOf(match, grown);
+                }
+                int s = count++;
+                states[s] = ids;
+                table[s] = new int[classRep.length];
+                match[s] = false;
+                for (int v : ids) if (kind[v] == MATCH) { match[s] = true; break; }
+                index.put(key, s);
+                return s;
+            }
+
+            private void flush() {
+                index.clear();
+                Arrays.fill(states, null);
+                Arrays.fill(table, null);
+                count = 0;
+                startAtBol = -1;
+                startMid = -1;
+            }
+        }
+    }
+
+    /** Sorted NFA ids identifying a DFA state. */
+    private record Key(int[] ids) {
+        @Override public boolean equals(Object o) {
+            return o instanceof Key k && Arrays.equals(ids, k.ids);
+        }
+        @Override public int hashCode() {
+            return Arrays.hashCode(ids);
+        }
+    }
+
+    // --- NFA construction -------------------------------------------------------------
+
+    private static final class Unsupported extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final class Nfa {
+        int size;
+        int[] kind = new int[64];
+        int[] out1 = new int[64];
+        int[] out2 = new int[64];
+        long[][] set = new long[64][];
+
+        int add(int k, int o1, int o2, long[] s) throws Unsupported {
+            if (size == MAX_NFA) throw new Unsupported();
+            if (size == kind.length) {
+                int grown = size * 2;
+                kind = Arrays.copyOf(kind, grown);
+                out1 = Arrays.copyOf(out1, grown);
+                out2 = Arrays.copyOf(out2, grown);
+                set = Arrays.copyOf(set, grown);
+            }
+            kind[size] = k;
+            out1[size] = o1;
+            out2[size] = o2;
+            set[size] = s;
+            return size++;
+        }
+    }
+
+    /** Regex syntax tree. compile() builds the NFA back to front: it is given its successor. */
+    private sealed interface Node {
+        int compile(Nfa nfa, int next) throws Unsupported;
+    }
+
+    private record Bytes(long[] set) implements Node {
+        public int compile(Nfa nfa, int next) throws Unsupported {
+            return nfa.add(SET, next, -1, set);
+        }
+    }
+
+    private record Seq(List<Node> items) implements Node {
+        public int compile(Nfa nfa, int next) throws Unsupported {
+            int at = next;
+            for (int i = items.size() - 1; i >= 0; i--) at = items.get(i).compile(nfa, at);
+            return at;
+        }
+    }
+
+    private record Alt(List<Node> options) implements Node {
+        public int compile(Nfa nfa, int next) throws Unsupported {
+            int at = options.get(options.size() - 1).compile(nfa, next);
+            for (int i = options.size() - 2; i >= 0; i--) {
+                at = nfa.add(SPLIT, options.get(i).compile(nfa, next), at, null);
+            }
+            return at;
+        }
+    }
+
+    private record Repeat(Node body, int min, int max) implements Node {   // max -1 = unbounded
+        public int compile(Nfa nfa, int next) throws Unsupported {
+            int at = next;
+            if (max < 0) {
+                int loop = nfa.add(SPLIT, -1, next, null);
+                // not nfa.out1[loop] = ...: the array is read before compile() may grow it
+                int first = body.compile(nfa, loop);
+                nfa.out1[loop] = first;
+                at = loop;
+            } else {
+                // x{0,k} as nested optionals: (x(x(...)?)?)?
+                for (int i = min; i < max; i++) at = nfa.add(SPLIT, body.compile(nfa, at), next, null);
+            }
+            for (int i = 0; i < min; i++) at = body.compile(nfa, at);
+            return at;
+        }
+    }
+
+    private record Assert(int kind) implements Node {
+        public int compile(Nfa nfa, int next) throws Unsupported {
+            return nfa.add(kind, next, -1, null);
+        }
+    }
+
+    private record Empty() implements Node {
+        public int compile(Nfa nfa, int next) {
+            return next;
+        }
+    }
+
+    // --- parser ----------------------------------------------------------------------
+
+    /**
+     * Recursive descent over java.util.regex syntax. The caller has already
+     * run Pattern.compile, so the input is known to be valid Java regex;
+     * anything this parser does not model throws Unsupported.
+     */
+    private static final class Parser {
+
+        private static final int MAX_REPEAT = 1000;
+
+        private final String p;
+        private final boolean ignoreCase;
+        private int pos;
+
+        Parser(String pattern, boolean ignoreCase) {
+            this.p = pattern;
+            this.ignoreCase = ignoreCase;
+        }
+
+        Node parse() throws Unsupported {
+            Node n = alternation();
+            if (pos != p.length()) throw new Unsupported();
+            return n;
+        }
+
+        private Node alternation() throws Unsupported {
+            List<Node> options = new ArrayList<>();
+            options.add(sequence());
+            while (pos < p.length() && p.charAt(pos) == '|') {
+                pos++;
+                options.add(sequence());
+            }
+            return options.size() == 1 ? options.get(0) : new Alt(options);
+        }
+
+        private Node sequence() throws Unsupported {
+            List<Node> items = new ArrayList<>();
+            while (pos < p.length() && p.charAt(pos) != '|' && p.charAt(pos) != ')') {
+                items.add(quantified(atom()));
+            }
+            if (items.isEmpty()) return new Empty();
+            return items.size() == 1 ? items.get(0) : new Seq(items);
+        }
+
+        private Node quantified(Node atom) throws Unsupported {
+            while (pos < p.length()) {
+                char c = p.charAt(pos);
+                int min;
+                int max;
+                if (c == '*')      { min = 0; max = -1; pos++; }
+                else if (c == '+') { min = 1; max = -1; pos++; }
+                else if (c == '?') { min = 0; max = 1;  pos++; }
+                else if (c == '{') {
+                    pos++;
+                    min = number();
+                    max = min;
+                    if (peek(',')) {
+                        pos++;
+                        max = peek('}') ? -1 : number();
+                    }
+                    expect('}');
+                    if (min > MAX_REPEAT || max > MAX_REPEAT) throw new Unsupported();
+                } else {
+                    return atom;
+                }
+                if (peek('+')) throw new Unsupported();   // possessive
+                if (peek('?')) pos++;                      // reluctant — same language, no positions to prefer
+                atom = new Repeat(atom, min, max);
+            }
+            return atom;
+        }
+
+        private Node atom() throws Unsupported {
+            int cp = p.codePointAt(pos);
+            pos += Character.charCount(cp);
+            switch (cp) {
+                case '.': return anyChar();
+                case '^': return new Assert(BOL);
+                case '$': return new Assert(EOL);
+                case '[': return charClass();
+                case '\\': return escape();
+                case '(': {
+                    if (peek('?')) {
+                        if (!p.startsWith("?:", pos)) throw new Unsupported();   // lookaround, named group, flags
+                        pos += 2;
+                    }
+                    Node inner = alternation();
+                    expect(')');
+                    return inner;
+                }
+                case '*': case '+': case '?': case '{': case ')':
+                    throw new Unsupported();
+                default:
+                    return literal(cp);
+            }
+        }
+
+        private Node escape() throws Unsupported {
+            if (pos >= p.length()) throw new Unsupported();
+            char c = p.charAt(pos++);
+            switch (c) {
+                case 'd': return new Bytes(ascii(DIGIT));
+                case 'w': return new Bytes(ascii(WORD));
+                case 's': return new Bytes(ascii(SPACE));
+                case 'D': return notAscii(DIGIT);
+                case 'W': return notAscii(WORD);
+                case 'S': return notAscii(SPACE);
+                default:
+                    int lit = escapedLiteral(c);
+                    return literal(lit);
+            }
+        }
+
+        /** \t \n \r \f \xhh and escaped punctuation; everything else is out of scope. */
+        private int escapedLiteral(char c) throws Unsupported {
+            switch (c) {
+                case 't': return '\t';
+                case 'n': return '\n';
+                case 'r': return '\r';
+                case 'f': return '\f';
+                case 'x': {
+                    if (pos + 2 > p.length()) throw new Unsupported();
+                    try {
+                        int v = Integer.parseInt(p.substring(pos, pos + 2), 16);
+                        pos += 2;
+                        return v;
+                    } catch (NumberFormatException e) {
+                        throw new Unsupported();
+                    }
+                }
+                default:
+                    // backreferences, \b, \Q, \p{..}, \A, \z ... need java.util.regex
+                    if (Character.isLetterOrDigit(c)) throw new Unsupported();
+                    return c;
+            }
+        }
+
+        private Node charClass() throws Unsupported {
+            boolean negate = peek('^');
+            if (negate) pos++;
+            long[] s = new long[4];
+            boolean first = true;
+            while (true) {
+                if (pos >= p.length()) throw new Unsupported();
+                char c = p.charAt(pos);
+                if (c == ']') {
+                    if (first) throw new Unsupported();   // "[]...]" — leave the corner cases to java.util.regex
+                    pos++;
+                    break;
+                }
+                if (c == '[' || p.startsWith("&&", pos)) throw new Unsupported();   // nesting, intersection
+                first = false;
+
+                int lo;
+                if (c == '\\') {
+                    pos++;
+                    if (pos >= p.length()) throw new Unsupported();
+                    char e = p.charAt(pos++);
+                    if (e == 'd' || e == 'w' || e == 's') {
+                        or(s, ascii(e == 'd' ? DIGIT : e == 'w' ? WORD : SPACE));
+                        continue;
+                    }
+                    lo = escapedLiteral(e);
+                } else {
+                    lo = c;
+                    pos++;
+                }
+                int hi = lo;
+                if (peek('-') && pos + 1 < p.length() && p.charAt(pos + 1) != ']') {
+                    pos++;
+                    char h = p.charAt(pos++);
+                    if (h == '\\') {
+                        if (pos >= p.length()) throw new Unsupported();
+                        hi = escapedLiteral(p.charAt(pos++));
+                    } else {
+                        hi = h;
+                    }
+                }
+                if (hi >= 0x80 || lo > hi) throw new Unsupported();   // non-ASCII members stay with java.util.regex
+                for (int b = lo; b <= hi; b++) addFolded(s, b);
+            }
+            if (!negate) return new Bytes(s);
+            long[] complement = new long[4];
+            for (int b = 0; b < 0x80; b++) if (!contains(s, b)) set(complement, b);
+            return withMultibyte(complement);
+        }
+
+        /**
+         * '.' as java.util.regex has it without DOTALL: any character but the
+         * line terminators \n, \r, U+0085 (C2 85), U+2028 and U+2029 (E2 80 A8/A9).
+         */
+        private Node anyChar() {
+            long[] s = new long[4];
+            for (int b = 0; b < 0x80; b++) if (b != '\n' && b != '\r') set(s, b);
+            long[] cont = range(0x80, 0xBF);
+            long[] notNel = range(0x80, 0xBF);
+            notNel[0x85 >>> 6] &= ~(1L << 0x85);
+            long[] notSeparator = range(0x80, 0xBF);
+            notSeparator[0xA8 >>> 6] &= ~(3L << 0xA8);
+            long[] threeByteLeads = range(0xE0, 0xEF);
+            threeByteLeads[0xE2 >>> 6] &= ~(1L << 0xE2);
+            return new Alt(List.of(
+                new Bytes(s),
+                new Seq(List.of(new Bytes(range(0xC2, 0xC2)), new Bytes(notNel))),
+                new Seq(List.of(new Bytes(range(0xC3, 0xDF)), new Bytes(cont))),
+                new Seq(List.of(new Bytes(threeByteLeads), new Bytes(cont), new Bytes(cont))),
+                new Seq(List.of(new Bytes(range(0xE2, 0xE2)), new Bytes(range(0x81, 0xBF)), new Bytes(cont))),
+                new Seq(List.of(new Bytes(range(0xE2, 0xE2)), new Bytes(range(0x80, 0x80)), new Bytes(notSeparator))),
+                new Seq(List.of(new Bytes(range(0xF0, 0xF4)), new Bytes(cont), new Bytes(cont), new Bytes(cont)))));
+        }
+
+        private Node notAscii(String members) {
+            long[] s = new long[4];
+            long[] excluded = ascii(members);
+            for (int b = 0; b < 0x80; b++) if (!contains(excluded, b)) set(s, b);
+            return withMultibyte(s);
+        }
+
+        /** An ASCII byte from the set, or any well-formed multi-byte UTF-8 character. */
+        private static Node withMultibyte(long[] asciiSet) {
+            long[] cont = range(0x80, 0xBF);
+            return new Alt(List.of(
+                new Bytes(asciiSet),
+                new Seq(List.of(new Bytes(range(0xC2, 0xDF)), new Bytes(cont))),
+                new Seq(List.of(new Bytes(range(0xE0, 0xEF)), new Bytes(cont), new Bytes(cont))),
+                new Seq(List.of(new Bytes(range(0xF0, 0xF4)), new Bytes(cont), new Bytes(cont), new Bytes(cont)))));
+        }
+
+        private Node literal(int cp) {
+            if (cp < 0x80) {
+                long[] s = new long[4];
+                addFolded(s, cp);
+                return new Bytes(s);
+            }
+            byte[] utf8 = new String(Character.toChars(cp)).getBytes(StandardCharsets.UTF_8);
+            List<Node> bytes = new ArrayList<>();
+            for (byte b : utf8) bytes.add(new Bytes(range(b & 0xFF, b & 0xFF)));
+            return new Seq(bytes);
+        }
+
+        private void addFolded(long[] s, int b) {
+            set(s, b);
+            if (!ignoreCase) return;
+            if (b >= 'a' && b <= 'z') set(s, b - ('a' - 'A'));
+            if (b >= 'A' && b <= 'Z') set(s, b + ('a' - 'A'));
+        }
+
+        private int number() throws Unsupported {
+            int begin = pos;
+            while (pos < p.length() && Character.isDigit(p.charAt(pos))) pos++;
+            if (begin == pos || pos - begin > 6) throw new Unsupported();
+            return Integer.parseInt(p.substring(begin, pos));
+        }
+
+        private boolean peek(char c) {
+            return pos < p.length() && p.charAt(pos) == c;
+        }
+
+        private void expect(char c) throws Unsupported {
+            if (!peek(c)) throw new Unsupported();
+            pos++;
+        }
+
+        private static final String DIGIT = "0123456789";
+        private static final String WORD  = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_";
+        private static final String SPACE = " \t\n\u000B\f\r";
+
+        private static long[] ascii(String members) {
+            long[] s = new long[4];
+            for (int i = 0; i < members.length(); i++) set(s, members.charAt(i));
+            return s;
+        }
+
+        private static long[] range(int lo, int hi) {
+            long[] s = new long[4];
+            for (int b = lo; b <= hi; b++) set(s, b);
+            return s;
+        }
+
+        private static void or(long[] into, long[] from) {
+            for (int i = 0; i < 4; i++) into[i] |= from[i];
+        }
+
+        private static void set(long[] s, int b) {
+            s[b >>> 6] |= 1L << b;
+        }
+    }
+}
@@ -1,12 +1,21 @@
 package com.devops;
 
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.PatternSyntaxException;
 
 public final class SearchCommands {
 
@@ -66,178 +75,556 @@ public final class SearchCommands {
         @Override public String usage() { return "find <pattern> [-r] | find <dir> -name <pattern>"; }
     }
 
+    /**
+     * Counts are taken at the byte level by ByteCounter: -c is bytes and -m
+     * characters (UTF-8), both including newlines, as POSIX wc reports them.
+     * Without flags wc prints lines, words and bytes. -Z counts gzip files
+     * as GzipStream decompresses them.
+     */
     public static final class WcCommand implements Command {
 
         @Override
         public ExecutionResult execute(ShellContext context, String[] args) {
-            if (args.length < 2) {
-                System.err.println("usage: " + usage());
-                return ExecutionResult.misuse(context);
+            boolean lines = false, words = false, chars = false, bytes = false, decompress = false;
+            int threads = Runtime.getRuntime().availableProcessors();
+            List<String> files = new ArrayList<>();
+            for (int i = 1; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("-j") && i + 1 < args.length) {
+                    try {
+                        threads = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        threads = 0;
+                    }
+                    if (threads < 1) {
+                        System.err.println("wc: invalid thread count '" + args[i] + "'");
+                        return ExecutionResult.misuse(context);
+                    }
+                } else if (arg.length() > 1 && arg.startsWith("-") && files.isEmpty()) {
+                    for (char c : arg.substring(1).toCharArray()) {
+                        switch (c) {
+                            case 'l' -> lines = true;
+                            case 'w' -> words = true;
+                            case 'm' -> chars = true;
+                            case 'c' -> bytes = true;
+                            case 'Z' -> decompress = true;
+                            default -> {
+                                System.err.println("usage: " + usage());
+                                return ExecutionResult.misuse(context);
+                            }
+                        }
+                    }
+                } else {
+                    files.add(arg);
+                }
             }
-
-            boolean linesOnly = false;
-            boolean wordsOnly = false;
-            boolean charsOnly = false;
-
-            int fileArgIndex = 1;
-            if (args[1].equals("-l")) { linesOnly = true; fileArgIndex = 2; }
-            else if (args[1].equals("-w")) { wordsOnly = true; fileArgIndex = 2; }
-            else if (args[1].equals("-c")) { charsOnly = true; fileArgIndex = 2; }
-
-            if (fileArgIndex >= args.length) {
+            if (files.isEmpty()) {
                 System.err.println("usage: " + usage());
                 return ExecutionResult.misuse(context);
             }
-
-            String fileName = args[fileArgIndex];
-            File file = new File(context.currentDirectory(), fileName);
-            if (!file.exists()) {
-                System.err.println("wc: " + fileName + ": No such file");
-                return ExecutionResult.fail(context);
-            }
-
-            long lines = 0, words = 0, chars = 0;
-            try (BufferedReader reader = Files.newBufferedReader(file.toPath())) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    lines++;
-                    chars += line.length();
-                    if (!line.isBlank()) {
-                        words += line.trim().split("\\s+").length;
+            if (!lines && !words && !chars && !bytes) lines = words = bytes = true;
+
+            boolean failed = false;
+            ByteCounter.Counts total = ByteCounter.Counts.ZERO;
+            for (String fileName : files) {
+                File file = new File(context.currentDirectory(), fileName);
+                if (!file.exists()) {
+                    System.err.println("wc: " + fileName + ": No such file");
+                    failed = true;
+                    continue;
+                }
+                if (file.isDirectory()) {
+                    System.err.println("wc: " + fileName + ": Is a directory");
+                    failed = true;
+                    continue;
+                }
+                try {
+                    ByteCounter.Counts counts;
+                    if (decompress) {
+                        try (var in = GzipStream.open(file.toPath())) {
+                            counts = ByteCounter.count(in);
+                        }
+                    } else {
+                        counts = ByteCounter.count(file.toPath(), threads);
                     }
+                    print(counts, fileName, lines, words, chars, bytes);
+                    total = total.plus(counts);
+                } catch (IOException e) {
+                    System.err.println("wc: " + fileName + ": " + e.getMessage());
+                    failed = true;
                 }
-            } catch (IOException e) {
-                System.err.println("wc: " + e.getMessage());
-                return ExecutionResult.fail(context);
             }
+            if (files.size() > 1) print(total, "total", lines, words, chars, bytes);
 
-            if (linesOnly)      System.out.printf("%7d %s%n", lines, fileName);
-            else if (wordsOnly) System.out.printf("%7d %s%n", words, fileName);
-            else if (charsOnly) System.out.printf("%7d %s%n", chars, fileName);
-            else                System.out.printf("%7d %7d %7d %s%n", lines, words, chars, fileName);
+            return failed ? ExecutionResult.fail(context) : ExecutionResult.ok(context);
+        }
 
-            return ExecutionResult.ok(context);
+        /** Selected columns in the fixed order lines, words, chars, bytes. */
+        private static void print(ByteCounter.Counts counts, String label,
+                                  boolean lines, boolean words, boolean chars, boolean bytes) {
+            var sb = new StringBuilder();
+            if (lines) sb.append(String.format("%7d ", counts.lines()));
+            if (words) sb.append(String.format("%7d ", counts.words()));
+            if (chars) sb.append(String.format("%7d ", counts.chars()));
+            if (bytes) sb.append(String.format("%7d ", counts.bytes()));
+            System.out.println(sb.append(label));
         }
 
         @Override public String name()  { return "wc"; }
-        @Override public String usage() { return "wc [-l|-w|-c] <file>"; }
+        @Override public String usage() { return "wc [-lwmcZ] [-j threads] <file...>"; }
     }
 
+    /**
+     * Lines of both files are interned to int ids in one LineCounts table and
+     * diffed with MyersDiff in linear space. The default output lists the
+     * changed lines as "- line" / "+ line"; -u prints unified hunks with N
+     * lines of context (default 3). -q only reports whether the files differ.
+     * -r compares two directory trees with TreeDiff.
+     */
     public static final class DiffCommand implements Command {
 
         @Override
         public ExecutionResult execute(ShellContext context, String[] args) {
-            if (args.length < 3) {
+            int unified = -1;
+            boolean recursive = false, brief = false;
+            List<String> operands = new ArrayList<>();
+            for (int i = 1; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("-u")) {
+                    // "-u N" when N is a number followed by both files
+                    boolean count = i + 3 < args.length && args[i + 1].matches("\\d+");
+                    unified = count ? Integer.parseInt(args[++i]) : 3;
+                } else if (arg.matches("-u\\d+")) {
+                    unified = Integer.parseInt(arg.substring(2));
+                } else if (arg.equals("-U") && i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                    unified = Integer.parseInt(args[++i]);
+                } else if (arg.matches("-[rq]+")) {
+                    recursive |= arg.indexOf('r') > 0;
+                    brief |= arg.indexOf('q') > 0;
+                } else if (arg.startsWith("-") && arg.length() > 1) {
+                    operands.clear();
+                    break;
+                } else {
+                    operands.add(arg);
+                }
+            }
+            if (operands.size() != 2) {
                 System.err.println("usage: " + usage());
                 return ExecutionResult.misuse(context);
             }
 
-            File file1 = new File(context.currentDirectory(), args[1]);
-            File file2 = new File(context.currentDirectory(), args[2]);
+            String name1 = operands.get(0), name2 = operands.get(1);
+            File file1 = new File(context.currentDirectory(), name1);
+            File file2 = new File(context.currentDirectory(), name2);
 
-            if (!file1.exists()) { System.err.println("diff: '" + args[1] + "': No such file"); return ExecutionResult.fail(context); }
-            if (!file2.exists()) { System.err.println("diff: '" + args[2] + "': No such file"); return ExecutionResult.fail(context); }
+            if (!file1.exists()) { System.err.println("diff: '" + name1 + "': No such file"); return ExecutionResult.fail(context); }
+            if (!file2.exists()) { System.err.println("diff: '" + name2 + "': No such file"); return ExecutionResult.fail(context); }
+            if (file1.isDirectory() != file2.isDirectory() || (file1.isDirectory() && !recursive)) {
+                String dir = file1.isDirectory() ? name1 : name2;
+                System.err.println("diff: '" + dir + "': Is a directory" + (recursive ? "" : " (use -r)"));
+                return ExecutionResult.fail(context);
+            }
 
             try {
-                List<String> a = Files.readAllLines(file1.toPath());
-                List<String> b = Files.readAllLines(file2.toPath());
-                List<String> editScript = myers(a, b);
-
-                if (editScript.isEmpty()) {
-                    System.out.println("Files are identical.");
-                    return ExecutionResult.ok(context);
+                var out = new BufferedOutputStream(System.out, LineScanner.OUTPUT_BUFFER);
+                int code;
+                if (file1.isDirectory()) {
+                    code = TreeDiff.run(file1.toPath(), file2.toPath(), stripSlash(name1), stripSlash(name2),
+                        brief, unified, Runtime.getRuntime().availableProcessors(), out);
+                } else if (TreeDiff.sameContent(file1.toPath(), file2.toPath())) {
+                    if (unified < 0 && !brief) System.out.println("Files are identical.");
+                    code = 0;
+                } else if (brief) {
+                    out.write(("Files " + name1 + " and " + name2 + " differ\n").getBytes(StandardCharsets.UTF_8));
+                    code = 1;
                 } else {
-                    editScript.forEach(System.out::println);
-                    // exit 1 = files differ (POSIX diff convention)
-                    return ExecutionResult.of(context, 1);
+                    // equal content in different bytes (e.g. a missing final newline) still diffs empty
+                    code = diffFiles(file1.toPath(), file2.toPath(), name1, name2, unified, out) ? 1 : 0;
+                    if (code == 0 && unified < 0) System.out.println("Files are identical.");
                 }
-            } catch (IOException e) {
+                out.flush();
+                // exit 1 = files differ (POSIX diff convention)
+                return ExecutionResult.of(context, code);
+            } catch (IOException | IllegalStateException e) {
                 System.err.println("diff: " + e.getMessage());
                 return ExecutionResult.fail(context);
             }
         }
 
+        /** Writes the line diff of two files; returns false (writing nothing) if their lines are equal. */
+        static boolean diffFiles(Path file1, Path file2, String name1, String name2, int unified,
+                                 OutputStream out) throws IOException {
+            var lines = new LineCounts();
+            int[] a = intern(file1, lines);
+            int[] b = intern(file2, lines);
+            MyersDiff.Result result = MyersDiff.diff(a, b);
+            if (result.identical()) return false;
+            if (unified < 0) {
+                writeChanges(out, a, b, result, lines);
+            } else {
+                writeUnified(out, name1, name2, a, b, result, lines, unified);
+            }
+            return true;
+        }
+
+        private static String stripSlash(String operand) {
+            return operand.length() > 1 && operand.endsWith("/")
+                ? operand.substring(0, operand.length() - 1) : operand;
+        }
+
+        /** The file as a sequence of line ids from the shared table. */
+        private static int[] intern(Path file, LineCounts lines) throws IOException {
+            int[] ids = new int[1024];
+            int n = 0;
+            try (var scanner = LineScanner.open(file)) {
+                LineScanner.Line line;
+                while ((line = scanner.next()) != null) {
+                    if (n == ids.length) ids = Arrays.copyOf(ids, n * 2);
+                    ids[n++] = lines.add(line);
+                }
+            }
+            return Arrays.copyOf(ids, n);
+        }
+
+        /** "- line" for each deletion and "+ line" for each insertion, deletions first within a change. */
+        private static void writeChanges(OutputStream out, int[] a, int[] b, MyersDiff.Result r,
+                                         LineCounts lines) throws IOException {
+            int i = 0, j = 0;
+            while (i < a.length || j < b.length) {
+                if (i < a.length && r.deleted()[i]) {
+                    writeLine(out, "- ", a[i++], lines);
+                } else if (j < b.length && r.inserted()[j]) {
+                    writeLine(out, "+ ", b[j++], lines);
+                } else {
+                    i++;
+                    j++;
+                }
+            }
+        }
+
         /**
-         * Myers O(ND) diff algorithm.
-         * Produces a minimal edit script: lines prefixed with "-" are only in a,
-         * "+" only in b, " " are common. This correctly handles insertions and
-         * deletions — unlike line-number alignment which offsets on any insertion.
+         * Unified format: a hunk covers a run of changes plus up to context
+         * common lines around it; changes closer than 2 * context share a hunk.
          */
-        private List<String> myers(List<String> a, List<String> b) {
-            int n = a.size(), m = b.size();
-            int max = n + m;
-            if (max == 0) return List.of();
-
-            // v[k] = furthest x reached on diagonal k
-            // offset by max so negative diagonals index correctly
-            int[] v = new int[2 * max + 1];
-            // trace[d] = snapshot of v after d edits
-            List<int[]> trace = new ArrayList<>();
-
-            outer:
-            for (int d = 0; d <= max; d++) {
-                trace.add(v.clone());
-                for (int k = -d; k <= d; k += 2) {
-                    int idx = k + max;
-                    int x;
-                    if (k == -d || (k != d && v[idx - 1] < v[idx + 1])) {
-                        x = v[idx + 1]; // move down (insertion)
+        private static void writeUnified(OutputStream out, String name1, String name2, int[] a, int[] b,
+                                         MyersDiff.Result r, LineCounts lines, int context) throws IOException {
+            boolean[] del = r.deleted(), ins = r.inserted();
+            out.write(("--- " + name1 + "\n+++ " + name2 + "\n").getBytes(StandardCharsets.UTF_8));
+
+            int i = 0, j = 0;
+            while (true) {
+                // skip to the next change, tracking the common run before it
+                while (i < a.length && j < b.length && !del[i] && !ins[j]) { i++; j++; }
+                if (i == a.length && j == b.length) return;
+
+                int start1 = Math.max(0, i - context), start2 = j - (i - start1);
+                int end1 = i, end2 = j;
+                // extend the hunk while the next change is within 2 * context common lines
+                while (true) {
+                    while (end1 < a.length && del[end1]) end1++;
+                    while (end2 < b.length && ins[end2]) end2++;
+                    int common = 0;
+                    while (end1 + common < a.length && end2 + common < b.length
+                           && !del[end1 + common] && !ins[end2 + common] && common <= 2 * context) common++;
+                    boolean more = (end1 + common < a.length && del[end1 + common])
+                                || (end2 + common < b.length && ins[end2 + common]);
+                    if (more && common <= 2 * context) {
+                        end1 += common;
+                        end2 += common;
                     } else {
-                        x = v[idx - 1] + 1; // move right (deletion)
+                        int tail = Math.min(common, context);
+                        end1 += tail;
+                        end2 += tail;
+                        break;
                     }
-                    int y = x - k;
-                    // extend snake along matching diagonal
-                    while (x < n && y < m && a.get(x).equals(b.get(y))) {
-                        x++; y++;
+                }
+
+                out.write(("@@ -" + range(start1, end1) + " +" + range(start2, end2) + " @@\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+                int x = start1, y = start2;
+                while (x < end1 || y < end2) {
+                    if (x < end1 && del[x]) {
+                        while (x < end1 && del[x]) writeLine(out, "-", a[x++], lines);
+                        while (y < end2 && ins[y]) writeLine(out, "+", b[y++], lines);
+                    } else if (y < end2 && ins[y]) {
+                        while (y < end2 && ins[y]) writeLine(out, "+", b[y++], lines);
+                    } else {
+                        writeLine(out, " ", a[x++], lines);
+                        y++;
                     }
-                    v[idx] = x;
-                    if (x >= n && y >= m) break outer;
                 }
+                i = end1;
+                j = end2;
             }
+        }
+
+        /** "start,count" with 1-based start; an empty range names the line before it, as GNU diff does. */
+        private static String range(int from, int to) {
+            int count = to - from;
+            if (count == 1) return Integer.toString(from + 1);
+            return (count == 0 ? from : from + 1) + "," + count;
+        }
 
-            return backtrack(a, b, trace, max);
+        private static void writeLine(OutputStream out, String prefix, int id, LineCounts lines) throws IOException {
+            out.write(prefix.getBytes(StandardCharsets.US_ASCII));
+            lines.write(out, id);
+            out.write('\n');
         }
 
-        private List<String> backtrack(List<String> a, List<String> b, List<int[]> trace, int max) {
-            List<String> script = new ArrayList<>();
-            int x = a.size(), y = b.size();
+        @Override public String name()  { return "diff"; }
+        @Override public String usage() { return "diff [-rq] [-u [N]] <file1> <file2>"; }
+    }
 
-            for (int d = trace.size() - 1; d >= 0; d--) {
-                int[] v = trace.get(d);
-                int k   = x - y;
-                int idx = k + max;
+    /**
+     * Byte-wise comparison of two files. Both are mapped a window at a time
+     * and compared with ByteBuffer.mismatch, so equal regions go by at memory
+     * speed; lines are only counted when the first difference is reported.
+     * -i skips a prefix of each file and -n bounds the compared length. Under
+     * -s, files whose compared lengths differ are reported without reading.
+     */
+    public static final class CmpCommand implements Command {
 
-                int prevK;
-                if (k == -d || (k != d && v[idx - 1] < v[idx + 1])) {
-                    prevK = k + 1; // came from insertion
-                } else {
-                    prevK = k - 1; // came from deletion
+        static final long WINDOW = 64L * 1024 * 1024;
+
+        @Override
+        public ExecutionResult execute(ShellContext context, String[] args) {
+            boolean list = false, silent = false;
+            long skip1 = 0, skip2 = 0, limit = Long.MAX_VALUE;
+            List<String> operands = new ArrayList<>();
+            try {
+                for (int i = 1; i < args.length; i++) {
+                    String arg = args[i];
+                    if (arg.matches("-[ls]+")) {
+                        list |= arg.indexOf('l') > 0;
+                        silent |= arg.indexOf('s') > 0;
+                    } else if ((arg.equals("-i") || arg.equals("-n")) && i + 1 < args.length) {
+                        String value = args[++i];
+                        if (arg.equals("-n")) {
+                            limit = Long.parseLong(value);
+                        } else {
+                            int colon = value.indexOf(':');
+                            skip1 = Long.parseLong(colon < 0 ? value : value.substring(0, colon));
+                            skip2 = colon < 0 ? skip1 : Long.parseLong(value.substring(colon + 1));
+                        }
+                        if (skip1 < 0 || skip2 < 0 || limit < 0) throw new NumberFormatException();
+                    } else if (arg.startsWith("-") && arg.length() > 1) {
+                        operands.clear();
+                        break;
+                    } else {
+                        operands.add(arg);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                System.err.println("cmp: invalid byte count");
+                return ExecutionResult.misuse(context);
+            }
+            if (operands.size() != 2 || (list && silent)) {
+                System.err.println("usage: " + usage());
+                return ExecutionResult.misuse(context);
+            }
+
+            String name1 = operands.get(0), name2 = operands.get(1);
+            File file1 = new File(context.currentDirectory(), name1);
+            File file2 = new File(context.currentDirectory(), name2);
+            if (!file1.isFile()) { System.err.println("cmp: '" + name1 + "': " + (file1.exists() ? "Is a directory" : "No such file")); return ExecutionResult.fail(context); }
+            if (!file2.isFile()) { System.err.println("cmp: '" + name2 + "': " + (file2.exists() ? "Is a directory" : "No such file")); return ExecutionResult.fail(context); }
+
+            long length1 = Math.min(limit, Math.max(0, file1.length() - skip1));
+            long length2 = Math.min(limit, Math.max(0, file2.length() - skip2));
+            if (silent && length1 != length2) return ExecutionResult.of(context, 1);
+
+            try (var c1 = FileChannel.open(file1.toPath(), StandardOpenOption.READ);
+                 var c2 = FileChannel.open(file2.toPath(), StandardOpenOption.READ)) {
+                var out = new BufferedOutputStream(System.out, LineScanner.OUTPUT_BUFFER);
+                long common = Math.min(length1, length2);
+                long lines = 1;
+                boolean differ = false;
+                for (long at = 0; at < common; at += WINDOW) {
+                    int len = (int) Math.min(WINDOW, common - at);
+                    MappedByteBuffer m1 = c1.map(FileChannel.MapMode.READ_ONLY, skip1 + at, len);
+                    MappedByteBuffer m2 = c2.map(FileChannel.MapMode.READ_ONLY, skip2 + at, len);
+                    int pos = 0;
+                    while (pos < len) {
+                        int d = m1.slice(pos, len - pos).mismatch(m2.slice(pos, len - pos));
+                        if (d < 0) {
+                            if (!list && !silent) lines += ByteCounter.count(m1, pos, len, true).lines();
+                            break;
+                        }
+                        differ = true;
+                        long byteNo = at + pos + d + 1;
+                        if (silent) return ExecutionResult.of(context, 1);
+                        if (!list) {
+                            lines += ByteCounter.count(m1, pos, pos + d, true).lines();
+                            System.out.println(name1 + " " + name2 + " differ: byte " + byteNo + ", line " + lines);
+                            return ExecutionResult.of(context, 1);
+                        }
+                        out.write(String.format("%d %3o %3o%n", byteNo, m1.get(pos + d) & 0xff, m2.get(pos + d) & 0xff)
+                            .getBytes(StandardCharsets.US_ASCII));
+                        pos += d + 1;
+                    }
+                }
+                out.flush();
+
+                if (length1 != length2) {
+                    // one file is a prefix of the other (within the compared range)
+                    String shorter = length1 < length2 ? name1 : name2;
+                    String line = "";
+                    if (!list) {
+                        // GNU wording: "line N" after a complete line, "in line N" partway through one
+                        boolean complete = common > 0 && endsWithNewline(c1, skip1 + common);
+                        line = complete ? ", line " + (lines - 1) : ", in line " + lines;
+                    }
+                    System.err.println("cmp: EOF on " + shorter
+                        + (common == 0 ? " which is empty" : " after byte " + common + line));
+                    return ExecutionResult.of(context, 1);
                 }
+                return ExecutionResult.of(context, differ ? 1 : 0);
+            } catch (IOException e) {
+                System.err.println("cmp: " + e.getMessage());
+                return ExecutionResult.fail(context);
+            }
+        }
 
-                int prevX = v[prevK + max];
-                int prevY = prevX - prevK;
+        /** Whether the byte before position end is a newline: then EOF falls on the last line, not a new one. */
+        private static boolean endsWithNewline(FileChannel channel, long end) throws IOException {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            return channel.read(last, end - 1) == 1 && last.get(0) == '\n';
+        }
 
-                // walk back along snake (matching lines)
-                while (x > prevX && y > prevY) {
-                    script.add(0, "  " + a.get(x - 1));
-                    x--; y--;
+        @Override public String name()  { return "cmp"; }
+        @Override public String usage() { return "cmp [-l | -s] [-i skip[:skip2]] [-n bytes] <file1> <file2>"; }
+    }
+
+    public static final class IndexCommand implements Command {
+
+        @Override
+        public ExecutionResult execute(ShellContext context, String[] args) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            int i = 2;
+            if (args.length > 3 && args[2].equals("-j")) {
+                try {
+                    threads = Integer.parseInt(args[3]);
+                } catch (NumberFormatException e) {
+                    threads = 0;
                 }
+                i = 4;
+            }
+            if (args.length != i + 1 || !args[1].equals("build") || threads < 1) {
+                System.err.println("usage: " + usage());
+                return ExecutionResult.misuse(context);
+            }
 
-                if (d > 0) {
-                    if (x == prevX) {
-                        script.add(0, "+ " + b.get(y - 1)); // insertion
-                        y--;
-                    } else {
-                        script.add(0, "- " + a.get(x - 1)); // deletion
-                        x--;
+            File dir = new File(context.currentDirectory(), args[i]);
+            if (!dir.isDirectory()) {
+                System.err.println("index: '" + args[i] + "': No such directory");
+                return ExecutionResult.fail(context);
+            }
+
+            try {
+                TrigramIndex.BuildStats stats = TrigramIndex.build(dir.toPath(), threads);
+                System.out.printf("indexed %d files (%d read, %d unchanged, %d removed), %d trigrams, %s%n",
+                    stats.files(), stats.read(), stats.unchanged(), stats.removed(), stats.trigrams(),
+                    ByteFormatter.format(stats.bytes()));
+                return ExecutionResult.ok(context);
+            } catch (IOException e) {
+                System.err.println("index: " + e.getMessage());
+                return ExecutionResult.fail(context);
+            }
+        }
+
+        @Override public String name()  { return "index"; }
+        @Override public String usage() { return "index build [-j threads] <dir>"; }
+    }
+
+    /**
+     * grep over an indexed tree: the pattern's required trigrams pick the
+     * candidate files from the index, and only those are read. Files changed
+     * since the build are always searched; files created since are not
+     * seen until the next index build.
+     */
+    public static final class SearchCommand implements Command {
+
+        @Override
+        public ExecutionResult execute(ShellContext context, String[] args) {
+            // grep's option set; -r makes the directory operand optional (default ".")
+            String[] grepArgs = new String[args.length + 1];
+            grepArgs[0] = args[0];
+            grepArgs[1] = "-r";
+            System.arraycopy(args, 1, grepArgs, 2, args.length - 1);
+            GrepOptions options;
+            try {
+                options = GrepOptions.parse(grepArgs);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage() != null ? "search: " + e.getMessage() : "usage: " + usage());
+                return ExecutionResult.misuse(context);
+            }
+            if (options.operands.size() != 1) {
+                System.err.println("usage: " + usage());
+                return ExecutionResult.misuse(context);
+            }
+
+            String operand = options.operands.get(0);
+            File dir = new File(context.currentDirectory(), operand);
+            if (!dir.isDirectory()) {
+                System.err.println("search: '" + operand + "': No such directory");
+                return ExecutionResult.fail(context);
+            }
+
+            try {
+                TrigramIndex index;
+                try {
+                    index = TrigramIndex.open(dir.toPath());
+                } catch (IOException e) {
+                    System.err.println("search: no usable index in '" + operand + "' — run 'index build " + operand + "'");
+                    return ExecutionResult.fail(context);
+                }
+
+                List<String> patterns = TextCommands.GrepCommand.patterns(context, options);
+                LineMatcher matcher = context.matchers().get(patterns, options);
+                boolean[] searched = new boolean[index.fileCount()];
+                for (int id : index.candidates(query(patterns, options))) searched[id] = true;
+
+                int stale = 0;
+                String prefix = operand.equals(".") ? "" : operand.replaceAll("/+$", "") + "/";
+                List<TreeGrep.Target> targets = new ArrayList<>();
+                for (int id = 0; id < searched.length; id++) {
+                    if (index.isStale(id)) {
+                        stale++;
+                        searched[id] = true;
+                    }
+                    Path file = dir.toPath().resolve(index.path(id));
+                    if (searched[id] && Files.isRegularFile(file)) {
+                        targets.add(new TreeGrep.Target(file, prefix + index.path(id)));
                     }
                 }
+
+                var out = new BufferedOutputStream(System.out, LineScanner.OUTPUT_BUFFER);
+                TreeGrep.Summary summary = TreeGrep.searchTargets(targets, options, matcher, true, true, out);
+                out.flush();
+                if (stale > 0) {
+                    System.err.println("search: " + stale + " file(s) changed since the index was built; "
+                        + "run 'index build " + operand + "'");
+                }
+                if (summary.selected() > 0) return ExecutionResult.ok(context);
+                return ExecutionResult.of(context, summary.errors() ? 2 : 1);
+            } catch (PatternSyntaxException e) {
+                System.err.println("search: invalid pattern '" + e.getPattern() + "': " + e.getDescription());
+                return ExecutionResult.fail(context);
+            } catch (IOException e) {
+                System.err.println("search: " + e.getMessage());
+                return ExecutionResult.fail(context);
             }
-            // filter out context lines (common lines) for concise output
-            return script.stream().filter(l -> !l.startsWith("  ")).toList();
         }
 
-        @Override public String name()  { return "diff"; }
-        @Override public String usage() { return "diff <file1> <file2>"; }
+        /** Trigrams a selected line must contain; -v and -L select by absence, so every file qualifies. */
+        private static TrigramQuery query(List<String> patterns, GrepOptions o) {
+            if (o.invert || o.listNonMatching || patterns.isEmpty()) return TrigramQuery.ALL;
+            List<TrigramQuery> any = new ArrayList<>();
+            for (String p : patterns) any.add(o.fixed ? TrigramQuery.literal(p) : TrigramQuery.of(p));
+            return any.size() == 1 ? any.get(0) : new TrigramQuery.Or(any);
+        }
+
+        @Override public String name()  { return "search"; }
+        @Override public String usage() { return "search [grep options] <pattern> [dir]"; }
     }
 }
@@ -11,19 +11,25 @@ import java.util.List;
  * currentDirectory is a canonical path invariant — always fully resolved.
  * history is append-only; the public view is unmodifiable.
  * cd produces a new ShellContext via withDirectory() — no mutation.
+ * matchers is a session-wide cache, carried over by withDirectory() like history.
+ * http is the session's HTTP client pool, shared the same way.
  */
 public final class ShellContext {
 
     private final File currentDirectory;
     private final List<String> history;
+    private final MatcherCache matchers;
+    private final HttpSession http;
 
     public ShellContext(File startDirectory) {
-        this(canonicalize(startDirectory), new ArrayList<>());
+        this(canonicalize(startDirectory), new ArrayList<>(), new MatcherCache(), new HttpSession());
     }
 
-    private ShellContext(File directory, List<String> history) {
+    private ShellContext(File directory, List<String> history, MatcherCache matchers, HttpSession http) {
         this.currentDirectory = directory;
         this.history = history;
+        this.matchers = matchers;
+        this.http = http;
     }
 
     public File currentDirectory() {
@@ -35,7 +41,15 @@ public final class ShellContext {
      * Caller must pass a canonical file (CdCommand is responsible for this).
      */
     public ShellContext withDirectory(File canonical) {
-        return new ShellContext(canonical, history);
+        return new ShellContext(canonical, history, matchers, http);
+    }
+
+    public MatcherCache matchers() {
+        return matchers;
+    }
+
+    public HttpSession http() {
+        return http;
     }
 
     public void addHistory(String command) {
@@ -0,0 +1,222 @@
+package com.devops;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The ordering sort applies: one or more -k fields, each compared as text
+ * or as a number, then (unless -s or -u) the whole line as a last resort.
+ *
+ * Keys are computed once per line, never inside a comparison. Each key
+ * field is a long column in {@link Keys}: numeric fields hold the parsed
+ * value as order-preserving bits, text fields hold the field's [start, end)
+ * offsets packed into one long, so a text comparison is a byte compare of
+ * two slices with no copy and no decoding.
+ */
+public final class SortKey {
+
+    /**
+     * One -k field: from character startChar of field startField to
+     * character endChar of field endField (0 = the end of that field),
+     * all 1-based; endField 0 means the end of the line.
+     */
+    public record Field(int startField, int startChar, int endField, int endChar,
+                        boolean numeric, boolean human, boolean fold, boolean reverse, boolean skipBlanks) {
+
+        static Field wholeLine(boolean numeric, boolean human, boolean fold, boolean reverse, boolean skipBlanks) {
+            return new Field(1, 1, 0, 0, numeric, human, fold, reverse, skipBlanks);
+        }
+
+        boolean numberLike() {
+            return numeric || human;
+        }
+    }
+
+    private final Field[] fields;
+    private final int separator;        // -t byte, or -1 for blank-separated fields
+    private final boolean lastResort;
+    private final boolean reverse;      // applies to the last-resort comparison
+    private final boolean plain;        // the whole line as bytes: the key is the line itself
+
+    public SortKey(List<Field> fields, int separator, boolean lastResort, boolean reverse) {
+        this.fields = fields.toArray(new Field[0]);
+        this.separator = separator;
+        Field only = this.fields.length == 1 ? this.fields[0] : null;
+        this.plain = only != null && only.equals(Field.wholeLine(false, false, false, only.reverse(), false));
+        this.lastResort = lastResort && !plain;
+        this.reverse = reverse;
+    }
+
+    /** Heap bytes one line's keys occupy while a run is sorted (columns and permutation). */
+    int bytesPerLine() {
+        return 8 * fields.length + 8;
+    }
+
+    /** The key columns of a batch of lines, row i belonging to lines[i]. */
+    public final class Keys {
+        final byte[][] lines;
+        private final long[][] columns;
+
+        Keys(byte[][] lines) {
+            this.lines = lines;
+            this.columns = new long[plain ? 0 : fields.length][lines.length];
+            if (!plain) {
+                for (int row = 0; row < lines.length; row++) set(row, lines[row]);
+            }
+        }
+
+        /** Replaces the line in row and recomputes its keys. */
+        void set(int row, byte[] line) {
+            lines[row] = line;
+            if (plain) return;
+            for (int k = 0; k < fields.length; k++) columns[k][row] = extract(fields[k], line);
+        }
+    }
+
+    public Keys keys(byte[][] lines) {
+        return new Keys(lines);
+    }
+
+    /** A reusable single-row Keys, for comparing lines one at a time. */
+    Keys row() {
+        return new Keys(new byte[][]{new byte[0]});
+    }
+
+    /** Orders row i of a against row j of b by the key fields, then by the whole line if enabled. */
+    int compare(Keys a, int i, Keys b, int j) {
+        int c = compareFields(a, i, b, j);
+        if (c != 0 || !lastResort) return c;
+        c = Arrays.compareUnsigned(a.lines[i], b.lines[j]);
+        return reverse ? -c : c;
+    }
+
+    /** Key fields only — equal here means a duplicate under -u. */
+    int compareFields(Keys a, int i, Keys b, int j) {
+        if (plain) {
+            int c = Arrays.compareUnsigned(a.lines[i], b.lines[j]);
+            return fields[0].reverse() ? -c : c;
+        }
+        for (int k = 0; k < fields.length; k++) {
+            Field f = fields[k];
+            long x = a.columns[k][i], y = b.columns[k][j];
+            int c;
+            if (f.numberLike()) {
+                c = Long.compare(x, y);
+            } else {
+                byte[] l = a.lines[i], r = b.lines[j];
+                int ls = (int) (x >>> 32), le = (int) x, rs = (int) (y >>> 32), re = (int) y;
+                c = f.fold() ? compareFolded(l, ls, le, r, rs, re) : Arrays.compareUnsigned(l, ls, le, r, rs, re);
+            }
+            if (c != 0) return f.reverse() ? -c : c;
+        }
+        return 0;
+    }
+
+    private long extract(Field f, byte[] line) {
+        int start = position(line, f.startField(), f.startChar(), f.skipBlanks(), false);
+        int end = f.endField() == 0
+            ? line.length
+            : position(line, f.endField(), f.endChar(), f.skipBlanks(), true);
+        if (end < start) end = start;
+        if (f.numberLike()) return sortable(number(line, start, end, f.human()));
+        return ((long) start << 32) | end;
+    }
+
+    /**
+     * Offset of character c in field n. Without -t a field is a run of
+     * blanks followed by non-blanks, so leading blanks belong to the field
+     * unless skipBlanks; with -t fields are split on the separator. For an
+     * end position c = 0 means the end of the field.
+     */
+    private int position(byte[] line, int n, int c, boolean skipBlanks, boolean end) {
+        int i = 0;
+        for (int field = 1; field < n && i < line.length; field++) {
+            if (separator >= 0) {
+                while (i < line.length && line[i] != (byte) separator) i++;
+                if (i < line.length) i++;
+            } else {
+                while (i < line.length && isBlank(line[i])) i++;
+                while (i < line.length && !isBlank(line[i])) i++;
+            }
+        }
+        if (skipBlanks) {
+            while (i < line.length && isBlank(line[i])) i++;
+        }
+        if (end && c == 0) {
+            if (separator >= 0) {
+                while (i < line.length && line[i] != (byte) separator) i++;
+            } else {
+                while (i < line.length && isBlank(line[i])) i++;
+                while (i < line.length && !isBlank(line[i])) i++;
+            }
+            return i;
+        }
+        return Math.min(line.length, i + (end ? c : c - 1));
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private static int compareFolded(byte[] l, int ls, int le, byte[] r, int rs, int re) {
+        int n = Math.min(le - ls, re - rs);
+        for (int k = 0; k < n; k++) {
+            int x = upper(l[ls + k]), y = upper(r[rs + k]);
+            if (x != y) return x - y;
+        }
+        return (le - ls) - (re - rs);
+    }
+
+    private static int upper(byte b) {
+        int c = b & 0xFF;
+        return c >= 'a' && c <= 'z' ? c - 32 : c;
+    }
+
+    private static final double[] POWERS = {1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+        1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+    private static final String SUFFIXES = "KMGTPEZY";
+
+    /**
+     * The number at the start of [from, to) after blanks, as sort -n reads
+     * it: an optional '-', digits and an optional fraction. No number is 0.
+     * With human, a K/M/G/... suffix scales it by powers of 1024 (as du -h prints).
+     */
+    static double number(byte[] line, int from, int to, boolean human) {
+        int i = from;
+        while (i < to && isBlank(line[i])) i++;
+        boolean negative = i < to && line[i] == '-';
+        if (negative) i++;
+        int digitsFrom = i;
+        long mantissa = 0;
+        int digits = 0, fraction = 0;
+        while (i < to && line[i] >= '0' && line[i] <= '9') {
+            mantissa = mantissa * 10 + (line[i++] - '0');
+            digits++;
+        }
+        if (i < to && line[i] == '.') {
+            i++;
+            while (i < to && line[i] >= '0' && line[i] <= '9') {
+                mantissa = mantissa * 10 + (line[i++] - '0');
+                digits++;
+                fraction++;
+            }
+        }
+        if (digits == 0) return 0;
+
+        double value = digits <= 15
+            ? mantissa / POWERS[fraction]   // both operands exact, so the quotient is correctly rounded
+            : Double.parseDouble(new String(line, digitsFrom, i - digitsFrom, StandardCharsets.US_ASCII));
+        if (human && i < to) {
+            int scale = SUFFIXES.indexOf(Character.toUpperCase((char) (line[i] & 0xFF))) + 1;
+            value *= Math.pow(1024, scale);
+        }
+        return negative ? -value : value;
+    }
+
+    /** Bits of d whose signed long order is d's numeric order. */
+    static long sortable(double d) {
+        long bits = Double.doubleToLongBits(d + 0.0);   // + 0.0 turns -0.0 into 0.0
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,167 @@
+package com.devops;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parsed sort command line. Flags may be bundled ("-rn"); -k, -t, -S and
+ * -T take their value attached ("-S64M") or as the next argument, and "--"
+ * ends the options. parse() throws IllegalArgumentException with a
+ * user-facing message (or none, meaning "print usage").
+ *
+ * A -k field is start[,end] where each end is F[.C] plus optional letters
+ * from "bfhnr"; a field with no letters of its own inherits the global
+ * flags, as in GNU sort.
+ */
+public final class SortOptions {
+
+    boolean reverse;            // -r
+    boolean numeric;            // -n
+    boolean human;              // -h: 2K < 1M
+    boolean foldCase;           // -f
+    boolean skipBlanks;         // -b
+    boolean unique;             // -u: first of each group of equal keys
+    boolean stable;             // -s: no last-resort whole-line comparison
+    int separator = -1;         // -t
+    final List<String> keySpecs = new ArrayList<>();   // -k
+    long memory;                // -S, bytes; 0 = a quarter of the heap
+    String tmpDir;              // -T, null = java.io.tmpdir
+
+    final List<String> files = new ArrayList<>();
+
+    private SortOptions() {}
+
+    public static SortOptions parse(String[] args) {
+        var o = new SortOptions();
+        int i = 1;
+        for (; i < args.length && args[i].startsWith("-") && args[i].length() > 1; i++) {
+            String opt = args[i];
+            if (opt.equals("--")) { i++; break; }
+            if (opt.startsWith("--")) throw new IllegalArgumentException("unknown option '" + opt + "'");
+
+            for (int k = 1; k < opt.length(); k++) {
+                char flag = opt.charAt(k);
+                if ("STkt".indexOf(flag) >= 0) {
+                    String value;
+                    if (k + 1 < opt.length())      value = opt.substring(k + 1);
+                    else if (i + 1 < args.length)  value = args[++i];
+                    else throw new IllegalArgumentException("-" + flag + " needs a value");
+                    o.set(flag, value);
+                    break;
+                }
+                o.set(flag);
+            }
+        }
+        while (i < args.length) o.files.add(args[i++]);
+        if (o.files.isEmpty()) throw new IllegalArgumentException((String) null);
+        if (o.numeric && o.human) throw new IllegalArgumentException("-n and -h are mutually exclusive");
+        o.key();   // reject a bad -k before any input is read
+        return o;
+    }
+
+    private void set(char flag) {
+        switch (flag) {
+            case 'r' -> reverse = true;
+            case 'n' -> numeric = true;
+            case 'h' -> human = true;
+            case 'f' -> foldCase = true;
+            case 'b' -> skipBlanks = true;
+            case 'u' -> unique = true;
+            case 's' -> stable = true;
+            default  -> throw new IllegalArgumentException("unknown option '-" + flag + "'");
+        }
+    }
+
+    private void set(char flag, String value) {
+        switch (flag) {
+            case 'S' -> memory = size(value);
+            case 'T' -> tmpDir = value;
+            case 'k' -> keySpecs.add(value);
+            case 't' -> {
+                if (value.length() != 1 || value.charAt(0) > 0x7F) {
+                    throw new IllegalArgumentException("-t needs a single ASCII character, got '" + value + "'");
+                }
+                separator = value.charAt(0);
+            }
+            default  -> throw new IllegalStateException("no value for -" + flag);
+        }
+    }
+
+    /** The ordering these options describe — the whole line when there is no -k. */
+    SortKey key() {
+        List<SortKey.Field> fields = new ArrayList<>();
+        for (String spec : keySpecs) fields.add(field(spec));
+        if (fields.isEmpty()) fields.add(SortKey.Field.wholeLine(numeric, human, foldCase, reverse, skipBlanks));
+        return new SortKey(fields, separator, !stable && !unique, reverse);
+    }
+
+    private SortKey.Field field(String spec) {
+        String[] ends = spec.split(",", -1);
+        if (ends.length > 2) throw badKey(spec);
+        int[] start = position(ends[0], spec, false);
+        int[] end = ends.length == 2 ? position(ends[1], spec, true) : new int[]{0, 0};
+        String letters = letters(ends[0]) + (ends.length == 2 ? letters(ends[1]) : "");
+        if (letters.isEmpty()) {
+            return new SortKey.Field(start[0], start[1], end[0], end[1], numeric, human, foldCase, reverse, skipBlanks);
+        }
+        for (char c : letters.toCharArray()) if ("bfhnr".indexOf(c) < 0) throw badKey(spec);
+        return new SortKey.Field(start[0], start[1], end[0], end[1],
+            letters.indexOf('n') >= 0, letters.indexOf('h') >= 0, letters.indexOf('f') >= 0,
+            letters.indexOf('r') >= 0, letters.indexOf('b') >= 0);
+    }
+
+    /** F[.C] of one end of a key as {field, char}; the start needs both >= 1, an end may have C = 0. */
+    private static int[] position(String end, String spec, boolean isEnd) {
+        String digits = end.substring(0, end.length() - letters(end).length());
+        int dot = digits.indexOf('.');
+        try {
+            int field = Integer.parseInt(dot < 0 ? digits : digits.substring(0, dot));
+            int chr = dot < 0 ? (isEnd ? 0 : 1) : Integer.parseInt(digits.substring(dot + 1));
+            if (field >= 1 && chr >= (isEnd ? 0 : 1)) return new int[]{field, chr};
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw badKey(spec);
+    }
+
+    private static String letters(String end) {
+        int i = end.length();
+        while (i > 0 && Character.isLetter(end.charAt(i - 1))) i--;
+        return end.substring(i);
+    }
+
+    private static IllegalArgumentException badKey(String spec) {
+        return new IllegalArgumentException("invalid key '" + spec + "'");
+    }
+
+    /** The -S budget in bytes, defaulting to a quarter of the maximum heap. */
+    long memoryBudget() {
+        return memory > 0 ? memory : Runtime.getRuntime().maxMemory() / 4;
+    }
+
+    /**
+     * A -S size as GNU sort reads it: a number with an optional suffix b, K,
+     * M, G or T (powers of 1024), or % of the maximum heap. A bare number
+     * means kilobytes.
+     */
+    static long size(String value) {
+        try {
+            char unit = value.isEmpty() ? 'K' : value.charAt(value.length() - 1);
+            String digits = Character.isDigit(unit) ? value : value.substring(0, value.length() - 1);
+            long n = Long.parseLong(digits);
+            long bytes = switch (Character.isDigit(unit) ? 'K' : Character.toUpperCase(unit)) {
+                case 'B' -> n;
+                case 'K' -> n << 10;
+                case 'M' -> n << 20;
+                case 'G' -> n << 30;
+                case 'T' -> n << 40;
+                case '%' -> n <= 100 ? Runtime.getRuntime().maxMemory() / 100 * n : -1;
+                default  -> -1;
+            };
+            if (n > 0 && bytes > 0) return bytes;
+        } catch (NumberFormatException ignored) {
+            // fall through to the message below
+        }
+        throw new IllegalArgumentException("invalid -S size '" + value + "'");
+    }
+}
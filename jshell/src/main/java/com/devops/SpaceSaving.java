@@ -0,0 +1,146 @@
+package com.devops;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Space-Saving heavy hitters (Metwally, Agrawal and El Abbadi): the most
+ * frequent lines of a stream in a fixed number of counters.
+ *
+ * A line already monitored increments its counter. A new line takes over
+ * the counter with the smallest count c and starts at c + 1, remembering c
+ * as its maximum overestimate. With m counters every line seen more than
+ * N / m times in a stream of N lines is guaranteed to be monitored, and a
+ * reported count exceeds the true one by at most its error.
+ *
+ * Counters sit in a min-heap (with each counter's heap position tracked,
+ * so an increment is one sift-down) and are found through an
+ * open-addressing table keyed on the line hash, with byte verification.
+ * Evicted keys are removed by backward-shift deletion, so the table never
+ * fills with tombstones on an endless stream.
+ */
+final class SpaceSaving {
+
+    private final byte[][] keys;
+    private final long[] hashes;
+    private final long[] counts;
+    private final long[] errors;
+    private final int[] heap;        // counter ids, smallest count first
+    private final int[] position;    // counter id -> index in heap
+    private final int[] slots;       // counter id + 1, 0 = empty
+    private int size;
+    private long total;
+
+    SpaceSaving(int counters) {
+        keys = new byte[counters][];
+        hashes = new long[counters];
+        counts = new long[counters];
+        errors = new long[counters];
+        heap = new int[counters];
+        position = new int[counters];
+        slots = new int[Integer.highestOneBit(Math.max(2, counters - 1)) << 2];
+    }
+
+    void add(LineScanner.Line line) {
+        total++;
+        long hash = line.hash();
+        int mask = slots.length - 1;
+        int slot = (int) hash & mask;
+        for (int e; (e = slots[slot]) != 0; slot = (slot + 1) & mask) {
+            int id = e - 1;
+            if (hashes[id] == hash && line.contentEquals(keys[id])) {
+                counts[id]++;
+                siftDown(position[id]);
+                return;
+            }
+        }
+
+        int id;
+        if (size < keys.length) {
+            id = size++;
+            heap[id] = id;
+            position[id] = id;
+            counts[id] = 1;
+            errors[id] = 0;
+            siftUp(id);
+        } else {
+            id = heap[0];
+            unlink(id);
+            errors[id] = counts[id];
+            counts[id]++;
+            siftDown(0);
+            slot = (int) hash & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+        }
+        keys[id] = line.toBytes();
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+    }
+
+    /** Lines seen so far. */
+    long total() {
+        return total;
+    }
+
+    /** Writes the k largest counters, highest first, as "count line" like uniq -c. */
+    void writeTop(OutputStream out, int k) throws IOException {
+        int[] ids = IntStream.range(0, size).boxed()
+            .sorted(Comparator.<Integer>comparingLong(id -> counts[id]).reversed())
+            .limit(k).mapToInt(Integer::intValue).toArray();
+        for (int id : ids) {
+            out.write(String.format("%7d ", counts[id]).getBytes(StandardCharsets.US_ASCII));
+            out.write(keys[id]);
+            out.write('\n');
+        }
+    }
+
+    /** Removes counter id from the hash table (backward-shift deletion for linear probing). */
+    private void unlink(int id) {
+        int mask = slots.length - 1;
+        int hole = (int) hashes[id] & mask;
+        while (slots[hole] != id + 1) hole = (hole + 1) & mask;
+        int next = (hole + 1) & mask;
+        for (int e; (e = slots[next]) != 0; next = (next + 1) & mask) {
+            int home = (int) hashes[e - 1] & mask;
+            // move e back into the hole unless its home lies cyclically in (hole, next]
+            boolean stays = hole <= next ? (home > hole && home <= next) : (home > hole || home <= next);
+            if (!stays) {
+                slots[hole] = e;
+                hole = next;
+            }
+        }
+        slots[hole] = 0;
+    }
+
+    private void siftUp(int i) {
+        int id = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[id]) break;
+            place(heap[parent], i);
+            i = parent;
+        }
+        place(id, i);
+    }
+
+    private void siftDown(int i) {
+        int id = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) child++;
+            if (counts[heap[child]] >= counts[id]) break;
+            place(heap[child], i);
+            i = child;
+        }
+        place(id, i);
+    }
+
+    private void place(int id, int i) {
+        heap[i] = id;
+        position[id] = i;
+    }
+}
@@ -0,0 +1,250 @@
+package com.devops;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * tar -c, -t and -x over TarWriter and TarReader.
+ *
+ * Creation walks each operand depth-first in name order, storing symbolic
+ * links as links and each entry's permission bits and mtime. Listing and
+ * extraction read the archive forward once; entries that match no pattern
+ * are skipped, not written anywhere. A pattern selects the entries it
+ * matches (glob syntax, as in unzip) and everything under them.
+ *
+ * Extraction has the same zip slip protection as unzip: a leading '/' is
+ * dropped, and an entry whose canonical target lies outside the destination
+ * is refused. So is a link that points outside it — and since targets are
+ * canonicalised, nothing can later be written through such a link either.
+ * Directory modes and times are restored last, once their contents are in.
+ */
+final class TarArchive {
+
+    private static final DateTimeFormatter MODIFIED = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private TarArchive() {}
+
+    /** Where an extracted directory's mode and mtime go once its contents are written. */
+    private record Pending(Path dir, int mode, long mtime) {}
+
+    /**
+     * Adds operand (relative to base) and, for a directory, everything under
+     * it. skip is never added (the archive being written). Returns false if
+     * the operand does not exist.
+     */
+    static boolean add(TarWriter tar, Path base, String operand, Path skip, PrintStream verbose) throws IOException {
+        Path path = base.resolve(operand);
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) return false;
+        String name = Path.of(operand).normalize().toString().replace(File.separatorChar, '/');
+        while (name.startsWith("/")) name = name.substring(1);
+        addPath(tar, path, name.isEmpty() ? "." : name, skip, verbose);
+        return true;
+    }
+
+    private static void addPath(TarWriter tar, Path path, String name, Path skip, PrintStream verbose)
+            throws IOException {
+        var attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        long mtime = attrs.lastModifiedTime().toMillis() / 1000;
+        if (attrs.isSymbolicLink()) {
+            String link = Files.readSymbolicLink(path).toString();
+            tar.add(new TarWriter.Header(name, TarWriter.SYMLINK, mode(path, 0777), 0, mtime, link), o -> {});
+        } else if (attrs.isDirectory()) {
+            tar.add(new TarWriter.Header(name + "/", TarWriter.DIRECTORY, mode(path, 0755), 0, mtime, ""), o -> {});
+            if (verbose != null) verbose.println(name + "/");
+            List<Path> children;
+            try (Stream<Path> listing = Files.list(path)) {
+                children = listing.sorted().toList();
+            }
+            for (Path child : children) {
+                addPath(tar, child, name + "/" + child.getFileName(), skip, verbose);
+            }
+            return;
+        } else if (attrs.isRegularFile()) {
+            if (path.toAbsolutePath().normalize().equals(skip)) return;
+            tar.add(new TarWriter.Header(name, TarWriter.FILE, mode(path, 0644), attrs.size(), mtime, ""),
+                o -> Files.copy(path, o));
+        } else {
+            System.err.println("tar: " + name + ": socket or device ignored");
+            return;
+        }
+        if (verbose != null) verbose.println(name);
+    }
+
+    /**
+     * Prints the entries patterns select (all when there are none): names,
+     * or with detailed a mode / size / time listing like tar -tv. hit records
+     * which patterns matched something.
+     */
+    static void list(TarReader tar, List<PathMatcher> patterns, boolean[] hit, boolean detailed, PrintStream out)
+            throws IOException {
+        for (TarReader.Entry e; (e = tar.next()) != null; ) {
+            if (!selected(e.name(), patterns, hit)) continue;
+            if (!detailed) {
+                out.println(e.name());
+                continue;
+            }
+            LocalDateTime modified = LocalDateTime.ofInstant(Instant.ofEpochSecond(e.mtime()), ZoneId.systemDefault());
+            out.printf("%s %12d %s %s%s%n", permissions(e), e.size(), MODIFIED.format(modified), e.name(),
+                e.type() == TarWriter.SYMLINK ? " -> " + e.linkName()
+                    : e.type() == TarWriter.HARDLINK ? " link to " + e.linkName() : "");
+        }
+    }
+
+    /** Extracts the selected entries under dest. Returns false if any was refused or failed. */
+    static boolean extract(TarReader tar, List<PathMatcher> patterns, boolean[] hit, File dest, PrintStream verbose)
+            throws IOException {
+        String destCanonical = dest.getCanonicalPath();
+        boolean ok = true;
+        Deque<Pending> directories = new ArrayDeque<>();
+        for (TarReader.Entry e; (e = tar.next()) != null; ) {
+            if (!selected(e.name(), patterns, hit)) continue;
+            String name = e.name();
+            while (name.startsWith("/")) name = name.substring(1);
+            File target = new File(dest, name);
+            if (!inside(target, destCanonical)) {
+                System.err.println("tar: blocked unsafe entry: " + e.name());
+                ok = false;
+                continue;
+            }
+            Path path = target.toPath();
+            try {
+                switch (e.type()) {
+                    case TarWriter.DIRECTORY -> {
+                        Files.createDirectories(path);
+                        directories.push(new Pending(path, e.mode(), e.mtime()));
+                    }
+                    case TarWriter.SYMLINK -> {
+                        // relative targets resolve from the link's own directory
+                        if (!inside(new File(target.getParentFile(), e.linkName()), destCanonical)
+                                || Path.of(e.linkName()).isAbsolute()) {
+                            System.err.println("tar: blocked unsafe link: " + e.name() + " -> " + e.linkName());
+                            ok = false;
+                            continue;
+                        }
+                        Files.createDirectories(path.getParent());
+                        Files.deleteIfExists(path);
+                        Files.createSymbolicLink(path, Path.of(e.linkName()));
+                    }
+                    case TarWriter.HARDLINK -> {
+                        File original = new File(dest, e.linkName());
+                        if (!inside(original, destCanonical)) {
+                            System.err.println("tar: blocked unsafe link: " + e.name() + " -> " + e.linkName());
+                            ok = false;
+                            continue;
+                        }
+                        Files.createDirectories(path.getParent());
+                        Files.deleteIfExists(path);
+                        Files.createLink(path, original.toPath());
+                    }
+                    case TarWriter.FILE, '7' -> {
+                        if (e.directory()) {
+                            Files.createDirectories(path);
+                            break;
+                        }
+                        Files.createDirectories(path.getParent());
+                        Files.copy(tar.data(), path, StandardCopyOption.REPLACE_EXISTING);
+                        restore(path, e.mode(), e.mtime());
+                    }
+                    default -> {
+                        System.err.println("tar: " + e.name() + ": unsupported entry type '" + e.type() + "', skipped");
+                        continue;
+                    }
+                }
+            } catch (IOException ex) {
+                System.err.println("tar: " + e.name() + ": " + ex.getMessage());
+                ok = false;
+                continue;
+            }
+            if (verbose != null) verbose.println(e.name());
+        }
+        // innermost first: filling a directory would touch its mtime again
+        for (Pending p : directories) restore(p.dir(), p.mode(), p.mtime());
+        return ok;
+    }
+
+    /** True if name, or a directory above it, matches a pattern; marks the patterns that matched. */
+    private static boolean selected(String name, List<PathMatcher> patterns, boolean[] hit) {
+        if (patterns.isEmpty()) return true;
+        String trimmed = name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+        if (trimmed.isEmpty()) return false;
+        boolean any = false;
+        for (Path p = Path.of(trimmed); p != null; p = p.getParent()) {
+            for (int m = 0; m < patterns.size(); m++) {
+                if (patterns.get(m).matches(p)) any = hit[m] = true;
+            }
+        }
+        return any;
+    }
+
+    private static boolean inside(File target, String destCanonical) throws IOException {
+        String canonical = target.getCanonicalPath();
+        return canonical.startsWith(destCanonical + File.separator) || canonical.equals(destCanonical);
+    }
+
+    private static void restore(Path path, int mode, long mtime) {
+        try {
+            Files.setPosixFilePermissions(path, permissions(mode));
+        } catch (UnsupportedOperationException | IOException ignored) {
+            // not a POSIX file system: the default permissions stay
+        }
+        try {
+            Files.setLastModifiedTime(path, FileTime.from(Instant.ofEpochSecond(mtime)));
+        } catch (IOException ignored) {
+            // a time that cannot be set is not worth failing the extraction for
+        }
+    }
+
+    /** Permission bits of path, or fallback where the file system has none. */
+    private static int mode(Path path, int fallback) {
+        try {
+            int mode = 0;
+            for (PosixFilePermission p : Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS)) {
+                mode |= 1 << (8 - p.ordinal());     // OWNER_READ is 0400 ... OTHERS_EXECUTE is 01
+            }
+            return mode;
+        } catch (UnsupportedOperationException | IOException e) {
+            return fallback;
+        }
+    }
+
+    private static Set<PosixFilePermission> permissions(int mode) {
+        Set<PosixFilePermission> set = EnumSet.noneOf(PosixFilePermission.class);
+        for (PosixFilePermission p : PosixFilePermission.values()) {
+            if ((mode & 1 << (8 - p.ordinal())) != 0) set.add(p);
+        }
+        return set;
+    }
+
+    /** "drwxr-xr-x" as ls -l and tar -tv print it. */
+    private static String permissions(TarReader.Entry e) {
+        char type = switch (e.type()) {
+            case TarWriter.DIRECTORY -> 'd';
+            case TarWriter.SYMLINK -> 'l';
+            case TarWriter.HARDLINK -> 'h';
+            default -> e.directory() ? 'd' : '-';
+        };
+        var sb = new StringBuilder().append(type);
+        String rwx = "rwxrwxrwx";
+        for (int i = 0; i < 9; i++) sb.append((e.mode() & 1 << (8 - i)) != 0 ? rwx.charAt(i) : '-');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,197 @@
+package com.devops;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads a tar stream entry by entry — ustar and GNU headers, with pax
+ * extended headers ('x') and GNU long names ('L', 'K') applied to the entry
+ * that follows them. The input is only read forward, so it can come
+ * straight from GzipStream: tar -t and a selective tar -x skip the data of
+ * entries they do not want instead of extracting the whole archive.
+ *
+ * Each next() skips whatever the caller left unread of the previous entry.
+ */
+final class TarReader {
+
+    private static final int BLOCK = TarWriter.BLOCK;
+
+    /** An entry header. mtime is in seconds; linkName is empty unless type is a link. */
+    record Entry(String name, char type, int mode, long size, long mtime, String linkName) {
+
+        boolean directory() {
+            return type == TarWriter.DIRECTORY || (type != TarWriter.SYMLINK && name.endsWith("/"));
+        }
+    }
+
+    private final InputStream in;
+    private final byte[] header = new byte[BLOCK];
+    private long remaining;          // unread data of the current entry
+    private long padding;            // zero bytes after it, up to the block boundary
+
+    TarReader(InputStream in) {
+        this.in = in;
+    }
+
+    /** The next entry, or null at the end of the archive. */
+    Entry next() throws IOException {
+        skipFully(remaining + padding);
+        remaining = padding = 0;
+
+        Map<String, String> pax = new HashMap<>();
+        String longName = null, longLink = null;
+        while (true) {
+            int n = in.readNBytes(header, 0, BLOCK);
+            if (n == 0 || isZero(header)) return null;
+            if (n < BLOCK) throw new EOFException("unexpected end of archive");
+            if (!checksumMatches()) throw new IOException("corrupt tar header");
+
+            char type = (char) header[156];
+            long size = number(124, 12);
+            switch (type) {
+                case TarWriter.PAX -> pax.putAll(paxRecords(readData(size)));
+                case 'g' -> skipFully(size + pad(size));    // global pax defaults: nothing here uses them
+                case 'L' -> longName = cString(readData(size));
+                case 'K' -> longLink = cString(readData(size));
+                default -> {
+                    String name = longName != null ? longName : headerName();
+                    String link = longLink != null ? longLink : string(157, 100);
+                    long mtime = number(136, 12);
+                    name = pax.getOrDefault("path", name);
+                    link = pax.getOrDefault("linkpath", link);
+                    if (pax.containsKey("size")) size = Long.parseLong(pax.get("size"));
+                    if (pax.containsKey("mtime")) mtime = (long) Double.parseDouble(pax.get("mtime"));
+                    if (type == 0) type = TarWriter.FILE;          // pre-POSIX regular file
+                    boolean hasData = type != TarWriter.DIRECTORY && type != TarWriter.SYMLINK
+                        && type != TarWriter.HARDLINK;
+                    remaining = hasData ? size : 0;
+                    padding = hasData ? pad(size) : 0;
+                    return new Entry(name, type, (int) number(100, 8), remaining, mtime, link);
+                }
+            }
+        }
+    }
+
+    /** The current entry's data; reads stop at its end. */
+    InputStream data() {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                if (remaining == 0) return -1;
+                int b = in.read();
+                if (b < 0) throw new EOFException("unexpected end of archive");
+                remaining--;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining == 0) return -1;
+                int n = in.read(b, off, (int) Math.min(len, remaining));
+                if (n < 0) throw new EOFException("unexpected end of archive");
+                remaining -= n;
+                return n;
+            }
+        };
+    }
+
+    private byte[] readData(long size) throws IOException {
+        if (size > Integer.MAX_VALUE - BLOCK) throw new IOException("tar extended header too large");
+        byte[] data = in.readNBytes((int) size);
+        if (data.length < size) throw new EOFException("unexpected end of archive");
+        skipFully(pad(size));
+        return data;
+    }
+
+    /** "%d key=value\n" records; a value may contain anything, including newlines. */
+    private static Map<String, String> paxRecords(byte[] data) throws IOException {
+        Map<String, String> records = new HashMap<>();
+        int p = 0;
+        while (p < data.length) {
+            int space = p;
+            while (space < data.length && data[space] != ' ') space++;
+            int length;
+            try {
+                length = Integer.parseInt(new String(data, p, space - p, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw new IOException("corrupt pax header");
+            }
+            if (length <= 0 || p + length > data.length) throw new IOException("corrupt pax header");
+            String record = new String(data, space + 1, p + length - space - 2, StandardCharsets.UTF_8);
+            int eq = record.indexOf('=');
+            if (eq > 0) records.put(record.substring(0, eq), record.substring(eq + 1));
+            p += length;
+        }
+        return records;
+    }
+
+    private String headerName() {
+        String name = string(0, 100);
+        boolean ustar = header[257] == 'u' && header[258] == 's' && header[259] == 't'
+            && header[260] == 'a' && header[261] == 'r';
+        String prefix = ustar ? string(345, 155) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    private boolean checksumMatches() {
+        long stored = number(148, 8);
+        long unsigned = 0, signed = 0;
+        for (int i = 0; i < BLOCK; i++) {
+            byte b = i >= 148 && i < 156 ? (byte) ' ' : header[i];
+            unsigned += b & 0xFF;
+            signed += b;
+        }
+        // some old writers summed signed bytes
+        return stored == unsigned || stored == signed;
+    }
+
+    /** Octal, space or NUL terminated; or GNU base-256 when the high bit of the first byte is set. */
+    private long number(int offset, int width) {
+        if ((header[offset] & 0x80) != 0) {
+            long value = header[offset] & 0x7F;
+            for (int i = 1; i < width; i++) value = value << 8 | (header[offset + i] & 0xFF);
+            return value;
+        }
+        long value = 0;
+        int i = offset, end = offset + width;
+        while (i < end && header[i] == ' ') i++;
+        for (; i < end && header[i] >= '0' && header[i] <= '7'; i++) value = value << 3 | (header[i] - '0');
+        return value;
+    }
+
+    private String string(int offset, int width) {
+        int end = offset;
+        while (end < offset + width && header[end] != 0) end++;
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static String cString(byte[] data) {
+        int end = 0;
+        while (end < data.length && data[end] != 0) end++;
+        return new String(data, 0, end, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isZero(byte[] block) {
+        for (byte b : block) if (b != 0) return false;
+        return true;
+    }
+
+    private static long pad(long size) {
+        return (BLOCK - size % BLOCK) % BLOCK;
+    }
+
+    private void skipFully(long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() < 0) throw new EOFException("unexpected end of archive");
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.devops;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes a POSIX tar stream (ustar headers) to any OutputStream — a file,
+ * or a ParallelGzip.Output for tar -z — so the archive is never staged on
+ * disk. Entries are written one after another: a 512-byte header, then the
+ * data padded to a whole block.
+ *
+ * A name that fits the ustar name field, or splits at a '/' into prefix
+ * and name, goes in the header. Anything ustar cannot hold — longer names
+ * or link targets, sizes of 8 GB or more, times outside the octal range —
+ * is carried by a pax extended header ('x') in front of the entry, which
+ * GNU tar, bsdtar and TarReader all honour.
+ */
+final class TarWriter implements Closeable {
+
+    static final int BLOCK = 512;
+    static final char FILE = '0', HARDLINK = '1', SYMLINK = '2', DIRECTORY = '5', PAX = 'x';
+
+    /** End of archive is two zero blocks; GNU tar pads the stream to 20-block records. */
+    private static final int RECORD = 20 * BLOCK;
+    private static final long MAX_SIZE = 077777777777L;
+    private static final long MAX_TIME = 077777777777L;
+
+    /** What a header records about an entry. size is 0 for directories and links; mtime is in seconds. */
+    record Header(String name, char type, int mode, long size, long mtime, String linkName) {}
+
+    /** Writes exactly size bytes of entry data. */
+    interface Payload { void writeTo(OutputStream out) throws IOException; }
+
+    private final OutputStream out;
+    private final byte[] header = new byte[BLOCK];
+    private long written;
+
+    /** Entry data goes through here so its length can be checked. */
+    private final OutputStream counted = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            written += len;
+        }
+    };
+
+    TarWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /** Writes h, then exactly h.size() bytes from data, then the padding. */
+    void add(Header h, Payload data) throws IOException {
+        Map<String, String> pax = new LinkedHashMap<>();
+        byte[] name = h.name().getBytes(StandardCharsets.UTF_8);
+        int split = split(name);
+        if (split < 0) pax.put("path", h.name());
+        if (h.linkName().getBytes(StandardCharsets.UTF_8).length > 100) pax.put("linkpath", h.linkName());
+        if (h.size() > MAX_SIZE) pax.put("size", Long.toString(h.size()));
+        if (h.mtime() < 0 || h.mtime() > MAX_TIME) pax.put("mtime", Long.toString(h.mtime()));
+
+        if (!pax.isEmpty()) {
+            byte[] records = paxRecords(pax);
+            String paxName = "PaxHeaders/" + lastPart(h.name());
+            writeHeader(paxName.getBytes(StandardCharsets.UTF_8), -1, PAX, 0644, records.length, 0, "");
+            write(records, records.length);
+            pad();
+        }
+        writeHeader(name, split, h.type(), h.mode(), h.size(), h.mtime(), h.linkName());
+
+        long start = written;
+        data.writeTo(counted);
+        if (written - start != h.size()) {
+            throw new IOException(h.name() + ": expected " + h.size() + " bytes, wrote " + (written - start));
+        }
+        pad();
+    }
+
+    /** Writes the end-of-archive blocks. Does not close the underlying stream. */
+    void finish() throws IOException {
+        write(new byte[2 * BLOCK], 2 * BLOCK);
+        int tail = (int) (written % RECORD);
+        if (tail != 0) write(new byte[RECORD - tail], RECORD - tail);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * split is -1 when the name does not fit the header (pax carries it), 0
+     * when it fits the name field alone, or the index of the '/' that
+     * separates prefix from name.
+     */
+    private void writeHeader(byte[] name, int split, char type, int mode, long size, long mtime, String link)
+            throws IOException {
+        Arrays.fill(header, (byte) 0);
+        if (split <= 0) {
+            System.arraycopy(name, 0, header, 0, Math.min(name.length, 100));
+        } else {
+            System.arraycopy(name, split + 1, header, 0, name.length - split - 1);
+            System.arraycopy(name, 0, header, 345, split);
+        }
+        octal(100, 8, mode & 07777);
+        octal(108, 8, 0);                               // uid
+        octal(116, 8, 0);                               // gid
+        octal(124, 12, Math.min(size, MAX_SIZE));
+        octal(136, 12, Math.max(0, Math.min(mtime, MAX_TIME)));
+        header[156] = (byte) type;
+        byte[] linkBytes = link.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(linkBytes, 0, header, 157, Math.min(linkBytes.length, 100));
+        System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 8);
+
+        // checksum: the header's bytes summed with the checksum field read as spaces
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        int sum = 0;
+        for (byte b : header) sum += b & 0xFF;
+        octal(148, 7, sum);
+        write(header, BLOCK);
+    }
+
+    /** Where to split name into ustar prefix and name — see writeHeader. */
+    private static int split(byte[] name) {
+        if (name.length <= 100) return 0;
+        for (int i = Math.min(name.length - 1, 155); i > 0; i--) {
+            if (name[i] == '/' && name.length - i - 1 <= 100 && name.length - i - 1 > 0) return i;
+        }
+        return -1;
+    }
+
+    /** "%d key=value\n" records, where the leading length counts the record itself. */
+    private static byte[] paxRecords(Map<String, String> pax) {
+        var records = new StringBuilder();
+        for (var e : pax.entrySet()) {
+            int body = (" " + e.getKey() + "=" + e.getValue() + "\n").getBytes(StandardCharsets.UTF_8).length;
+            int length = body + Integer.toString(body).length();
+            if (Integer.toString(length).length() != Integer.toString(body).length()) length++;
+            records.append(length).append(' ').append(e.getKey()).append('=').append(e.getValue()).append('\n');
+        }
+        return records.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String lastPart(String name) {
+        String trimmed = name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+        String last = trimmed.substring(trimmed.lastIndexOf('/') + 1);
+        return last.length() > 80 ? last.substring(0, 80) : last;
+    }
+
+    /** Zero-padded octal in width - 1 digits and a NUL. */
+    private void octal(int offset, int width, long value) {
+        String digits = Long.toOctalString(value);
+        int pad = width - 1 - digits.length();
+        for (int i = 0; i < pad; i++) header[offset + i] = '0';
+        for (int i = 0; i < digits.length(); i++) header[offset + pad + i] = (byte) digits.charAt(i);
+        header[offset + width - 1] = 0;
+    }
+
+    private void pad() throws IOException {
+        int tail = (int) (written % BLOCK);
+        if (tail != 0) write(new byte[BLOCK - tail], BLOCK - tail);
+    }
+
+    private void write(byte[] bytes, int length) throws IOException {
+        out.write(bytes, 0, length);
+        written += length;
+    }
+}
@@ -1,13 +1,14 @@
 package com.devops;
 
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 
@@ -65,53 +66,117 @@ public final class TextCommands {
 
         @Override
         public ExecutionResult execute(ShellContext context, String[] args) {
-            if (args.length < 3) {
-                System.err.println("usage: " + usage());
+            GrepOptions options;
+            try {
+                options = GrepOptions.parse(args);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage() != null ? "grep: " + e.getMessage() : "usage: " + usage());
                 return ExecutionResult.misuse(context);
             }
 
-            boolean ignoreCase = args[1].equals("-i");
-            String patternStr = ignoreCase ? args[2] : args[1];
-            String fileName   = ignoreCase ? args[3] : args[2];
+            List<String> patterns;
+            try {
+                patterns = patterns(context, options);
+            } catch (IOException e) {
+                System.err.println("grep: " + e.getMessage());
+                return ExecutionResult.of(context, 2);
+            }
 
-            Pattern pattern;
+            LineMatcher matcher;
             try {
-                pattern = ignoreCase
-                    ? Pattern.compile(patternStr, Pattern.CASE_INSENSITIVE)
-                    : Pattern.compile(patternStr);
+                matcher = context.matchers().get(patterns, options);
             } catch (PatternSyntaxException e) {
-                System.err.println("grep: invalid pattern '" + patternStr + "': " + e.getDescription());
+                System.err.println("grep: invalid pattern '" + e.getPattern() + "': " + e.getDescription());
                 return ExecutionResult.fail(context);
             }
+            if (options.engine == LineMatcher.Engine.DFA && matcher instanceof LineMatcher.Regex) {
+                System.err.println("grep: pattern needs java.util.regex (backreference, lookaround or -w); using it");
+            }
+
+            var out = new BufferedOutputStream(System.out, LineScanner.OUTPUT_BUFFER);
+            try {
+                if (isSingleFile(context, options)) {
+                    return searchSingle(context, options, matcher, out);
+                }
+                TreeGrep.Summary summary = TreeGrep.run(context.currentDirectory(), options, matcher, out);
+                out.flush();
+                if (summary.selected() > 0) return ExecutionResult.ok(context);
+                // POSIX: 1 = nothing selected, 2 = trouble (missing file, unreadable directory)
+                return ExecutionResult.of(context, summary.errors() ? 2 : 1);
+            } catch (IOException e) {
+                System.err.println("grep: " + e.getMessage());
+                return ExecutionResult.fail(context);
+            }
+        }
+
+        /** The command-line pattern, or one pattern per line of each -f file. */
+        static List<String> patterns(ShellContext context, GrepOptions o) throws IOException {
+            if (o.patternFiles.isEmpty()) return List.of(o.pattern);
+            List<String> patterns = new ArrayList<>();
+            for (String name : o.patternFiles) {
+                File file = new File(context.currentDirectory(), name);
+                if (!file.isFile()) throw new IOException(name + ": No such file");
+                try (var scanner = LineScanner.open(file.toPath())) {
+                    LineScanner.Line line;
+                    while ((line = scanner.next()) != null) patterns.add(line.toString());
+                }
+            }
+            return patterns;
+        }
+
+        /** One explicit file that is not a directory — searched without the tree machinery. */
+        private static boolean isSingleFile(ShellContext context, GrepOptions o) {
+            return o.operands.size() == 1 && !o.recursive
+                && !new File(context.currentDirectory(), o.operands.get(0)).isDirectory();
+        }
 
+        private ExecutionResult searchSingle(ShellContext context, GrepOptions o, LineMatcher matcher,
+                                             BufferedOutputStream out) throws IOException {
+            String fileName = o.operands.get(0);
             File file = new File(context.currentDirectory(), fileName);
             if (!file.exists()) {
                 System.err.println("grep: " + fileName + ": No such file");
-                return ExecutionResult.fail(context);
+                return ExecutionResult.of(context, 2);
             }
 
-            int matchCount = 0;
-            try (BufferedReader reader = Files.newBufferedReader(file.toPath())) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (pattern.matcher(line).find()) {
-                        System.out.println(line);
-                        matchCount++;
-                    }
+            long matchCount;
+            if (file.isFile() && o.chunkable() && !o.decompress) {
+                int threads = o.threads;
+                if (threads == 0) {
+                    threads = file.length() >= ChunkedGrep.PARALLEL_THRESHOLD
+                        ? Runtime.getRuntime().availableProcessors() : 1;
+                }
+                if (o.count) {
+                    matchCount = ChunkedGrep.count(file.toPath(), matcher, threads);
+                    out.write((matchCount + "\n").getBytes(StandardCharsets.US_ASCII));
+                } else {
+                    matchCount = ChunkedGrep.search(file.toPath(), matcher, threads, out);
+                }
+            } else {
+                // anything order-dependent (-n, -v, context, -m, -q, -o, -l) streams line by line
+                var target = new TreeGrep.Target(file.toPath(), fileName);
+                try {
+                    matchCount = TreeGrep.searchFile(target, new GrepStream(o, matcher, false), false, o.decompress, out);
+                } catch (IOException e) {
+                    out.flush();
+                    System.err.println("grep: " + fileName + ": " + e.getMessage());
+                    return ExecutionResult.of(context, 2);
                 }
-            } catch (IOException e) {
-                System.err.println("grep: " + e.getMessage());
-                return ExecutionResult.fail(context);
             }
+            out.flush();
 
-            // POSIX: exit 1 = no match (not an error), exit 0 = match found
-            return matchCount > 0
+            // POSIX: exit 1 = nothing selected (not an error), exit 0 = selected
+            boolean hit = o.listNonMatching ? matchCount == 0 : matchCount > 0;
+            return hit
                 ? ExecutionResult.ok(context)
                 : ExecutionResult.of(context, 1);
         }
 
         @Override public String name()  { return "grep"; }
-        @Override public String usage() { return "grep [-i] <pattern> <file>"; }
+        @Override public String usage() {
+            return "grep [-icnovqwxFZ] [-f patterns] [--engine=auto|dfa|java] [-m max] [-A n] [-B n] [-C n] "
+                 + "[-r|-R] [-l|-L] [-j threads] [--include=glob] [--exclude=glob] [--exclude-dir=glob] <pattern> [file|dir...]";
+        }
     }
 
     public static final class HelpCommand implements Command {
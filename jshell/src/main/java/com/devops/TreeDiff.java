@@ -0,0 +1,313 @@
+package com.devops;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Recursive directory diff (diff -r).
+ *
+ * Both trees are walked at the same time, one on the pool and one on the
+ * calling thread, each into a sorted depth-first list of relative paths.
+ * Merging the two lists yields the "Only in" entries and the file pairs to
+ * compare. A directory present on one side only is reported once, not file
+ * by file. Symbolic links are followed, as GNU diff does: a link to a
+ * directory is walked like one, and a link back into a directory still
+ * being walked is reported as a loop.
+ *
+ * Pairs are compared on a fixed pool in batches of BATCH, with at most
+ * threads * 2 batches in flight.
+ * Files of different sizes differ without being opened; under -q their
+ * sizes from the walk settle it without a task. Files of equal size
+ * are compared with ByteBuffer.mismatch over memory-mapped windows (small
+ * files are read into the heap instead, since a mapping costs more than the
+ * read). Only files that really differ reach the line diff, and only when
+ * -q is not given. Each batch writes into its own buffer, and the buffers
+ * are printed in walk order, as TreeGrep does.
+ */
+final class TreeDiff {
+
+    /** Files up to this size are compared from heap copies rather than mappings. */
+    static final int HEAP_COMPARE = 64 * 1024;
+
+    private static final long MAP_WINDOW = 256L * 1024 * 1024;
+
+    /** Pairs per pool task: one task per file would cost a thread handoff per file. */
+    private static final int BATCH = 64;
+
+    private TreeDiff() {}
+
+    /** A path relative to its tree root; directories precede their contents. */
+    private record Entry(Path path, boolean directory, long size) {}
+
+    /**
+     * One step of the output: a ready message, or a file pair (relative
+     * path) still to compare, with their common size if the walk knew it.
+     */
+    private record Item(String message, Path path, long size) {}
+
+    /**
+     * Compares the trees under root1 and root2, labelled label1 and label2.
+     * With unified < 0 changed files are printed as "- "/"+ " lines. Returns
+     * 0 if the trees are the same, 1 if they differ, 2 if something could
+     * not be read.
+     */
+    static int run(Path root1, Path root2, String label1, String label2, boolean brief, int unified,
+                   int threads, OutputStream out) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads,
+            Thread.ofPlatform().daemon().name("diff-r-", 0).factory());
+        var errors = new AtomicBoolean();
+        boolean differ = false;
+        try {
+            Future<List<Entry>> walk2 = pool.submit(() -> walk(root2, label2, errors));
+            List<Entry> tree1 = walk(root1, label1, errors);
+            List<Entry> tree2 = await(walk2);
+            List<Item> items = merge(tree1, tree2, label1, label2, brief);
+
+            Deque<Future<ByteArrayOutputStream>> inFlight = new ArrayDeque<>();
+            int next = 0;
+            while (next < items.size() || !inFlight.isEmpty()) {
+                while (next < items.size() && inFlight.size() < threads * 2) {
+                    List<Item> batch = items.subList(next, Math.min(items.size(), next + BATCH));
+                    next += batch.size();
+                    inFlight.add(pool.submit(() -> {
+                        var report = new ByteArrayOutputStream();
+                        for (Item item : batch) {
+                            if (item.message() != null) {
+                                write(report, item.message());
+                            } else {
+                                compareFiles(root1, root2, item.path(), item.size(), label1, label2,
+                                    brief, unified, errors, report);
+                            }
+                        }
+                        return report;
+                    }));
+                }
+                ByteArrayOutputStream report = await(inFlight.poll());
+                if (report.size() > 0) {
+                    differ = true;
+                    report.writeTo(out);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return errors.get() ? 2 : differ ? 1 : 0;
+    }
+
+    /** Walks both sorted listings together into messages and file pairs, in output order. */
+    private static List<Item> merge(List<Entry> tree1, List<Entry> tree2, String label1, String label2,
+                                    boolean brief) {
+        List<Item> items = new ArrayList<>();
+        int i = 0, j = 0;
+        while (i < tree1.size() || j < tree2.size()) {
+            Entry e1 = i < tree1.size() ? tree1.get(i) : null;
+            Entry e2 = j < tree2.size() ? tree2.get(j) : null;
+            int c = e1 == null ? 1 : e2 == null ? -1 : compare(e1.path(), e2.path());
+            if (c < 0) {
+                items.add(new Item(onlyIn(label1, e1.path()), null, -1));
+                i = skip(tree1, i);
+            } else if (c > 0) {
+                items.add(new Item(onlyIn(label2, e2.path()), null, -1));
+                j = skip(tree2, j);
+            } else if (e1.directory() != e2.directory()) {
+                items.add(new Item("File " + label(label1, e1.path()) + " is a " + kind(e1)
+                    + " while file " + label(label2, e2.path()) + " is a " + kind(e2) + "\n", null, -1));
+                i = skip(tree1, i);
+                j = skip(tree2, j);
+            } else {
+                // a directory's own size says nothing about the contents that follow it in the listing
+                if (!e1.directory()) {
+                    if (brief && e1.size() != e2.size()) {
+                        items.add(new Item("Files " + label(label1, e1.path()) + " and "
+                            + label(label2, e2.path()) + " differ\n", null, -1));
+                    } else {
+                        items.add(new Item(null, e1.path(), e1.size() == e2.size() ? e1.size() : -1));
+                    }
+                }
+                i++;
+                j++;
+            }
+        }
+        return items;
+    }
+
+    /** True if the two files have the same bytes. */
+    static boolean sameContent(Path a, Path b) throws IOException {
+        long size = Files.size(a);
+        return size == Files.size(b) && sameContent(a, b, size);
+    }
+
+    /** True if the two files, both of the given size, have the same bytes. */
+    private static boolean sameContent(Path a, Path b, long size) throws IOException {
+        if (size <= HEAP_COMPARE) return Arrays.equals(Files.readAllBytes(a), Files.readAllBytes(b));
+
+        try (var ca = FileChannel.open(a, StandardOpenOption.READ);
+             var cb = FileChannel.open(b, StandardOpenOption.READ)) {
+            for (long at = 0; at < size; at += MAP_WINDOW) {
+                long len = Math.min(MAP_WINDOW, size - at);
+                MappedByteBuffer ma = ca.map(FileChannel.MapMode.READ_ONLY, at, len);
+                MappedByteBuffer mb = cb.map(FileChannel.MapMode.READ_ONLY, at, len);
+                if (ma.mismatch(mb) >= 0) return false;
+            }
+        }
+        return true;
+    }
+
+    private static void compareFiles(Path root1, Path root2, Path rel, long size, String rootLabel1,
+                                     String rootLabel2, boolean brief, int unified, AtomicBoolean errors,
+                                     ByteArrayOutputStream report) {
+        Path a = root1.resolve(rel), b = root2.resolve(rel);
+        int mark = report.size();
+        try {
+            if (size >= 0 ? sameContent(a, b, size) : sameContent(a, b)) return;
+            String label1 = label(rootLabel1, rel), label2 = label(rootLabel2, rel);
+            if (brief) {
+                write(report, "Files " + label1 + " and " + label2 + " differ\n");
+            } else if (TreeGrep.isBinary(a) || TreeGrep.isBinary(b)) {
+                write(report, "Binary files " + label1 + " and " + label2 + " differ\n");
+            } else {
+                write(report, "diff -r " + label1 + " " + label2 + "\n");
+                if (!SearchCommands.DiffCommand.diffFiles(a, b, label1, label2, unified, report)) {
+                    // equal lines in different bytes (e.g. a missing final newline): no header without a diff
+                    truncate(report, mark);
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("diff: " + label(rootLabel1, rel) + ": " + e.getMessage());
+            errors.set(true);
+            // drop any partial output for this pair, keeping the batch's earlier reports
+            truncate(report, mark);
+        }
+    }
+
+    private static void truncate(ByteArrayOutputStream report, int length) {
+        byte[] kept = Arrays.copyOf(report.toByteArray(), length);
+        report.reset();
+        report.writeBytes(kept);
+    }
+
+    /** Sorted depth-first listing of the tree under root, as paths relative to it. */
+    private static List<Entry> walk(Path root, String label, AtomicBoolean errors) {
+        List<Entry> entries = new ArrayList<>();
+        Set<Object> walking = new HashSet<>();
+        try {
+            walking.add(key(root, Files.readAttributes(root, BasicFileAttributes.class)));
+        } catch (IOException e) {
+            // the listing below reports it
+        }
+        walk(root, root, label, entries, walking, errors);
+        return entries;
+    }
+
+    /** walking holds the directories from root down to dir, to catch links that lead back into them. */
+    private static void walk(Path root, Path dir, String label, List<Entry> out, Set<Object> walking,
+                             AtomicBoolean errors) {
+        List<Path> children = new ArrayList<>();
+        try (DirectoryStream<Path> listing = Files.newDirectoryStream(dir)) {
+            for (Path child : listing) children.add(child);
+        } catch (IOException e) {
+            System.err.println("diff: " + label(label, root.relativize(dir)) + ": " + e.getMessage());
+            errors.set(true);
+            return;
+        }
+        children.sort((x, y) -> x.getFileName().compareTo(y.getFileName()));
+
+        for (Path child : children) {
+            // links are followed: a link compares as its target, and a dangling one cannot be read
+            BasicFileAttributes attrs;
+            Object key;
+            try {
+                attrs = Files.readAttributes(child, BasicFileAttributes.class);
+                key = attrs.isDirectory() ? key(child, attrs) : null;
+            } catch (IOException e) {
+                System.err.println("diff: " + label(label, root.relativize(child)) + ": " + e.getMessage());
+                errors.set(true);
+                continue;
+            }
+            out.add(new Entry(root.relativize(child), attrs.isDirectory(), attrs.size()));
+            if (key == null) continue;
+            if (!walking.add(key)) {
+                System.err.println("diff: " + label(label, root.relativize(child)) + ": recursive directory loop");
+                errors.set(true);
+                continue;
+            }
+            walk(root, child, label, out, walking, errors);
+            walking.remove(key);
+        }
+    }
+
+    /** Identifies a directory however it was reached: by inode where the file system has one. */
+    private static Object key(Path dir, BasicFileAttributes attrs) throws IOException {
+        return attrs.fileKey() != null ? attrs.fileKey() : dir.toRealPath();
+    }
+
+    /** Walk order: name by name, so that a directory's contents follow it directly. */
+    private static int compare(Path a, Path b) {
+        int n = Math.min(a.getNameCount(), b.getNameCount());
+        for (int k = 0; k < n; k++) {
+            int c = a.getName(k).compareTo(b.getName(k));
+            if (c != 0) return c;
+        }
+        return Integer.compare(a.getNameCount(), b.getNameCount());
+    }
+
+    /** Index of the first entry after tree.get(at) and everything under it. */
+    private static int skip(List<Entry> tree, int at) {
+        Path top = tree.get(at).path();
+        int next = at + 1;
+        if (tree.get(at).directory()) {
+            while (next < tree.size() && tree.get(next).path().startsWith(top)) next++;
+        }
+        return next;
+    }
+
+    private static String onlyIn(String rootLabel, Path rel) {
+        Path parent = rel.getParent();
+        return "Only in " + (parent == null ? rootLabel : label(rootLabel, parent)) + ": " + rel.getFileName() + "\n";
+    }
+
+    private static String label(String rootLabel, Path rel) {
+        return rel.toString().isEmpty() ? rootLabel : rootLabel + "/" + rel;
+    }
+
+    private static String kind(Entry e) {
+        return e.directory() ? "directory" : "regular file";
+    }
+
+    private static void write(ByteArrayOutputStream out, String text) {
+        out.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
+        }
+    }
+}
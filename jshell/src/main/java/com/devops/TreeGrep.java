@@ -0,0 +1,265 @@
+package com.devops;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * grep over several files and directory trees (grep -r / -R).
+ *
+ * The trees are walked up front in sorted order. Files are then searched by
+ * a fixed pool, one file per task, and printed in walk order, so a file's
+ * lines are never interleaved with another's and the output is stable run
+ * to run. At most threads * 2 files are in flight. Each task writes into a
+ * Spool: held in memory while earlier files are still printing, then
+ * passed straight through once its file's turn comes. A file that holds
+ * SPOOL_LIMIT bytes before then waits for its turn, so memory stays bounded
+ * however much one file prints.
+ *
+ * A file that cannot be read is reported and skipped, and makes the run
+ * end with errors like a missing operand.
+ *
+ * Files whose first block contains a NUL byte are treated as binary and
+ * skipped during a recursive walk. Each file is searched by a GrepStream;
+ * under -q the first file with a selected line ends the whole run. Under -Z
+ * gzip files are streamed through GzipStream, and the binary check looks at
+ * their decompressed first block.
+ */
+public final class TreeGrep {
+
+    static final int BINARY_PROBE = 8192;
+    private static final int SPOOL_LIMIT = 1 << 20;
+
+    private TreeGrep() {}
+
+    public record Target(Path path, String label) {}
+
+    /** Result of one run: how many files had a hit (for -L: were listed), and whether any operand failed. */
+    public record Summary(long selected, boolean errors) {}
+
+    /** How one file went: its selected line count, or failed if it could not be read. */
+    private record Searched(long selected, boolean failed) {}
+
+    private record Pending(Spool output, Future<Searched> searched) {}
+
+    public static Summary run(File cwd, GrepOptions o, LineMatcher matcher, OutputStream out) throws IOException {
+        List<Target> targets = new ArrayList<>();
+        boolean errors = false;
+        for (String operand : o.operands) {
+            Path path = new File(cwd, operand).toPath();
+            if (!Files.exists(path)) {
+                System.err.println("grep: " + operand + ": No such file");
+                errors = true;
+            } else if (Files.isDirectory(path)) {
+                if (!o.recursive) {
+                    System.err.println("grep: " + operand + ": Is a directory");
+                    errors = true;
+                } else {
+                    errors |= !walk(path, stripSlash(operand), o, targets, new HashSet<>());
+                }
+            } else {
+                targets.add(new Target(path, operand));
+            }
+        }
+
+        Summary searched = searchTargets(targets, o, matcher, o.withFilename(), o.recursive, out);
+        return new Summary(searched.selected(), errors || searched.errors());
+    }
+
+    /**
+     * Searches the given files on the pool and prints their output in list
+     * order. Returns how many files had a hit (for -L: were listed), and
+     * whether any could not be read.
+     */
+    public static Summary searchTargets(List<Target> targets, GrepOptions o, LineMatcher matcher, boolean prefix,
+                                        boolean skipBinary, OutputStream out) throws IOException {
+        int threads = o.threads > 0 ? o.threads : Runtime.getRuntime().availableProcessors();
+        long selected = 0;
+        boolean errors = false;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads,
+            Thread.ofPlatform().daemon().name("grep-r-", 0).factory());
+        try {
+            Deque<Pending> inFlight = new ArrayDeque<>();
+            int next = 0;
+            while (next < targets.size() || !inFlight.isEmpty()) {
+                while (next < targets.size() && inFlight.size() < threads * 2) {
+                    Target t = targets.get(next++);
+                    LineMatcher own = matcher.copy();
+                    var spool = new Spool();
+                    inFlight.add(new Pending(spool, pool.submit(() -> {
+                        try {
+                            return new Searched(searchFile(t, new GrepStream(o, own, prefix), skipBinary,
+                                o.decompress, spool), false);
+                        } catch (IOException e) {
+                            System.err.println("grep: " + t.label() + ": " + e.getMessage());
+                            return new Searched(0, true);
+                        }
+                    })));
+                }
+                Pending head = inFlight.poll();
+                head.output().release(out);
+                Searched result = await(head.searched());
+                errors |= result.failed();
+                if (o.listNonMatching ? !result.failed() && result.selected() == 0 : result.selected() > 0) {
+                    selected++;
+                    if (o.quiet) break;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Summary(selected, errors);
+    }
+
+    /**
+     * Searches one file sequentially. Returns the number of selected lines
+     * read — see GrepStream.search for when it stops early. Throws
+     * IOException if the file cannot be read; the caller reports it.
+     */
+    public static long searchFile(Target t, GrepStream stream, boolean skipBinary, boolean decompress,
+                                  OutputStream out) throws IOException {
+        if (skipBinary && !decompress && isBinary(t.path())) return 0;
+        try (var scanner = decompress ? decompressed(t.path(), skipBinary) : LineScanner.open(t.path())) {
+            if (scanner == null) return 0;
+            return stream.search(scanner, t.label(), out);
+        }
+    }
+
+    /**
+     * A scanner over the file as GzipStream decompresses it (-Z), or null
+     * when skipBinary is set and the decompressed first block is binary.
+     */
+    private static LineScanner decompressed(Path path, boolean skipBinary) throws IOException {
+        InputStream in = GzipStream.open(path);
+        if (skipBinary) {
+            var head = new BufferedInputStream(in, BINARY_PROBE);
+            head.mark(BINARY_PROBE);
+            byte[] probe = head.readNBytes(BINARY_PROBE);
+            head.reset();
+            in = head;
+            if (LineScanner.indexOf(ByteBuffer.wrap(probe), (byte) 0, 0, probe.length) >= 0) {
+                in.close();
+                return null;
+            }
+        }
+        return LineScanner.of(in);
+    }
+
+    /** A NUL byte in the first block marks a file as binary, as GNU grep does. */
+    static boolean isBinary(Path path) {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer probe = ByteBuffer.allocate(BINARY_PROBE);
+            int read = channel.read(probe, 0);
+            return read > 0 && LineScanner.indexOf(probe, (byte) 0, 0, read) >= 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /** Sorted depth-first walk. Returns false if any directory could not be read. */
+    private static boolean walk(Path dir, String label, GrepOptions o, List<Target> out, Set<Path> visited) {
+        LinkOption[] link = o.dereference ? new LinkOption[0] : new LinkOption[]{LinkOption.NOFOLLOW_LINKS};
+        try {
+            // -R may follow a link back up the tree — never enter the same directory twice
+            if (!visited.add(dir.toRealPath())) return true;
+        } catch (IOException e) {
+            return true;
+        }
+
+        List<Path> children;
+        try (Stream<Path> listing = Files.list(dir)) {
+            children = listing.sorted().toList();
+        } catch (IOException e) {
+            System.err.println("grep: " + label + ": " + e.getMessage());
+            return false;
+        }
+
+        boolean ok = true;
+        for (Path child : children) {
+            Path name = child.getFileName();
+            String childLabel = label + "/" + name;
+            if (Files.isDirectory(child, link)) {
+                if (!o.skipsDirectory(name)) ok &= walk(child, childLabel, o, out, visited);
+            } else if (Files.isRegularFile(child, link) && o.selects(name)) {
+                out.add(new Target(child, childLabel));
+            }
+        }
+        return ok;
+    }
+
+    private static String stripSlash(String operand) {
+        return operand.length() > 1 && operand.endsWith("/")
+            ? operand.substring(0, operand.length() - 1) : operand;
+    }
+
+    /**
+     * One file's output on its way to the real one. Until release it is
+     * held in memory, and a writer that would hold more than SPOOL_LIMIT
+     * waits; after release it goes straight through. The calling thread
+     * only touches the real output between files, so one file writes to it
+     * at a time.
+     */
+    private static final class Spool extends OutputStream {
+
+        private ByteArrayOutputStream held = new ByteArrayOutputStream();
+        private OutputStream out;
+
+        /** Writes what is held to target, which takes everything written from now on. */
+        synchronized void release(OutputStream target) throws IOException {
+            held.writeTo(target);
+            held = null;
+            out = target;
+            notifyAll();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            try {
+                while (out == null && held.size() + len > SPOOL_LIMIT) wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted");
+            }
+            if (out != null) out.write(b, off, len);
+            else held.write(b, off, len);
+        }
+    }
+
+    private static Searched await(Future<Searched> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
+        }
+    }
+}
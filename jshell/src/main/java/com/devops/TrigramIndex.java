@@ -0,0 +1,596 @@
+package com.devops;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * On-disk trigram inverted index over a directory tree (index build / search).
+ *
+ * For every indexed file the set of distinct byte trigrams that occur within
+ * a line is recorded, ASCII-folded so one index serves case-sensitive and -i
+ * queries. The file ".jshell-index" in the tree's root holds, in order:
+ *
+ *   header    magic, version, counts and the offset of each section
+ *   files     per file: size, mtime, forward-list offset and length, path
+ *   table     per trigram, sorted: trigram, posting count, posting offset
+ *             — fixed 16-byte entries, binary-searched in place
+ *   postings  per trigram: ascending file ids, delta + varint encoded
+ *   forward   per file: its ascending trigrams, delta + varint encoded
+ *
+ * Queries map the file read-only and decode only the posting lists they
+ * touch. The forward lists make rebuilds incremental: a file whose size
+ * and mtime are unchanged has its trigrams copied from the old index, and
+ * only new or modified files are read. The new index is written beside the
+ * old one and moved over it atomically.
+ *
+ * Binary files (a NUL in the first block) and .git directories are skipped,
+ * the same as grep -r. gzip files are indexed by their decompressed text,
+ * so search -Z finds them; without -Z they are skipped as binary when read.
+ */
+public final class TrigramIndex {
+
+    public static final String FILE_NAME = ".jshell-index";
+
+    private static final int MAGIC   = 0x4A545249;   // "JTRI"
+    private static final int VERSION = 2;
+    private static final int HEADER  = 48;
+    private static final int ENTRY   = 16;
+    private static final long WINDOW = 1L << 30;
+
+    private final Path root;
+    private final ByteBuffer map;
+    private final String[] paths;
+    private final long[] sizes;
+    private final long[] mtimes;
+    private final long[] forwardAt;
+    private final int[] forwardLength;
+    private final int trigramCount;
+    private final int tableOffset;
+    private final int postingsOffset;
+    private final int forwardOffset;
+
+    private TrigramIndex(Path root, ByteBuffer map) throws IOException {
+        this.root = root;
+        this.map = map;
+        if (map.limit() < HEADER || map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+            throw new IOException(FILE_NAME + ": not a trigram index (or an older version)");
+        }
+        int files = map.getInt(8);
+        this.trigramCount = map.getInt(12);
+        int filesOffset = (int) map.getLong(16);
+        this.tableOffset = (int) map.getLong(24);
+        this.postingsOffset = (int) map.getLong(32);
+        this.forwardOffset = (int) map.getLong(40);
+
+        paths = new String[files];
+        sizes = new long[files];
+        mtimes = new long[files];
+        forwardAt = new long[files];
+        forwardLength = new int[files];
+        int at = filesOffset;
+        for (int id = 0; id < files; id++) {
+            sizes[id] = map.getLong(at);
+            mtimes[id] = map.getLong(at + 8);
+            forwardAt[id] = map.getLong(at + 16);
+            forwardLength[id] = map.getInt(at + 24);
+            int pathLength = map.getInt(at + 28);
+            byte[] path = new byte[pathLength];
+            map.get(at + 32, path);
+            paths[id] = new String(path, StandardCharsets.UTF_8);
+            at += 32 + pathLength;
+        }
+    }
+
+    /** Maps the index of the tree at root; IOException if there is none or it is unreadable. */
+    public static TrigramIndex open(Path root) throws IOException {
+        Path file = root.resolve(FILE_NAME);
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException(FILE_NAME + ": larger than 2 GB");
+            return new TrigramIndex(root, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    public int fileCount() {
+        return paths.length;
+    }
+
+    public int trigramCount() {
+        return trigramCount;
+    }
+
+    /** Path of a file relative to the root, '/'-separated. */
+    public String path(int id) {
+        return paths[id];
+    }
+
+    /** True if the file was modified or deleted since the index was built. */
+    public boolean isStale(int id) {
+        try {
+            var attrs = Files.readAttributes(root.resolve(paths[id]), BasicFileAttributes.class);
+            return attrs.size() != sizes[id] || attrs.lastModifiedTime().toMillis() != mtimes[id];
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /** Ids of the files that may match, ascending. */
+    public int[] candidates(TrigramQuery query) {
+        return switch (query) {
+            case TrigramQuery.All all -> allFiles();
+            case TrigramQuery.Trigram t -> postings(t.value());
+            case TrigramQuery.And and -> {
+                List<int[]> lists = new ArrayList<>();
+                for (TrigramQuery part : and.parts()) lists.add(candidates(part));
+                lists.sort((a, b) -> Integer.compare(a.length, b.length));   // smallest first
+                int[] result = lists.get(0);
+                for (int i = 1; i < lists.size() && result.length > 0; i++) result = intersect(result, lists.get(i));
+                yield result;
+            }
+            case TrigramQuery.Or or -> {
+                int[] result = new int[0];
+                for (TrigramQuery part : or.parts()) result = union(result, candidates(part));
+                yield result;
+            }
+        };
+    }
+
+    private int[] allFiles() {
+        int[] all = new int[paths.length];
+        for (int i = 0; i < all.length; i++) all[i] = i;
+        return all;
+    }
+
+    /** File ids containing the trigram — binary search over the fixed-width table. */
+    int[] postings(int trigram) {
+        int lo = 0;
+        int hi = trigramCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int at = tableOffset + mid * ENTRY;
+            int value = map.getInt(at);
+            if (value < trigram) {
+                lo = mid + 1;
+            } else if (value > trigram) {
+                hi = mid - 1;
+            } else {
+                int count = map.getInt(at + 4);
+                return decode(postingsOffset + (int) map.getLong(at + 8), count);
+            }
+        }
+        return new int[0];
+    }
+
+    /** The file's trigrams as recorded at build time, ascending. */
+    int[] forward(int id) {
+        int offset = forwardOffset + (int) forwardAt[id];
+        int end = offset + forwardLength[id];
+        int[] out = new int[16];
+        int n = 0;
+        int value = 0;
+        int at = offset;
+        while (at < end) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = map.get(at++);
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            value += delta;
+            if (n == out.length) out = Arrays.copyOf(out, n * 2);
+            out[n++] = value;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private int[] decode(int offset, int count) {
+        int[] out = new int[count];
+        int value = 0;
+        int at = offset;
+        for (int i = 0; i < count; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = map.get(at++);
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            value += delta;
+            out[i] = value;
+        }
+        return out;
+    }
+
+    static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else { out[n++] = a[i]; i++; j++; }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    static int[] union(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) out[n++] = a[i++];
+            else if (i == a.length || b[j] < a[i]) out[n++] = b[j++];
+            else { out[n++] = a[i++]; j++; }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /** 24-bit trigram of three bytes, ASCII letters folded to lower case. */
+    static int trigram(byte a, byte b, byte c) {
+        return (fold(a) << 16) | (fold(b) << 8) | fold(c);
+    }
+
+    private static int fold(byte b) {
+        return (b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b) & 0xFF;
+    }
+
+    // --- building -----------------------------------------------------------------------
+
+    private static final long UNREAD = -1;
+
+    public record BuildStats(int files, int read, int unchanged, int removed, int trigrams, long bytes) {}
+
+    public static BuildStats build(Path root, int threads) throws IOException {
+        Path indexFile = root.resolve(FILE_NAME);
+        TrigramIndex previous = null;
+        Map<String, Integer> previousIds = new HashMap<>();
+        if (Files.isRegularFile(indexFile)) {
+            try {
+                previous = open(root);
+                for (int id = 0; id < previous.fileCount(); id++) previousIds.put(previous.path(id), id);
+            } catch (IOException e) {
+                previous = null;   // unreadable or old format: rebuild from scratch
+            }
+        }
+
+        List<Path> files = walk(root);
+        var writer = new Writer();
+        int read = 0;
+        int unchanged = 0;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads,
+            Thread.ofPlatform().daemon().name("index-", 0).factory());
+        try {
+            Deque<Future<Extracted>> inFlight = new ArrayDeque<>();
+            int next = 0;
+            while (next < files.size() || !inFlight.isEmpty()) {
+                while (next < files.size() && inFlight.size() < threads * 2) {
+                    Path file = files.get(next++);
+                    String rel = relative(root, file);
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                    } catch (IOException e) {
+                        System.err.println("index: " + rel + ": " + e.getMessage());   // gone since the walk
+                        continue;
+                    }
+                    long size = attrs.size();
+                    long mtime = attrs.lastModifiedTime().toMillis();
+                    Integer old = previousIds.get(rel);
+                    if (previous != null && old != null && previous.sizes[old] == size && previous.mtimes[old] == mtime) {
+                        inFlight.add(CompletableFuture.completedFuture(
+                            new Extracted(rel, size, mtime, previous.forward(old), true, null)));
+                    } else {
+                        inFlight.add(pool.submit(() -> {
+                            try {
+                                return new Extracted(rel, size, mtime, extract(file), false, null);
+                            } catch (IOException e) {
+                                return new Extracted(rel, UNREAD, UNREAD, new int[0], false, e);
+                            }
+                        }));
+                    }
+                }
+                Extracted e = await(inFlight.poll());
+                if (e.failure() != null) {
+                    System.err.println("index: " + e.path() + ": " + e.failure().getMessage());
+                }
+                if (e.trigrams() == null) continue;   // binary
+                if (e.reused()) unchanged++; else if (e.failure() == null) read++;
+                writer.add(e);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        int removed = 0;
+        if (previous != null) {
+            for (int id = 0; id < previous.fileCount(); id++) {
+                if (!writer.has(previous.path(id))) removed++;
+            }
+        }
+
+        Path tmp = root.resolve(FILE_NAME + ".tmp");
+        long bytes = writer.writeTo(tmp);
+        Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new BuildStats(writer.fileCount(), read, unchanged, removed, writer.trigramCount(), bytes);
+    }
+
+    /**
+     * One file's trigrams. A file that could not be read is kept with no
+     * trigrams and an UNREAD size and mtime, so it is always stale: search
+     * greps it rather than trusting the index, and the next build reads it
+     * again.
+     */
+    private record Extracted(String path, long size, long mtime, int[] trigrams, boolean reused, IOException failure) {}
+
+    /** Regular files under root in sorted order, without .git and the index itself. */
+    private static List<Path> walk(Path root) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return !dir.equals(root) && dir.getFileName().toString().equals(".git")
+                    ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                String name = file.getFileName().toString();
+                if (attrs.isRegularFile() && !name.startsWith(FILE_NAME)) files.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                System.err.println("index: " + relative(root, file) + ": " + e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        files.sort(null);
+        return files;
+    }
+
+    private static String relative(Path root, Path file) {
+        return root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    private static final ThreadLocal<long[]> SEEN = ThreadLocal.withInitial(() -> new long[1 << 18]);
+
+    /**
+     * Distinct in-line trigrams of a file, ascending; null for binary files.
+     * A gzip file contributes its decompressed text, as search -Z reads it.
+     */
+    static int[] extract(Path file) throws IOException {
+        if (GzipStream.isGzip(file)) return extractGzip(file);
+        if (TreeGrep.isBinary(file)) return null;
+        var trigrams = new Trigrams();
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long pos = 0; pos < size; pos += WINDOW) {
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW, size - pos));
+                for (int i = 0, limit = window.limit(); i < limit; i++) trigrams.add(window.get(i));
+            }
+            return trigrams.sorted();
+        } finally {
+            trigrams.clear();
+        }
+    }
+
+    /** null when the decompressed first block is binary, as TreeGrep judges it under -Z. */
+    private static int[] extractGzip(Path file) throws IOException {
+        var trigrams = new Trigrams();
+        try (InputStream in = GzipStream.open(file)) {
+            byte[] buffer = new byte[1 << 16];
+            boolean first = true;
+            for (int n; (n = in.readNBytes(buffer, 0, first ? TreeGrep.BINARY_PROBE : buffer.length)) > 0; ) {
+                if (first && LineScanner.indexOf(ByteBuffer.wrap(buffer), (byte) 0, 0, n) >= 0) return null;
+                first = false;
+                for (int i = 0; i < n; i++) trigrams.add(buffer[i]);
+            }
+            return trigrams.sorted();
+        } finally {
+            trigrams.clear();
+        }
+    }
+
+    /** The distinct trigrams of a byte stream, collected in the thread's SEEN bitmap. */
+    private static final class Trigrams {
+
+        private final long[] seen = SEEN.get();   // one bit per possible trigram, 2 MB, cleared after use
+        private int[] found = new int[1024];
+        private int n;
+        private int t;
+        private int run;   // bytes since the last newline
+
+        void add(byte b) {
+            if (b == '\n') {
+                run = 0;
+                return;
+            }
+            t = ((t << 8) | fold(b)) & 0xFFFFFF;
+            if (++run < 3) return;
+            long bit = 1L << t;
+            if ((seen[t >>> 6] & bit) != 0) return;
+            seen[t >>> 6] |= bit;
+            if (n == found.length) found = Arrays.copyOf(found, n * 2);
+            found[n++] = t;
+        }
+
+        int[] sorted() {
+            int[] trigrams = Arrays.copyOf(found, n);
+            Arrays.sort(trigrams);
+            return trigrams;
+        }
+
+        /** Leaves SEEN all zero for the thread's next file. */
+        void clear() {
+            for (int k = 0; k < n; k++) seen[found[k] >>> 6] = 0;
+        }
+    }
+
+    private static Extracted await(Future<Extracted> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /** Accumulates files in id order; posting lists are varint-encoded as they grow. */
+    private static final class Writer {
+
+        private final List<Extracted> files = new ArrayList<>();
+        private final List<long[]> forwardSpans = new ArrayList<>();
+        private final Set<String> paths = new HashSet<>();
+        private final Bytes forward = new Bytes();
+        private final Map<Integer, Posting> postings = new HashMap<>();
+
+        void add(Extracted e) {
+            int id = files.size();
+            files.add(e);
+            paths.add(e.path());
+            long start = forward.length;
+            int last = 0;
+            for (int t : e.trigrams()) {
+                forward.varint(t - last);
+                last = t;
+                postings.computeIfAbsent(t, k -> new Posting()).add(id);
+            }
+            forwardSpans.add(new long[]{start, forward.length - start});
+        }
+
+        boolean has(String path) {
+            return paths.contains(path);
+        }
+
+        int fileCount() {
+            return files.size();
+        }
+
+        int trigramCount() {
+            return postings.size();
+        }
+
+        long writeTo(Path tmp) throws IOException {
+            int[] trigrams = postings.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            List<byte[]> encodedPaths = new ArrayList<>();
+            long filesSize = 0;
+            for (Extracted e : files) {
+                byte[] p = e.path().getBytes(StandardCharsets.UTF_8);
+                encodedPaths.add(p);
+                filesSize += 32 + p.length;
+            }
+            long postingsSize = 0;
+            for (int t : trigrams) postingsSize += postings.get(t).bytes.length;
+
+            long filesOffset = HEADER;
+            long tableOffset = filesOffset + filesSize;
+            long postingsOffset = tableOffset + (long) trigrams.length * ENTRY;
+            long forwardOffset = postingsOffset + postingsSize;
+            long total = forwardOffset + forward.length;
+            if (total > Integer.MAX_VALUE) throw new IOException("index would exceed 2 GB");
+
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(files.size());
+                out.writeInt(trigrams.length);
+                out.writeLong(filesOffset);
+                out.writeLong(tableOffset);
+                out.writeLong(postingsOffset);
+                out.writeLong(forwardOffset);
+
+                for (int id = 0; id < files.size(); id++) {
+                    Extracted e = files.get(id);
+                    out.writeLong(e.size());
+                    out.writeLong(e.mtime());
+                    out.writeLong(forwardSpans.get(id)[0]);
+                    out.writeInt((int) forwardSpans.get(id)[1]);
+                    out.writeInt(encodedPaths.get(id).length);
+                    out.write(encodedPaths.get(id));
+                }
+
+                long at = 0;
+                for (int t : trigrams) {
+                    Posting p = postings.get(t);
+                    out.writeInt(t);
+                    out.writeInt(p.count);
+                    out.writeLong(at);
+                    at += p.bytes.length;
+                }
+                for (int t : trigrams) {
+                    Bytes b = postings.get(t).bytes;
+                    out.write(b.data, 0, b.length);
+                }
+                out.write(forward.data, 0, forward.length);
+            }
+            return total;
+        }
+    }
+
+    private static final class Posting {
+        final Bytes bytes = new Bytes(4);
+        int last;
+        int count;
+
+        void add(int id) {
+            bytes.varint(id - last);
+            last = id;
+            count++;
+        }
+    }
+
+    /** Growable byte array with LEB128 varint appends. */
+    private static final class Bytes {
+        byte[] data;
+        int length;
+
+        Bytes() {
+            this(1024);
+        }
+
+        Bytes(int capacity) {
+            data = new byte[capacity];
+        }
+
+        void varint(int value) {
+            if (length + 5 > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+    }
+}
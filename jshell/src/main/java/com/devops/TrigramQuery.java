@@ -0,0 +1,318 @@
+package com.devops;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The trigrams a regex match must contain, as an AND / OR tree.
+ *
+ * Runs of literal characters that every match has to include contribute the
+ * AND of their trigrams; alternation becomes OR; anything that can match
+ * many strings (., classes, escapes like \d, optional atoms) just ends the
+ * current run. Syntax the analysis does not model degrades to ALL — every
+ * file is a candidate — so the query can only ever be too loose, never too
+ * strict. The matcher re-checks every candidate anyway.
+ *
+ * Trigrams are ASCII-folded to match TrigramIndex, so the same query serves
+ * case-sensitive and -i searches.
+ */
+public sealed interface TrigramQuery {
+
+    All ALL = new All();
+
+    record All() implements TrigramQuery {}
+
+    record Trigram(int value) implements TrigramQuery {}
+
+    record And(List<TrigramQuery> parts) implements TrigramQuery {}
+
+    record Or(List<TrigramQuery> parts) implements TrigramQuery {}
+
+    static TrigramQuery of(String regex) {
+        var parser = new Parser(regex);
+        try {
+            TrigramQuery q = parser.alternation();
+            return parser.pos == regex.length() && !parser.opaque ? q : ALL;
+        } catch (RuntimeException e) {
+            return ALL;   // odd syntax: fall back to a full scan, the matcher decides
+        }
+    }
+
+    /** A fixed string (grep -F) — simply all of its trigrams. */
+    static TrigramQuery literal(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        var parts = new ArrayList<TrigramQuery>();
+        addRun(bytes, bytes.length, parts);
+        return and(parts);
+    }
+
+    private static void addRun(byte[] run, int length, List<TrigramQuery> into) {
+        for (int i = 0; i + 3 <= length; i++) {
+            into.add(new Trigram(TrigramIndex.trigram(run[i], run[i + 1], run[i + 2])));
+        }
+    }
+
+    private static TrigramQuery and(List<TrigramQuery> parts) {
+        parts.removeIf(p -> p instanceof All);
+        if (parts.isEmpty()) return ALL;
+        return parts.size() == 1 ? parts.get(0) : new And(List.copyOf(parts));
+    }
+
+    private static TrigramQuery or(List<TrigramQuery> parts) {
+        if (parts.stream().anyMatch(p -> p instanceof All)) return ALL;
+        return parts.size() == 1 ? parts.get(0) : new Or(List.copyOf(parts));
+    }
+
+    final class Parser {
+
+        private static final Pattern FLAGS = Pattern.compile("\\?([a-zA-Z]*)(?:-[a-zA-Z]*)?([:)])");
+
+        private final String p;
+        private int pos;
+        private boolean opaque;
+
+        private Parser(String pattern) {
+            this.p = pattern;
+        }
+
+        TrigramQuery alternation() {
+            List<TrigramQuery> options = new ArrayList<>();
+            options.add(sequence());
+            while (pos < p.length() && p.charAt(pos) == '|') {
+                pos++;
+                options.add(sequence());
+            }
+            return or(options);
+        }
+
+        /** AND of the literal runs and required groups in one branch. */
+        private TrigramQuery sequence() {
+            List<TrigramQuery> parts = new ArrayList<>();
+            byte[] run = new byte[16];
+            int length = 0;
+
+            while (pos < p.length() && p.charAt(pos) != '|' && p.charAt(pos) != ')') {
+                byte[] lit = null;
+                TrigramQuery group = null;
+
+                int cp = p.codePointAt(pos);
+                pos += Character.charCount(cp);
+                switch (cp) {
+                    case '(' -> group = group();
+                    case '[' -> skipClass();
+                    case '\\' -> lit = escape();
+                    case '.', '^', '$' -> { }
+                    default -> lit = new String(Character.toChars(cp)).getBytes(StandardCharsets.UTF_8);
+                }
+
+                int min = quantifierMin();
+                if (min == 0 || (lit == null && group == null)) {
+                    // optional or unknown: the run cannot continue across it
+                    addRun(run, length, parts);
+                    length = 0;
+                    continue;
+                }
+                if (group != null) {
+                    addRun(run, length, parts);
+                    length = 0;
+                    parts.add(group);
+                    continue;
+                }
+                if (length + lit.length > run.length) run = Arrays.copyOf(run, 2 * (length + lit.length));
+                System.arraycopy(lit, 0, run, length, lit.length);
+                length += lit.length;
+                if (min < 0) {
+                    // repeated ("a+", "a{2,}"): required once, but what follows is not adjacent
+                    addRun(run, length, parts);
+                    length = 0;
+                }
+            }
+            addRun(run, length, parts);
+            return and(parts);
+        }
+
+        /**
+         * After "(": a nested alternation, or ALL for lookaround and other
+         * special groups. Inline flags that change how literals read —
+         * x (spaces and # comments ignored) or u (Unicode case folding) —
+         * make the whole query ALL, wherever they appear.
+         */
+        private TrigramQuery group() {
+            boolean plain = true;
+            Matcher flags = FLAGS.matcher(p).region(pos, p.length());
+            if (flags.lookingAt()) {
+                if (flags.group(1).indexOf('x') >= 0 || flags.group(1).indexOf('u') >= 0) opaque = true;
+                pos = flags.end();
+                if (flags.group(2).equals(")")) return ALL;      // (?i) applies to what follows
+            } else if (pos < p.length() && p.charAt(pos) == '?') {
+                plain = false;
+            }
+            if (!plain) {
+                skipToClose();
+                return ALL;
+            }
+            TrigramQuery inner = alternation();
+            if (pos >= p.length() || p.charAt(pos) != ')') throw new IllegalArgumentException();
+            pos++;
+            return inner;
+        }
+
+        /**
+         * Consumes a quantifier after an atom. Returns 1 for none, 0 when the
+         * atom may be absent, -1 when it is required but may repeat.
+         */
+        private int quantifierMin() {
+            if (pos >= p.length()) return 1;
+            char c = p.charAt(pos);
+            int min;
+            if (c == '*' || c == '?') {
+                min = 0;
+                pos++;
+            } else if (c == '+') {
+                min = -1;
+                pos++;
+            } else if (c == '{') {
+                int close = p.indexOf('}', pos);
+                if (close < 0) throw new IllegalArgumentException();
+                String body = p.substring(pos + 1, close);
+                pos = close + 1;
+                int comma = body.indexOf(',');
+                int lo = Integer.parseInt(comma < 0 ? body : body.substring(0, comma));
+                min = lo == 0 ? 0 : (comma < 0 && lo == 1 ? 1 : -1);
+            } else {
+                return 1;
+            }
+            if (pos < p.length() && (p.charAt(pos) == '?' || p.charAt(pos) == '+')) pos++;
+            return min;
+        }
+
+        /**
+         * A literal escape ("\\." "\\t" "\\x41" "\\u00e9") as bytes, or null for
+         * classes, assertions and references. Either way every character
+         * the escape spans is consumed, so none of it is read as a literal.
+         */
+        private byte[] escape() {
+            char c = p.charAt(pos++);
+            int cp;
+            switch (c) {
+                case 'Q' -> {
+                    int end = p.indexOf("\\E", pos);
+                    String quoted = end < 0 ? p.substring(pos) : p.substring(pos, end);
+                    pos = end < 0 ? p.length() : end + 2;
+                    return quoted.getBytes(StandardCharsets.UTF_8);
+                }
+                case 't' -> cp = '\t';
+                case 'n' -> cp = '\n';
+                case 'r' -> cp = '\r';
+                case 'f' -> cp = '\f';
+                case 'a' -> cp = 0x07;
+                case 'e' -> cp = 0x1B;
+                case 'x' -> {
+                    if (pos < p.length() && p.charAt(pos) == '{') {
+                        int close = p.indexOf('}', pos);
+                        if (close < 0) throw new IllegalArgumentException();
+                        cp = Integer.parseInt(p.substring(pos + 1, close), 16);
+                        pos = close + 1;
+                    } else {
+                        cp = hex(2);
+                    }
+                }
+                case 'u' -> {
+                    cp = hex(4);
+                    if (Character.isHighSurrogate((char) cp) && p.startsWith("\\u", pos)) {
+                        pos += 2;
+                        int low = hex(4);
+                        if (!Character.isLowSurrogate((char) low)) return null;
+                        cp = Character.toCodePoint((char) cp, (char) low);
+                    }
+                    if (cp <= 0xFFFF && Character.isSurrogate((char) cp)) return null;
+                }
+                case '0' -> {
+                    // \0n, \0nn or \0mnn with m <= 3
+                    int digits = pos < p.length() && p.charAt(pos) <= '3' ? 3 : 2;
+                    int start = pos;
+                    while (pos < p.length() && pos - start < digits && p.charAt(pos) >= '0' && p.charAt(pos) <= '7') pos++;
+                    if (pos == start) throw new IllegalArgumentException();
+                    cp = Integer.parseInt(p.substring(start, pos), 8);
+                }
+                case 'c' -> {
+                    if (pos >= p.length()) throw new IllegalArgumentException();
+                    cp = p.charAt(pos++) ^ 64;
+                }
+                case 'N' -> {
+                    int close = p.indexOf('}', pos);
+                    if (pos >= p.length() || p.charAt(pos) != '{' || close < 0) throw new IllegalArgumentException();
+                    String name = p.substring(pos + 1, close);
+                    pos = close + 1;
+                    cp = Character.codePointOf(name);
+                }
+                case 'k' -> {
+                    int close = p.indexOf('>', pos);
+                    pos = close < 0 ? p.length() : close + 1;
+                    return null;
+                }
+                case 'p', 'P' -> {
+                    skipBraces();
+                    return null;
+                }
+                case 'b', 'B' -> {
+                    if (p.startsWith("{", pos)) skipBraces();   // \b{g}
+                    return null;
+                }
+                default -> {
+                    if (c >= '1' && c <= '9') {
+                        // a back reference takes as many digits as there are groups: skip them all
+                        while (pos < p.length() && Character.isDigit(p.charAt(pos))) pos++;
+                        return null;
+                    }
+                    if (Character.isLetterOrDigit(c)) return null;
+                    cp = c;
+                }
+            }
+            return new String(Character.toChars(cp)).getBytes(StandardCharsets.UTF_8);
+        }
+
+        private int hex(int digits) {
+            if (pos + digits > p.length()) throw new IllegalArgumentException();
+            int value = Integer.parseInt(p.substring(pos, pos + digits), 16);
+            pos += digits;
+            return value;
+        }
+
+        private void skipClass() {
+            if (pos < p.length() && p.charAt(pos) == '^') pos++;
+            if (pos < p.length() && p.charAt(pos) == ']') pos++;
+            int depth = 1;
+            while (pos < p.length() && depth > 0) {
+                char c = p.charAt(pos++);
+                if (c == '\\') pos++;
+                else if (c == '[') depth++;
+                else if (c == ']') depth--;
+            }
+        }
+
+        private void skipToClose() {
+            int depth = 1;
+            while (pos < p.length() && depth > 0) {
+                char c = p.charAt(pos++);
+                if (c == '\\') pos++;
+                else if (c == '[') skipClass();
+                else if (c == '(') depth++;
+                else if (c == ')') depth--;
+            }
+        }
+
+        private void skipBraces() {
+            if (pos < p.length() && p.charAt(pos) == '{') {
+                int close = p.indexOf('}', pos);
+                pos = close < 0 ? p.length() : close + 1;
+            } else {
+                pos++;
+            }
+        }
+    }
+}
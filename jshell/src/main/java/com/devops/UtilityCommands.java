@@ -1,14 +1,20 @@
 package com.devops;
 
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -16,51 +22,46 @@ public final class UtilityCommands {
 
     private UtilityCommands() {}
 
+    /**
+     * Sorts within the -S memory budget: input beyond it is spilled to sorted
+     * runs under -T and merged back (see ExternalSort), so the file may be
+     * larger than the heap. Keys (-k, -n, -h, -f) are extracted once per line
+     * by SortKey; the sort is stable.
+     */
     public static final class SortCommand implements Command {
 
         @Override
         public ExecutionResult execute(ShellContext context, String[] args) {
-            boolean reverse = false;
-            boolean numeric = false;
-            int fileIdx = 1;
-
-            for (int i = 1; i < args.length; i++) {
-                switch (args[i]) {
-                    case "-r"        -> { reverse = true; fileIdx = i + 1; }
-                    case "-n"        -> { numeric = true; fileIdx = i + 1; }
-                    case "-rn", "-nr" -> { reverse = true; numeric = true; fileIdx = i + 1; }
-                    default          -> { fileIdx = i; i = args.length; } // stop at first non-flag
-                }
-            }
-
-            if (fileIdx >= args.length) {
-                System.err.println("usage: " + usage());
+            SortOptions options;
+            try {
+                options = SortOptions.parse(args);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage() != null ? "sort: " + e.getMessage() : "usage: " + usage());
                 return ExecutionResult.misuse(context);
             }
 
-            File file = new File(context.currentDirectory(), args[fileIdx]);
-            if (!file.exists()) {
-                System.err.println("sort: '" + args[fileIdx] + "': No such file");
-                return ExecutionResult.fail(context);
+            List<Path> inputs = new ArrayList<>();
+            for (String name : options.files) {
+                File file = new File(context.currentDirectory(), name);
+                if (!file.exists()) {
+                    System.err.println("sort: '" + name + "': No such file");
+                    return ExecutionResult.fail(context);
+                }
+                inputs.add(file.toPath());
             }
-
-            try {
-                List<String> lines = Files.readAllLines(file.toPath());
-
-                if (numeric) {
-                    lines.sort((a, b) -> {
-                        try {
-                            return Double.compare(Double.parseDouble(a.trim()), Double.parseDouble(b.trim()));
-                        } catch (NumberFormatException e) {
-                            return a.compareTo(b);
-                        }
-                    });
-                } else {
-                    Collections.sort(lines);
+            Path tmpDir = Path.of(System.getProperty("java.io.tmpdir"));
+            if (options.tmpDir != null) {
+                tmpDir = new File(context.currentDirectory(), options.tmpDir).toPath();
+                if (!Files.isDirectory(tmpDir)) {
+                    System.err.println("sort: '" + options.tmpDir + "': No such directory");
+                    return ExecutionResult.fail(context);
                 }
+            }
 
-                if (reverse) Collections.reverse(lines);
-                lines.forEach(System.out::println);
+            var out = new BufferedOutputStream(System.out, LineScanner.OUTPUT_BUFFER);
+            try {
+                ExternalSort.sort(inputs, options.key(), options.unique, options.memoryBudget(), tmpDir, out);
+                out.flush();
             } catch (IOException e) {
                 System.err.println("sort: " + e.getMessage());
                 return ExecutionResult.fail(context);
@@ -69,24 +70,44 @@ public final class UtilityCommands {
         }
 
         @Override public String name()  { return "sort"; }
-        @Override public String usage() { return "sort [-r] [-n] <file>"; }
+        @Override public String usage() { return "sort [-bfhnrsu] [-k start[,end]] [-t sep] [-S size] [-T tmpdir] <file...>"; }
     }
 
+    /**
+     * Adjacent duplicates by default. -a collapses duplicates anywhere in the
+     * file (LineCounts, exact, first-seen order); --top K reports the K most
+     * frequent lines from a fixed set of Space-Saving counters; and
+     * --approx-distinct prints a HyperLogLog estimate of the number of
+     * distinct lines. The last two use bounded memory on any input size.
+     */
     public static final class UniqCommand implements Command {
 
+        /** Space-Saving counters per requested top entry (at least MIN_COUNTERS). */
+        private static final int COUNTERS_PER_TOP = 100;
+        private static final int MIN_COUNTERS     = 10_000;
+
         @Override
         public ExecutionResult execute(ShellContext context, String[] args) {
-            if (args.length < 2) {
-                System.err.println("usage: " + usage());
-                return ExecutionResult.misuse(context);
+            boolean count = false, global = false, distinct = false;
+            int top = 0;
+            String fileName = null;
+            for (int i = 1; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("-c")) count = true;
+                else if (arg.equals("-a")) global = true;
+                else if (arg.equals("-ac") || arg.equals("-ca")) count = global = true;
+                else if (arg.equals("--approx-distinct")) distinct = true;
+                else if (arg.equals("--top") && i + 1 < args.length) top = topCount(args[++i]);
+                else if (arg.startsWith("--top=")) top = topCount(arg.substring("--top=".length()));
+                else if (fileName == null && !(arg.startsWith("-") && arg.length() > 1)) fileName = arg;
+                else top = -1;
+                if (top < 0) break;
             }
-
-            boolean count = args[1].equals("-c");
-            if (count && args.length < 3) {
+            int modes = (global ? 1 : 0) + (top > 0 ? 1 : 0) + (distinct ? 1 : 0);
+            if (fileName == null || top < 0 || modes > 1) {
                 System.err.println("usage: " + usage());
                 return ExecutionResult.misuse(context);
             }
-            String fileName = count ? args[2] : args[1];
 
             File file = new File(context.currentDirectory(), fileName);
             if (!file.exists()) {
@@ -94,21 +115,49 @@ public final class UtilityCommands {
                 return ExecutionResult.fail(context);
             }
 
-            try (BufferedReader reader = Files.newBufferedReader(file.toPath())) {
-                // Correct uniq semantics: collapse only adjacent duplicates
-                String prev = null;
+            if (modes == 1) {
+                try (var scanner = LineScanner.open(file.toPath())) {
+                    var out = new BufferedOutputStream(System.out, LineScanner.OUTPUT_BUFFER);
+                    LineScanner.Line line;
+                    if (global) {
+                        var counts = new LineCounts();
+                        while ((line = scanner.next()) != null) counts.add(line);
+                        counts.writeTo(out, count);
+                    } else if (top > 0) {
+                        var sketch = new SpaceSaving(Math.max(MIN_COUNTERS, top * COUNTERS_PER_TOP));
+                        while ((line = scanner.next()) != null) sketch.add(line);
+                        sketch.writeTop(out, top);
+                    } else {
+                        var sketch = new HyperLogLog();
+                        while ((line = scanner.next()) != null) sketch.add(line.hash());
+                        out.write((sketch.estimate() + "\n").getBytes(StandardCharsets.US_ASCII));
+                    }
+                    out.flush();
+                } catch (IOException | IllegalStateException e) {
+                    System.err.println("uniq: " + e.getMessage());
+                    return ExecutionResult.fail(context);
+                }
+                return ExecutionResult.ok(context);
+            }
+
+            try (var scanner = LineScanner.open(file.toPath())) {
+                var out = new BufferedOutputStream(System.out, LineScanner.OUTPUT_BUFFER);
+                // Correct uniq semantics: collapse only adjacent duplicates.
+                // Lines are compared as bytes; only the run representative is copied.
+                byte[] prev = null;
                 int run = 0;
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (line.equals(prev)) {
+                LineScanner.Line line;
+                while ((line = scanner.next()) != null) {
+                    if (prev != null && line.contentEquals(prev)) {
                         run++;
                     } else {
-                        if (prev != null) printUniq(prev, run, count);
-                        prev = line;
+                        if (prev != null) printUniq(out, prev, run, count);
+                        prev = line.toBytes();
                         run = 1;
                     }
                 }
-                if (prev != null) printUniq(prev, run, count);
+                if (prev != null) printUniq(out, prev, run, count);
+                out.flush();
             } catch (IOException e) {
                 System.err.println("uniq: " + e.getMessage());
                 return ExecutionResult.fail(context);
@@ -116,13 +165,24 @@ public final class UtilityCommands {
             return ExecutionResult.ok(context);
         }
 
-        private void printUniq(String line, int runCount, boolean showCount) {
-            if (showCount) System.out.printf("%4d %s%n", runCount, line);
-            else           System.out.println(line);
+        private void printUniq(OutputStream out, byte[] line, int runCount, boolean showCount) throws IOException {
+            if (showCount) out.write(String.format("%4d ", runCount).getBytes(StandardCharsets.US_ASCII));
+            out.write(line);
+            out.write('\n');
+        }
+
+        /** The K of --top K, or -1 when it is not a positive number. */
+        private static int topCount(String value) {
+            try {
+                int k = Integer.parseInt(value);
+                return k > 0 ? k : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
         }
 
         @Override public String name()  { return "uniq"; }
-        @Override public String usage() { return "uniq [-c] <file>"; }
+        @Override public String usage() { return "uniq [-c] [-a | --top K | --approx-distinct] <file>"; }
     }
 
     public static final class ChecksumCommand implements Command {
@@ -249,13 +309,15 @@ public final class UtilityCommands {
             }
 
             // Stream — stops reading after n lines; never loads whole file
-            try (BufferedReader reader = Files.newBufferedReader(file.toPath())) {
-                String line;
+            try (var scanner = LineScanner.open(file.toPath())) {
+                var out = new BufferedOutputStream(System.out, LineScanner.OUTPUT_BUFFER);
+                LineScanner.Line line;
                 int count = 0;
-                while (count < lines && (line = reader.readLine()) != null) {
-                    System.out.println(line);
+                while (count < lines && (line = scanner.next()) != null) {
+                    line.writeTo(out);
                     count++;
                 }
+                out.flush();
             } catch (IOException e) {
                 System.err.println("head: " + e.getMessage());
                 return ExecutionResult.fail(context);
@@ -269,49 +331,92 @@ public final class UtilityCommands {
 
     public static final class TailCommand implements Command {
 
+        private static final int SCAN_BLOCK = 64 * 1024;
+
         @Override
         public ExecutionResult execute(ShellContext context, String[] args) {
-            if (args.length < 2) {
+            int lines = 10;
+            boolean follow = false;
+            boolean retry  = false;
+            List<String> names = new ArrayList<>();
+
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-f" -> follow = true;
+                    case "-F" -> { follow = true; retry = true; }
+                    case "-n" -> {
+                        if (i + 1 >= args.length) {
+                            System.err.println("usage: " + usage());
+                            return ExecutionResult.misuse(context);
+                        }
+                        try {
+                            lines = Integer.parseInt(args[++i]);
+                            if (lines < 0) throw new NumberFormatException();
+                        } catch (NumberFormatException e) {
+                            System.err.println("tail: invalid line count '" + args[i] + "'");
+                            return ExecutionResult.fail(context);
+                        }
+                    }
+                    default -> names.add(args[i]);
+                }
+            }
+
+            if (names.isEmpty()) {
                 System.err.println("usage: " + usage());
                 return ExecutionResult.misuse(context);
             }
 
-            int lines = 10;
-            int fileIdx = 1;
+            PrintStream out = System.out;
+            boolean headers = names.size() > 1;
+            var follower = new FileFollower(retry, headers, out);
+            int followed = 0;
+            boolean failed = false;
+            String lastPrinted = null;
+
+            for (String name : names) {
+                Path path = new File(context.currentDirectory(), name).toPath();
+                if (!Files.exists(path)) {
+                    if (retry) {
+                        System.err.println("tail: cannot open '" + name + "' for reading: No such file");
+                        follower.add(path, name, 0);
+                        followed++;
+                    } else {
+                        System.err.println("tail: '" + name + "': No such file");
+                    }
+                    failed = true;
+                    continue;
+                }
 
-            if (args[1].equals("-n")) {
-                if (args.length < 4) { System.err.println("usage: " + usage()); return ExecutionResult.ok(context); }
-                try {
-                    lines = Integer.parseInt(args[2]);
-                } catch (NumberFormatException e) {
-                    System.err.println("tail: invalid line count '" + args[2] + "'");
-                    return ExecutionResult.fail(context);
+                // Print the last N lines by scanning backwards from the end —
+                // cost is proportional to the output, not to the file size
+                try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    long end = channel.size();
+                    long start = lastLinesOffset(channel, end, lines);
+                    if (headers) {
+                        if (lastPrinted != null) out.println();
+                        out.printf("==> %s <==%n", name);
+                    }
+                    copyRange(channel, start, end, out);
+                    if (!follow && end > start && !endsWithNewline(channel, end)) out.println();
+                    out.flush();
+                    lastPrinted = name;
+                    follower.add(path, name, end);
+                    followed++;
+                } catch (IOException e) {
+                    System.err.println("tail: " + e.getMessage());
+                    failed = true;
                 }
-                fileIdx = 3;
             }
 
-            File file = new File(context.currentDirectory(), args[fileIdx]);
-            if (!file.exists()) {
-                System.err.println("tail: '" + args[fileIdx] + "': No such file");
-                return ExecutionResult.fail(context);
+            if (!follow) {
+                return failed ? ExecutionResult.fail(context) : ExecutionResult.ok(context);
             }
+            if (followed == 0) return ExecutionResult.fail(context);
 
-            // Ring buffer — single pass, O(n) lines kept in memory at most
-            final int capacity = lines;
-            try (BufferedReader reader = Files.newBufferedReader(file.toPath())) {
-                var ring = new String[capacity];
-                int pos = 0, total = 0;
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    ring[pos % capacity] = line;
-                    pos++;
-                    total++;
-                }
-                int count = Math.min(total, capacity);
-                int start = total > capacity ? pos % capacity : 0;
-                for (int i = 0; i < count; i++) {
-                    System.out.println(ring[(start + i) % capacity]);
-                }
+            if (lastPrinted != null) follower.printedLast(lastPrinted);
+            System.err.println("tail: following " + followed + " file(s) — press Enter to stop");
+            try {
+                follower.follow(TailCommand::stopRequested);
             } catch (IOException e) {
                 System.err.println("tail: " + e.getMessage());
                 return ExecutionResult.fail(context);
@@ -319,7 +424,66 @@ public final class UtilityCommands {
             return ExecutionResult.ok(context);
         }
 
+        /**
+         * Offset of the first byte of the last n lines in [0, end).
+         * A newline in the final byte terminates the last line rather than
+         * starting an empty one, matching how readLine() counts lines.
+         */
+        private static long lastLinesOffset(FileChannel channel, long end, int n) throws IOException {
+            if (n == 0) return end;
+            ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK);
+            byte[] bytes = block.array();
+            int found = 0;
+            long pos = end;
+
+            while (pos > 0) {
+                int len = (int) Math.min(SCAN_BLOCK, pos);
+                pos -= len;
+                block.clear().limit(len);
+                while (block.hasRemaining()) {
+                    if (channel.read(block, pos + block.position()) < 0) break;
+                }
+                for (int i = len - 1; i >= 0; i--) {
+                    if (bytes[i] != '\n' || pos + i == end - 1) continue;
+                    if (++found == n) return pos + i + 1;
+                }
+            }
+            return 0;
+        }
+
+        private static void copyRange(FileChannel channel, long from, long to, PrintStream out) throws IOException {
+            ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK);
+            long pos = from;
+            while (pos < to) {
+                block.clear().limit((int) Math.min(SCAN_BLOCK, to - pos));
+                int read = channel.read(block, pos);
+                if (read <= 0) break;
+                out.write(block.array(), 0, read);
+                pos += read;
+            }
+        }
+
+        private static boolean endsWithNewline(FileChannel channel, long end) throws IOException {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            return channel.read(last, end - 1) == 1 && last.get(0) == '\n';
+        }
+
+        /**
+         * Follow mode ends when the user presses Enter. The pending line is
+         * consumed here so the REPL does not see it as a command.
+         */
+        private static boolean stopRequested() {
+            try {
+                if (System.in.available() <= 0) return false;
+                int c;
+                while ((c = System.in.read()) != -1 && c != '\n') { /* discard */ }
+                return true;
+            } catch (IOException e) {
+                return true;
+            }
+        }
+
         @Override public String name()  { return "tail"; }
-        @Override public String usage() { return "tail [-n count] <file>"; }
+        @Override public String usage() { return "tail [-n count] [-f|-F] <file...>"; }
     }
-}
\ No newline at end of file
+}
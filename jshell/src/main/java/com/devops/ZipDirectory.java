@@ -0,0 +1,147 @@
+package com.devops;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The central directory of an existing zip archive, with each entry's
+ * local header offset, raw data range and central record bytes — what
+ * ZipFile reads but does not expose. zip -u and -d use it to keep entries
+ * where they are, carrying their central records over unchanged, and to
+ * copy entries verbatim when the archive is compacted.
+ *
+ * The end record is found by scanning back from the end of the file over
+ * at most the maximum comment length, and the archive comment is kept so
+ * the new end record can carry it; ZIP64 end records and per-entry ZIP64
+ * extra fields are honoured.
+ */
+final class ZipDirectory {
+
+    private static final int END = 0x06054b50;
+    private static final int END_SIZE = 22;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int ZIP64_END = 0x06064b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int ZIP64_EXTRA = 0x0001;
+    private static final int MAX_COMMENT = 0xFFFF;
+    private static final long LIMIT32 = 0xFFFFFFFFL;
+
+    /**
+     * One entry. Its local header starts at localOffset and its compressed
+     * data occupies [dataOffset, dataOffset + compressedSize). central is its
+     * central directory record as read, with the attributes, extra fields and
+     * comment the tool that wrote it put there.
+     */
+    record Entry(String name, int flags, int method, long crc, long size, long compressedSize, int dosTime,
+                 long localOffset, long dataOffset, byte[] central) {
+
+        /** Bytes of the archive this entry accounts for: local header, data and any data descriptor. */
+        long span() {
+            // bit 3: CRC and sizes follow the data in a descriptor (signature optional, sizes 8 bytes under ZIP64)
+            long descriptor = (flags & 0x08) == 0 ? 0 : compressedSize >= LIMIT32 || size >= LIMIT32 ? 24 : 16;
+            return dataOffset - localOffset + compressedSize + descriptor;
+        }
+    }
+
+    final List<Entry> entries;
+    /** Where the central directory starts: entries live before it. */
+    final long directoryOffset;
+    /** The archive comment from the end record, as stored. */
+    final byte[] comment;
+
+    private ZipDirectory(List<Entry> entries, long directoryOffset, byte[] comment) {
+        this.entries = entries;
+        this.directoryOffset = directoryOffset;
+        this.comment = comment;
+    }
+
+    static ZipDirectory read(FileChannel channel) throws IOException {
+        long length = channel.size();
+        int tailLength = (int) Math.min(length, END_SIZE + MAX_COMMENT);
+        ByteBuffer tail = readAt(channel, length - tailLength, tailLength);
+        int end = -1;
+        for (int i = tailLength - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) throw new IOException("not a zip archive (no end of central directory)");
+
+        long count = tail.getShort(end + 10) & 0xFFFF;
+        long directorySize = tail.getInt(end + 12) & LIMIT32;
+        long directoryOffset = tail.getInt(end + 16) & LIMIT32;
+        long endPosition = length - tailLength + end;
+        byte[] comment = new byte[Math.min(tail.getShort(end + 20) & 0xFFFF, tailLength - end - END_SIZE)];
+        tail.get(end + END_SIZE, comment);
+        if (count == 0xFFFF || directorySize == LIMIT32 || directoryOffset == LIMIT32) {
+            ByteBuffer locator = readAt(channel, endPosition - 20, 20);
+            if (locator.getInt(0) == ZIP64_LOCATOR) {
+                ByteBuffer zip64 = readAt(channel, locator.getLong(8), 56);
+                if (zip64.getInt(0) != ZIP64_END) throw new IOException("corrupt ZIP64 end record");
+                count = zip64.getLong(32);
+                directorySize = zip64.getLong(40);
+                directoryOffset = zip64.getLong(48);
+            }
+        }
+        if (directorySize > Integer.MAX_VALUE) throw new IOException("central directory too large");
+
+        ByteBuffer dir = readAt(channel, directoryOffset, (int) directorySize);
+        List<Entry> entries = new ArrayList<>((int) Math.min(count, 1 << 20));
+        ByteBuffer local = ByteBuffer.allocate(30).order(ByteOrder.LITTLE_ENDIAN);
+        int p = 0;
+        for (long n = 0; n < count; n++) {
+            if (dir.getInt(p) != CENTRAL_HEADER) throw new IOException("corrupt central directory");
+            int flags = dir.getShort(p + 8) & 0xFFFF;
+            int method = dir.getShort(p + 10) & 0xFFFF;
+            int dosTime = dir.getInt(p + 12);
+            long crc = dir.getInt(p + 16) & LIMIT32;
+            long compressed = dir.getInt(p + 20) & LIMIT32;
+            long size = dir.getInt(p + 24) & LIMIT32;
+            int nameLength = dir.getShort(p + 28) & 0xFFFF;
+            int extraLength = dir.getShort(p + 30) & 0xFFFF;
+            int commentLength = dir.getShort(p + 32) & 0xFFFF;
+            long offset = dir.getInt(p + 42) & LIMIT32;
+            byte[] name = new byte[nameLength];
+            dir.get(p + 46, name);
+
+            // ZIP64 extra: only the fields that overflowed, in the order size, compressed, offset
+            for (int e = p + 46 + nameLength; e + 4 <= p + 46 + nameLength + extraLength; ) {
+                int id = dir.getShort(e) & 0xFFFF, len = dir.getShort(e + 2) & 0xFFFF;
+                if (id == ZIP64_EXTRA) {
+                    int f = e + 4;
+                    if (size == LIMIT32) { size = dir.getLong(f); f += 8; }
+                    if (compressed == LIMIT32) { compressed = dir.getLong(f); f += 8; }
+                    if (offset == LIMIT32) offset = dir.getLong(f);
+                }
+                e += 4 + len;
+            }
+
+            local.clear();
+            channel.read(local, offset);
+            if (local.getInt(0) != LOCAL_HEADER) throw new IOException("corrupt local header for " + new String(name, StandardCharsets.UTF_8));
+            long data = offset + 30 + (local.getShort(26) & 0xFFFF) + (local.getShort(28) & 0xFFFF);
+
+            byte[] central = new byte[46 + nameLength + extraLength + commentLength];
+            dir.get(p, central);
+            entries.add(new Entry(new String(name, StandardCharsets.UTF_8), flags, method, crc, size, compressed,
+                dosTime, offset, data, central));
+            p += central.length;
+        }
+        return new ZipDirectory(entries, directoryOffset, comment);
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("unexpected end of archive");
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,182 @@
+package com.devops;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Changes an existing zip archive in place (zip -u and -d).
+ *
+ * Entries that stay keep their local headers and data where they are: new
+ * and changed files are appended over the old central directory, and a new
+ * directory listing the kept entries at their original offsets follows
+ * them, each under its original central record byte for byte — attributes,
+ * extra fields and comments included — and the archive comment is carried
+ * over to the new end record. The archive is never inflated or
+ * deflated. Until the new end record is written the old directory's bytes
+ * are held in memory, and a failure puts them back, so the archive is left
+ * as it was.
+ *
+ * Replaced and deleted entries leave dead space behind. Once it exceeds
+ * half of the entry area the archive is compacted instead: the kept entries
+ * are copied verbatim, local headers and all, into a temp file beside it,
+ * followed by the new entries, and the temp file replaces the archive. Only
+ * the offsets in their central records change.
+ *
+ * A file is unchanged when its size and MS-DOS modification time match its
+ * entry, or, if only the time differs, when its CRC does.
+ */
+final class ZipUpdate {
+
+    private ZipUpdate() {}
+
+    /** What an update did to the archive. */
+    record Outcome(int added, int replaced, int deleted, boolean compacted) {
+
+        boolean changed() {
+            return added + replaced + deleted > 0;
+        }
+    }
+
+    /** zip -u: appends sources that are new or differ from their entries. Files are read buffer bytes at a time. */
+    static Outcome update(Path archive, List<ParallelZip.Source> sources, int level, int threads, int buffer,
+                          Path tmpDir) throws IOException {
+        try (var channel = FileChannel.open(archive, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ZipDirectory dir = ZipDirectory.read(channel);
+            Map<String, ZipDirectory.Entry> existing = new HashMap<>();
+            for (ZipDirectory.Entry e : dir.entries) existing.put(e.name(), e);
+
+            List<ParallelZip.Source> changed = new ArrayList<>();
+            Set<String> replaced = new HashSet<>();
+            for (ParallelZip.Source s : sources) {
+                ZipDirectory.Entry e = existing.get(s.name());
+                if (e == null) {
+                    changed.add(s);
+                } else if (!s.directory() && differs(s.path(), e, buffer) && replaced.add(s.name())) {
+                    changed.add(s);
+                }
+            }
+            if (changed.isEmpty()) return new Outcome(0, 0, 0, false);
+
+            List<ZipDirectory.Entry> kept = new ArrayList<>();
+            for (ZipDirectory.Entry e : dir.entries) {
+                if (!replaced.contains(e.name())) kept.add(e);
+            }
+            boolean compacted = rewrite(archive, channel, dir, kept, changed, level, threads, buffer, tmpDir);
+            return new Outcome(changed.size() - replaced.size(), replaced.size(), 0, compacted);
+        }
+    }
+
+    /** zip -d: drops the entries any matcher matches. */
+    static Outcome delete(Path archive, List<PathMatcher> matchers, int buffer, Path tmpDir) throws IOException {
+        try (var channel = FileChannel.open(archive, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ZipDirectory dir = ZipDirectory.read(channel);
+            List<ZipDirectory.Entry> kept = new ArrayList<>();
+            for (ZipDirectory.Entry e : dir.entries) {
+                Path name = Path.of(e.name());
+                if (matchers.stream().noneMatch(m -> m.matches(name))) kept.add(e);
+            }
+            int deleted = dir.entries.size() - kept.size();
+            if (deleted == 0) return new Outcome(0, 0, 0, false);
+            boolean compacted = rewrite(archive, channel, dir, kept, List.of(), ParallelZip.DEFAULT_LEVEL, 1, buffer,
+                tmpDir);
+            return new Outcome(0, 0, deleted, compacted);
+        }
+    }
+
+    /** Writes kept and added as the archive's new contents. Returns true if it was compacted. */
+    private static boolean rewrite(Path archive, FileChannel channel, ZipDirectory dir, List<ZipDirectory.Entry> kept,
+                                   List<ParallelZip.Source> added, int level, int threads, int buffer,
+                                   Path tmpDir) throws IOException {
+        long live = 0;
+        for (ZipDirectory.Entry e : kept) live += e.span();
+        if ((dir.directoryOffset - live) * 2 > dir.directoryOffset) {
+            compact(archive, channel, dir, kept, added, level, threads, buffer, tmpDir);
+            return true;
+        }
+
+        long start = dir.directoryOffset;
+        ByteBuffer tail = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, channel.size() - start));
+        while (tail.hasRemaining()) {
+            if (channel.read(tail, start + tail.position()) < 0) break;
+        }
+        tail.flip();
+        try {
+            channel.position(start);
+            // not closed: that would close the channel, which the caller owns
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), buffer);
+            var zip = new ZipWriter(out, start);
+            zip.comment(dir.comment);
+            for (ZipDirectory.Entry e : kept) zip.keep(e.central());
+            ParallelZip.append(added, zip, level, threads, buffer, tmpDir);
+            zip.finish();
+            channel.truncate(channel.position());
+        } catch (IOException | RuntimeException e) {
+            channel.truncate(start);
+            while (tail.hasRemaining()) channel.write(tail, start + tail.position());
+            throw e;
+        }
+        return false;
+    }
+
+    private static void compact(Path archive, FileChannel channel, ZipDirectory dir, List<ZipDirectory.Entry> kept,
+                                List<ParallelZip.Source> added, int level, int threads, int buffer, Path tmpDir)
+            throws IOException {
+        Path parent = archive.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, ".jshell-zip-", ".tmp");
+        try {
+            try (var out = new BufferedOutputStream(Files.newOutputStream(temp), buffer);
+                 var zip = new ZipWriter(out)) {
+                zip.comment(dir.comment);
+                for (ZipDirectory.Entry e : kept) {
+                    zip.copy(e.central(), e.span(), o -> copy(channel, e.localOffset(), e.span(), buffer, o));
+                }
+                ParallelZip.append(added, zip, level, threads, buffer, tmpDir);
+                zip.finish();
+            }
+            Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static boolean differs(Path file, ZipDirectory.Entry e, int bufferSize) throws IOException {
+        long size = Files.size(file);
+        if (size != e.size()) return true;
+        if (ZipWriter.dosTime(Files.getLastModifiedTime(file).toMillis()) == e.dosTime()) return false;
+        var crc = new CRC32();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[bufferSize];
+            for (int n; (n = in.read(buffer)) > 0; ) crc.update(buffer, 0, n);
+        }
+        return crc.getValue() != e.crc();
+    }
+
+    private static void copy(FileChannel channel, long position, long length, int bufferSize, OutputStream out)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        for (long done = 0; done < length; ) {
+            buffer.clear().limit((int) Math.min(bufferSize, length - done));
+            int n = channel.read(buffer, position + done);
+            if (n < 0) throw new IOException("unexpected end of archive");
+            out.write(buffer.array(), 0, n);
+            done += n;
+        }
+    }
+}
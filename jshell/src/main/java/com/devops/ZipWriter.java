@@ -0,0 +1,320 @@
+package com.devops;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a zip archive from entries whose data is already in final form —
+ * deflated or stored, with CRC and sizes known before the entry starts.
+ * ZipOutputStream cannot take pre-compressed data, which is what lets
+ * ParallelZip deflate entries off the writing thread.
+ *
+ * Since sizes are known up front, local headers carry them directly and no
+ * data descriptors are written. Names are flagged UTF-8. ZIP64 extra fields
+ * are added per entry once a size or offset reaches 4 GB, and the ZIP64 end
+ * records once the archive has 65535 entries or more, so trees of any size
+ * round-trip through ZipFile and ZipInputStream.
+ *
+ * A writer can also continue an existing archive (zip -u and -d): it is
+ * opened at the offset where new entries go, and entries that stay where
+ * they are join the central directory through keep(). Their central
+ * records are written back byte for byte, so the attributes, extra fields
+ * and comments other tools stored survive; copy() moves an entry whole and
+ * patches only the offset in its record. comment() carries the archive
+ * comment over to the new end record.
+ */
+final class ZipWriter implements Closeable {
+
+    static final int STORED = 0;
+    static final int DEFLATED = 8;
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END = 0x06054b50;
+    private static final int ZIP64_END = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int ZIP64_EXTRA = 0x0001;
+    private static final int UTF8_NAMES = 0x0800;
+    private static final int VERSION = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final int MADE_BY_UNIX = 3 << 8;
+    private static final long LIMIT32 = 0xFFFFFFFFL;
+    private static final int LIMIT16 = 0xFFFF;
+
+    /** What the central directory needs to know about an entry. */
+    record Header(String name, int method, long crc, long size, long compressedSize, long mtime, boolean directory) {}
+
+    /** Writes exactly compressedSize bytes of entry data. */
+    interface Payload { void writeTo(OutputStream out) throws IOException; }
+
+    /** An entry for the central directory: written here, or with its record from an existing archive. */
+    private record Written(Header header, int flags, long offset, byte[] central) {}
+
+    private final Counting out;
+    private final List<Written> entries = new ArrayList<>();
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream(256);
+    private byte[] comment = new byte[0];
+
+    ZipWriter(OutputStream out) {
+        this(out, 0);
+    }
+
+    /** A writer whose first byte lands at offset in the archive. */
+    ZipWriter(OutputStream out, long offset) {
+        this.out = new Counting(out);
+        this.out.count = offset;
+    }
+
+    /** Lists an entry that stays where it is in the archive under its central record, without writing anything. */
+    void keep(byte[] central) {
+        entries.add(new Written(null, 0, 0, central));
+    }
+
+    /**
+     * Writes an entry from another archive as is — local header, data and any
+     * data descriptor, exactly length bytes — and lists it under its central
+     * record with the offset moved to where it now starts.
+     */
+    void copy(byte[] central, long length, Payload raw) throws IOException {
+        long offset = out.count;
+        raw.writeTo(out);
+        if (out.count - offset != length) {
+            throw new IOException("expected " + length + " bytes, wrote " + (out.count - offset));
+        }
+        entries.add(new Written(null, 0, 0, relocate(central, offset)));
+    }
+
+    /** Sets the archive comment for the end record, at most 65535 bytes. */
+    void comment(byte[] comment) {
+        if (comment.length > LIMIT16) throw new IllegalArgumentException("archive comment too long");
+        this.comment = comment;
+    }
+
+    void add(Header h, Payload payload) throws IOException {
+        long offset = out.count;
+        boolean zip64 = h.size() >= LIMIT32 || h.compressedSize() >= LIMIT32;
+        byte[] name = h.name().getBytes(StandardCharsets.UTF_8);
+
+        scratch.reset();
+        int4(LOCAL_HEADER);
+        int2(zip64 ? VERSION_ZIP64 : VERSION);
+        int2(UTF8_NAMES);
+        int2(h.method());
+        int4(dosTime(h.mtime()));
+        int4((int) h.crc());
+        int4((int) (zip64 ? LIMIT32 : h.compressedSize()));
+        int4((int) (zip64 ? LIMIT32 : h.size()));
+        int2(name.length);
+        int2(zip64 ? 20 : 0);
+        scratch.writeBytes(name);
+        if (zip64) {
+            int2(ZIP64_EXTRA);
+            int2(16);
+            int8(h.size());
+            int8(h.compressedSize());
+        }
+        scratch.writeTo(out);
+
+        long start = out.count;
+        payload.writeTo(out);
+        if (out.count - start != h.compressedSize()) {
+            throw new IOException(h.name() + ": expected " + h.compressedSize() + " bytes, wrote " + (out.count - start));
+        }
+        entries.add(new Written(h, UTF8_NAMES, offset, null));
+    }
+
+    /** Writes the central directory and end records. Does not close the underlying stream. */
+    void finish() throws IOException {
+        long directoryOffset = out.count;
+        for (Written w : entries) {
+            if (w.central() != null) {
+                out.write(w.central());
+                continue;
+            }
+            Header h = w.header();
+            byte[] name = h.name().getBytes(StandardCharsets.UTF_8);
+            boolean bigSize = h.size() >= LIMIT32, bigCompressed = h.compressedSize() >= LIMIT32;
+            boolean bigOffset = w.offset() >= LIMIT32;
+            int extra = (bigSize ? 8 : 0) + (bigCompressed ? 8 : 0) + (bigOffset ? 8 : 0);
+            boolean zip64 = extra > 0;
+
+            scratch.reset();
+            int4(CENTRAL_HEADER);
+            int2(MADE_BY_UNIX | VERSION_ZIP64);
+            int2(zip64 ? VERSION_ZIP64 : VERSION);
+            int2(w.flags());
+            int2(h.method());
+            int4(dosTime(h.mtime()));
+            int4((int) h.crc());
+            int4((int) (bigCompressed ? LIMIT32 : h.compressedSize()));
+            int4((int) (bigSize ? LIMIT32 : h.size()));
+            int2(name.length);
+            int2(zip64 ? extra + 4 : 0);
+            int2(0);                                    // comment
+            int2(0);                                    // disk
+            int2(0);                                    // internal attributes
+            // external attributes: unix mode in the high half, MS-DOS directory bit in the low
+            int4(h.directory() ? (040755 << 16) | 0x10 : 0100644 << 16);
+            int4((int) (bigOffset ? LIMIT32 : w.offset()));
+            scratch.writeBytes(name);
+            if (zip64) {
+                // only the fields that overflowed, in this order
+                int2(ZIP64_EXTRA);
+                int2(extra);
+                if (bigSize) int8(h.size());
+                if (bigCompressed) int8(h.compressedSize());
+                if (bigOffset) int8(w.offset());
+            }
+            scratch.writeTo(out);
+        }
+        long directorySize = out.count - directoryOffset;
+        long count = entries.size();
+
+        scratch.reset();
+        if (count >= LIMIT16 || directoryOffset >= LIMIT32 || directorySize >= LIMIT32) {
+            long zip64End = out.count;
+            int4(ZIP64_END);
+            int8(44);                                   // size of the rest of this record
+            int2(MADE_BY_UNIX | VERSION_ZIP64);
+            int2(VERSION_ZIP64);
+            int4(0);
+            int4(0);
+            int8(count);
+            int8(count);
+            int8(directorySize);
+            int8(directoryOffset);
+
+            int4(ZIP64_LOCATOR);
+            int4(0);
+            int8(zip64End);
+            int4(1);
+        }
+        int4(END);
+        int2(0);
+        int2(0);
+        int2((int) Math.min(count, LIMIT16));
+        int2((int) Math.min(count, LIMIT16));
+        int4((int) Math.min(directorySize, LIMIT32));
+        int4((int) Math.min(directoryOffset, LIMIT32));
+        int2(comment.length);
+        scratch.writeBytes(comment);
+        scratch.writeTo(out);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /** MS-DOS date in the high half, time in the low half, in local time; clamped to 1980. */
+    static int dosTime(long millis) {
+        LocalDateTime t = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (t.getYear() < 1980) return (1 << 5 | 1) << 16;
+        int date = (t.getYear() - 1980) << 9 | t.getMonthValue() << 5 | t.getDayOfMonth();
+        int time = t.getHour() << 11 | t.getMinute() << 5 | t.getSecond() / 2;
+        return date << 16 | time;
+    }
+
+    /**
+     * A copy of central with its local header offset set to offset: in the
+     * 32-bit field, or in the ZIP64 extra when the record keeps it there.
+     * Only a record that needs a ZIP64 offset and has no slot for one is
+     * rebuilt, with its other extra fields and comment carried across.
+     */
+    private byte[] relocate(byte[] central, long offset) {
+        ByteBuffer b = ByteBuffer.wrap(central.clone()).order(ByteOrder.LITTLE_ENDIAN);
+        int nameLength = b.getShort(28) & 0xFFFF, extraLength = b.getShort(30) & 0xFFFF;
+        boolean bigSize = (b.getInt(24) & LIMIT32) == LIMIT32, bigCompressed = (b.getInt(20) & LIMIT32) == LIMIT32;
+        boolean inExtra = (b.getInt(42) & LIMIT32) == LIMIT32;
+        if (!inExtra && offset < LIMIT32) {
+            b.putInt(42, (int) offset);
+            return b.array();
+        }
+
+        int extraStart = 46 + nameLength, extraEnd = extraStart + extraLength;
+        int zip64 = -1, zip64Length = 0;
+        for (int e = extraStart; e + 4 <= extraEnd; e += 4 + (b.getShort(e + 2) & 0xFFFF)) {
+            if ((b.getShort(e) & 0xFFFF) == ZIP64_EXTRA) {
+                zip64 = e;
+                zip64Length = b.getShort(e + 2) & 0xFFFF;
+            }
+        }
+        // the extra holds only the fields that overflowed, in the order size, compressed, offset
+        int slot = zip64 + 4 + (bigSize ? 8 : 0) + (bigCompressed ? 8 : 0);
+        if (inExtra && zip64 >= 0 && slot + 8 <= zip64 + 4 + zip64Length) {
+            b.putLong(slot, offset);
+            return b.array();
+        }
+
+        scratch.reset();
+        scratch.write(central, 0, 30);
+        int fields = (bigSize ? 8 : 0) + (bigCompressed ? 8 : 0) + 8;
+        int2(extraLength - (zip64 < 0 ? 0 : 4 + zip64Length) + 4 + fields);
+        scratch.write(central, 32, 10);
+        int4((int) LIMIT32);
+        scratch.write(central, 46, nameLength);
+        int2(ZIP64_EXTRA);
+        int2(fields);
+        if (bigSize) int8(b.getLong(zip64 + 4));
+        if (bigCompressed) int8(b.getLong(zip64 + 4 + (bigSize ? 8 : 0)));
+        int8(offset);
+        for (int e = extraStart; e + 4 <= extraEnd; e += 4 + (b.getShort(e + 2) & 0xFFFF)) {
+            if (e != zip64) scratch.write(central, e, 4 + (b.getShort(e + 2) & 0xFFFF));
+        }
+        scratch.write(central, extraEnd, central.length - extraEnd);
+        byte[] rebuilt = scratch.toByteArray();
+        int needed = Math.max(VERSION_ZIP64, b.getShort(6) & 0xFFFF);
+        rebuilt[6] = (byte) needed;
+        rebuilt[7] = (byte) (needed >>> 8);
+        return rebuilt;
+    }
+
+    private void int2(int v) {
+        scratch.write(v);
+        scratch.write(v >>> 8);
+    }
+
+    private void int4(int v) {
+        int2(v);
+        int2(v >>> 16);
+    }
+
+    private void int8(long v) {
+        int4((int) v);
+        int4((int) (v >>> 32));
+    }
+
+    /** Tracks the archive offset as entries and headers go through. */
+    private static final class Counting extends FilterOutputStream {
+
+        long count;
+
+        Counting(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -1,12 +1,45 @@
 package com.devops;
 
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -232,12 +265,474 @@ class AppTest {
         assertEquals(1, r.exitCode());
     }
 
+    @Test void grep_missingFile_returnsExitCode2() {
+        PrintStream oldErr = System.err;
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(err));
+        ExecutionResult r = new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", "xyz", "absent.txt"});
+        System.setErr(oldErr);
+        // an error, not "nothing selected"
+        assertEquals(2, r.exitCode());
+        assertTrue(err.toString().contains("grep: absent.txt: No such file"), err.toString());
+    }
+
     @Test void grep_invalidRegex_returnsMisuse() throws Exception {
         Files.writeString(tempDir.resolve("g3.txt"), "data\n");
         ExecutionResult r = new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", "[invalid", "g3.txt"});
         assertFalse(r.succeeded());
     }
 
+    @Test void grep_literalFastPath_printsWholeLinesWithoutCarriageReturn() throws Exception {
+        Files.writeString(tempDir.resolve("gl.txt"), "first\r\nERROR disk full\r\nok\r\nlast ERROR");
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult r = new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", "-i", "error", "gl.txt"});
+        System.setOut(old);
+        assertTrue(r.succeeded());
+        assertEquals("ERROR disk full\nlast ERROR\n", b.toString());
+    }
+
+    @Test void grep_parallelChunks_keepFileOrder() throws Exception {
+        Path f = tempDir.resolve("gp.txt");
+        var expected = new StringBuilder();
+        try (var w = Files.newBufferedWriter(f)) {
+            for (int i = 0; i < 200_000; i++) {
+                String line = "row " + i + (i % 7 == 0 ? " hit" : " miss") + "\n";
+                w.write(line);
+                if (i % 7 == 0) expected.append(line);
+            }
+        }
+        for (String pattern : new String[]{"hit", "h[i]t$"}) {
+            PrintStream old = System.out;
+            ByteArrayOutputStream b = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(b));
+            new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", "-j", "4", pattern, "gp.txt"});
+            System.setOut(old);
+            assertEquals(expected.toString(), b.toString(), pattern);
+        }
+    }
+
+    @Test void grep_ignoreCaseWithoutFile_isMisuse() {
+        ExecutionResult r = new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", "-i", "x"});
+        assertEquals(2, r.exitCode());
+    }
+
+    @Test void grep_recursive_groupsOutputPerFileAndAppliesGlobs() throws Exception {
+        Path tree = tempDir.resolve("tree");
+        Files.createDirectories(tree.resolve("b/skip"));
+        Files.writeString(tree.resolve("a.log"), "x needle 1\nnone\nx needle 2\n");
+        Files.writeString(tree.resolve("b/c.log"), "needle 3\n");
+        Files.writeString(tree.resolve("b/c.txt"), "needle excluded by include\n");
+        Files.writeString(tree.resolve("b/skip/d.log"), "needle in excluded dir\n");
+        Files.write(tree.resolve("b/bin.log"), new byte[]{'n', 'e', 'e', 'd', 'l', 'e', 0, '\n'});
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult r = new TextCommands.GrepCommand().execute(ctx,
+            new String[]{"grep", "-r", "-j", "3", "--include=*.log", "--exclude-dir=skip", "needle", "tree"});
+        System.setOut(old);
+
+        assertTrue(r.succeeded());
+        assertEquals("tree/a.log:x needle 1\ntree/a.log:x needle 2\ntree/b/c.log:needle 3\n", b.toString());
+    }
+
+    @Test void grep_recursive_streamsLargeOutputsInWalkOrder() throws Exception {
+        Path tree = tempDir.resolve("loud");
+        Files.createDirectories(tree);
+        StringBuilder expected = new StringBuilder();
+        for (int f = 0; f < 6; f++) {
+            // more than a spool holds, so files behind the head have to wait their turn
+            String line = "file " + f + " ".repeat(40) + "hit\n";
+            Files.writeString(tree.resolve("f" + f + ".log"), line.repeat(40_000));
+            expected.append(("loud/f" + f + ".log:" + line).repeat(40_000));
+        }
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult r = new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", "-r", "-j", "3", "hit", "loud"});
+        System.setOut(old);
+
+        assertTrue(r.succeeded());
+        assertEquals(expected.toString(), b.toString());
+    }
+
+    @Test void grep_unreadableFile_isReportedAndExitsTwo() throws Exception {
+        Path tree = tempDir.resolve("bad");
+        Files.createDirectories(tree);
+        Files.writeString(tree.resolve("a.log"), "needle\n");
+        Files.write(tree.resolve("b.log"), new byte[]{0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, 3, 1, 2, 3});
+        Files.writeString(tree.resolve("c.log"), "no match\n");
+
+        PrintStream old = System.out, oldErr = System.err;
+        ByteArrayOutputStream b = new ByteArrayOutputStream(), err = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        System.setErr(new PrintStream(err));
+        ExecutionResult missed = new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", "-rZ", "absent", "bad"});
+        ExecutionResult hit = new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", "-rZ", "needle", "bad"});
+        ExecutionResult single = new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", "-Z", "needle", "bad/b.log"});
+        System.setOut(old);
+        System.setErr(oldErr);
+
+        assertEquals(2, missed.exitCode());
+        assertEquals(0, hit.exitCode());
+        assertEquals("bad/a.log:needle\n", b.toString());
+        assertEquals(2, single.exitCode());
+        assertTrue(err.toString().contains("grep: bad/b.log: "), err.toString());
+    }
+
+    @Test void grep_listFiles_matchingAndNonMatching() throws Exception {
+        Files.writeString(tempDir.resolve("l1.txt"), "alpha\n");
+        Files.writeString(tempDir.resolve("l2.txt"), "beta\n");
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", "-l", "alpha", "l1.txt", "l2.txt"});
+        new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", "-L", "alpha", "l1.txt", "l2.txt"});
+        System.setOut(old);
+
+        assertEquals("l1.txt\nl2.txt\n", b.toString());
+    }
+
+    @Test void grep_contextLines_numberedWithGroupSeparators() throws Exception {
+        Files.writeString(tempDir.resolve("gc.txt"), "a\nb\nHIT 1\nc\nd\ne\nf\nHIT 2\nHIT 3\ng\n");
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult r = new TextCommands.GrepCommand().execute(ctx,
+            new String[]{"grep", "-n", "-B1", "-A", "1", "HIT", "gc.txt"});
+        System.setOut(old);
+
+        assertTrue(r.succeeded());
+        assertEquals("2-b\n3:HIT 1\n4-c\n--\n7-f\n8:HIT 2\n9:HIT 3\n10-g\n", b.toString());
+    }
+
+    @Test void grep_countInvertMaxAndOnlyMatching() throws Exception {
+        Files.writeString(tempDir.resolve("go.txt"), "cat dog\ncatalog\nbird\ncat\n");
+        String[][] cases = {
+            {"-c", "cat"},            {"3\n"},
+            {"-vc", "cat"},           {"1\n"},
+            {"-m2", "cat"},           {"cat dog\ncatalog\n"},
+            {"-ow", "cat"},           {"cat\ncat\n"},
+            {"-x", "cat"},            {"cat\n"},
+            {"-on", "[a-z]*og"},      {"1:dog\n2:catalog\n"},
+        };
+        for (int i = 0; i < cases.length; i += 2) {
+            PrintStream old = System.out;
+            ByteArrayOutputStream b = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(b));
+            new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", cases[i][0], cases[i][1], "go.txt"});
+            System.setOut(old);
+            assertEquals(cases[i + 1][0], b.toString(), String.join(" ", cases[i]));
+        }
+    }
+
+    @Test void grep_patternFile_fixedStringsMatchedInOnePass() throws Exception {
+        Files.writeString(tempDir.resolve("ioc.txt"), "a.b[1]\nREQ-42\nevil.example\n");
+        Files.writeString(tempDir.resolve("gf.txt"),
+            "GET /x a.b[1]\nGET /y axb11\nid=req-42 ok\nnothing here\ncontact evil.example.org\n");
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult r = new TextCommands.GrepCommand().execute(ctx,
+            new String[]{"grep", "-F", "-i", "-o", "-n", "-f", "ioc.txt", "gf.txt"});
+        System.setOut(old);
+
+        assertTrue(r.succeeded());
+        // -o reports which pattern matched, in the line's own case
+        assertEquals("1:a.b[1]\n3:req-42\n5:evil.example\n", b.toString());
+    }
+
+    @Test void ahoCorasick_overlappingPatterns_leftmostLongestAndWordBounds() throws Exception {
+        Files.writeString(tempDir.resolve("words.txt"), "he\nshe\nhis\nhers\n");
+        Files.writeString(tempDir.resolve("ushers.txt"), "ushers\nhe said\nthis\n");
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", "-oF", "-f", "words.txt", "ushers.txt"});
+        new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", "-wF", "-f", "words.txt", "ushers.txt"});
+        System.setOut(old);
+
+        assertEquals("she\nhe\nhis\n" + "he said\n", b.toString());
+    }
+
+    @Test void grep_quiet_printsNothingAndSetsExitCode() throws Exception {
+        Files.writeString(tempDir.resolve("gq.txt"), "one\ntwo\n");
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult hit  = new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", "-q", "two", "gq.txt"});
+        ExecutionResult miss = new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", "-q", "three", "gq.txt"});
+        System.setOut(old);
+
+        assertEquals(0, hit.exitCode());
+        assertEquals(1, miss.exitCode());
+        assertEquals("", b.toString());
+    }
+
+    @Test void regexDfa_agreesWithJavaRegex() throws Exception {
+        String[] patterns = {"ab+c", "^a.c$", "colou?r", "[^0-9]x{2,3}", "(GET|POST) /api/v\\d+", "\\s\\w+$",
+                             "é.", "a|", "(a|b)*abb", "[A-C][-x]", "$^", "^.$", "x$", "$\\W", "x.y"};
+        String[] lines = {"abbbc", "abc", "a\u00e9c", "color", "colour", "1xx", "axxx", "GET /api/v12", "x word",
+                          "café", "", "aababb", "B-", "b-", "\u0085", "\u2028", "x\u2029", "x\u2028y", "x\u0085y",
+                          "x\u00e9y"};
+        var text = new StringBuilder();
+        for (String l : lines) text.append(l).append('\n');
+        for (String p : patterns) {
+            for (boolean ignoreCase : new boolean[]{false, true}) {
+                LineMatcher m = LineMatcher.compile(p, ignoreCase);
+                assertInstanceOf(LineMatcher.Dfa.class, m, p);
+                Pattern reference = Pattern.compile(p, ignoreCase ? Pattern.CASE_INSENSITIVE : 0);
+                try (var scanner = LineScanner.of(new ByteArrayInputStream(text.toString().getBytes("UTF-8")))) {
+                    LineScanner.Line line;
+                    while ((line = scanner.next()) != null) {
+                        assertEquals(reference.matcher(line.toString()).find(), m.matches(line), p + " on " + line);
+                    }
+                }
+            }
+        }
+        assertInstanceOf(LineMatcher.Regex.class, LineMatcher.compile("(a)\\1", false));
+        assertInstanceOf(LineMatcher.Regex.class, LineMatcher.compile("foo(?=bar)", false));
+    }
+
+    @Test void regexDfa_lineStartingOnAFullCacheAfterAFlush() throws Exception {
+        // after the x, each new window of the last 13 bytes is a new DFA state; a de Bruijn
+        // sequence repeats none, so the cache grows by one state per byte and flushes on schedule
+        var bits = new StringBuilder("b".repeat(13));
+        var seen = new HashSet<String>();
+        seen.add(bits.toString());
+        while (true) {
+            String tail = bits.substring(bits.length() - 12);
+            if (seen.add(tail + "a")) bits.append('a');
+            else if (seen.add(tail + "b")) bits.append('b');
+            else break;
+        }
+        RegexDfa dfa = RegexDfa.compile("x(a|b)*a(a|b){12}y", false);
+        int length = RegexDfa.MAX_STATES + 200;                   // past the first flush
+        RegexDfa.Searcher searcher;
+        while (true) {
+            searcher = dfa.searcher();
+            assertFalse(searcher.find(line("x" + bits.substring(0, length))));
+            int states = searcher.cachedStates();
+            if (states == RegexDfa.MAX_STATES) break;
+            assertTrue(length + RegexDfa.MAX_STATES - states <= bits.length(), "no full cache at the end of a line");
+            length += RegexDfa.MAX_STATES - states;
+        }
+        assertFalse(searcher.find(line("xab")));                  // interns a new start state
+        assertTrue(searcher.find(line("xa" + "b".repeat(12) + "y")));
+    }
+
+    @Test void regexDfa_starredBodyThatGrowsTheNfa() throws Exception {
+        // the body's alternatives push the NFA past 64 and then 128 nodes while the loop is compiled
+        StringBuilder pairs = new StringBuilder("(ab");
+        for (String pair : "cd ef gh ij kl mn op qr st uv wx yz AB CD EF GH IJ KL MN OP QR ST UV WX YZ 01 23".split(" ")) {
+            pairs.append('|').append(pair);
+        }
+        for (String p : new String[]{pairs + ")*z", pairs + "|45|67|89|@#|%&|!?)*z", "(ab|c)*.*c*[^a]{1,3}x{1,3}"}) {
+            LineMatcher m = LineMatcher.compile(p, false);
+            assertInstanceOf(LineMatcher.Dfa.class, m, p);
+            Pattern reference = Pattern.compile(p);
+            for (String text : new String[]{"z", "abcdz", "abXz", "0123", "cccxx", "ab"}) {
+                assertEquals(reference.matcher(text).find(), m.matches(line(text)), p + " on " + text);
+            }
+        }
+    }
+
+    @Test void regexDfa_randomPatternsAgreeWithJavaRegex() throws Exception {
+        String[] atoms = {"a", "b", "c", "x", ".", "[^a]", "[a-c]", "\\d", "\\w", "\\s", "\\W", "é", "^", "$"};
+        String[] quantifiers = {"", "", "*", "+", "?", "{1,3}", "{2}", "*?"};
+        String[] chars = {"a", "b", "c", "x", "A", "1", " ", "é", "\u0085", "\u2028", "\u2029", "\u00e9x"};
+        var random = new Random(32);
+        var lines = new ArrayList<String>();
+        lines.add("");
+        for (int i = 0; i < 40; i++) {
+            var l = new StringBuilder();
+            for (int k = random.nextInt(8); k > 0; k--) l.append(chars[random.nextInt(chars.length)]);
+            lines.add(l.toString());
+        }
+        byte[] text = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+
+        int compiled = 0;
+        for (int n = 0; n < 1000; n++) {
+            String p = randomPattern(random, atoms, quantifiers, 2);
+            boolean ignoreCase = random.nextBoolean();
+            LineMatcher m = LineMatcher.compile(p, ignoreCase);
+            if (m instanceof LineMatcher.Dfa) compiled++;
+            Pattern reference = Pattern.compile(p, ignoreCase ? Pattern.CASE_INSENSITIVE : 0);
+            try (var scanner = LineScanner.of(new ByteArrayInputStream(text))) {
+                LineScanner.Line line;
+                while ((line = scanner.next()) != null) {
+                    assertEquals(reference.matcher(line.toString()).find(), m.matches(line),
+                        p + (ignoreCase ? " (-i)" : "") + " on \"" + line + "\"");
+                }
+            }
+        }
+        assertTrue(compiled > 950, compiled + " of 1000 ran on the DFA");
+    }
+
+    private static String randomPattern(Random random, String[] atoms, String[] quantifiers, int depth) {
+        var p = new StringBuilder();
+        for (int items = 1 + random.nextInt(4); items > 0; items--) {
+            String atom;
+            if (depth > 0 && random.nextInt(4) == 0) {
+                var group = new StringBuilder("(");
+                for (int alternatives = 1 + random.nextInt(3); alternatives > 0; alternatives--) {
+                    group.append(randomPattern(random, atoms, quantifiers, depth - 1));
+                    if (alternatives > 1) group.append('|');
+                }
+                atom = group.append(')').toString();
+            } else {
+                atom = atoms[random.nextInt(atoms.length)];
+            }
+            p.append(atom);
+            String quantifier = quantifiers[random.nextInt(quantifiers.length)];
+            // Pattern stops a counted group early once an iteration matched only an anchor: (^|c){2}a misses "ca"
+            if (atom.contains("^") || atom.contains("$")) quantifier = atom.length() > 1 && !quantifier.contains("{") ? quantifier : "";
+            p.append(quantifier);
+        }
+        return p.toString();
+    }
+
+    private static LineScanner.Line line(String text) throws IOException {
+        var scanner = LineScanner.of(new ByteArrayInputStream(text.getBytes()));
+        return scanner.next();
+    }
+
+    @Test void grep_dfaEngine_catastrophicPatternRunsInLinearTime() throws Exception {
+        Files.writeString(tempDir.resolve("redos.txt"), "a".repeat(5_000) + "!\n" + "a".repeat(40) + "\n");
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        // java.util.regex needs 2^n steps for this on the first line
+        ExecutionResult r = assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+            new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", "-n", "--engine=dfa", "^(a|aa)+$", "redos.txt"}));
+        System.setOut(old);
+
+        assertTrue(r.succeeded());
+        assertEquals("2:" + "a".repeat(40) + "\n", b.toString());
+    }
+
+    @Test void grep_matcherCache_survivesCd() throws Exception {
+        Files.writeString(tempDir.resolve("mc.txt"), "x1\n");
+        PrintStream old = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        new TextCommands.GrepCommand().execute(ctx, new String[]{"grep", "x\\d", "mc.txt"});
+        ShellContext moved = ctx.withDirectory(tempDir.toFile());
+        new TextCommands.GrepCommand().execute(moved, new String[]{"grep", "x\\d", "mc.txt"});
+        System.setOut(old);
+
+        assertSame(ctx.matchers(), moved.matchers());
+        assertEquals(1, moved.matchers().size());
+    }
+
+    @Test void matcherCache_keepsDfaStates_butHandsOutFreshRegexMatchers() throws Exception {
+        var options = GrepOptions.parse(new String[]{"grep", "x", "f"});
+        var cache = new MatcherCache();
+        var dfa = List.of("x\\d+");
+        var regex = List.of("(x)\\1");    // backreference: java.util.regex
+        assertSame(cache.get(dfa, options), cache.get(dfa, options));
+        LineMatcher first = cache.get(regex, options);
+        assertInstanceOf(LineMatcher.Regex.class, first);
+        assertNotSame(first, cache.get(regex, options));
+        assertEquals(2, cache.size());
+    }
+
+    // trigram index
+
+    @Test void search_indexedTree_readsOnlyCandidateFiles() throws Exception {
+        Path src = Files.createDirectories(tempDir.resolve("src/pkg"));
+        Files.writeString(src.resolve("a.txt"), "alpha beta\nfind the needle here\n");
+        Files.writeString(src.resolve("b.txt"), "nothing to see\n");
+        Files.writeString(tempDir.resolve("src/c.txt"), "NEEDLE upper\nneedles\n");
+        new SearchCommands.IndexCommand().execute(ctx, new String[]{"index", "build", "src"});
+
+        TrigramIndex index = TrigramIndex.open(tempDir.resolve("src"));
+        assertEquals(3, index.fileCount());
+        assertEquals(2, index.candidates(TrigramQuery.of("need(le|ful)")).length);
+        assertEquals(0, index.candidates(TrigramQuery.of("haystack")).length);
+        assertEquals(3, index.candidates(TrigramQuery.of("n.e")).length);
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult r = new SearchCommands.SearchCommand().execute(ctx, new String[]{"search", "-n", "needle\\b", "src"});
+        System.setOut(old);
+
+        assertTrue(r.succeeded());
+        assertEquals("src/pkg/a.txt:2:find the needle here", b.toString().trim());
+    }
+
+    @Test void search_decompress_findsGzipFilesThroughTheIndex() throws Exception {
+        Path logs = Files.createDirectories(tempDir.resolve("logs"));
+        Files.writeString(logs.resolve("today.log"), "started\n");
+        try (var gz = new GZIPOutputStream(Files.newOutputStream(logs.resolve("old.log.gz")))) {
+            gz.write("started\nneedle in the archive\n".getBytes());
+        }
+        new SearchCommands.IndexCommand().execute(ctx, new String[]{"index", "build", "logs"});
+        assertEquals(1, TrigramIndex.open(logs).candidates(TrigramQuery.literal("needle")).length);
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult inflated = new SearchCommands.SearchCommand().execute(ctx, new String[]{"search", "-Z", "needle", "logs"});
+        ExecutionResult raw = new SearchCommands.SearchCommand().execute(ctx, new String[]{"search", "needle", "logs"});
+        System.setOut(old);
+
+        assertEquals(0, inflated.exitCode());
+        assertEquals(1, raw.exitCode());
+        assertEquals("logs/old.log.gz:needle in the archive", b.toString().trim());
+    }
+
+    @Test void trigramQuery_escapesAndInlineFlags_neverTooStrict() throws Exception {
+        assertEquals(TrigramQuery.literal("ABCD"), TrigramQuery.of("\\x41BCD"));
+        assertEquals(TrigramQuery.literal("ABCD"), TrigramQuery.of("\\x{41}BCD"));
+        assertEquals(TrigramQuery.literal("ABCD"), TrigramQuery.of("\\u0041BCD"));
+        assertEquals(TrigramQuery.literal("ABCD"), TrigramQuery.of("\\0101BCD"));
+        assertEquals(TrigramQuery.literal("\nabc"), TrigramQuery.of("\\cJabc"));
+        assertEquals(TrigramQuery.literal("étude"), TrigramQuery.of("\\N{LATIN SMALL LETTER E WITH ACUTE}tude"));
+        assertEquals(TrigramQuery.literal("cde"), TrigramQuery.of("(?<w>ab)\\k<w>cde"));
+        assertEquals(TrigramQuery.ALL, TrigramQuery.of("(a)\\12345"));
+        assertEquals(TrigramQuery.literal("abcd"), TrigramQuery.of("(?i:abcd)"));
+        assertEquals(TrigramQuery.ALL, TrigramQuery.of("(?x)a b c"));
+        assertEquals(TrigramQuery.ALL, TrigramQuery.of("abcd(?x: e f g)"));
+
+        Path src = Files.createDirectories(tempDir.resolve("src"));
+        Files.writeString(src.resolve("a.txt"), "ABCD\n");
+        new SearchCommands.IndexCommand().execute(ctx, new String[]{"index", "build", "src"});
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult hex = new SearchCommands.SearchCommand().execute(ctx, new String[]{"search", "\\x41BCD", "src"});
+        ExecutionResult spaced = new SearchCommands.SearchCommand().execute(ctx, new String[]{"search", "(?x)A B C D", "src"});
+        System.setOut(old);
+
+        assertTrue(hex.succeeded() && spaced.succeeded());
+        assertEquals("src/a.txt:ABCD\nsrc/a.txt:ABCD", b.toString().trim());
+    }
+
+    @Test void index_rebuild_reusesUnchangedFiles() throws Exception {
+        Path tree = Files.createDirectories(tempDir.resolve("tree"));
+        Files.writeString(tree.resolve("keep.txt"), "stays the same\n");
+        Files.writeString(tree.resolve("edit.txt"), "before\n");
+        Files.writeString(tree.resolve("gone.txt"), "removed soon\n");
+        TrigramIndex.build(tree, 2);
+
+        Files.writeString(tree.resolve("edit.txt"), "after the edit\n");
+        Files.delete(tree.resolve("gone.txt"));
+        TrigramIndex.BuildStats stats = TrigramIndex.build(tree, 2);
+
+        assertEquals(2, stats.files());
+        assertEquals(1, stats.read());
+        assertEquals(1, stats.unchanged());
+        assertEquals(1, stats.removed());
+        TrigramIndex index = TrigramIndex.open(tree);
+        assertEquals(1, index.candidates(TrigramQuery.literal("the edit")).length);
+        assertEquals(0, index.candidates(TrigramQuery.literal("removed")).length);
+    }
+
     // head / tail streaming
 
     @Test void head_returnsFirstNLines() throws Exception {
@@ -285,6 +780,55 @@ class AppTest {
         assertEquals("25", lines[9]);
     }
 
+    @Test void tail_multipleFiles_printsHeaders() throws Exception {
+        Files.writeString(tempDir.resolve("ta.txt"), "a1\na2\n");
+        Files.writeString(tempDir.resolve("tb.txt"), "b1\n");
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult r = new UtilityCommands.TailCommand().execute(ctx, new String[]{"tail", "-n", "1", "ta.txt", "tb.txt"});
+        System.setOut(old);
+
+        assertTrue(r.succeeded());
+        assertEquals("==> ta.txt <==\na2\n\n==> tb.txt <==\nb1", b.toString().trim());
+    }
+
+    @Test void tail_follow_printsAppendedBytesAndSurvivesTruncation() throws Exception {
+        Path log = tempDir.resolve("follow.log");
+        Files.writeString(log, "old1\nold2\n");
+
+        InputStream oldIn = System.in;
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setIn(new ByteArrayInputStream(new byte[0]));
+        System.setOut(new PrintStream(b, true));
+
+        Thread tail = new Thread(() ->
+            new UtilityCommands.TailCommand().execute(ctx, new String[]{"tail", "-n", "1", "-F", "follow.log"}));
+        try {
+            tail.start();
+            awaitOutput(b, "old2\n");
+            Files.writeString(log, "new1\n", StandardOpenOption.APPEND);
+            awaitOutput(b, "new1\n");
+            Files.writeString(log, "fresh\n");  // truncate and rewrite
+            awaitOutput(b, "fresh\n");
+        } finally {
+            tail.interrupt();
+            tail.join(5_000);
+            System.setOut(old);
+            System.setIn(oldIn);
+        }
+        assertFalse(tail.isAlive());
+        assertFalse(b.toString().contains("old1"));
+    }
+
+    private static void awaitOutput(ByteArrayOutputStream b, String expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!b.toString().contains(expected) && System.currentTimeMillis() < deadline) Thread.sleep(20);
+        assertTrue(b.toString().contains(expected), "timed out waiting for: " + expected);
+    }
+
     @Test void head_invalidCount_fails() throws Exception {
         Files.writeString(tempDir.resolve("x.txt"), "data\n");
         ExecutionResult r = new UtilityCommands.HeadCommand().execute(ctx, new String[]{"head", "-n", "abc", "x.txt"});
@@ -305,6 +849,86 @@ class AppTest {
         assertTrue(r.succeeded());
     }
 
+    // LineScanner — byte-level line splitting
+
+    @Test void lineScanner_matchesReadLineSemantics() throws Exception {
+        Path f = tempDir.resolve("ls.txt");
+        Files.writeString(f, "ascii\r\nnaïve café\n\nlast-no-newline");
+        var lines = new ArrayList<String>();
+        try (var scanner = LineScanner.open(f)) {
+            LineScanner.Line line;
+            while ((line = scanner.next()) != null) {
+                assertEquals(line.toString().length(), line.charLength());
+                lines.add(line.toString());
+            }
+        }
+        assertEquals(List.of("ascii", "naïve café", "", "last-no-newline"), lines);
+    }
+
+    @Test void lineScanner_streamGrowsForLinesLongerThanBuffer() throws Exception {
+        String longLine = "x".repeat(3 * 1024 * 1024);
+        byte[] input = ("a\n" + longLine + "\nb\n").getBytes();
+        try (var scanner = LineScanner.of(new ByteArrayInputStream(input))) {
+            assertEquals("a", scanner.next().toString());
+            LineScanner.Line big = scanner.next();
+            assertEquals(longLine.length(), big.length());
+            assertEquals(2, big.offset());
+            assertEquals("b", scanner.next().toString());
+            assertNull(scanner.next());
+        }
+    }
+
+    @Test void wc_countsWordsAcrossWhitespaceRuns() throws Exception {
+        Files.writeString(tempDir.resolve("wc.txt"), "  one\ttwo  three\n\nfour\n");
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        new SearchCommands.WcCommand().execute(ctx, new String[]{"wc", "-w", "wc.txt"});
+        System.setOut(old);
+        assertTrue(b.toString().trim().startsWith("4 "));
+    }
+
+    @Test void wc_bytesVersusCharsAndTotalLine() throws Exception {
+        Files.writeString(tempDir.resolve("u1.txt"), "héllo wörld\n");
+        Files.writeString(tempDir.resolve("u2.txt"), "a b c");
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult r = new SearchCommands.WcCommand().execute(ctx, new String[]{"wc", "-lwmc", "u1.txt", "u2.txt"});
+        System.setOut(old);
+
+        assertTrue(r.succeeded());
+        String[] rows = b.toString().trim().split("\n");
+        assertEquals(3, rows.length);
+        assertArrayEquals(new String[]{"1", "2", "12", "14", "u1.txt"}, rows[0].trim().split("\\s+"));
+        assertArrayEquals(new String[]{"0", "3", "5", "5", "u2.txt"}, rows[1].trim().split("\\s+"));
+        assertArrayEquals(new String[]{"1", "5", "17", "19", "total"}, rows[2].trim().split("\\s+"));
+    }
+
+    @Test void byteCounter_swarAgreesWithBytewiseAtAnySplit() {
+        var random = new Random(3);
+        byte[] alphabet = " \t\n\r\u000bxy\u00e9".getBytes(StandardCharsets.UTF_8);
+        byte[] data = new byte[997];
+        for (int i = 0; i < data.length; i++) data[i] = alphabet[random.nextInt(alphabet.length)];
+        long lines = 0, words = 0, chars = 0;
+        boolean blank = true;
+        for (byte c : data) {
+            if (c == '\n') lines++;
+            boolean space = c == ' ' || (c >= '\t' && c <= '\r');
+            if (!space && blank) words++;
+            blank = space;
+            if ((c & 0xC0) != 0x80) chars++;
+        }
+
+        var buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        for (int split : new int[]{0, 1, 7, 8, 500, 996, 997}) {
+            ByteCounter.Counts counts = ByteCounter.count(buffer, 0, split, true)
+                .plus(ByteCounter.count(buffer, split, data.length, split == 0 || data[split - 1] == ' '
+                    || (data[split - 1] >= '\t' && data[split - 1] <= '\r')));
+            assertEquals(new ByteCounter.Counts(lines, words, chars, data.length), counts, "split at " + split);
+        }
+    }
+
     // uniq — POSIX correctness
 
     @Test void uniq_collapseAdjacentOnly() throws Exception {
@@ -333,6 +957,45 @@ class AppTest {
         assertTrue(out.contains("1") && out.contains("y"));
     }
 
+    @Test void uniq_globalCountsInFirstSeenOrder() throws Exception {
+        Files.writeString(tempDir.resolve("uqa.txt"), "b\na\nb\n\nc\na\nb\n\n");
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        new UtilityCommands.UniqCommand().execute(ctx, new String[]{"uniq", "-a", "-c", "uqa.txt"});
+        System.setOut(old);
+
+        assertEquals("   3 b\n   2 a\n   2 \n   1 c\n", b.toString());
+    }
+
+    @Test void uniq_topAndApproxDistinct_onSkewedStream() throws Exception {
+        // 50k distinct ids, plus three heavy hitters interleaved through the stream
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            sb.append("10.0.").append(i / 256).append('.').append(i % 256).append('\n');
+            if (i % 10 == 0) sb.append("hot-a\n");
+            if (i % 20 == 0) sb.append("hot-b\n");
+            if (i % 40 == 0) sb.append("hot-c\n");
+        }
+        Files.writeString(tempDir.resolve("ips.txt"), sb.toString());
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        new UtilityCommands.UniqCommand().execute(ctx, new String[]{"uniq", "--top", "3", "ips.txt"});
+        String top = b.toString();
+        b.reset();
+        new UtilityCommands.UniqCommand().execute(ctx, new String[]{"uniq", "--approx-distinct", "ips.txt"});
+        long distinct = Long.parseLong(b.toString().trim());
+        System.setOut(old);
+
+        String[] rows = top.trim().split("\n");
+        assertEquals(3, rows.length);
+        assertTrue(rows[0].endsWith(" hot-a") && rows[1].endsWith(" hot-b") && rows[2].endsWith(" hot-c"), top);
+        assertEquals(50_003, distinct, 50_003 * 0.03);
+    }
+
     // sort — output assertions
 
     @Test void sort_alphabetical() throws Exception {
@@ -371,6 +1034,77 @@ class AppTest {
         assertArrayEquals(new String[]{"cherry", "banana", "apple"}, b.toString().trim().split("\n"));
     }
 
+    @Test void sort_externalMerge_spillsRunsAndCleansUp() throws Exception {
+        var random = new Random(11);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) lines.add(Integer.toString(random.nextInt(1_000_000), 36));
+        Files.write(tempDir.resolve("big-sort.txt"), lines);
+        Path spill = Files.createDirectory(tempDir.resolve("spill"));
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        // 2 KB runs: well over MERGE_WIDTH runs, so an intermediate merge pass runs too
+        ExecutionResult r = new UtilityCommands.SortCommand().execute(ctx,
+            new String[]{"sort", "-S", "4K", "-T", "spill", "big-sort.txt"});
+        System.setOut(old);
+
+        assertTrue(r.succeeded());
+        Collections.sort(lines);
+        assertEquals(lines, List.of(b.toString().split("\n")));
+        try (var left = Files.list(spill)) {
+            assertEquals(0, left.count());
+        }
+    }
+
+    @Test void sort_numericTiesFallBackToWholeLine() throws Exception {
+        Files.writeString(tempDir.resolve("sn2.txt"), "10 b\n2\n10 a\nx\n-1.5\n");
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        new UtilityCommands.SortCommand().execute(ctx, new String[]{"sort", "-n", "sn2.txt"});
+        System.setOut(old);
+
+        assertArrayEquals(new String[]{"-1.5", "x", "2", "10 a", "10 b"}, b.toString().trim().split("\n"));
+    }
+
+    @Test void sort_keysSeparatorUniqueAndStable() throws Exception {
+        Files.writeString(tempDir.resolve("sk.txt"), "carol:30:x\nalice:9:y\nbob:30:a\ndave:9:z\nerin:100:b\n");
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        new UtilityCommands.SortCommand().execute(ctx, new String[]{"sort", "-s", "-t:", "-k2,2n", "sk.txt"});
+        String stable = b.toString();
+        b.reset();
+        new UtilityCommands.SortCommand().execute(ctx, new String[]{"sort", "-u", "-t", ":", "-k2,2nr", "sk.txt"});
+        String unique = b.toString();
+        System.setOut(old);
+
+        assertArrayEquals(new String[]{"alice:9:y", "dave:9:z", "carol:30:x", "bob:30:a", "erin:100:b"},
+            stable.trim().split("\n"));
+        assertArrayEquals(new String[]{"erin:100:b", "carol:30:x", "alice:9:y"}, unique.trim().split("\n"));
+    }
+
+    @Test void sort_humanSizesAndFoldedCase() throws Exception {
+        Files.writeString(tempDir.resolve("sh.txt"), "1.5G a\n900 b\n2K c\n1M d\n");
+        Files.writeString(tempDir.resolve("sf.txt"), "beta\nAlpha\nalpha\nBeta\n");
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        new UtilityCommands.SortCommand().execute(ctx, new String[]{"sort", "-h", "sh.txt"});
+        String human = b.toString();
+        b.reset();
+        new UtilityCommands.SortCommand().execute(ctx, new String[]{"sort", "-f", "sf.txt"});
+        String folded = b.toString();
+        System.setOut(old);
+
+        assertArrayEquals(new String[]{"900 b", "2K c", "1M d", "1.5G a"}, human.trim().split("\n"));
+        assertArrayEquals(new String[]{"Alpha", "alpha", "Beta", "beta"}, folded.trim().split("\n"));
+    }
+
     // diff — Myers algorithm correctness
 
     @Test void diff_identicalFiles_exitCode0() throws Exception {
@@ -427,6 +1161,176 @@ class AppTest {
         assertFalse(out.contains("- c"));
     }
 
+    @Test void diff_unified_hunksWithContext() throws Exception {
+        Files.writeString(tempDir.resolve("du1.txt"), "1\n2\n3\n4\n5\n6\n7\n8\n9\n10\n");
+        Files.writeString(tempDir.resolve("du2.txt"), "1\nX\n3\n4\n5\n6\n7\n8\n9\nY\n10\n");
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult r = new SearchCommands.DiffCommand().execute(ctx, new String[]{"diff", "-u", "1", "du1.txt", "du2.txt"});
+        System.setOut(old);
+
+        assertEquals(1, r.exitCode());
+        assertEquals("--- du1.txt\n+++ du2.txt\n"
+            + "@@ -1,3 +1,3 @@\n 1\n-2\n+X\n 3\n"
+            + "@@ -9,2 +9,3 @@\n 9\n+Y\n 10\n", b.toString());
+    }
+
+    @Test void diff_largeFilesFewChanges_minimalEdits() throws Exception {
+        StringBuilder a = new StringBuilder(), c = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            a.append("line ").append(i).append('\n');
+            if (i == 1_000) c.append("inserted\n");
+            if (i != 150_000) c.append("line ").append(i).append('\n');
+        }
+        Files.writeString(tempDir.resolve("dl1.txt"), a);
+        Files.writeString(tempDir.resolve("dl2.txt"), c);
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult r = new SearchCommands.DiffCommand().execute(ctx, new String[]{"diff", "dl1.txt", "dl2.txt"});
+        System.setOut(old);
+
+        assertEquals(1, r.exitCode());
+        assertEquals("+ inserted\n- line 150000\n", b.toString());
+    }
+
+    @Test void diff_recursive_reportsOnlyInAndDifferingFiles() throws Exception {
+        Path a = tempDir.resolve("treeA"), c = tempDir.resolve("treeB");
+        Files.createDirectories(a.resolve("sub/extra"));
+        Files.createDirectories(c.resolve("sub"));
+        Files.writeString(a.resolve("same.txt"), "x\n");
+        Files.writeString(c.resolve("same.txt"), "x\n");
+        Files.writeString(a.resolve("sub/conf.txt"), "port=80\nhost=a\n");
+        Files.writeString(c.resolve("sub/conf.txt"), "port=81\nhost=a\n");
+        Files.writeString(a.resolve("sub/extra/old.txt"), "gone\n");
+        Files.writeString(c.resolve("new.txt"), "added\n");
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult brief = new SearchCommands.DiffCommand().execute(ctx, new String[]{"diff", "-rq", "treeA", "treeB"});
+        String briefOut = b.toString();
+        b.reset();
+        new SearchCommands.DiffCommand().execute(ctx, new String[]{"diff", "-r", "treeA", "treeB"});
+        System.setOut(old);
+
+        assertEquals(1, brief.exitCode());
+        assertEquals("Only in treeB: new.txt\n"
+            + "Files treeA/sub/conf.txt and treeB/sub/conf.txt differ\n"
+            + "Only in treeA/sub: extra\n", briefOut);
+        assertTrue(b.toString().contains("diff -r treeA/sub/conf.txt treeB/sub/conf.txt\n- port=80\n+ port=81\n"));
+    }
+
+    @Test void diff_recursive_noHeaderForEqualLinesInDifferentBytes() throws Exception {
+        Path a = tempDir.resolve("eolA"), c = tempDir.resolve("eolB");
+        Files.createDirectories(a);
+        Files.createDirectories(c);
+        Files.writeString(a.resolve("f.txt"), "one\ntwo\n");
+        Files.writeString(c.resolve("f.txt"), "one\ntwo");
+        Files.writeString(a.resolve("g.txt"), "old\n");
+        Files.writeString(c.resolve("g.txt"), "new\n");
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult r = new SearchCommands.DiffCommand().execute(ctx, new String[]{"diff", "-r", "eolA", "eolB"});
+        System.setOut(old);
+
+        assertEquals(1, r.exitCode());
+        assertEquals("diff -r eolA/g.txt eolB/g.txt\n- old\n+ new\n", b.toString());
+    }
+
+    @Test void diff_recursiveBrief_ignoresDirectorySizes() throws Exception {
+        Path a = tempDir.resolve("grownA"), c = tempDir.resolve("grownB");
+        Files.createDirectories(a.resolve("sub"));
+        Files.createDirectories(c.resolve("sub"));
+        // on most file systems a directory keeps the size it grew to after its files are gone
+        for (int i = 0; i < 300; i++) Files.writeString(a.resolve("sub/temporary-file-" + i), "");
+        for (int i = 0; i < 300; i++) Files.delete(a.resolve("sub/temporary-file-" + i));
+        Files.writeString(a.resolve("sub/f.txt"), "same\n");
+        Files.writeString(c.resolve("sub/f.txt"), "same\n");
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult r = new SearchCommands.DiffCommand().execute(ctx, new String[]{"diff", "-rq", "grownA", "grownB"});
+        System.setOut(old);
+
+        assertEquals(0, r.exitCode());
+        assertEquals("", b.toString());
+    }
+
+    @Test void diff_recursive_followsLinksToDirectoriesAndStopsAtLoops() throws Exception {
+        Path a = tempDir.resolve("linkA"), c = tempDir.resolve("linkB");
+        for (Path root : new Path[]{a, c}) {
+            Files.createDirectories(root.resolve("real"));
+            Files.writeString(root.resolve("real/f.txt"), "same\n");
+            Files.createSymbolicLink(root.resolve("alias"), Path.of("real"));
+        }
+
+        PrintStream old = System.out, oldErr = System.err;
+        ByteArrayOutputStream b = new ByteArrayOutputStream(), err = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        System.setErr(new PrintStream(err));
+        ExecutionResult same = new SearchCommands.DiffCommand().execute(ctx, new String[]{"diff", "-rq", "linkA", "linkB"});
+        Files.writeString(c.resolve("real/f.txt"), "changed\n");
+        ExecutionResult changed = new SearchCommands.DiffCommand().execute(ctx, new String[]{"diff", "-rq", "linkA", "linkB"});
+        String changedOut = b.toString();
+        Files.createSymbolicLink(a.resolve("real/up"), Path.of(".."));
+        Files.createSymbolicLink(c.resolve("real/up"), Path.of(".."));
+        b.reset();
+        ExecutionResult loop = new SearchCommands.DiffCommand().execute(ctx, new String[]{"diff", "-rq", "linkA", "linkB"});
+        System.setOut(old);
+        System.setErr(oldErr);
+
+        assertEquals(0, same.exitCode());
+        assertEquals(1, changed.exitCode());
+        assertEquals("Files linkA/alias/f.txt and linkB/alias/f.txt differ\n"
+            + "Files linkA/real/f.txt and linkB/real/f.txt differ\n", changedOut);
+        assertEquals(2, loop.exitCode());
+        assertTrue(err.toString().contains("linkA/alias/up: recursive directory loop"), err.toString());
+    }
+
+    // cmp
+
+    @Test void cmp_reportsFirstDifferingByteAndLine() throws Exception {
+        Files.writeString(tempDir.resolve("c1.bin"), "alpha\nbeta\ngamma\n");
+        Files.writeString(tempDir.resolve("c2.bin"), "alpha\nbeta\ngxmmx\n");
+        Files.writeString(tempDir.resolve("c3.bin"), "alpha\nbeta\ngamma\n");
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult first = new SearchCommands.CmpCommand().execute(ctx, new String[]{"cmp", "c1.bin", "c2.bin"});
+        String firstOut = b.toString();
+        b.reset();
+        ExecutionResult all = new SearchCommands.CmpCommand().execute(ctx, new String[]{"cmp", "-l", "c1.bin", "c2.bin"});
+        String allOut = b.toString();
+        b.reset();
+        ExecutionResult same = new SearchCommands.CmpCommand().execute(ctx, new String[]{"cmp", "c1.bin", "c3.bin"});
+        System.setOut(old);
+
+        assertEquals(1, first.exitCode());
+        assertEquals("c1.bin c2.bin differ: byte 13, line 3\n", firstOut);
+        assertEquals(1, all.exitCode());
+        assertEquals("13 141 170\n16 141 170\n", allOut);
+        assertEquals(0, same.exitCode());
+        assertEquals("", b.toString());
+    }
+
+    @Test void cmp_byteRangesAndSilentSizeMismatch() throws Exception {
+        Files.writeString(tempDir.resolve("r1.bin"), "HEADERpayload");
+        Files.writeString(tempDir.resolve("r2.bin"), "hdrpayload-and-more");
+
+        assertEquals(0, new SearchCommands.CmpCommand().execute(ctx,
+            new String[]{"cmp", "-s", "-i", "6:3", "-n", "7", "r1.bin", "r2.bin"}).exitCode());
+        assertEquals(1, new SearchCommands.CmpCommand().execute(ctx,
+            new String[]{"cmp", "-s", "-i", "6:3", "r1.bin", "r2.bin"}).exitCode());
+    }
+
     // checksum
 
     @Test void checksum_md5_knownValue() throws Exception {
@@ -440,6 +1344,214 @@ class AppTest {
         assertTrue(b.toString().contains("5d41402abc4b2a76b9719d911017c592"));
     }
 
+    // zip
+
+    @Test void zip_recursive_storesCompressedAndEmitsDirectories() throws Exception {
+        Path src = tempDir.resolve("site");
+        Files.createDirectories(src.resolve("img"));
+        String page = "<p>hello</p>\n".repeat(2000);
+        byte[] noise = new byte[ParallelZip.SAMPLE * 2];
+        new Random(3).nextBytes(noise);
+        Files.writeString(src.resolve("index.html"), page);
+        Files.write(src.resolve("img/logo.png"), noise);
+        Files.write(src.resolve("blob.bin"), noise);
+
+        PrintStream old = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        ExecutionResult r = new CompressionCommands.ZipCommand().execute(ctx, new String[]{"zip", "-r9", "-j", "2", "site.zip", "site"});
+        System.setOut(old);
+        assertTrue(r.succeeded());
+
+        try (var zip = new ZipFile(tempDir.resolve("site.zip").toFile())) {
+            assertEquals(List.of("site/", "site/blob.bin", "site/img/", "site/img/logo.png", "site/index.html"),
+                zip.stream().map(ZipEntry::getName).toList());
+            assertTrue(zip.getEntry("site/img/").isDirectory());
+            assertEquals(ZipEntry.STORED, zip.getEntry("site/img/logo.png").getMethod());
+            assertEquals(ZipEntry.STORED, zip.getEntry("site/blob.bin").getMethod());
+            var html = zip.getEntry("site/index.html");
+            assertEquals(ZipEntry.DEFLATED, html.getMethod());
+            assertTrue(html.getCompressedSize() < page.length() / 10);
+            assertEquals(page, new String(zip.getInputStream(html).readAllBytes()));
+            assertArrayEquals(noise, zip.getInputStream(zip.getEntry("site/blob.bin")).readAllBytes());
+        }
+    }
+
+    @Test void zipWriter_moreThan65535Entries_usesZip64End() throws Exception {
+        Path archive = tempDir.resolve("many.zip");
+        long crc = 0x8cdc1683L;   // CRC32 of "x"
+        try (var zip = new ZipWriter(new BufferedOutputStream(Files.newOutputStream(archive)))) {
+            for (int i = 0; i < 70_000; i++) {
+                zip.add(new ZipWriter.Header("f" + i, ZipWriter.STORED, crc, 1, 1, 0, false), o -> o.write('x'));
+            }
+            zip.finish();
+        }
+        try (var zip = new ZipFile(archive.toFile())) {
+            assertEquals(70_000, zip.size());
+            assertEquals("x", new String(zip.getInputStream(zip.getEntry("f69999")).readAllBytes()));
+        }
+    }
+
+    @Test void zip_update_appendsChangedEntriesAndKeepsOthersInPlace() throws Exception {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 2000; i++) log.append("line ").append(i * 7919 % 10007).append('\n');
+        Path archive = tempDir.resolve("u.zip");
+        writeZip(archive, "a.log", log.toString(), "b.txt", "old");
+        byte[] before = Files.readAllBytes(archive);
+        long directory;
+        try (var channel = FileChannel.open(archive)) {
+            directory = ZipDirectory.read(channel).directoryOffset;
+        }
+        Files.writeString(tempDir.resolve("a.log"), log);            // same content, newer mtime
+        Files.writeString(tempDir.resolve("b.txt"), "new!");
+        Files.writeString(tempDir.resolve("c.txt"), "added");
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        PrintStream old = System.out;
+        System.setOut(new PrintStream(buf));
+        ExecutionResult r = new CompressionCommands.ZipCommand().execute(ctx, new String[]{"zip", "-u", "u.zip", "a.log", "b.txt", "c.txt"});
+        ExecutionResult again = new CompressionCommands.ZipCommand().execute(ctx, new String[]{"zip", "-u", "u.zip", "a.log", "b.txt", "c.txt"});
+        System.setOut(old);
+        assertTrue(r.succeeded() && again.succeeded());
+        assertEquals("Updated: u.zip (1 added, 1 replaced)\nUp to date: u.zip\n", buf.toString().replace("\r", ""));
+
+        byte[] after = Files.readAllBytes(archive);
+        assertTrue(Arrays.equals(before, 0, (int) directory, after, 0, (int) directory));
+        try (var zip = new ZipFile(archive.toFile())) {
+            assertEquals(List.of("a.log", "b.txt", "c.txt"),
+                zip.stream().map(ZipEntry::getName).sorted().toList());
+            assertEquals(log.toString(), new String(zip.getInputStream(zip.getEntry("a.log")).readAllBytes()));
+            assertEquals("new!", new String(zip.getInputStream(zip.getEntry("b.txt")).readAllBytes()));
+            assertEquals("added", new String(zip.getInputStream(zip.getEntry("c.txt")).readAllBytes()));
+        }
+    }
+
+    @Test void zip_delete_keepsOtherToolsCentralRecordsVerbatim() throws Exception {
+        byte[] noise = new byte[64 * 1024];
+        new Random(7).nextBytes(noise);
+        Path archive = tempDir.resolve("t.zip");
+        try (var out = new ZipOutputStream(Files.newOutputStream(archive))) {
+            out.setComment("release 1.2");
+            for (String name : new String[]{"big.bin", "gone.txt", "run.sh"}) {
+                var entry = new ZipEntry(name);
+                if (name.equals("run.sh")) {
+                    entry.setExtra(new byte[]{(byte) 0xfe, (byte) 0xca, 4, 0, 1, 2, 3, 4});
+                    entry.setComment("entry point");
+                }
+                out.putNextEntry(entry);
+                out.write(name.equals("big.bin") ? noise : ("#!/bin/sh\necho " + name).getBytes());
+                out.closeEntry();
+            }
+        }
+        byte[] before = central(archive, "run.sh");
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        PrintStream old = System.out;
+        System.setOut(new PrintStream(buf));
+        ExecutionResult inPlace = new CompressionCommands.ZipCommand().execute(ctx, new String[]{"zip", "-d", "t.zip", "gone.txt"});
+        byte[] kept = central(archive, "run.sh");
+        String commentInPlace;
+        try (var zip = new ZipFile(archive.toFile())) {
+            commentInPlace = zip.getComment();
+        }
+        ExecutionResult compacted = new CompressionCommands.ZipCommand().execute(ctx, new String[]{"zip", "-d", "t.zip", "big.bin"});
+        byte[] moved = central(archive, "run.sh");
+        System.setOut(old);
+        assertTrue(inPlace.succeeded() && compacted.succeeded());
+        assertEquals("Updated: t.zip (1 deleted)\nUpdated: t.zip (1 deleted, compacted)\n", buf.toString().replace("\r", ""));
+
+        assertArrayEquals(before, kept);
+        assertEquals("release 1.2", commentInPlace);
+        // only the local header offset (bytes 42-45) moves
+        assertArrayEquals(Arrays.copyOf(before, 42), Arrays.copyOf(moved, 42));
+        assertArrayEquals(Arrays.copyOfRange(before, 46, before.length), Arrays.copyOfRange(moved, 46, moved.length));
+        assertEquals(0, moved[42] | moved[43] | moved[44] | moved[45]);
+        try (var zip = new ZipFile(archive.toFile())) {
+            assertEquals(1, zip.size());
+            assertEquals("release 1.2", zip.getComment());
+            assertEquals("entry point", zip.getEntry("run.sh").getComment());
+            assertEquals("#!/bin/sh\necho run.sh", new String(zip.getInputStream(zip.getEntry("run.sh")).readAllBytes()));
+        }
+    }
+
+    private static byte[] central(Path archive, String name) throws IOException {
+        try (var channel = FileChannel.open(archive)) {
+            return ZipDirectory.read(channel).entries.stream()
+                .filter(e -> e.name().equals(name)).findFirst().orElseThrow().central();
+        }
+    }
+
+    @Test void zip_delete_rewritesDirectoryThenCompactsDeadSpace() throws Exception {
+        byte[] noise = new byte[64 * 1024];
+        new Random(5).nextBytes(noise);
+        Path archive = tempDir.resolve("d.zip");
+        writeZip(archive, "big.bin", new String(noise, StandardCharsets.ISO_8859_1),
+            "logs/1.log", "one", "logs/2.log", "two", "keep.txt", "kept");
+        long size = Files.size(archive);
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        PrintStream old = System.out;
+        System.setOut(new PrintStream(buf));
+        ExecutionResult logs = new CompressionCommands.ZipCommand().execute(ctx, new String[]{"zip", "-d", "d.zip", "logs/*"});
+        long afterLogs = Files.size(archive);
+        ExecutionResult big = new CompressionCommands.ZipCommand().execute(ctx, new String[]{"zip", "-d", "d.zip", "big.bin"});
+        System.setOut(old);
+        assertTrue(logs.succeeded() && big.succeeded());
+        assertEquals("Updated: d.zip (2 deleted)\nUpdated: d.zip (1 deleted, compacted)\n", buf.toString().replace("\r", ""));
+        assertTrue(afterLogs < size);
+        assertTrue(Files.size(archive) < 1024);
+        try (var zip = new ZipFile(archive.toFile())) {
+            assertEquals(1, zip.size());
+            assertEquals("kept", new String(zip.getInputStream(zip.getEntry("keep.txt")).readAllBytes()));
+        }
+    }
+
+    // unzip
+
+    private void writeZip(Path zipPath, String... namesAndContents) throws IOException {
+        try (var zos = new ZipOutputStream(new FileOutputStream(zipPath.toFile()))) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zos.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zos.write(namesAndContents[i + 1].getBytes());
+                zos.closeEntry();
+            }
+        }
+    }
+
+    @Test void unzip_list_showsSizesAndRatiosWithoutExtracting() throws Exception {
+        writeZip(tempDir.resolve("l.zip"), "logs/app.log", "x".repeat(1000), "readme.txt", "hi");
+
+        PrintStream old = System.out;
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(b));
+        ExecutionResult r = new CompressionCommands.UnzipCommand().execute(ctx, new String[]{"unzip", "-l", "l.zip"});
+        System.setOut(old);
+
+        assertTrue(r.succeeded());
+        String out = b.toString();
+        assertTrue(out.matches("(?s).*\\s1000\\s+\\d+\\s+9\\d%\\s.*logs/app\\.log\\n.*"), out);
+        assertTrue(out.contains("readme.txt"));
+        assertTrue(out.contains("2 files"));
+        assertFalse(Files.exists(tempDir.resolve("logs")));
+    }
+
+    @Test void unzip_globSelectsEntries_intoDestination() throws Exception {
+        writeZip(tempDir.resolve("g.zip"), "logs/a.log", "A", "logs/deep/b.log", "B", "src/c.txt", "C");
+
+        PrintStream old = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        ExecutionResult r = new CompressionCommands.UnzipCommand().execute(ctx,
+            new String[]{"unzip", "-j", "2", "g.zip", "logs/**.log", "-d", "out"});
+        ExecutionResult missing = new CompressionCommands.UnzipCommand().execute(ctx,
+            new String[]{"unzip", "g.zip", "*.md", "-d", "out2"});
+        System.setOut(old);
+
+        assertTrue(r.succeeded());
+        assertEquals("A", Files.readString(tempDir.resolve("out/logs/a.log")));
+        assertEquals("B", Files.readString(tempDir.resolve("out/logs/deep/b.log")));
+        assertFalse(Files.exists(tempDir.resolve("out/src")));
+        assertEquals(1, missing.exitCode());
+    }
+
     // Security — zip slip
 
     @Test void unzip_zipSlipBlocked() throws Exception {
@@ -454,6 +1566,516 @@ class AppTest {
         assertFalse(tempDir.getParent().resolve("evil.txt").toFile().exists());
     }
 
+    // gzip
+
+    @Test void gzip_multiBlockRoundTrip_keepsInputWithK() throws Exception {
+        var random = new Random(7);
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 3 * ParallelGzip.BLOCK + 1234) {
+            text.append("GET /item/").append(random.nextInt(5000)).append(" 200\n");
+        }
+        Files.writeString(tempDir.resolve("big.log"), text);
+        Files.writeString(tempDir.resolve("drop.log"), "");
+
+        PrintStream old = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        ExecutionResult kept = new CompressionCommands.GzipCommand().execute(ctx, new String[]{"gzip", "-9k", "-j", "3", "big.log"});
+        ExecutionResult dropped = new CompressionCommands.GzipCommand().execute(ctx, new String[]{"gzip", "drop.log"});
+        System.setOut(old);
+
+        assertTrue(kept.succeeded());
+        assertTrue(dropped.succeeded());
+        assertTrue(Files.exists(tempDir.resolve("big.log")));
+        assertFalse(Files.exists(tempDir.resolve("drop.log")));
+        // GZIPInputStream checks the combined CRC32 and ISIZE in the trailer
+        try (var in = new GZIPInputStream(Files.newInputStream(tempDir.resolve("big.log.gz")))) {
+            assertEquals(text.toString(), new String(in.readAllBytes()));
+        }
+        try (var in = new GZIPInputStream(Files.newInputStream(tempDir.resolve("drop.log.gz")))) {
+            assertEquals(0, in.readAllBytes().length);
+        }
+    }
+
+    @Test void tuningOptions_levelThreadsBuffer_roundTripAndRejectBadValues() throws Exception {
+        String text = "GET /item/42 200\n".repeat(40_000);
+        Files.writeString(tempDir.resolve("app.log"), text);
+        Files.createDirectories(tempDir.resolve("out"));
+
+        PrintStream old = System.out, oldErr = System.err;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        System.setErr(new PrintStream(new ByteArrayOutputStream()));
+        ExecutionResult gzip = new CompressionCommands.GzipCommand().execute(ctx,
+            new String[]{"gzip", "-k", "--level", "1", "--threads=2", "--buffer", "4K", "app.log"});
+        ExecutionResult zip = new CompressionCommands.ZipCommand().execute(ctx,
+            new String[]{"zip", "--level=0", "--buffer", "1M", "app.zip", "app.log"});
+        Files.delete(tempDir.resolve("app.log"));
+        ExecutionResult gunzip = new CompressionCommands.GunzipCommand().execute(ctx, new String[]{"gunzip", "--buffer=8k", "app.log.gz"});
+        ExecutionResult unzip = new CompressionCommands.UnzipCommand().execute(ctx,
+            new String[]{"unzip", "--threads", "1", "--buffer", "5000", "app.zip", "-d", "out"});
+        ExecutionResult tooSmall = new CompressionCommands.GzipCommand().execute(ctx, new String[]{"gzip", "--buffer", "1K", "app.log"});
+        ExecutionResult badLevel = new CompressionCommands.ZipCommand().execute(ctx, new String[]{"zip", "--level", "10", "x.zip", "app.log"});
+        ExecutionResult noThreads = new CompressionCommands.GunzipCommand().execute(ctx, new String[]{"gunzip", "--threads", "2", "app.log.gz"});
+        System.setOut(old);
+        System.setErr(oldErr);
+
+        assertTrue(gzip.succeeded() && zip.succeeded() && gunzip.succeeded() && unzip.succeeded());
+        assertEquals(text, Files.readString(tempDir.resolve("app.log")));
+        assertEquals(text, Files.readString(tempDir.resolve("out/app.log")));
+        try (var archive = new ZipFile(tempDir.resolve("app.zip").toFile())) {
+            assertEquals(ZipEntry.STORED, archive.getEntry("app.log").getMethod());
+        }
+        assertEquals(2, tooSmall.exitCode());
+        assertEquals(2, badLevel.exitCode());
+        assertEquals(2, noThreads.exitCode());
+    }
+
+    // zcat / zgrep
+
+    private byte[] gzipOf(String text) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var gz = new GZIPOutputStream(bytes)) {
+            gz.write(text.getBytes());
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test void zcat_readsConcatenatedMembersAndPlainFiles_rejectsBadCrc() throws Exception {
+        var both = new ByteArrayOutputStream();
+        both.write(gzipOf("first member\n"));
+        both.write(gzipOf("x".repeat(300_000) + "\nsecond member"));
+        Files.write(tempDir.resolve("both.gz"), both.toByteArray());
+        Files.writeString(tempDir.resolve("plain.txt"), "plain\n");
+        byte[] bad = gzipOf("checked");
+        bad[bad.length - 8] ^= 1;                                 // first byte of the CRC32 trailer
+        Files.write(tempDir.resolve("bad.gz"), bad);
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        PrintStream old = System.out, oldErr = System.err;
+        System.setOut(new PrintStream(buf));
+        System.setErr(new PrintStream(new ByteArrayOutputStream()));
+        ExecutionResult ok = new CompressionCommands.ZcatCommand().execute(ctx, new String[]{"zcat", "both.gz", "plain.txt"});
+        ExecutionResult corrupt = new CompressionCommands.ZcatCommand().execute(ctx, new String[]{"zcat", "bad.gz"});
+        System.setOut(old);
+        System.setErr(oldErr);
+
+        assertTrue(ok.succeeded());
+        assertFalse(corrupt.succeeded());
+        assertTrue(buf.toString().startsWith("first member\n" + "x".repeat(300_000) + "\nsecond memberplain\n"));
+    }
+
+    @Test void zgrep_searchesInflatedLines_wcZCountsThem() throws Exception {
+        Files.write(tempDir.resolve("app.log.gz"), gzipOf("INFO start\nERROR disk full\nINFO retry\nERROR gave up\n"));
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        PrintStream old = System.out;
+        System.setOut(new PrintStream(buf));
+        ExecutionResult r = new CompressionCommands.ZgrepCommand().execute(ctx, new String[]{"zgrep", "-n", "ERROR", "app.log.gz"});
+        ExecutionResult none = new CompressionCommands.ZgrepCommand().execute(ctx, new String[]{"zgrep", "-c", "WARN", "app.log.gz"});
+        ExecutionResult wc = new SearchCommands.WcCommand().execute(ctx, new String[]{"wc", "-lZ", "app.log.gz"});
+        System.setOut(old);
+
+        assertTrue(r.succeeded());
+        assertEquals(1, none.exitCode());
+        assertEquals("2:ERROR disk full\n4:ERROR gave up\n0\n      4 app.log.gz\n", buf.toString().replace("\r", ""));
+        assertTrue(wc.succeeded());
+    }
+
+    // tar
+
+    @Test void tar_gzipRoundTrip_selectsByPatternAndKeepsModeAndMtime() throws Exception {
+        Path src = tempDir.resolve("app");
+        String longDir = "d".repeat(120);
+        Files.createDirectories(src.resolve("bin").resolve(longDir));
+        Files.writeString(src.resolve("bin/run.sh"), "#!/bin/sh\necho run\n");
+        Files.writeString(src.resolve("bin").resolve(longDir).resolve("deep.txt"), "deep");
+        Files.writeString(src.resolve("notes.txt"), "n".repeat(300_000));
+        boolean posix = tempDir.getFileSystem().supportedFileAttributeViews().contains("posix");
+        if (posix) Files.setPosixFilePermissions(src.resolve("bin/run.sh"), PosixFilePermissions.fromString("rwxr-x---"));
+        var mtime = FileTime.fromMillis(1_600_000_000_000L);
+        Files.setLastModifiedTime(src.resolve("bin/run.sh"), mtime);
+        Files.createDirectories(tempDir.resolve("out"));
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        PrintStream old = System.out;
+        System.setOut(new PrintStream(buf));
+        ExecutionResult created = new CompressionCommands.TarCommand().execute(ctx, new String[]{"tar", "-czf", "app.tgz", "-j", "2", "app"});
+        ExecutionResult listed = new CompressionCommands.TarCommand().execute(ctx, new String[]{"tar", "-tf", "app.tgz", "app/bin"});
+        ExecutionResult extracted = new CompressionCommands.TarCommand().execute(ctx, new String[]{"tar", "xf", "app.tgz", "-C", "out", "app/bin/*.sh", "app/notes.txt"});
+        System.setOut(old);
+
+        assertTrue(created.succeeded() && listed.succeeded() && extracted.succeeded());
+        assertEquals("app/bin/\napp/bin/" + longDir + "/\napp/bin/" + longDir + "/deep.txt\napp/bin/run.sh\n",
+            buf.toString().replace("\r", ""));
+        try (var in = new GZIPInputStream(Files.newInputStream(tempDir.resolve("app.tgz")))) {
+            assertEquals(0, in.readAllBytes().length % 10240);                  // whole tar records
+        }
+        Path run = tempDir.resolve("out/app/bin/run.sh");
+        assertEquals("#!/bin/sh\necho run\n", Files.readString(run));
+        assertEquals(mtime, Files.getLastModifiedTime(run));
+        if (posix) assertEquals("rwxr-x---", PosixFilePermissions.toString(Files.getPosixFilePermissions(run)));
+        assertEquals(300_000, Files.size(tempDir.resolve("out/app/notes.txt")));
+        assertFalse(Files.exists(tempDir.resolve("out/app/bin/" + longDir)));
+    }
+
+    @Test void tar_extract_blocksTraversalAndEscapingLinks() throws Exception {
+        Path archive = tempDir.resolve("evil.tar");
+        try (var tar = new TarWriter(Files.newOutputStream(archive))) {
+            tar.add(new TarWriter.Header("../evil.txt", TarWriter.FILE, 0644, 4, 0, ""), o -> o.write("evil".getBytes()));
+            tar.add(new TarWriter.Header("up", TarWriter.SYMLINK, 0777, 0, 0, "../.."), o -> {});
+            tar.add(new TarWriter.Header("ok.txt", TarWriter.FILE, 0644, 2, 0, ""), o -> o.write("ok".getBytes()));
+            tar.finish();
+        }
+        Files.createDirectories(tempDir.resolve("dest"));
+
+        PrintStream oldErr = System.err;
+        System.setErr(new PrintStream(new ByteArrayOutputStream()));
+        ExecutionResult r = new CompressionCommands.TarCommand().execute(ctx, new String[]{"tar", "-xf", "evil.tar", "-C", "dest"});
+        System.setErr(oldErr);
+
+        assertFalse(r.succeeded());
+        assertFalse(Files.exists(tempDir.resolve("evil.txt")));
+        assertFalse(Files.exists(tempDir.resolve("dest/up"), LinkOption.NOFOLLOW_LINKS));
+        assertEquals("ok", Files.readString(tempDir.resolve("dest/ok.txt")));
+    }
+
+    // lz4
+
+    @Test void lz4_roundTripsBlocksInParallel_rejectsBadChecksum() throws Exception {
+        var text = new StringBuilder();
+        var random = new Random(5);
+        while (text.length() < 3 * Lz4.BLOCK) text.append("GET /api/v1/orders/").append(random.nextInt(5000)).append(" 200\n");
+        byte[] noise = new byte[100_000];
+        random.nextBytes(noise);                                  // stored, not compressed
+        Files.writeString(tempDir.resolve("app.log"), text);
+        Files.write(tempDir.resolve("noise.bin"), noise);
+
+        PrintStream old = System.out, oldErr = System.err;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        System.setErr(new PrintStream(new ByteArrayOutputStream()));
+        ExecutionResult packed = new CompressionCommands.Lz4Command().execute(ctx, new String[]{"lz4", "-j", "2", "app.log", "noise.bin"});
+        boolean kept = Files.exists(tempDir.resolve("app.log"));    // as the lz4 tool does
+        Files.delete(tempDir.resolve("app.log"));
+        Files.delete(tempDir.resolve("noise.bin"));
+        byte[] bad = Files.readAllBytes(tempDir.resolve("noise.bin.lz4"));
+        bad[bad.length - 1000] ^= 1;                              // inside the stored block
+        Files.write(tempDir.resolve("bad.bin.lz4"), bad);
+        ExecutionResult unpacked = new CompressionCommands.Unlz4Command().execute(ctx, new String[]{"unlz4", "--rm", "app.log.lz4", "noise.bin.lz4"});
+        ExecutionResult corrupt = new CompressionCommands.Unlz4Command().execute(ctx, new String[]{"unlz4", "bad.bin.lz4"});
+        System.setOut(old);
+        System.setErr(oldErr);
+
+        assertTrue(packed.succeeded() && unpacked.succeeded() && kept);
+        assertEquals(text.toString(), Files.readString(tempDir.resolve("app.log")));
+        assertArrayEquals(noise, Files.readAllBytes(tempDir.resolve("noise.bin")));
+        assertFalse(Files.exists(tempDir.resolve("app.log.lz4")));
+        assertFalse(corrupt.succeeded());
+        assertFalse(Files.exists(tempDir.resolve("bad.bin")));
+    }
+
+    @Test void unlz4_readsLinkedBlocksFromTheReferenceEncoder() throws Exception {
+        // liblz4's LZ4F_compressFrame with default preferences: 64 KB linked blocks, no checksum
+        String frame = "04224d184040c06001000060726f7720300a060011310600113206001133060011340600113506001136060011370600113806001139060013313d00023e0012313f001231400012314100123142000329000136000227000226000225000224000f6600"
+            + "ff".repeat(256) + "5a500a726f772038000000113890ff0fcc" + "ff".repeat(43) + "e050772031350a00000000";
+        Files.write(tempDir.resolve("rows.lz4"), HexFormat.of().parseHex(frame));
+
+        PrintStream old = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        ExecutionResult r = new CompressionCommands.Unlz4Command().execute(ctx, new String[]{"unlz4", "rows.lz4"});
+        System.setOut(old);
+
+        var expected = new StringBuilder();
+        for (int i = 0; i < 12000; i++) expected.append("row ").append(i % 16).append('\n');
+        assertTrue(r.succeeded());
+        assertEquals(expected.toString(), Files.readString(tempDir.resolve("rows")));
+    }
+
+    // wget / curl
+
+    private static HttpServer httpServer(Set<Integer> clientPorts) throws IOException {
+        var server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            String path = exchange.getRequestURI().getPath();
+            byte[] body = ("served " + path + "\n").repeat(path.equals("/big") ? 20_000 : 1).getBytes();
+            try (exchange) {
+                if (path.equals("/slow")) Thread.sleep(2000);
+                String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                if (accept != null && accept.contains("gzip")) {
+                    var gz = new ByteArrayOutputStream();
+                    try (var out = new GZIPOutputStream(gz)) { out.write(body); }
+                    body = gz.toByteArray();
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                }
+                exchange.sendResponseHeaders(path.equals("/missing") ? 404 : 200, body.length);
+                exchange.getResponseBody().write(body);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    @Test void curl_reusesOneConnectionAcrossCalls_andDecodesGzip() throws Exception {
+        var ports = ConcurrentHashMap.<Integer>newKeySet();
+        var server = httpServer(ports);
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        PrintStream old = System.out, oldErr = System.err;
+        var out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        System.setErr(new PrintStream(new ByteArrayOutputStream()));
+        boolean allOk = true;
+        for (int i = 0; i < 20; i++) {
+            allOk &= new NetworkCommands.CurlCommand().execute(ctx, new String[]{"curl", base + "/ping"}).succeeded();
+        }
+        ExecutionResult gz = new NetworkCommands.CurlCommand().execute(ctx, new String[]{"curl", "--compressed", "-o", "big.txt", base + "/big"});
+        ExecutionResult wget = new NetworkCommands.WgetCommand().execute(ctx, new String[]{"wget", base + "/big", "plain.txt"});
+        ExecutionResult missing = new NetworkCommands.CurlCommand().execute(ctx, new String[]{"curl", base + "/missing"});
+        System.setOut(old);
+        System.setErr(oldErr);
+        server.stop(0);
+
+        assertTrue(allOk && gz.succeeded() && wget.succeeded());
+        // the client hands a connection back to its pool asynchronously, so a request may now and then open another
+        assertTrue(ports.size() < 5, "23 requests opened " + ports.size() + " connections");
+        assertEquals(20, out.toString().split("served /ping\n", -1).length - 1);
+        String expected = "served /big\n".repeat(20_000);
+        assertEquals(expected, Files.readString(tempDir.resolve("big.txt")));
+        assertEquals(expected, Files.readString(tempDir.resolve("plain.txt")));
+        assertEquals(1, missing.exitCode());
+    }
+
+    @Test void curl_timeouts_failSlowResponses_andRejectBadValues() throws Exception {
+        var server = httpServer(ConcurrentHashMap.newKeySet());
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        PrintStream oldErr = System.err, old = System.out;
+        var err = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(err));
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        ExecutionResult slow = new NetworkCommands.CurlCommand().execute(ctx, new String[]{"curl", "-m", "0.2", base + "/slow"});
+        ExecutionResult bad = new NetworkCommands.CurlCommand().execute(ctx, new String[]{"curl", "--connect-timeout", "soon", base});
+        ExecutionResult wgetBad = new NetworkCommands.WgetCommand().execute(ctx, new String[]{"wget", "-T"});
+        System.setErr(oldErr);
+        System.setOut(old);
+        server.stop(0);
+
+        assertEquals(1, slow.exitCode());
+        assertTrue(err.toString().contains("timed out after 0.2 s"), err.toString());
+        assertEquals(2, bad.exitCode());
+        assertEquals(2, wgetBad.exitCode());
+    }
+
+    /** Serves content with Range support; with broken set, ranges from breakAt on stop halfway. */
+    private static HttpServer rangeServer(byte[] content, List<String> ranges, AtomicBoolean broken,
+                                          long breakAt) throws IOException {
+        var server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            ranges.add(range == null ? "none" : range);
+            var headers = exchange.getResponseHeaders();
+            headers.set("ETag", "\"v1\"");
+            headers.set("Accept-Ranges", "bytes");
+            try (exchange) {
+                if (range == null) {
+                    exchange.sendResponseHeaders(200, content.length);
+                    exchange.getResponseBody().write(content);
+                    return;
+                }
+                String[] bounds = range.substring("bytes=".length()).split("-", -1);
+                int from = Integer.parseInt(bounds[0]);
+                int to = bounds[1].isEmpty() ? content.length - 1 : Math.min(Integer.parseInt(bounds[1]), content.length - 1);
+                if (from >= content.length) {
+                    headers.set("Content-Range", "bytes */" + content.length);
+                    exchange.sendResponseHeaders(416, -1);
+                    return;
+                }
+                headers.set("Content-Range", "bytes " + from + "-" + to + "/" + content.length);
+                int length = to - from + 1;
+                exchange.sendResponseHeaders(206, length);
+                boolean cut = broken.get() && from >= breakAt;
+                exchange.getResponseBody().write(content, from, cut ? length / 2 : length);
+                exchange.getResponseBody().flush();
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    @Test void wget_segmentedResumeAndChecksum() throws Exception {
+        byte[] content = new byte[3 << 20];
+        new Random(50).nextBytes(content);
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        var ranges = Collections.synchronizedList(new ArrayList<String>());
+        var server = rangeServer(content, ranges, new AtomicBoolean(), 0);
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/artifact.bin";
+        Files.write(tempDir.resolve("partial.bin"), Arrays.copyOf(content, 1_000_000));
+
+        PrintStream old = System.out, oldErr = System.err;
+        var out = new ByteArrayOutputStream();
+        var err = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        System.setErr(new PrintStream(err));
+        ExecutionResult segmented = new NetworkCommands.WgetCommand().execute(ctx, new String[]{"wget", "-n", "4", "--checksum", "sha256:" + sha256, url});
+        var segmentedRanges = new ArrayList<>(ranges);
+        ranges.clear();
+        ExecutionResult resumed = new NetworkCommands.WgetCommand().execute(ctx, new String[]{"wget", "-c", url, "partial.bin"});
+        ExecutionResult again = new NetworkCommands.WgetCommand().execute(ctx, new String[]{"wget", "-c", url, "partial.bin"});
+        ExecutionResult mismatch = new NetworkCommands.WgetCommand().execute(ctx, new String[]{"wget", "--checksum", "md5:" + "0".repeat(32), url, "other.bin"});
+        ExecutionResult badSegments = new NetworkCommands.WgetCommand().execute(ctx, new String[]{"wget", "-n", "0", url});
+        System.setOut(old);
+        System.setErr(oldErr);
+        server.stop(0);
+
+        assertTrue(segmented.succeeded() && resumed.succeeded() && again.succeeded(), err.toString());
+        assertArrayEquals(content, Files.readAllBytes(tempDir.resolve("artifact.bin")));
+        assertFalse(Files.exists(tempDir.resolve("artifact.bin.part")));
+        assertEquals("bytes=0-0", segmentedRanges.get(0));
+        assertEquals(Set.of("bytes=0-786431", "bytes=786432-1572863", "bytes=1572864-2359295", "bytes=2359296-3145727"),
+            new HashSet<>(segmentedRanges.subList(1, segmentedRanges.size())));
+        assertTrue(out.toString().contains("Checksum OK"));
+        assertArrayEquals(content, Files.readAllBytes(tempDir.resolve("partial.bin")));
+        assertEquals(List.of("bytes=1000000-", "bytes=3145728-"), ranges.subList(0, 2));
+        assertTrue(out.toString().contains("Already complete: partial.bin"));
+        assertEquals(1, mismatch.exitCode());
+        assertTrue(err.toString().contains("checksum mismatch"));
+        assertEquals(2, badSegments.exitCode());
+    }
+
+    @Test void wget_brokenSegment_retriesThenKeepsContiguousPrefixForResume() throws Exception {
+        byte[] content = new byte[3 << 20];
+        new Random(51).nextBytes(content);
+        long lastSegment = 2_359_296;
+        var ranges = Collections.synchronizedList(new ArrayList<String>());
+        var broken = new AtomicBoolean(true);
+        var server = rangeServer(content, ranges, broken, lastSegment);
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/big.bin";
+        Path part = tempDir.resolve("big.bin.part");
+
+        PrintStream old = System.out, oldErr = System.err;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        System.setErr(new PrintStream(new ByteArrayOutputStream()));
+        ExecutionResult failed = new NetworkCommands.WgetCommand().execute(ctx, new String[]{"wget", "-n", "4", url});
+        long kept = Files.size(part);
+        byte[] prefix = Files.readAllBytes(part);
+        long attempts = ranges.stream().filter(r -> !r.equals("bytes=0-0") && Long.parseLong(r.split("[=-]")[1]) >= lastSegment).count();
+        broken.set(false);
+        ranges.clear();
+        ExecutionResult resumed = new NetworkCommands.WgetCommand().execute(ctx, new String[]{"wget", "-c", "-n", "4", url});
+        System.setOut(old);
+        System.setErr(oldErr);
+        server.stop(0);
+
+        assertEquals(1, failed.exitCode());
+        assertEquals(1 + HttpDownload.RETRIES, attempts);
+        assertTrue(kept > lastSegment && kept < content.length, "kept " + kept);
+        assertArrayEquals(Arrays.copyOf(content, (int) kept), prefix);
+        assertFalse(Files.exists(tempDir.resolve("big.bin.part.ranges")));
+        assertTrue(resumed.succeeded());
+        assertEquals("bytes=" + kept + "-" + kept, ranges.get(0));
+        assertArrayEquals(content, Files.readAllBytes(tempDir.resolve("big.bin")));
+        assertFalse(Files.exists(part));
+    }
+
+    @Test void wget_resumesAKilledSegmentedDownloadFromItsRanges() throws Exception {
+        byte[] content = new byte[3 << 20];
+        new Random(52).nextBytes(content);
+        var ranges = Collections.synchronizedList(new ArrayList<String>());
+        var server = rangeServer(content, ranges, new AtomicBoolean(), 0);
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/killed.bin";
+        // what a process killed mid-download leaves: a full-length .part with holes, and how far each range got
+        long[][] segments = {{0, 786431, 786432}, {786432, 1572863, 1000}, {1572864, 2359295, 0}, {2359296, 3145727, 500000}};
+        byte[] part = new byte[content.length];
+        var saved = new StringBuilder("\"v1\"\n");
+        for (long[] seg : segments) {
+            System.arraycopy(content, (int) seg[0], part, (int) seg[0], (int) seg[2]);
+            saved.append(seg[0]).append(' ').append(seg[1]).append(' ').append(seg[2]).append('\n');
+        }
+        Files.write(tempDir.resolve("killed.bin.part"), part);
+        Files.writeString(tempDir.resolve("killed.bin.part.ranges"), saved);
+
+        PrintStream old = System.out, oldErr = System.err;
+        var err = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        System.setErr(new PrintStream(err));
+        ExecutionResult resumed = new NetworkCommands.WgetCommand().execute(ctx, new String[]{"wget", "-c", url});
+        System.setOut(old);
+        System.setErr(oldErr);
+        server.stop(0);
+
+        assertTrue(resumed.succeeded(), err.toString());
+        assertEquals(Set.of("bytes=787432-1572863", "bytes=1572864-2359295", "bytes=2859296-3145727"),
+            new HashSet<>(ranges));
+        assertArrayEquals(content, Files.readAllBytes(tempDir.resolve("killed.bin")));
+        assertFalse(Files.exists(tempDir.resolve("killed.bin.part")));
+        assertFalse(Files.exists(tempDir.resolve("killed.bin.part.ranges")));
+    }
+
+    @Test void wget_interrupted_cutsBackToTheContiguousPrefix() throws Exception {
+        byte[] content = new byte[3 << 20];
+        new Random(53).nextBytes(content);
+        long lastSegment = 2_359_296;
+        var requests = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        var server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            String[] bounds = exchange.getRequestHeaders().getFirst("Range").substring("bytes=".length()).split("-");
+            int from = Integer.parseInt(bounds[0]), to = Integer.parseInt(bounds[1]);
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + from + "-" + to + "/" + content.length);
+            try (exchange) {
+                exchange.sendResponseHeaders(206, to - from + 1);
+                requests.incrementAndGet();
+                if (from < lastSegment) {
+                    exchange.getResponseBody().write(content, from, to - from + 1);
+                    return;
+                }
+                exchange.getResponseBody().write(content, from, (to - from + 1) / 2);
+                exchange.getResponseBody().flush();
+                release.await(30, TimeUnit.SECONDS);     // the last range stalls
+                exchange.getResponseBody().write(content, from + (to - from + 1) / 2, (to - from + 1) - (to - from + 1) / 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/stall.bin";
+        Path part = tempDir.resolve("stall.bin.part");
+
+        PrintStream old = System.out, oldErr = System.err;
+        var err = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        System.setErr(new PrintStream(err));
+        var result = new AtomicReference<ExecutionResult>();
+        var stillInterrupted = new AtomicBoolean();
+        Thread wget = new Thread(() -> {
+            result.set(new NetworkCommands.WgetCommand().execute(ctx, new String[]{"wget", "-n", "4", url}));
+            stillInterrupted.set(Thread.currentThread().isInterrupted());
+        });
+        wget.start();
+        while (requests.get() < 5) Thread.sleep(20);       // the probe and four ranges
+        Thread.sleep(3 * HttpDownload.PROGRESS_MS);
+        wget.interrupt();
+        Thread.sleep(200);
+        release.countDown();
+        wget.join(30_000);
+        System.setOut(old);
+        System.setErr(oldErr);
+        server.stop(0);
+
+        assertEquals(1, result.get().exitCode());
+        assertTrue(err.toString().contains("interrupted"), err.toString());
+        assertTrue(stillInterrupted.get());
+        long kept = Files.size(part);
+        assertTrue(kept >= lastSegment && kept < content.length, "kept " + kept);
+        assertArrayEquals(Arrays.copyOf(content, (int) kept), Files.readAllBytes(part));
+        assertFalse(Files.exists(tempDir.resolve("stall.bin.part.ranges")));
+    }
+
     // && chaining — App.dispatch()
 
     private CommandRegistry buildRegistry() {
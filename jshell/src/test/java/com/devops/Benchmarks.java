@@ -0,0 +1,451 @@
+package com.devops;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Throughput benchmarks. Not a JUnit test — surefire does not pick it up.
+ *
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.devops.Benchmarks -Dexec.args="text"
+ *
+ * Each case runs WARMUP untimed iterations, then RUNS timed ones, and reports
+ * the median. Input size is set with -Dbench.mb (default 128). Commands run
+ * with System.out redirected to a null stream so printing is not measured.
+ */
+final class Benchmarks {
+
+    private static final int WARMUP = 5;
+    private static final int RUNS   = 5;
+    private static final int MB     = Integer.getInteger("bench.mb", 128);
+    private static final int PARTS  = 8;
+
+    private static final PrintStream NULL_OUT = new PrintStream(OutputStream.nullOutputStream());
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+
+    interface Case { void run() throws Exception; }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Scenario> scenarios = new LinkedHashMap<>();
+        scenarios.put("text", Benchmarks::text);
+        scenarios.put("grep", Benchmarks::grep);
+        scenarios.put("patterns", Benchmarks::patterns);
+        scenarios.put("sort", Benchmarks::sort);
+        scenarios.put("zip", Benchmarks::zip);
+        scenarios.put("lz4", Benchmarks::lz4);
+        scenarios.put("compression", Benchmarks::compression);
+
+        List<String> selected = args.length == 0 ? List.copyOf(scenarios.keySet()) : Arrays.asList(args);
+        Path dir = Files.createTempDirectory("jshell-bench");
+        try {
+            for (String name : selected) {
+                Scenario scenario = scenarios.get(name);
+                if (scenario == null) {
+                    System.err.println("unknown scenario '" + name + "', have " + scenarios.keySet());
+                    continue;
+                }
+                System.out.println("== " + name + " ==");
+                scenario.run(dir);
+            }
+        } finally {
+            try (var walk = Files.walk(dir)) {
+                walk.sorted(Collections.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    interface Scenario { void run(Path dir) throws Exception; }
+
+    // text — LineScanner-based commands against the readLine() loops they replaced
+
+    private static void text(Path dir) throws Exception {
+        Path log = accessLog(dir.resolve("access.log"), MB);
+        Path small = accessLog(dir.resolve("small.log"), Math.max(1, MB / 8));
+        long bytes = Files.size(log);
+        long smallBytes = Files.size(small);
+        ShellContext ctx = new ShellContext(dir.toFile());
+        Pattern pattern = Pattern.compile("GET /api/v\\d+/orders");
+        String cores = Integer.toString(Runtime.getRuntime().availableProcessors());
+
+        measure("cat   readLine", bytes, () -> readLines(log, line -> NULL_OUT.println(line)));
+        measure("cat   scanner ", bytes, () -> command(new FileManipulationCommands.CatCommand(), ctx, "cat", "access.log"));
+
+        measure("grep  readLine", bytes, () -> readLines(log, line -> {
+            if (pattern.matcher(line).find()) NULL_OUT.println(line);
+        }));
+        measure("grep  scanner ", bytes, () -> command(new TextCommands.GrepCommand(), ctx, "grep", pattern.pattern(), "access.log"));
+
+        measure("wc    readLine", bytes, () -> readLines(log, line -> {
+            if (!line.isBlank()) line.trim().split("\\s+");
+        }));
+        measure("wc    swar -j 1", bytes, () -> command(new SearchCommands.WcCommand(), ctx, "wc", "-j", "1", "access.log"));
+        measure("wc    swar -j " + cores, bytes, () -> command(new SearchCommands.WcCommand(), ctx, "wc", "-j", cores, "access.log"));
+
+        measure("uniq  readLine", bytes, () -> {
+            String[] prev = {null};
+            readLines(log, line -> {
+                if (!line.equals(prev[0])) NULL_OUT.println(line);
+                prev[0] = line;
+            });
+        });
+        measure("uniq  scanner ", bytes, () -> command(new UtilityCommands.UniqCommand(), ctx, "uniq", "access.log"));
+
+        measure("sort  readLine", smallBytes, () -> {
+            List<String> lines = Files.readAllLines(small);
+            Collections.sort(lines);
+            lines.forEach(NULL_OUT::println);
+        });
+        measure("sort  scanner ", smallBytes, () -> command(new UtilityCommands.SortCommand(), ctx, "sort", "small.log"));
+    }
+
+    // grep — literal fast path and chunk-parallel search
+
+    private static void grep(Path dir) throws Exception {
+        Path log = accessLog(dir.resolve("access.log"), MB);
+        long bytes = Files.size(log);
+        ShellContext ctx = new ShellContext(dir.toFile());
+        String cores = Integer.toString(Runtime.getRuntime().availableProcessors());
+        var grep = new TextCommands.GrepCommand();
+
+        measure("regex   -j 1", bytes, () -> command(grep, ctx, "grep", "-j", "1", "v2/orders/9+1", "access.log"));
+        measure("literal -j 1", bytes, () -> command(grep, ctx, "grep", "-j", "1", "v2/orders/991", "access.log"));
+        measure("regex   -j " + cores, bytes, () -> command(grep, ctx, "grep", "-j", cores, "v2/orders/9+1", "access.log"));
+        measure("literal -j " + cores, bytes, () -> command(grep, ctx, "grep", "-j", cores, "v2/orders/991", "access.log"));
+
+        String regex = "(GET|POST) /api/v\\d/orders/?\\d*9 HTTP";
+        measure("regex   --engine=java", bytes, () -> command(grep, ctx, "grep", "-j", "1", "--engine=java", regex, "access.log"));
+        measure("regex   --engine=dfa", bytes, () -> command(grep, ctx, "grep", "-j", "1", "--engine=dfa", regex, "access.log"));
+    }
+
+    // patterns — grep -F -f through Aho-Corasick, against a regex alternation
+
+    private static void patterns(Path dir) throws Exception {
+        Path log = accessLog(dir.resolve("access.log"), MB);
+        long bytes = Files.size(log);
+        ShellContext ctx = new ShellContext(dir.toFile());
+        var grep = new TextCommands.GrepCommand();
+
+        for (int count : new int[]{1_000, 10_000, 100_000}) {
+            List<String> ids = orderIds(count);
+            Files.write(dir.resolve("ids-" + count + ".txt"), ids);
+
+            long start = System.nanoTime();
+            AhoCorasick automaton = AhoCorasick.build(ids, false);
+            System.out.printf("  build %,7d patterns: %6.1f ms, %,d states%n",
+                count, (System.nanoTime() - start) / 1e6, automaton.stateCount());
+
+            measure("-F -f " + count, bytes, () -> command(grep, ctx, "grep", "-F", "-f", "ids-" + count + ".txt", "access.log"));
+        }
+
+        // one alternation regex retries every branch at every offset — only the smallest set is bearable
+        Pattern alternation = Pattern.compile(String.join("|", orderIds(1_000).stream().map(Pattern::quote).toList()));
+        Path small = accessLog(dir.resolve("small.log"), Math.max(1, MB / 32));
+        measure("regex alternation 1000", Files.size(small), () -> readLines(small, line -> {
+            if (alternation.matcher(line).find()) NULL_OUT.println(line);
+        }));
+    }
+
+    // sort — precomputed numeric keys against parsing inside the comparator
+
+    private static void sort(Path dir) throws Exception {
+        int count = Integer.getInteger("bench.lines", 10_000_000);
+        Path numbers = dir.resolve("numbers.txt");
+        var random = new Random(5);
+        try (var w = Files.newBufferedWriter(numbers)) {
+            for (int i = 0; i < count; i++) {
+                w.append(Integer.toString(random.nextInt(1_000_000_000))).append('.')
+                 .append(Integer.toString(random.nextInt(100))).append('\n');
+            }
+        }
+        long bytes = Files.size(numbers);
+        ShellContext ctx = new ShellContext(dir.toFile());
+        var sort = new UtilityCommands.SortCommand();
+
+        measure("-n parse per compare", bytes, () -> {
+            List<String> lines = Files.readAllLines(numbers);
+            lines.sort((a, b) -> {
+                try {
+                    return Double.compare(Double.parseDouble(a.trim()), Double.parseDouble(b.trim()));
+                } catch (NumberFormatException e) {
+                    return a.compareTo(b);
+                }
+            });
+            lines.forEach(NULL_OUT::println);
+        });
+        measure("-n keys once", bytes, () -> command(sort, ctx, "sort", "-n", "-S", "100%", "numbers.txt"));
+        measure("-k1,1n keys once", bytes, () -> command(sort, ctx, "sort", "-k1,1n", "-S", "100%", "numbers.txt"));
+    }
+
+    // zip — parallel entry compression with store mode against one ZipOutputStream
+
+    private static void zip(Path dir) throws Exception {
+        int count = Integer.getInteger("bench.files", 100_000);
+        Path tree = mixedTree(dir.resolve("tree"), count);
+        long bytes;
+        try (var walk = Files.walk(tree)) {
+            bytes = walk.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+        }
+        ShellContext ctx = new ShellContext(dir.toFile());
+        var zip = new CompressionCommands.ZipCommand();
+        String cores = Integer.toString(Runtime.getRuntime().availableProcessors());
+
+        measure("ZipOutputStream serial", bytes, () -> {
+            try (var zos = new java.util.zip.ZipOutputStream(
+                    new java.io.BufferedOutputStream(Files.newOutputStream(dir.resolve("serial.zip"))));
+                 var walk = Files.walk(tree)) {
+                for (Path p : walk.filter(Files::isRegularFile).sorted().toList()) {
+                    zos.putNextEntry(new java.util.zip.ZipEntry(tree.relativize(p).toString()));
+                    Files.copy(p, zos);
+                    zos.closeEntry();
+                }
+            }
+        });
+        measure("zip -j 1", bytes, () -> command(zip, ctx, "zip", "-r", "-j", "1", "out.zip", "tree"));
+        measure("zip -j " + cores, bytes, () -> command(zip, ctx, "zip", "-r", "-j", cores, "out.zip", "tree"));
+        System.out.printf("  archive %.1f MB (serial %.1f MB) from %.1f MB%n", Files.size(dir.resolve("out.zip")) / 1048576.0,
+            Files.size(dir.resolve("serial.zip")) / 1048576.0, bytes / 1048576.0);
+    }
+
+    // lz4 — the LZ4 frame codec against ParallelGzip on the access log, both ways
+
+    private static void lz4(Path dir) throws Exception {
+        Path log = accessLog(dir.resolve("access.log"), MB);
+        long bytes = Files.size(log);
+        int cores = Runtime.getRuntime().availableProcessors();
+        OutputStream discard = OutputStream.nullOutputStream();
+
+        measure("gzip -1 -j " + cores, bytes, () -> ParallelGzip.compress(log, discard, 1, cores, CompressionTuning.DEFAULT_BUFFER));
+        measure("gzip -6 -j " + cores, bytes, () -> ParallelGzip.compress(log, discard, 6, cores, CompressionTuning.DEFAULT_BUFFER));
+        measure("lz4 -j 1", bytes, () -> Lz4.compress(log, discard, 1));
+        measure("lz4 -j " + cores, bytes, () -> Lz4.compress(log, discard, cores));
+
+        Path gz = dir.resolve("access.log.gz"), lz4 = dir.resolve("access.log.lz4");
+        try (var out = Files.newOutputStream(gz)) {
+            ParallelGzip.compress(log, out, 1, cores, CompressionTuning.DEFAULT_BUFFER);
+        }
+        try (var out = Files.newOutputStream(lz4)) {
+            Lz4.compress(log, out, cores);
+        }
+        measure("zcat (gzip -1)", bytes, () -> {
+            try (var in = GzipStream.open(gz)) {
+                in.transferTo(discard);
+            }
+        });
+        measure("unlz4", bytes, () -> {
+            try (var in = Lz4.open(lz4)) {
+                in.transferTo(discard);
+            }
+        });
+        System.out.printf("  ratio gzip -1 %.2f, lz4 %.2f (of %.1f MB)%n",
+            (double) bytes / Files.size(gz), (double) bytes / Files.size(lz4), bytes / 1048576.0);
+    }
+
+    // compression — gzip, gunzip, zip and unzip over three corpora, sweeping level, --buffer
+    // and --threads one at a time around the defaults; -Dbench.mb sets each corpus's size
+
+    private static void compression(Path dir) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int t = 1; t < cores; t *= 2) threadCounts.add(t);
+        threadCounts.add(cores);
+
+        for (var corpus : corpora(dir, MB).entrySet()) {
+            Path home = dir.resolve(corpus.getKey());
+            ShellContext ctx = new ShellContext(home.toFile());
+            List<String> parts = corpus.getValue();
+            String[] gzipped = parts.stream().map(p -> p + ".gz").toArray(String[]::new);
+            long bytes = (long) MB * 1024 * 1024;
+            System.out.println("  -- " + corpus.getKey() + " --");
+
+            for (String level : List.of("1", "6", "9")) {
+                measure("gzip --level " + level, bytes, () ->
+                    command(new CompressionCommands.GzipCommand(), ctx, args("gzip -k --level " + level, parts)));
+                ratio("gzip --level " + level, bytes, home, gzipped);
+                measure("zip --level " + level, bytes, () ->
+                    command(new CompressionCommands.ZipCommand(), ctx, args("zip --level " + level + " out.zip", parts)));
+                ratio("zip --level " + level, bytes, home, "out.zip");
+            }
+            for (String buffer : List.of("8K", "64K", "256K", "1M", "4M")) {
+                measure("gzip --buffer " + buffer, bytes, () ->
+                    command(new CompressionCommands.GzipCommand(), ctx, args("gzip -k --buffer " + buffer, parts)));
+                measure("gunzip --buffer " + buffer, bytes, () ->
+                    command(new CompressionCommands.GunzipCommand(), ctx, args("gunzip --buffer " + buffer, List.of(gzipped))));
+                measure("zip --buffer " + buffer, bytes, () ->
+                    command(new CompressionCommands.ZipCommand(), ctx, args("zip --buffer " + buffer + " out.zip", parts)));
+                measure("unzip --buffer " + buffer, bytes, () ->
+                    command(new CompressionCommands.UnzipCommand(), ctx, args("unzip --buffer " + buffer + " -d x out.zip", List.of())));
+            }
+            for (int threads : threadCounts) {
+                measure("gzip --threads " + threads, bytes, () ->
+                    command(new CompressionCommands.GzipCommand(), ctx, args("gzip -k --threads " + threads, parts)));
+                measure("zip --threads " + threads, bytes, () ->
+                    command(new CompressionCommands.ZipCommand(), ctx, args("zip --threads " + threads + " out.zip", parts)));
+                measure("unzip --threads " + threads, bytes, () ->
+                    command(new CompressionCommands.UnzipCommand(), ctx, args("unzip --threads " + threads + " -d x out.zip", List.of())));
+            }
+        }
+    }
+
+    /**
+     * megabytes each of a text log, random bytes, and already-compressed
+     * data (the log deflated, repeated further apart than any match window),
+     * every corpus cut into PARTS files so zip has entries to spread.
+     */
+    private static Map<String, List<String>> corpora(Path dir, int megabytes) throws IOException {
+        int size = megabytes * 1024 * 1024;
+        byte[] text = Arrays.copyOf(Files.readAllBytes(accessLog(dir.resolve("corpus.log"), megabytes)), size);
+        byte[] random = new byte[size];
+        new Random(3).nextBytes(random);
+        var deflated = new java.io.ByteArrayOutputStream();
+        try (var out = new java.util.zip.DeflaterOutputStream(deflated, new java.util.zip.Deflater(9))) {
+            out.write(text);
+        }
+        byte[] compressed = new byte[size];
+        byte[] once = deflated.toByteArray();
+        for (int p = 0; p < size; p += once.length) System.arraycopy(once, 0, compressed, p, Math.min(once.length, size - p));
+
+        Map<String, List<String>> corpora = new LinkedHashMap<>();
+        Map<String, byte[]> data = Map.of("text", text, "random", random, "compressed", compressed);
+        for (String kind : List.of("text", "random", "compressed")) {
+            Path home = Files.createDirectories(dir.resolve(kind));
+            List<String> parts = new ArrayList<>();
+            for (int i = 0; i < PARTS; i++) {
+                String name = "part-" + i + ".dat";
+                Files.write(home.resolve(name), Arrays.copyOfRange(data.get(kind), i * (size / PARTS), (i + 1) * (size / PARTS)));
+                parts.add(name);
+            }
+            corpora.put(kind, parts);
+        }
+        return corpora;
+    }
+
+    private static String[] args(String command, List<String> operands) {
+        List<String> all = new ArrayList<>(Arrays.asList(command.split(" ")));
+        all.addAll(operands);
+        return all.toArray(String[]::new);
+    }
+
+    private static void ratio(String label, long bytes, Path home, String... outputs) throws IOException {
+        long size = 0;
+        for (String name : outputs) size += Files.size(home.resolve(name));
+        System.out.printf("  %-28s ratio %.2f%n", label, (double) bytes / size);
+    }
+
+    /**
+     * count files over count / 1000 directories: 60% text logs, 20% JSON,
+     * 10% random bytes named .png and 10% random bytes named .dat (only the
+     * compressibility sample can tell those are incompressible).
+     */
+    private static Path mixedTree(Path root, int count) throws IOException {
+        var random = new Random(11);
+        byte[] noise = new byte[256 * 1024];
+        random.nextBytes(noise);
+        String[] levels = {"INFO", "INFO", "INFO", "WARN", "ERROR"};
+        for (int i = 0; i < count; i++) {
+            Path d = root.resolve("d" + (i % Math.max(1, count / 1000)));
+            if (i < Math.max(1, count / 1000)) Files.createDirectories(d);
+            int kind = random.nextInt(10);
+            if (kind < 6) {
+                var sb = new StringBuilder();
+                for (int l = 4 + random.nextInt(200); l > 0; l--) {
+                    sb.append("2026-10-19T10:").append(10 + random.nextInt(50)).append(' ')
+                      .append(levels[random.nextInt(levels.length)]).append(" request ")
+                      .append(random.nextInt(1_000_000)).append(" served in ").append(random.nextInt(900)).append("ms\n");
+                }
+                Files.writeString(d.resolve("f" + i + ".log"), sb);
+            } else if (kind < 8) {
+                Files.writeString(d.resolve("f" + i + ".json"),
+                    "{\"id\":" + i + ",\"name\":\"item-" + random.nextInt(1000) + "\",\"tags\":[\"a\",\"b\"]}\n");
+            } else {
+                int len = 1024 + random.nextInt(128 * 1024);
+                int from = random.nextInt(noise.length - len);
+                Files.write(d.resolve("f" + i + (kind == 8 ? ".png" : ".dat")), Arrays.copyOfRange(noise, from, from + len));
+            }
+        }
+        return root;
+    }
+
+    /** Order paths as they appear in accessLog(), spread over ten times the logged id range. */
+    private static List<String> orderIds(int count) {
+        var random = new Random(7);
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) ids.add("orders/" + random.nextInt(1_000_000) + " HTTP");
+        return ids;
+    }
+
+    // harness
+
+    /** Also reports the heap allocated per run, on every thread (pools included), where the JVM counts it. */
+    static void measure(String label, long bytes, Case body) throws Exception {
+        for (int i = 0; i < WARMUP; i++) body.run();
+        long[] nanos = new long[RUNS];
+        long allocatedBefore = THREADS.getTotalThreadAllocatedBytes();
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            body.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        long allocated = (THREADS.getTotalThreadAllocatedBytes() - allocatedBefore) / RUNS;
+        Arrays.sort(nanos);
+        long median = nanos[RUNS / 2];
+        System.out.printf("  %-28s %9.1f ms  %8.1f MB/s  %s%n",
+            label, median / 1e6, bytes / (1024.0 * 1024.0) / (median / 1e9),
+            allocatedBefore < 0 ? "" : String.format("%9.1f MB alloc", allocated / (1024.0 * 1024.0)));
+    }
+
+    static void command(Command command, ShellContext ctx, String... args) {
+        PrintStream old = System.out;
+        System.setOut(NULL_OUT);
+        try {
+            command.execute(ctx, args);
+        } finally {
+            System.setOut(old);
+        }
+    }
+
+    interface LineConsumer { void accept(String line); }
+
+    static void readLines(Path file, LineConsumer consumer) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) consumer.accept(line);
+        }
+    }
+
+    /** Synthetic access log — fixed seed so runs are comparable. */
+    static Path accessLog(Path file, int megabytes) throws IOException {
+        String[] methods = {"GET", "GET", "GET", "POST", "PUT", "DELETE"};
+        String[] paths = {"/api/v1/orders", "/api/v2/orders/", "/static/app.js", "/health", "/api/v1/users/", "/login"};
+        var random = new Random(42);
+        long target = (long) megabytes * 1024 * 1024;
+        long written = 0;
+        try (var w = Files.newBufferedWriter(file)) {
+            var sb = new StringBuilder(160);
+            while (written < target) {
+                sb.setLength(0);
+                sb.append("10.").append(random.nextInt(256)).append('.').append(random.nextInt(256)).append('.')
+                  .append(random.nextInt(256)).append(" - - [19/Oct/2026:10:").append(10 + random.nextInt(50))
+                  .append(":00 +0000] \"").append(methods[random.nextInt(methods.length)]).append(' ')
+                  .append(paths[random.nextInt(paths.length)]).append(random.nextInt(100_000))
+                  .append(" HTTP/1.1\" ").append(random.nextInt(10) == 0 ? 500 : 200).append(' ')
+                  .append(random.nextInt(50_000)).append(" \"curl/8.4\"\n");
+                w.append(sb);
+                written += sb.length();
+            }
+        }
+        return file;
+    }
+}